@@ -19,9 +19,14 @@ android {
         versionCode = 1
         versionName = "1.0"
 
-        testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+        // AndroidBenchmarkRunner extends AndroidJUnitRunner; it also keeps clocks stable for the benchmarks
+        testInstrumentationRunner = "androidx.benchmark.junit4.AndroidBenchmarkRunner"
     }
 
+    // On-device benchmarks need a non-debuggable build:
+    // ./gradlew :app:connectedBenchmarkAndroidTest -PtestBuildType=benchmark
+    testBuildType = providers.gradleProperty("testBuildType").getOrElse("debug")
+
     buildTypes {
         release {
             isMinifyEnabled = false
@@ -30,6 +35,24 @@ android {
                 "proguard-rules.pro"
             )
         }
+        create("benchmark") {
+            initWith(getByName("release"))
+            signingConfig = signingConfigs.getByName("debug")
+            matchingFallbacks += listOf("release")
+            isDebuggable = false
+        }
+    }
+    sourceSets {
+        // generated benchmark maps, shared by the on-device benchmarks and the JVM harness
+        getByName("test").java.srcDir("src/sharedTest/java")
+        getByName("androidTest").java.srcDir("src/sharedTest/java")
+    }
+    testOptions {
+        unitTests.all {
+            // JvmBenchmarks only run with -Pbenchmark (results: -PbenchmarkOut=<csv file>)
+            it.systemProperty("finlitrush.benchmark", providers.gradleProperty("benchmark").isPresent)
+            it.systemProperty("finlitrush.benchmark.out", providers.gradleProperty("benchmarkOut").getOrElse(""))
+        }
     }
     compileOptions {
         sourceCompatibility = JavaVersion.VERSION_11
@@ -38,9 +61,28 @@ android {
     buildFeatures {
         viewBinding = true
     }
+    androidResources {
+        // compiled maps are memory-mapped straight out of the APK
+        noCompress += "fmap"
+    }
+}
+
+val compileMaps = tasks.register<com.non_breath.finlitrush.build.CompileMapsTask>("compileMaps") {
+    sourceDir.set(layout.projectDirectory.dir("src/main/assets/maps"))
+    assetPrefix.set("maps")
+}
+
+androidComponents {
+    onVariants { variant ->
+        variant.sources.assets?.addGeneratedSourceDirectory(
+            compileMaps,
+            com.non_breath.finlitrush.build.CompileMapsTask::getOutputDir
+        )
+    }
 }
 
 dependencies {
+    implementation(project(":core"))
     implementation(libs.appcompat)
     implementation(libs.material)
     implementation(libs.activity)
@@ -67,4 +109,5 @@ dependencies {
     testImplementation(libs.junit)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
+    androidTestImplementation(libs.benchmark.junit4)
 }
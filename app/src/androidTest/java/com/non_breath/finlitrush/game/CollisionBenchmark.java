@@ -0,0 +1,102 @@
+package com.non_breath.finlitrush.game;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+
+import com.non_breath.finlitrush.game.bench.SyntheticMaps;
+import com.non_breath.finlitrush.game.data.CollisionMask;
+import com.non_breath.finlitrush.game.nav.Pathfinder;
+import com.non_breath.finlitrush.game.physics.CollisionWorld;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.List;
+
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Collision and navigation on generated maps: walkability queries, greedy meshing,
+ * swept movement and corner-to-corner paths (cache cleared, so every search runs).
+ * The same cases run on the JVM in JvmBenchmarks for quick local comparisons.
+ */
+@RunWith(Parameterized.class)
+public class CollisionBenchmark {
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    @Parameterized.Parameters(name = "{0}x{1}")
+    public static List<Object[]> sizes() {
+        return SyntheticMaps.sizeParameters();
+    }
+
+    private final int cols, rows;
+    private CollisionMask mask;
+    private Pathfinder pathfinder;
+
+    public CollisionBenchmark(int cols, int rows) {
+        this.cols = cols;
+        this.rows = rows;
+    }
+
+    @Before
+    public void buildMap() {
+        mask = SyntheticMaps.collision(cols, rows);
+        pathfinder = new Pathfinder(Pathfinder.DEFAULT_CACHE_PATHS);
+        pathfinder.setGrid(mask, cols, rows);
+    }
+
+    @Test
+    public void isWalkableScan() {
+        BenchmarkState state = benchmarkRule.getState();
+        int walkable = 0;
+        while (state.keepRunning()) {
+            for (int r = 0; r < rows; r++) {
+                for (int c = 0; c < cols; c++) if (pathfinder.isWalkable(c, r)) walkable++;
+            }
+        }
+        if (walkable < 0) throw new AssertionError();
+    }
+
+    @Test
+    public void buildCollisionWorld() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            CollisionWorld.build(mask, cols, rows);
+        }
+    }
+
+    @Test
+    public void slide() {
+        CollisionWorld world = CollisionWorld.build(mask, cols, rows);
+        float[] out = new float[2];
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            // a diagonal step into the first pillar, sliding along it
+            world.slide(2f, 2f, 0.3f, 0.3f, 1.2f, 1.1f, out);
+        }
+    }
+
+    @Test
+    public void findPathAStar() {
+        findPath(false);
+    }
+
+    @Test
+    public void findPathJumpPoints() {
+        findPath(true);
+    }
+
+    private void findPath(boolean jumpPoints) {
+        pathfinder.setJumpPoints(jumpPoints);
+        assertNotNull(pathfinder.findPath(1, 1, cols - 2, rows - 2));
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            pathfinder.clearCache();
+            pathfinder.findPath(1, 1, cols - 2, rows - 2);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.non_breath.finlitrush.game;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.view.View;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.non_breath.finlitrush.game.bench.SyntheticMaps;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.List;
+
+/**
+ * One full GameView frame (drawGame) into an offscreen software Canvas, with the chunk
+ * cache on and off. The view is laid out at a phone-sized 1080x1920 but never attached,
+ * so no surface or game loop is involved.
+ */
+@RunWith(Parameterized.class)
+public class DrawFrameBenchmark {
+    private static final int VIEW_W = 1080, VIEW_H = 1920;
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    @Parameterized.Parameters(name = "{0}x{1}")
+    public static List<Object[]> sizes() {
+        return SyntheticMaps.sizeParameters();
+    }
+
+    private final int cols, rows;
+    private GameView view;
+    private Bitmap target;
+    private Canvas canvas;
+
+    public DrawFrameBenchmark(int cols, int rows) {
+        this.cols = cols;
+        this.rows = rows;
+    }
+
+    @Before
+    public void createView() {
+        Context ctx = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            view = new GameView(ctx);
+            view.measure(View.MeasureSpec.makeMeasureSpec(VIEW_W, View.MeasureSpec.EXACTLY),
+                    View.MeasureSpec.makeMeasureSpec(VIEW_H, View.MeasureSpec.EXACTLY));
+            view.layout(0, 0, VIEW_W, VIEW_H);
+            view.surfaceChanged(view.getHolder(), 0, VIEW_W, VIEW_H);
+            view.showMap(SyntheticMaps.mapData(cols, rows));
+        });
+        target = Bitmap.createBitmap(VIEW_W, VIEW_H, Bitmap.Config.ARGB_8888);
+        canvas = new Canvas(target);
+    }
+
+    @After
+    public void release() {
+        target.recycle();
+    }
+
+    @Test
+    public void drawFrameChunked() {
+        draw(true);
+    }
+
+    @Test
+    public void drawFramePerTile() {
+        draw(false);
+    }
+
+    private void draw(boolean chunkCache) {
+        view.setChunkCacheEnabled(chunkCache);
+        view.drawOffscreen(canvas); // first frame builds the sprite atlas and tile chunks
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            view.drawOffscreen(canvas);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.non_breath.finlitrush.game;
+
+import android.content.Context;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.non_breath.finlitrush.game.bench.SyntheticMaps;
+import com.non_breath.finlitrush.game.data.MapData;
+import com.non_breath.finlitrush.game.io.MapLoader;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * MapLoader.parse for generated custom and Tiled JSON maps, 20x12 up to 1024x1024.
+ * The JSON is generated once per case; only parsing and MapData assembly are timed.
+ */
+@RunWith(Parameterized.class)
+public class MapLoadBenchmark {
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    @Parameterized.Parameters(name = "{0}_{1}x{2}")
+    public static List<Object[]> cases() {
+        List<Object[]> out = new ArrayList<>();
+        for (int[] size : SyntheticMaps.SIZES) {
+            out.add(new Object[]{"custom", size[0], size[1]});
+            out.add(new Object[]{"tiled", size[0], size[1]});
+        }
+        return out;
+    }
+
+    private final String format;
+    private final int cols, rows;
+
+    public MapLoadBenchmark(String format, int cols, int rows) {
+        this.format = format;
+        this.cols = cols;
+        this.rows = rows;
+    }
+
+    @Test
+    public void parse() throws Exception {
+        Context ctx = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        String json = "tiled".equals(format) ? SyntheticMaps.tiledJson(cols, rows) : SyntheticMaps.customJson(cols, rows);
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        BenchmarkState state = benchmarkRule.getState();
+        MapData md = null;
+        while (state.keepRunning()) {
+            md = MapLoader.parse(ctx, new ByteArrayInputStream(bytes), null);
+        }
+        assertEquals(cols, md.cols);
+        assertEquals(rows, md.rows);
+    }
+}
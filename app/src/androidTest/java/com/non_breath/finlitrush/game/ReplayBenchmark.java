@@ -0,0 +1,100 @@
+package com.non_breath.finlitrush.game;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.view.View;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.non_breath.finlitrush.game.bench.SyntheticMaps;
+import com.non_breath.finlitrush.game.data.MapData;
+import com.non_breath.finlitrush.game.loop.InputLog;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.List;
+
+/**
+ * A scripted playthrough of each generated map (SyntheticMaps.walkthrough: D-pad, stick,
+ * then a tap-to-move across the map), replayed through GameView's fixed-step simulation.
+ * The replay is deterministic, so builds compare the same frames; it restarts (untimed)
+ * whenever it ends. Measured per step, with and without drawing the frame offscreen.
+ */
+@RunWith(Parameterized.class)
+public class ReplayBenchmark {
+    private static final int VIEW_W = 1080, VIEW_H = 1920;
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    @Parameterized.Parameters(name = "{0}x{1}")
+    public static List<Object[]> sizes() {
+        return SyntheticMaps.sizeParameters();
+    }
+
+    private final int cols, rows;
+    private GameView view;
+    private MapData map;
+    private InputLog log;
+    private Bitmap target;
+    private Canvas canvas;
+
+    public ReplayBenchmark(int cols, int rows) {
+        this.cols = cols;
+        this.rows = rows;
+    }
+
+    @Before
+    public void createView() {
+        Context ctx = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        map = SyntheticMaps.mapData(cols, rows);
+        log = SyntheticMaps.walkthrough(cols, rows);
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            view = new GameView(ctx);
+            view.measure(View.MeasureSpec.makeMeasureSpec(VIEW_W, View.MeasureSpec.EXACTLY),
+                    View.MeasureSpec.makeMeasureSpec(VIEW_H, View.MeasureSpec.EXACTLY));
+            view.layout(0, 0, VIEW_W, VIEW_H);
+            view.surfaceChanged(view.getHolder(), 0, VIEW_W, VIEW_H);
+            view.showMap(map);
+        });
+        target = Bitmap.createBitmap(VIEW_W, VIEW_H, Bitmap.Config.ARGB_8888);
+        canvas = new Canvas(target);
+    }
+
+    @After
+    public void release() {
+        target.recycle();
+    }
+
+    @Test
+    public void replayStep() {
+        run(false);
+    }
+
+    @Test
+    public void replayStepAndDraw() {
+        run(true);
+    }
+
+    private void run(boolean draw) {
+        view.beginReplay(log, map);
+        view.drawOffscreen(canvas); // first frame builds the sprite atlas and tile chunks
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            if (!view.stepReplay()) {
+                state.pauseTiming();
+                view.beginReplay(log, map);
+                state.resumeTiming();
+            }
+            if (draw) view.drawOffscreen(canvas);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.non_breath.finlitrush.game;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Sprite frame trimming (GameView.findOpaqueBounds / trimSpriteFrame) on square frames
+ * whose opaque figure fills the middle half, like a character cell of a sprite sheet.
+ * The frame's pixels are copied once, as for the cells of one sheet; cases measure the scan.
+ */
+@RunWith(Parameterized.class)
+public class SpriteFrameBenchmark {
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    @Parameterized.Parameters(name = "{0}px")
+    public static List<Integer> sizes() {
+        return Arrays.asList(32, 64, 128, 256);
+    }
+
+    private final int size;
+    private Bitmap frame;
+
+    public SpriteFrameBenchmark(int size) {
+        this.size = size;
+    }
+
+    @Before
+    public void createFrame() {
+        frame = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setColor(Color.rgb(66, 165, 245));
+        new Canvas(frame).drawOval(size * 0.25f, size * 0.2f, size * 0.75f, size * 0.85f, paint);
+    }
+
+    @After
+    public void recycleFrame() {
+        frame.recycle();
+    }
+
+    @Test
+    public void findOpaqueBounds() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            GameView.findOpaqueBounds(frame, 8);
+        }
+    }
+
+    @Test
+    public void trimSpriteFrame() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            Bitmap trimmed = GameView.trimSpriteFrame(frame, 0, 0, size, size, null);
+            state.pauseTiming();
+            if (trimmed != frame) trimmed.recycle();
+            state.resumeTiming();
+        }
+    }
+}
@@ -1,14 +1,19 @@
 package com.non_breath.finlitrush.game;
 
+import android.content.ComponentCallbacks2;
 import android.content.Context;
+import android.content.res.Configuration;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Rect;
 import android.graphics.PointF;
+import android.graphics.RectF;
 import android.graphics.drawable.Drawable;
 import android.graphics.BitmapFactory;
+import android.os.Build;
+import android.os.SystemClock;
 import android.util.AttributeSet;
 import android.view.MotionEvent;
 import android.view.KeyEvent;
@@ -18,14 +23,62 @@ import android.view.SurfaceView;
 import androidx.core.content.ContextCompat;
 
 import com.non_breath.finlitrush.R;
+import com.non_breath.finlitrush.game.cache.BitmapCache;
+import com.non_breath.finlitrush.game.cache.ChunkStreamer;
+import com.non_breath.finlitrush.game.cache.MapCache;
+import com.non_breath.finlitrush.game.cache.MapPrefetcher;
+import com.non_breath.finlitrush.game.cache.SpriteTrimCache;
+import com.non_breath.finlitrush.game.core.GameCore;
+import com.non_breath.finlitrush.game.core.MapSource;
+import com.non_breath.finlitrush.game.data.ChunkedMap;
 import com.non_breath.finlitrush.game.data.MapData;
+import com.non_breath.finlitrush.game.data.TileLayer;
+import com.non_breath.finlitrush.game.data.TileTable;
+import com.non_breath.finlitrush.game.data.Tileset;
+import com.non_breath.finlitrush.game.ecs.RenderSystem;
+import com.non_breath.finlitrush.game.ecs.World;
 import com.non_breath.finlitrush.game.io.MapLoader;
-
+import com.non_breath.finlitrush.game.loop.ChoreographerLoop;
+import com.non_breath.finlitrush.game.loop.FrameProfiler;
+import com.non_breath.finlitrush.game.loop.FrameStats;
+import com.non_breath.finlitrush.game.loop.InputLog;
+import com.non_breath.finlitrush.game.loop.SimulationLoop;
+import com.non_breath.finlitrush.game.loop.TripleBuffer;
+import com.non_breath.finlitrush.game.render.AtlasPacker;
+import com.non_breath.finlitrush.game.render.BitmapHandle;
+import com.non_breath.finlitrush.game.render.DirtyRegion;
+import com.non_breath.finlitrush.game.render.FilterQuality;
+import com.non_breath.finlitrush.game.render.OpaqueBounds;
+import com.non_breath.finlitrush.game.render.RendererFactory;
+import com.non_breath.finlitrush.game.render.ResolutionTier;
+import com.non_breath.finlitrush.game.render.SpriteBatch;
+import com.non_breath.finlitrush.game.render.SpriteDamageTracker;
+import com.non_breath.finlitrush.game.render.SurfaceRenderer;
+import com.non_breath.finlitrush.game.render.TextureAtlas;
+import com.non_breath.finlitrush.game.render.TileChunkCache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
 
 /**
  * Minimal 2D tile-based demo view.
+ * - The game itself is a GameCore (plain Java); the view feeds it touch/key input and
+ *   draws the RenderState snapshots it publishes after every step
+ * - Simulation and drawing run on separate threads by default: input reaches the
+ *   simulation through the core's input queue, frames draw the latest snapshot
  * - Player moves with on-screen D-pad
  * - Talk to NPC using "A" button when adjacent
  * - Simple placeholder tiles/entities, no external assets
@@ -35,40 +88,88 @@ public class GameView extends SurfaceView implements SurfaceHolder.Callback, Run
     private Thread gameThread;
     private volatile boolean running = false;
 
-    // World / map
-    private int cols = 20;
-    private int rows = 12;
-    private int tileSize = 48; // computed after surface created
+    // Loop selection: simulation and drawing on separate threads (default), both on one
+    // vsync-paced thread, or the legacy free-running loop
+    public enum LoopMode { THREADED, VSYNC_FIXED_STEP, LEGACY }
+    private static final int SIM_HZ = 60;
+    private LoopMode loopMode = LoopMode.THREADED;
+    private final FrameStats frameStats = new FrameStats(120);
+    private final ChoreographerLoop.Host vsyncHost = new ChoreographerLoop.Host() {
+        @Override public void step(float dt) { simulationStep(dt); }
+        @Override public void render(float alpha) { renderFrame(alpha); }
+    };
+    private final ChoreographerLoop vsyncLoop = new ChoreographerLoop(vsyncHost, frameStats, SIM_HZ);
+    // THREADED: fixed steps on their own thread, vsync-paced drawing of the latest snapshot
+    private final SimulationLoop simLoop = new SimulationLoop(this::simulationStep, SIM_HZ);
+    private final ChoreographerLoop renderLoop = new ChoreographerLoop(vsyncHost, frameStats, 0);
+    private int fpsCap = 0;
+    // Frame profiler: per-phase timings of every sim step and render callback (debug HUD
+    // panel, Trace sections, CSV export); each profiler is written by its own loop thread
+    private static final int PROFILE_FRAMES = 1024; // about 17 s at 60 fps
+    private static final int PROF_INPUT = 0, PROF_UPDATE = 1, PROF_PUBLISH = 2;
+    private final FrameProfiler simProfile = new FrameProfiler("sim", PROFILE_FRAMES, "input", "update", "publish");
+    private static final int PROF_PREPARE = 0, PROF_DAMAGE = 1, PROF_LOCK = 2, PROF_IMAGES = 3, PROF_TILES = 4,
+            PROF_ACTORS = 5, PROF_CONTROLS = 6, PROF_OVERLAYS = 7, PROF_POST = 8;
+    private final FrameProfiler renderProfile = new FrameProfiler("render", PROFILE_FRAMES,
+            "prepare", "damage", "lock", "images", "tiles", "actors", "controls", "overlays", "post");
+
+    // Sim -> render: snapshot of the simulation state published after every step
+    private final TripleBuffer<RenderState> renderStates =
+            new TripleBuffer<>(new RenderState(), new RenderState(), new RenderState());
+    private RenderState shown = renderStates.front(); // state being drawn (render thread)
+    // UI -> sim: input events, applied at the start of the next step
+    private static final int INPUT_DIRS = GameCore.INPUT_DIRS, INPUT_STICK = GameCore.INPUT_STICK,
+            INPUT_ACTION = GameCore.INPUT_ACTION, INPUT_MOVE_TO = GameCore.INPUT_MOVE_TO;
+    private static final int DIR_BIT_UP = GameCore.DIR_BIT_UP, DIR_BIT_DOWN = GameCore.DIR_BIT_DOWN,
+            DIR_BIT_LEFT = GameCore.DIR_BIT_LEFT, DIR_BIT_RIGHT = GameCore.DIR_BIT_RIGHT;
+
+    // Tile size in pixels, picked from the surface size on the UI thread (controls, taps) and
+    // applied by the render thread, which rebuilds the per-size bitmaps (tileSize, read by taps)
+    private volatile int requestedTileSize = 48;
+    private volatile int tileSize = 48;
+    private int bitmapTileSize = 0; // size the bitmaps were built at; 0 = not built (render thread)
+    // Camera (render thread); shownOffset* is the last drawn camera, read by the UI thread for taps
     private int mapOffsetX = 0; // drawing offset X (camera)
     private int mapOffsetY = 0; // drawing offset Y (camera)
     private float cameraX = 0;  // camera top-left in pixels
     private float cameraY = 0;  // camera top-left in pixels
-
-    private int[][] map; // 0: floor, 1: wall (legacy single layer)
-    private java.util.List<int[][]> tileLayers = new java.util.ArrayList<>();
-    private boolean[][] collisionMask = null; // true when blocked
-    // Warps (door/portal)
-    private static class Warp { int col, row; String target; int targetCol, targetRow; }
-    private final java.util.List<Warp> warps = new java.util.ArrayList<>();
-    private float warpCooldown = 0f;
+    private volatile int shownOffsetX = 0, shownOffsetY = 0;
+
+    // Map as drawn (render thread; switched when a snapshot brings a new map generation)
+    private int appliedMapGeneration = -1;
+    private int mapCols = 20, mapRows = 12;
+    private TileLayer map; // 0: floor, 1: wall (legacy single layer)
+    private java.util.List<TileLayer> tileLayers = new java.util.ArrayList<>();
+    // Infinite maps: tileLayers hold the streamed window, whose tile (0, 0) is map tile
+    // (layerOriginCol, layerOriginRow); fixed maps keep the layers at the map's origin
+    private ChunkStreamer chunkStreamer = null;
+    private int layerOriginCol = 0, layerOriginRow = 0;
+    private int layerCols = 20, layerRows = 12;
+    private volatile int streamRadius = ChunkStreamer.DEFAULT_RADIUS; // chunks around the camera/player
+    // Loaded maps by asset path; the core's warp targets are prefetched into it, nearest warp first
+    private final MapCache mapCache = new MapCache(MapCache.DEFAULT_MAX_BYTES);
+    private final MapPrefetcher mapPrefetcher = new MapPrefetcher(getContext(), mapCache);
+    private final ComponentCallbacks2 memoryCallbacks = new ComponentCallbacks2() {
+        @Override public void onTrimMemory(int level) { GameView.this.onTrimMemory(level); }
+        @Override public void onConfigurationChanged(Configuration newConfig) {}
+        @Override public void onLowMemory() { GameView.this.onTrimMemory(TRIM_MEMORY_COMPLETE); }
+    };
+
+    // Simulation: map state, actors (ECS world, tile coords), warps, dialogs and input; the
+    // view only feeds it input and draws the snapshots published after each step
+    private final GameCore core = new GameCore(new AssetMaps(), SIM_HZ);
+
+    private final RenderSystem renderSystem = new RenderSystem();
+    private Canvas actorCanvas; // canvas of the frame being drawn (read by actorDrawer)
+    private final RenderSystem.SpriteDrawer actorDrawer = (w, e, tileX, tileY) -> drawActor(actorCanvas, w, e, tileX, tileY);
+    private static final int SPRITE_PLAYER = GameCore.SPRITE_PLAYER;
 
     // Player
-    private float playerX = 2; // tile coords
-    private float playerY = 2;
     private float playerRadiusPx = 0; // computed from tileSize
-    private float moveSpeedTilesPerSec = 5.0f;
-    private boolean upPressed, downPressed, leftPressed, rightPressed;
-
-    // NPCs
-    private static class Npc {
-        int col, row;
-        String name;
-        String[] lines;
-        Npc(int col, int row, String name, String[] lines) {
-            this.col = col; this.row = row; this.name = name; this.lines = lines;
-        }
-    }
-    private final List<Npc> npcs = new ArrayList<>();
+    private float renderPlayerX = 2, renderPlayerY = 2; // interpolated position being drawn
+    private float renderAlpha = 1f;                     // interpolation factor of the frame being drawn
+    private boolean upPressed, downPressed, leftPressed, rightPressed; // UI thread
+    private int offeredDirs = 0;                                     // UI thread: last INPUT_DIRS sent
 
     // UI buttons (virtual controls)
     private Rect btnUp = new Rect();
@@ -83,15 +184,6 @@ public class GameView extends SurfaceView implements SurfaceHolder.Callback, Run
     private float joyBaseRadius = 0f;
     private float joyKnobRadius = 0f;
     private int joyPointerId = -1;
-    private float joyVecX = 0f; // -1..1
-    private float joyVecY = 0f; // -1..1 (down positive)
-
-    // Dialog state (line-by-line)
-    private boolean dialogOpen = false;
-    private String dialogSpeaker = "";
-    private Npc dialogNpc = null;
-    private String[] dialogLines = null;
-    private int dialogIndex = 0;
 
     // Paints
     private final Paint paintTile = new Paint();
@@ -102,38 +194,131 @@ public class GameView extends SurfaceView implements SurfaceHolder.Callback, Run
     private final Paint paintUiStroke = new Paint();
     private final Paint paintText = new Paint();
     private final Paint paintDialogBg = new Paint();
+    private final Paint paintDialogTitle = new Paint();
+    private final Paint paintDialogBody = new Paint();
+    private final Paint paintDialogHint = new Paint();
+    private final Paint paintJoyBase = new Paint();
+    private final Paint paintJoyKnob = new Paint();
+    private final Paint paintHudBg = new Paint();
+    private final Paint paintHudText = new Paint();
+    private final Paint paintErrorBg = new Paint();
+    private final Paint paintErrorText = new Paint();
+    private final Paint paintTransition = new Paint();
+    private final Paint paintProgress = new Paint();
+
+    // Preallocated draw scratch (render loop must not allocate in steady state)
+    private final Rect dialogBox = new Rect();
+    private final Rect hudBox = new Rect();
+    private final Rect profileBox = new Rect(); // HUD frame-time panel
+    private final Rect errorBox = new Rect();
+    private final Paint.FontMetrics fontMetrics = new Paint.FontMetrics();
+    private final StringBuilder hudText = new StringBuilder(64);
+    private char[] hudChars = new char[64];
+    private String errorTextSource = null, errorText = "";
+
+    // Damage tracking (render thread): only what changed since the last posted frame is
+    // redrawn, and an unchanged frame is not posted at all
+    private final DirtyRegion damage = new DirtyRegion();
+    private final SpriteDamageTracker spriteDamage = new SpriteDamageTracker();
+    private final RenderSystem.SpriteDrawer damageCollector = this::collectActorDamage;
+    // surface, layout or bitmaps changed; taken with getAndSet so a request made mid-frame is kept
+    private final AtomicBoolean fullRedraw = new AtomicBoolean(true);
+    private int drawnOffsetX, drawnOffsetY;
+    private float drawnJoyX, drawnJoyY;
+    private boolean drawnDialogOpen, drawnTransition, drawnHud;
+    private String drawnDialogSpeaker;
+    private String[] drawnDialogLines;
+    private int drawnDialogIndex;
+    private String drawnError;
+    private long framesSkipped = 0;
+
+    // Cached dialog text (rebuilt only when the page changes)
+    private static final String HINT_NEXT = "A: \uB2E4\uC74C";
+    private static final String HINT_CLOSE = "A: \uB2EB\uAE30";
+    private String[] dialogCacheLines = null;
+    private int dialogCacheIndex = -1;
+    private float dialogCacheHintSize = -1f;
+    private String dialogLineText = "", dialogHintText = HINT_CLOSE, dialogPageText = null;
+    private float dialogHintWidth = 0f;
 
     private long lastFrameNanos = 0;
-    private String lastError = null; // for on-screen debug overlay
-    private boolean debugHud = false; private int debugTapCount = 0; private long debugLastTapMs = 0;
+    private volatile String lastError = null; // for on-screen debug overlay
+    private volatile boolean debugHud = false; private int debugTapCount = 0; private long debugLastTapMs = 0;
+    private boolean allocCounting = false; private int allocsLastFrame = 0;
+    // HUD frame-time panel (render thread): stats over the newest frames, graph bars as line segments
+    private static final int PROFILE_GRAPH_FRAMES = 240;
+    private final FrameProfiler.Summary renderSummary = new FrameProfiler.Summary(renderProfile, PROFILE_GRAPH_FRAMES);
+    private final FrameProfiler.Summary simSummary = new FrameProfiler.Summary(simProfile, PROFILE_GRAPH_FRAMES);
+    private final float[] profileBarsOk = new float[PROFILE_GRAPH_FRAMES * 4];
+    private final float[] profileBarsSlow = new float[PROFILE_GRAPH_FRAMES * 4];
+    private final Paint paintProfileOk = new Paint();
+    private final Paint paintProfileSlow = new Paint();
+    private final Paint paintProfileBudget = new Paint();
+    private volatile String profileDumpStatus = null;
+
+    // Bitmaps generated per tile size are rasterized at the resolution tier (null = chosen by
+    // tile size) and drawn scaled up; the tier and filterQuality are applied on the render thread
+    private volatile ResolutionTier requestedTier = null;
+    private ResolutionTier bitmapTier = null; // tier the bitmaps were built at (render thread)
+    private volatile FilterQuality filterQuality = FilterQuality.LOW;
+    private FilterQuality appliedFilterQuality = null;
+    private final Paint paintBitmap = new Paint();
+    private final RectF packedDst = new RectF();
+    private boolean playerFromSheet, npcFromSheet; // sheet frames are drawn at their own size
 
     // Bitmaps (generated from drawable resources at runtime)
     private Bitmap bmpFloor, bmpWall, bmpNpc;
     private Bitmap bmpPlayerIdle;
     private Bitmap[] bmpPlayerWalk = new Bitmap[2];
     // Directional frames
-    private static final int DIR_DOWN = 0, DIR_LEFT = 1, DIR_RIGHT = 2, DIR_UP = 3;
-    private int playerDir = DIR_DOWN;
+    private static final int DIR_DOWN = World.DIR_DOWN, DIR_LEFT = World.DIR_LEFT, DIR_RIGHT = World.DIR_RIGHT, DIR_UP = World.DIR_UP;
     private Bitmap[][] playerWalkDir = new Bitmap[4][2];
     private Bitmap[] playerIdleDir = new Bitmap[4];
     // NPC directional frames (shared for all NPCs)
     private Bitmap[][] npcWalkDir = new Bitmap[4][2];
     private Bitmap[] npcIdleDir = new Bitmap[4];
-    private float animTime = 0f;
-    private boolean moving = false;
+    // Sprite trimming: pixels above this alpha count as opaque; one scanner shared under its own lock
+    private static final int TRIM_ALPHA_THRESHOLD = 8;
+    private static final OpaqueBounds OPAQUE_SCAN = new OpaqueBounds();
 
     // Tileset support
     private Bitmap[] tileBitmaps = null;           // per-index tiles from drawables/palette
+    // Keys of the shared-cache bitmaps this view holds references to
+    private final BitmapCache bitmapCache = BitmapCache.get(getContext());
+    private final SpriteTrimCache spriteTrimCache = SpriteTrimCache.get(getContext());
+    private List<String> spriteBitmapKeys = new ArrayList<>();
+    private List<String> tileBitmapKeys = new ArrayList<>();
+    // Sprite frames and generated tiles packed into shared pages; rebuilt on the draw thread when stale
+    private TextureAtlas spriteAtlas = null;
+    private volatile boolean spriteAtlasDirty = true;
     private String[] tileDrawableNames = null;     // to rebuild on resize
     private int[] tilePaletteColors = null;        // to rebuild on resize
-    // Atlas (Tiled JSON) support
-    private Bitmap atlasBitmap = null;
-    private int atlasTileW = 0, atlasTileH = 0, atlasColumns = 0, atlasFirstGid = 1;
+    // Image tilesets (Tiled JSON / custom atlas): tile ids index the map's tile table
+    private TileTable tileTable = null;
+    // Animated tiles: frame shown per tile id, moved along by one global clock (render thread)
+    private int[] tileFrames = new int[0];
+    private final long tileClockOrigin = SystemClock.uptimeMillis();
     private final java.util.List<MapData.ImageLayer> imageLayers = new java.util.ArrayList<>();
+    // Pre-rendered tile chunks (all tile layers composited, LRU under a memory budget)
+    private final TileChunkCache chunkCache = new TileChunkCache(
+            TileChunkCache.DEFAULT_CHUNK_TILES, TileChunkCache.DEFAULT_BUDGET_BYTES);
+    private boolean useChunkCache = true;
+    private final TileChunkCache.TilePainter tilePainter = new TileChunkCache.TilePainter() {
+        @Override public void beginTiles(Canvas c) { beginTileBatch(c); }
+        @Override public void paintTile(Canvas c, int idx, int left, int top, int size) { drawTile(c, idx, left, top, size); }
+        @Override public void endTiles(Canvas c) { spriteBatch.end(); }
+        @Override public boolean isAnimated(int idx) { return tileTable != null && idx > 0 && idx < tileFrames.length && tileTable.isAnimated(idx); }
+        @Override public int frameOf(int idx) { return idx > 0 && idx < tileFrames.length ? tileFrames[idx] : idx; }
+    };
+    // Atlas tiles are batched into drawVertices calls (per-tile and chunk rendering)
+    private final SpriteBatch spriteBatch = new SpriteBatch(1024);
+
+    // Surface renderer (lockHardwareCanvas on API 26+, lockCanvas otherwise)
+    private SurfaceRenderer.Type requestedRenderer = SurfaceRenderer.Type.HARDWARE;
+    private volatile SurfaceRenderer renderer = RendererFactory.create(requestedRenderer);
 
     private static final String PRIMARY_MAP_ASSET = "maps/tiled_map.json";
     private static final String FALLBACK_MAP_ASSET = "maps/demo_map.json";
-    private String currentMapAsset = PRIMARY_MAP_ASSET;
 
     public GameView(Context context) {
         super(context);
@@ -146,6 +331,7 @@ public class GameView extends SurfaceView implements SurfaceHolder.Callback, Run
     }
 
     private void init() {
+        core.setStreamRadius(streamRadius);
         getHolder().addCallback(this);
         setFocusable(true);
         setFocusableInTouchMode(true);
@@ -166,83 +352,73 @@ public class GameView extends SurfaceView implements SurfaceHolder.Callback, Run
         paintText.setTextSize(36f);
 
         paintDialogBg.setColor(Color.argb(220, 255, 255, 255));
+        paintDialogTitle.set(paintText);
+        paintDialogTitle.setColor(Color.rgb(33,33,33));
+        paintDialogBody.set(paintText);
+        paintDialogBody.setColor(Color.rgb(33,33,33));
+        paintDialogHint.set(paintText);
+        paintDialogHint.setColor(Color.DKGRAY);
+
+        paintJoyBase.set(paintUi);
+        paintJoyBase.setColor(Color.argb(80, 0, 0, 0));
+        paintJoyKnob.setColor(Color.argb(150, 255, 255, 255));
+
+        paintHudBg.setColor(Color.argb(160, 0, 0, 0));
+        paintHudText.set(paintText);
+        paintHudText.setColor(Color.WHITE);
+        paintProfileOk.setColor(Color.rgb(102, 187, 106));
+        paintProfileSlow.setColor(Color.rgb(239, 83, 80));
+        paintProfileBudget.setColor(Color.rgb(255, 202, 40));
+        paintProfileBudget.setStrokeWidth(2f);
+        paintErrorBg.setColor(Color.argb(210, 200, 40, 40));
+        paintErrorText.set(paintText);
+        paintErrorText.setColor(Color.WHITE);
+        paintTransition.setColor(Color.BLACK);
+        paintProgress.setColor(Color.WHITE);
 
         // Try Tiled map first; fallback to custom demo
-        if (!loadMapFromAssetsSafe(PRIMARY_MAP_ASSET) && !loadMapFromAssetsSafe(FALLBACK_MAP_ASSET)) {
-            buildDemoMap();
+        if (!core.loadMap(PRIMARY_MAP_ASSET) && !core.loadMap(FALLBACK_MAP_ASSET)) {
+            core.loadDemoMap();
         }
         // Add few NPCs
-                npcs.add(new Npc(10, 6, "NPC", new String[]{
+                core.spawnNpc(10, 6, "NPC", new String[]{
                 "\uC548\uB155! \uB370\uBAA8 NPC\uC57C.",
                 "A \uBC84\uD2BC\uC744 \uB204\uB974\uBA74 \uB300\uD654\uAC00 \uC9C4\uD589\uB429\uB2C8\uB2E4.",
                 "\uBCBD\uC740 \uD68C\uC0C9, \uBC14\uB2E5\uC740 \uBC1D\uC740 \uD68C\uC0C9\uC774\uC57C.",
-        }));
-                npcs.add(new Npc(5, 4, "\uC0C1\uC778", new String[]{
+        }, new int[]{10, 6, 15, 6, 15, 10, 10, 10}); // patrols around the pillar
+                core.spawnNpc(5, 4, "\uC0C1\uC778", new String[]{
                 "\uC5EC\uAE30\uB294 \uC2DC\uD5D8\uC6A9 \uB9F5\uC774\uC57C.",
                 "\uB9F5\uACFC \uC5D0\uC14B\uC740 \uC774\uD6C4 \uAD50\uCCB4 \uAC00\uB2A5!",
-        }));
-    }
-
-    private void buildDemoMap() {
-        map = new int[rows][cols];
-        for (int r = 0; r < rows; r++) {
-            for (int c = 0; c < cols; c++) {
-                // border walls
-                if (r == 0 || c == 0 || r == rows - 1 || c == cols - 1) {
-                    map[r][c] = 1;
-                } else {
-                    map[r][c] = 0;
-                }
-            }
-        }
-        // inner blocks
-        for (int c = 3; c < 8; c++) map[3][c] = 1;
-        for (int r = 5; r < 9; r++) map[r][12] = 1;
-        // layers and collision defaults
-        tileLayers.clear();
-        tileLayers.add(map);
-        collisionMask = new boolean[rows][cols];
-        for (int r = 0; r < rows; r++) {
-            for (int c = 0; c < cols; c++) collisionMask[r][c] = map[r][c] != 0;
-        }
-        imageLayers.clear();
+        });
+        publishRenderState();
     }
 
     @Override
     public void surfaceCreated(SurfaceHolder holder) {
-        // Choose tile size relative to screen (target ~12x8 visible tiles)
-        int w = getWidth();
-        int h = getHeight();
-        tileSize = Math.max(24, Math.min(w / 12, h / 8));
-        int mapW = cols * tileSize;
-        int mapH = rows * tileSize;
-        // initialize camera centered on player
-        centerCameraOnPlayer(w, h, mapW, mapH);
-        playerRadiusPx = tileSize * 0.35f;
-
-        // (Re)create sprite/tile bitmaps at the computed size
-        createOrUpdateBitmaps();
-        recreateTileBitmapsIfNeeded();
-
+        // renderer switches take effect on a fresh surface (a surface stays bound to CPU or GPU rendering)
+        if (renderer.getType() != requestedRenderer) renderer = RendererFactory.create(requestedRenderer);
+        // Choose tile size relative to screen (target ~12x8 visible tiles); the render thread
+        // (re)creates the sprite/tile bitmaps at that size before its next frame
+        requestedTileSize = Math.max(24, Math.min(getWidth() / 12, getHeight() / 8));
         layoutControls();
+        fullRedraw.set(true);
         resume();
     }
 
     private void createOrUpdateBitmaps() {
-        // recycle old generated bitmaps to save memory
-        // (Bitmaps created from drawables; safe to let GC collect, but recycle proactively)
-        // Note: skipping recycle for atlasBitmap as it's managed from assets decode
-        bmpFloor = null; bmpWall = null; bmpNpc = null; bmpPlayerIdle = null;
-        bmpPlayerWalk[0] = null; bmpPlayerWalk[1] = null;
+        // scaled bitmaps come from the shared cache; the previous set is released once the
+        // new one is acquired, so an unchanged size reuses the same bitmaps
+        List<String> previous = spriteBitmapKeys;
+        List<String> held = new ArrayList<>();
 
         int tile = Math.max(8, tileSize);
-        int sprite = Math.max(8, (int) (tileSize * 0.9f));
-        bmpFloor = fromDrawable(R.drawable.tile_floor, tile, tile);
-        bmpWall = fromDrawable(R.drawable.tile_wall, tile, tile);
-        bmpPlayerIdle = fromDrawable(R.drawable.sprite_player, sprite, sprite);
-        bmpPlayerWalk[0] = fromDrawable(R.drawable.sprite_player_walk1, sprite, sprite);
-        bmpPlayerWalk[1] = fromDrawable(R.drawable.sprite_player_walk2, sprite, sprite);
-        bmpNpc = fromDrawable(R.drawable.sprite_npc, sprite, sprite);
+        int sprite = spriteSize();
+        bmpFloor = tileBitmap(held, R.drawable.tile_floor, tile);
+        bmpWall = tileBitmap(held, R.drawable.tile_wall, tile);
+        bmpPlayerIdle = drawableBitmap(held, R.drawable.sprite_player, sprite, sprite);
+        bmpPlayerWalk[0] = drawableBitmap(held, R.drawable.sprite_player_walk1, sprite, sprite);
+        bmpPlayerWalk[1] = drawableBitmap(held, R.drawable.sprite_player_walk2, sprite, sprite);
+        bmpNpc = drawableBitmap(held, R.drawable.sprite_npc, sprite, sprite);
 
         // Directional: load if present (falls back silently if missing)
         // Player
@@ -260,9 +436,9 @@ public class GameView extends SurfaceView implements SurfaceHolder.Callback, Run
         };
         for (int d = 0; d < 4; d++) {
             for (int f = 0; f < 2; f++) {
-                playerWalkDir[d][f] = pIds[d][f] != 0 ? fromDrawable(pIds[d][f], sprite, sprite) : null;
+                playerWalkDir[d][f] = pIds[d][f] != 0 ? drawableBitmap(held, pIds[d][f], sprite, sprite) : null;
             }
-            playerIdleDir[d] = pIdle[d] != 0 ? fromDrawable(pIdle[d], sprite, sprite) : null;
+            playerIdleDir[d] = pIdle[d] != 0 ? drawableBitmap(held, pIdle[d], sprite, sprite) : null;
         }
         // NPC
         int[][] nIds = new int[][]{
@@ -279,16 +455,20 @@ public class GameView extends SurfaceView implements SurfaceHolder.Callback, Run
         };
         for (int d = 0; d < 4; d++) {
             for (int f = 0; f < 2; f++) {
-                npcWalkDir[d][f] = nIds[d][f] != 0 ? fromDrawable(nIds[d][f], sprite, sprite) : null;
+                npcWalkDir[d][f] = nIds[d][f] != 0 ? drawableBitmap(held, nIds[d][f], sprite, sprite) : null;
             }
-            npcIdleDir[d] = nIdle[d] != 0 ? fromDrawable(nIdle[d], sprite, sprite) : null;
+            npcIdleDir[d] = nIdle[d] != 0 ? drawableBitmap(held, nIdle[d], sprite, sprite) : null;
         }
 
         // Attempt to load external sprite sheets (falls back to shapes if missing)
-        if (loadDirectionalSpriteSheet("sprites/heroine.png", playerIdleDir, playerWalkDir)) {
-            bmpPlayerIdle = playerIdleDir[DIR_DOWN];
-        }
-        loadDirectionalSpriteSheet("sprites/villager.png", npcIdleDir, npcWalkDir);
+        playerFromSheet = loadDirectionalSpriteSheet(held, "sprites/heroine.png", playerIdleDir, playerWalkDir);
+        if (playerFromSheet) bmpPlayerIdle = playerIdleDir[DIR_DOWN];
+        npcFromSheet = loadDirectionalSpriteSheet(held, "sprites/villager.png", npcIdleDir, npcWalkDir);
+        spriteAtlasDirty = true;
+        spriteBitmapKeys = held;
+        releaseBitmaps(previous);
+        // floor/wall fallback tiles changed: cached chunks are stale
+        chunkCache.invalidate();
     }
 
     private int getId(String name) {
@@ -296,6 +476,58 @@ public class GameView extends SurfaceView implements SurfaceHolder.Callback, Run
         return getResources().getIdentifier(name, "drawable", getContext().getPackageName());
     }
 
+    private int spriteSize() {
+        return Math.max(8, (int) (tileSize * 0.9f));
+    }
+
+    // Render thread: the tier the current bitmaps are built at
+    private ResolutionTier currentTier() {
+        ResolutionTier t = bitmapTier;
+        return t != null ? t : ResolutionTier.forTileSize(tileSize);
+    }
+
+    // Drawable rasterized at the current tier for drawing at width x height
+    private Bitmap drawableBitmap(List<String> held, int resId, int width, int height) {
+        ResolutionTier tier = currentTier();
+        int w = tier.texels(Math.max(1, width));
+        int h = tier.texels(Math.max(1, height));
+        String key = BitmapCache.key("res:" + resId, w, h, Bitmap.Config.ARGB_8888);
+        Bitmap b = bitmapCache.acquire(key, this, () -> fromDrawable(resId, w, h));
+        if (b != null) held.add(key);
+        return b;
+    }
+
+    // Tile drawable at the current tier; stored as RGB_565 when it has no transparent pixels
+    private Bitmap tileBitmap(List<String> held, int resId, int size) {
+        int texels = currentTier().texels(Math.max(1, size));
+        String key = BitmapCache.key("res:" + resId + "#tile", texels, texels, Bitmap.Config.RGB_565);
+        Bitmap b = bitmapCache.acquire(key, this, () -> {
+            Bitmap argb = fromDrawable(resId, texels, texels);
+            if (argb == null || !isFullyOpaque(argb)) return argb;
+            Bitmap opaque = argb.copy(Bitmap.Config.RGB_565, false);
+            if (opaque == null) return argb;
+            argb.recycle();
+            return opaque;
+        });
+        if (b != null) held.add(key);
+        return b;
+    }
+
+    private static boolean isFullyOpaque(Bitmap b) {
+        int w = b.getWidth();
+        int[] row = new int[w];
+        for (int y = 0; y < b.getHeight(); y++) {
+            b.getPixels(row, 0, w, 0, y, w, 1);
+            for (int px : row) if ((px >>> 24) != 0xFF) return false;
+        }
+        return true;
+    }
+
+    private void releaseBitmaps(List<String> keys) {
+        for (int i = 0; i < keys.size(); i++) bitmapCache.release(keys.get(i), this);
+        keys.clear();
+    }
+
     private Bitmap fromDrawable(int resId, int width, int height) {
         Drawable d = ContextCompat.getDrawable(getContext(), resId);
         if (d == null) return null;
@@ -312,8 +544,8 @@ public class GameView extends SurfaceView implements SurfaceHolder.Callback, Run
         int w = getWidth();
         int h = getHeight();
 
-        int pad = (int) (tileSize * 0.4f);
-        int btn = (int) (tileSize * 1.2f);
+        int pad = (int) (requestedTileSize * 0.4f);
+        int btn = (int) (requestedTileSize * 1.2f);
 
         if (useJoystick) {
             float size = btn * 2.8f;
@@ -340,14 +572,10 @@ public class GameView extends SurfaceView implements SurfaceHolder.Callback, Run
 
     @Override
     public void surfaceChanged(SurfaceHolder holder, int format, int width, int height) {
-        // Recompute sizes & bitmaps on resize
-        tileSize = Math.max(24, Math.min(width / 12, height / 8));
-        int mapW = cols * tileSize;
-        int mapH = rows * tileSize;
-        centerCameraOnPlayer(width, height, mapW, mapH);
-        createOrUpdateBitmaps();
-        recreateTileBitmapsIfNeeded();
+        // Recompute sizes on resize (bitmaps follow on the render thread)
+        requestedTileSize = Math.max(24, Math.min(width / 12, height / 8));
         layoutControls();
+        fullRedraw.set(true);
     }
 
     @Override
@@ -358,9 +586,18 @@ public class GameView extends SurfaceView implements SurfaceHolder.Callback, Run
     public void resume() {
         if (running) return;
         running = true;
-        gameThread = new Thread(this, "GameLoop");
         lastFrameNanos = System.nanoTime();
-        gameThread.start();
+        if (loopMode == LoopMode.LEGACY) {
+            gameThread = new Thread(this, "GameLoop");
+            gameThread.start();
+        } else if (loopMode == LoopMode.THREADED) {
+            renderLoop.setFpsCap(fpsCap);
+            simLoop.start();
+            renderLoop.start();
+        } else {
+            vsyncLoop.setFpsCap(fpsCap);
+            vsyncLoop.start();
+        }
     }
 
     public void pause() {
@@ -369,8 +606,60 @@ public class GameView extends SurfaceView implements SurfaceHolder.Callback, Run
             try { gameThread.join(500); } catch (InterruptedException ignored) {}
             gameThread = null;
         }
+        vsyncLoop.stop();
+        renderLoop.stop();
+        simLoop.stop();
+        // surface may come back with a different size: rebuild chunks lazily on next draw
+        chunkCache.invalidate();
+        fullRedraw.set(true);
+    }
+
+    /** Switches between the vsync/fixed-step loop and the legacy loop (restarts a running loop). */
+    public void setLoopMode(LoopMode mode) {
+        if (mode == null || mode == loopMode) return;
+        boolean wasRunning = running;
+        if (wasRunning) pause();
+        loopMode = mode;
+        if (wasRunning) resume();
+    }
+
+    public LoopMode getLoopMode() { return loopMode; }
+
+    /** Caps rendered frames per second in the vsync loops; 0 renders at the display rate. */
+    public void setFpsCap(int fps) {
+        fpsCap = Math.max(0, fps);
+        vsyncLoop.setFpsCap(fpsCap);
+        renderLoop.setFpsCap(fpsCap);
+    }
+
+    /**
+     * Switches between software and hardware canvas rendering at runtime (A/B comparison).
+     * The surface is briefly hidden so it is recreated for the new renderer. UI thread only.
+     */
+    public void setRendererType(SurfaceRenderer.Type type) {
+        if (type == null || type == requestedRenderer) return;
+        requestedRenderer = type;
+        if (renderer.getType() == RendererFactory.create(type).getType()) return; // unsupported: already on fallback
+        if (getVisibility() == VISIBLE) {
+            setVisibility(INVISIBLE);
+            post(() -> setVisibility(VISIBLE));
+        }
+    }
+
+    public SurfaceRenderer.Type getRendererType() { return renderer.getType(); }
+
+    /** Memory budget for pre-rendered tile chunks (LRU eviction above this). */
+    public void setTileChunkBudgetBytes(long bytes) {
+        chunkCache.setBudgetBytes(bytes);
+    }
+
+    /** Enables/disables the tile chunk cache (per-tile drawing when disabled). */
+    public void setChunkCacheEnabled(boolean enabled) {
+        useChunkCache = enabled;
+        if (!enabled) chunkCache.invalidate();
     }
 
+    // Legacy loop: variable dt, renders as fast as lockCanvas allows
     @Override
     public void run() {
         while (running) {
@@ -378,69 +667,295 @@ public class GameView extends SurfaceView implements SurfaceHolder.Callback, Run
             float dt = (now - lastFrameNanos) / 1_000_000_000f;
             if (dt > 0.1f) dt = 0.1f;
             lastFrameNanos = now;
+            frameStats.setSimSteps(1);
+            frameStats.markFrame(now);
 
-            try {
-                update(dt);
-            } catch (Throwable t) {
-                android.util.Log.e("GameView", "update() crash", t);
-                lastError = t.getClass().getSimpleName() + ": " + String.valueOf(t.getMessage());
-            }
-
-            SurfaceHolder holder = getHolder();
-            if (holder == null || holder.getSurface() == null || !holder.getSurface().isValid()) {
+            simulationStep(dt);
+            if (!renderFrame(1f)) {
                 try { Thread.sleep(8); } catch (InterruptedException ignored) {}
-                continue;
             }
+        }
+    }
+
+    private void simulationStep(float dt) {
+        simProfile.beginFrame();
+        core.beginStep();
+        try {
+            simProfile.begin(PROF_INPUT);
+            core.drainInput();
+            simProfile.end(PROF_INPUT);
+            simProfile.begin(PROF_UPDATE);
+            core.update(dt);
+            simProfile.end(PROF_UPDATE);
+        } catch (Throwable t) {
+            android.util.Log.e("GameView", "update() crash", t);
+            lastError = t.getClass().getSimpleName() + ": " + String.valueOf(t.getMessage());
+        }
+        core.endStep();
+        simProfile.begin(PROF_PUBLISH);
+        publishRenderState();
+        simProfile.end(PROF_PUBLISH);
+        simProfile.endFrame();
+    }
+
+    /**
+     * Restarts the current map with the player where it stands and records every input
+     * applied from then on; stopSession() ends it and getLastRecording() returns the log.
+     */
+    public void startRecording() {
+        core.startRecording();
+    }
+
+    /**
+     * Restarts the log's start map and plays the log back step for step, ignoring live
+     * input until it ends (or stopSession()).
+     */
+    public void startReplay(InputLog log) {
+        core.startReplay(log);
+    }
+
+    /** Ends the running recording or replay at the next simulation step. */
+    public void stopSession() {
+        core.stopSession();
+    }
+
+    public boolean isRecording() { return core.isRecording(); }
+
+    public boolean isReplaying() { return core.isReplaying(); }
+
+    /** Log of the last finished recording, or null. */
+    public InputLog getLastRecording() { return core.getLastRecording(); }
+
+    // Simulation thread: copies what the next frames draw into the back buffer and publishes it
+    private void publishRenderState() {
+        RenderState s = renderStates.back();
+        GameCore c = core;
+        c.getWorld().copyRenderStateTo(s.actors);
+        s.player = c.getPlayer();
+        s.map = c.getMap();
+        s.mapGeneration = c.getMapGeneration();
+        s.cols = c.getCols();
+        s.rows = c.getRows();
+        s.dialogOpen = c.isDialogOpen();
+        s.dialogSpeaker = c.getDialogSpeaker();
+        s.dialogLines = c.getDialogLines();
+        s.dialogIndex = c.getDialogIndex();
+        s.transitionAlpha = c.getTransitionAlpha();
+        s.mapLoading = c.isMapLoading();
+        s.mapLoadProgress = c.getMapLoadProgress();
+        s.joyX = c.getJoyX();
+        s.joyY = c.getJoyY();
+        s.publishNanos = System.nanoTime();
+        renderStates.publish();
+    }
 
+    /**
+     * Draws one frame at the given interpolation factor, redrawing only the damaged area.
+     * Returns false when nothing was posted (surface not ready, or nothing changed).
+     */
+    private boolean renderFrame(float alpha) {
+        sampleAllocations();
+        SurfaceHolder holder = getHolder();
+        if (holder == null || holder.getSurface() == null || !holder.getSurface().isValid()) {
+            return false;
+        }
+        // skipped frames are profiled too: their intervals are the loop's cadence
+        FrameProfiler prof = renderProfile;
+        prof.beginFrame();
+        try {
+            prof.begin(PROF_PREPARE);
+            RenderState s = prepareFrame(alpha);
+            boolean tilesAnimated = advanceTileAnimations();
+            prof.end(PROF_PREPARE);
+            prof.begin(PROF_DAMAGE);
+            boolean changed = collectDamage(s, tilesAnimated);
+            prof.end(PROF_DAMAGE);
+            if (!changed) {
+                framesSkipped++;
+                return false;
+            }
+            SurfaceRenderer r = renderer;
             Canvas canvas = null;
             try {
-                canvas = holder.lockCanvas();
+                prof.begin(PROF_LOCK);
+                canvas = damage.isFull() || !r.supportsDirtyRegions()
+                        ? r.lockCanvas(holder) : r.lockCanvas(holder, damage.getBounds());
+                prof.end(PROF_LOCK);
                 if (canvas != null) drawGame(canvas);
+                else fullRedraw.set(true); // the damage collected for this frame was never drawn
             } catch (Throwable t) {
                 android.util.Log.e("GameView", "draw crash", t);
                 lastError = t.getClass().getSimpleName() + ": " + String.valueOf(t.getMessage());
+                fullRedraw.set(true);
             } finally {
                 try {
-                    if (canvas != null) holder.unlockCanvasAndPost(canvas);
-                } catch (Throwable ignored) {}
+                    prof.begin(PROF_POST);
+                    if (canvas != null) r.unlockCanvasAndPost(holder, canvas);
+                } catch (Throwable ignored) {
+                } finally {
+                    prof.end(PROF_POST);
+                }
             }
+            return true;
+        } finally {
+            prof.endFrame();
         }
     }
 
-    private void update(float dt) {
-        if (!dialogOpen) {
-            float dx, dy;
-            if (useJoystick && (Math.abs(joyVecX) > 0.01f || Math.abs(joyVecY) > 0.01f)) {
-                dx = joyVecX; dy = joyVecY;
-            } else {
-                dx = (rightPressed ? 1 : 0) - (leftPressed ? 1 : 0);
-                dy = (downPressed ? 1 : 0) - (upPressed ? 1 : 0);
-                float len = (float) Math.sqrt(dx * dx + dy * dy);
-                if (len > 0) { dx /= len; dy /= len; }
+    // Render thread: takes the newest snapshot and sets the frame up (map switch, camera, streamed chunks)
+    private RenderState prepareFrame(float alpha) {
+        renderStates.acquire();
+        RenderState s = renderStates.front();
+        shown = s;
+        if (s.mapGeneration != appliedMapGeneration) applyMapResources(s);
+        if (requestedTileSize != bitmapTileSize || requestedTier != bitmapTier) applyBitmapSize();
+        if (filterQuality != appliedFilterQuality) applyFilterQuality();
+        // packed sizes decide the drawn size of tier-scaled sprites, which damage tracking needs
+        if (spriteAtlasDirty) rebuildSpriteAtlas();
+        if (loopMode == LoopMode.THREADED) {
+            // progress from the latest published step towards the next one
+            alpha = Math.max(0f, Math.min(1f, (System.nanoTime() - s.publishNanos) / (float) simLoop.getStepNanos()));
+        }
+        renderAlpha = alpha;
+        if (s.actors.isAlive(s.player)) {
+            renderPlayerX = s.actors.lerpX(s.player, alpha);
+            renderPlayerY = s.actors.lerpY(s.player, alpha);
+        }
+        centerCameraOn(renderPlayerX, renderPlayerY, getWidth(), getHeight(), mapCols * tileSize, mapRows * tileSize);
+        shownOffsetX = mapOffsetX;
+        shownOffsetY = mapOffsetY;
+        if (chunkStreamer != null) streamChunks();
+        return s;
+    }
+
+    // ---- benchmarks (package-private; only while the loop is stopped, no surface needed) ----
+
+    /** Applies {@code data} as the current map and publishes it for drawing. */
+    void showMap(MapData data) {
+        if (core.applyMap(data)) publishRenderState();
+    }
+
+    /** Draws a full frame of the newest snapshot into {@code g}, as the render thread would. */
+    void drawOffscreen(Canvas g) {
+        prepareFrame(1f);
+        drawGame(g);
+    }
+
+    /** Starts replaying {@code log} on {@code start} (instead of the log's map asset). */
+    void beginReplay(InputLog log, MapData start) {
+        core.beginReplay(log, start);
+        publishRenderState();
+    }
+
+    /** Runs the next fixed step of the replay; false once the log has ended. */
+    boolean stepReplay() {
+        if (!core.isReplaying()) return false;
+        simulationStep(1f / SIM_HZ);
+        return core.isReplaying();
+    }
+
+    // Render thread: collects the area that differs from the last posted frame into damage.
+    // Camera moves, fades and bitmap rebuilds repaint everything; otherwise only the moved
+    // or re-framed sprites, the joystick knob, the dialog box and the debug HUD are redrawn.
+    // Returns false when the frame would be identical.
+    private boolean collectDamage(RenderState s, boolean tilesAnimated) {
+        int w = getWidth(), h = getHeight();
+        damage.begin(w, h);
+        boolean transition = s.transitionAlpha > 0f || s.mapLoading;
+        String error = lastError;
+        boolean redrawAll = fullRedraw.getAndSet(false);
+        if (redrawAll || spriteAtlasDirty || mapOffsetX != drawnOffsetX || mapOffsetY != drawnOffsetY
+                || transition || drawnTransition || error != drawnError) {
+            damage.invalidateAll();
+        }
+        drawnOffsetX = mapOffsetX;
+        drawnOffsetY = mapOffsetY;
+        drawnTransition = transition;
+        drawnError = error;
+
+        // sprites are tracked even on full frames so the next partial frame knows where they were
+        float c0 = -mapOffsetX / (float) tileSize - 1f;
+        float r0 = -mapOffsetY / (float) tileSize - 1f;
+        float c1 = (-mapOffsetX + w) / (float) tileSize + 1f;
+        float r1 = (-mapOffsetY + h) / (float) tileSize + 1f;
+        spriteDamage.begin();
+        renderSystem.render(s.actors, renderAlpha, c0, r0, c1, r1, 0, 0, damageCollector);
+        spriteDamage.end(damage);
+
+        // animated tiles: just the cells that changed frame (the chunk cache repaints those)
+        if (tilesAnimated) {
+            if (useChunkCache) {
+                chunkCache.collectAnimatedDamage(mapOffsetX + layerOriginCol * tileSize, mapOffsetY + layerOriginRow * tileSize,
+                        w, h, tilePainter, damage);
             }
-            float len = (float) Math.sqrt(dx * dx + dy * dy);
-            moving = len > 0.001f;
-            if (moving) {
-                if (Math.abs(dx) >= Math.abs(dy)) {
-                    playerDir = dx >= 0 ? DIR_RIGHT : DIR_LEFT;
-                } else {
-                    playerDir = dy >= 0 ? DIR_DOWN : DIR_UP;
-                }
+            else damage.invalidateAll();
+        }
+
+        if (useJoystick && (s.joyX != drawnJoyX || s.joyY != drawnJoyY)) {
+            float reach = joyBaseRadius + paintUiStroke.getStrokeWidth();
+            damage.add(joyCenter.x - reach, joyCenter.y - reach, joyCenter.x + reach, joyCenter.y + reach);
+        }
+        drawnJoyX = s.joyX;
+        drawnJoyY = s.joyY;
+
+        if (s.dialogOpen != drawnDialogOpen || (s.dialogOpen && (s.dialogLines != drawnDialogLines
+                || s.dialogIndex != drawnDialogIndex || s.dialogSpeaker != drawnDialogSpeaker))) {
+            layoutDialogBox();
+            damage.add(dialogBox);
+        }
+        drawnDialogOpen = s.dialogOpen;
+        drawnDialogSpeaker = s.dialogSpeaker;
+        drawnDialogLines = s.dialogLines;
+        drawnDialogIndex = s.dialogIndex;
+
+        // the HUD shows live stats: redrawn every frame while shown, erased once when hidden
+        boolean hud = debugHud;
+        if (hud || drawnHud) {
+            layoutHudBox();
+            damage.add(hudBox);
+            damage.add(profileBox);
+        }
+        drawnHud = hud;
+        return !damage.isEmpty();
+    }
+
+    // Render thread: moves animated tiles to the frame of the global tile clock; true if any changed
+    private boolean advanceTileAnimations() {
+        TileTable t = tileTable;
+        if (t == null) return false;
+        int[] ids = t.getAnimatedIds();
+        if (ids.length == 0) return false;
+        long now = SystemClock.uptimeMillis() - tileClockOrigin;
+        boolean changed = false;
+        for (int id : ids) {
+            int f = t.frameAt(id, now);
+            if (tileFrames[id] != f) {
+                tileFrames[id] = f;
+                changed = true;
             }
-            float step = moveSpeedTilesPerSec * dt;
-            moveAndCollide(dx * step, dy * step);
-            if (moving) animTime += dt; else animTime = 0f;
-            // warp check with small cooldown to avoid loops
-            if (warpCooldown > 0f) warpCooldown -= dt;
-            if (warpCooldown <= 0f) checkAndApplyWarp();
         }
-        // update camera to follow player
-        updateCamera();
+        return changed;
+    }
+
+    private void collectActorDamage(World w, int e, float tileX, float tileY) {
+        float px = mapOffsetX + tileX * tileSize;
+        float py = mapOffsetY + tileY * tileSize;
+        Bitmap b = actorBitmap(w, e);
+        if (b != null) {
+            float half = drawnWidth(b) / 2f;
+            spriteDamage.update(e, b, px - half, py - half, px + half, py + half, damage);
+        } else if (w.sprite[e] == SPRITE_PLAYER) {
+            spriteDamage.update(e, paintPlayer, px - playerRadiusPx, py - playerRadiusPx,
+                    px + playerRadiusPx, py + playerRadiusPx, damage);
+        } else {
+            float half = (int) (tileSize * 0.8f) / 2f + 1f; // drawActor rounds the rect
+            spriteDamage.update(e, paintNpc, px - half, py - half, px + half, py + half, damage);
+        }
     }
 
-    private void centerCameraOnPlayer(int viewW, int viewH, int mapW, int mapH) {
-        float px = playerX * tileSize;
-        float py = playerY * tileSize;
+    private void centerCameraOn(float tileX, float tileY, int viewW, int viewH, int mapW, int mapH) {
+        float px = tileX * tileSize;
+        float py = tileY * tileSize;
         cameraX = px - viewW / 2f;
         cameraY = py - viewH / 2f;
         if (cameraX < 0) cameraX = 0;
@@ -451,103 +966,242 @@ public class GameView extends SurfaceView implements SurfaceHolder.Callback, Run
         mapOffsetY = -Math.round(cameraY);
     }
 
-    private void updateCamera() {
-        int w = getWidth();
-        int h = getHeight();
-        int mapW = cols * tileSize;
-        int mapH = rows * tileSize;
-        centerCameraOnPlayer(w, h, mapW, mapH);
-    }
-
-    private void moveAndCollide(float dtx, float dty) {
-        // move on X
-        float newX = playerX + dtx;
-        if (isWalkable(newX, playerY)) {
-            playerX = newX;
-        } else {
-            // try to slide to tile boundary
-            playerX = clipToWalkable(playerX, playerY, dtx, true);
-        }
-        // move on Y
-        float newY = playerY + dty;
-        if (isWalkable(playerX, newY)) {
-            playerY = newY;
-        } else {
-            playerY = clipToWalkable(playerX, playerY, dty, false);
-        }
-        // clamp inside map
-        playerX = Math.max(1.1f, Math.min(cols - 2.1f, playerX));
-        playerY = Math.max(1.1f, Math.min(rows - 2.1f, playerY));
-    }
-
-    private boolean isWalkable(float fx, float fy) {
-        int c = Math.round(fx);
-        int r = Math.round(fy);
-        if (r < 0 || r >= rows || c < 0 || c >= cols) return false;
-        if (collisionMask != null) return !collisionMask[r][c];
-        return map == null || map[r][c] == 0;
-    }
-
-    private float clipToWalkable(float fx, float fy, float delta, boolean isX) {
-        // Move up to the boundary of the next tile
-        float tryPos = (isX ? fx + delta : fy + delta);
-        int tile = Math.round(tryPos);
-        int r = Math.round(fy);
-        int c = Math.round(fx);
-        if (isX) {
-            if (delta > 0) {
-                // moving right: avoid hitting next column if wall
-                if (tile < cols && map[r][tile] == 0) return tryPos;
-                return tile - 0.51f;
-            } else {
-                if (tile >= 0 && map[r][tile] == 0) return tryPos;
-                return tile + 0.51f;
-            }
-        } else {
-            if (delta > 0) {
-                if (tile < rows && map[tile][c] == 0) return tryPos;
-                return tile - 0.51f;
-            } else {
-                if (tile >= 0 && map[tile][c] == 0) return tryPos;
-                return tile + 0.51f;
-            }
-        }
-    }
-
     private void drawGame(Canvas g) {
+        FrameProfiler prof = renderProfile;
+        if (spriteAtlasDirty) rebuildSpriteAtlas();
         g.drawColor(Color.rgb(235, 235, 235));
         drawMap(g);
-        drawNpcs(g);
-        drawPlayer(g);
+        prof.begin(PROF_ACTORS);
+        drawActors(g);
+        prof.end(PROF_ACTORS);
+        prof.begin(PROF_CONTROLS);
         drawControls(g);
-        if (dialogOpen) drawDialog(g);
+        prof.end(PROF_CONTROLS);
+        prof.begin(PROF_OVERLAYS);
+        if (shown.dialogOpen) drawDialog(g);
+        if (shown.transitionAlpha > 0f) drawTransition(g);
         if (lastError != null) drawErrorOverlay(g, lastError);
         if (debugHud) drawDebugHud(g);
+        prof.end(PROF_OVERLAYS);
     }
 
     private void drawErrorOverlay(Canvas g, String msg) {
         int w = getWidth();
         int pad = Math.max(8, (int)(tileSize * 0.3f));
-        Paint bg = new Paint(); bg.setColor(Color.argb(210, 200, 40, 40));
-        Rect box = new Rect(pad, pad, w - pad, pad + (int)(tileSize * 2.6f));
-        g.drawRect(box, bg);
-        Paint tp = new Paint(paintText);
-        tp.setColor(Color.WHITE);
-        tp.setTextSize(Math.max(22f, tileSize * 0.5f));
-        g.drawText("?¤ë¥ ë°ì: " + msg, box.left + pad, box.top + tp.getTextSize() * 1.1f, tp);
-        g.drawText("?ì¸???´ì©? Logcat ?ì¸", box.left + pad, box.top + tp.getTextSize() * 2.2f, tp);
+        errorBox.set(pad, pad, w - pad, pad + (int)(tileSize * 2.6f));
+        g.drawRect(errorBox, paintErrorBg);
+        paintErrorText.setTextSize(Math.max(22f, tileSize * 0.5f));
+        if (msg != errorTextSource) { // build the overlay string once per distinct error
+            errorTextSource = msg;
+            errorText = "?¤ë¥ ë°ì: " + msg;
+        }
+        g.drawText(errorText, errorBox.left + pad, errorBox.top + paintErrorText.getTextSize() * 1.1f, paintErrorText);
+        g.drawText("?ì¸???´ì©? Logcat ?ì¸", errorBox.left + pad, errorBox.top + paintErrorText.getTextSize() * 2.2f, paintErrorText);
+    }
+
+    private void layoutHudBox() {
+        int pad = Math.max(8, (int)(tileSize*0.3f));
+        hudBox.set(pad, pad, pad + (int)(tileSize*9), pad + (int)(tileSize*5.4f));
+        // frame-time panel: right of the text when it fits, else below it
+        float lineH = Math.max(18f, tileSize*0.45f)*1.2f;
+        int panelW = (int)(tileSize*8);
+        int panelH = (int)(lineH*8 + tileSize*1.2f) + pad;
+        if (hudBox.right + pad + panelW <= getWidth() - pad) {
+            profileBox.set(hudBox.right + pad, hudBox.top, hudBox.right + pad + panelW, hudBox.top + panelH);
+        } else {
+            profileBox.set(hudBox.left, hudBox.bottom + pad, hudBox.left + panelW, hudBox.bottom + pad + panelH);
+        }
     }
 
     private void drawDebugHud(Canvas g) {
         int pad = Math.max(8, (int)(tileSize*0.3f));
-        Paint bg = new Paint(); bg.setColor(Color.argb(160, 0, 0, 0));
-        Rect box = new Rect(pad, pad, pad + (int)(tileSize*8), pad + (int)(tileSize*3));
-        g.drawRect(box, bg);
-        Paint tp = new Paint(paintText); tp.setColor(Color.WHITE); tp.setTextSize(Math.max(18f, tileSize*0.45f));
-        int y = box.top + (int)(tp.getTextSize()*1.2f);
-        g.drawText(String.format(java.util.Locale.US, "FPS ~%.0f", fps()), box.left + pad, y, tp); y += tp.getTextSize()*1.2f;
-        g.drawText(String.format(java.util.Locale.US, "Pos %.2f,%.2f tile", playerX, playerY), box.left + pad, y, tp); y += tp.getTextSize()*1.2f;
-        g.drawText(String.format(java.util.Locale.US, "Map %dx%d tile", cols, rows), box.left + pad, y, tp);
+        layoutHudBox();
+        g.drawRect(hudBox, paintHudBg);
+        paintHudText.setTextSize(Math.max(18f, tileSize*0.45f));
+        float lineH = paintHudText.getTextSize()*1.2f;
+        float x = hudBox.left + pad;
+        float y = hudBox.top + lineH;
+        // built into a reused StringBuilder: String.format would allocate every frame
+        hudText.setLength(0); hudText.append("FPS ~"); appendFixed(hudText, frameStats.fps(), 0);
+        hudText.append("  frame "); appendFixed(hudText, frameStats.averageMs(), 1);
+        hudText.append("ms avg, "); appendFixed(hudText, frameStats.maxMs(), 1); hudText.append(" max");
+        drawHudLine(g, x, y); y += lineH;
+        hudText.setLength(0);
+        if (loopMode == LoopMode.LEGACY) {
+            hudText.append("Loop legacy");
+        } else if (loopMode == LoopMode.THREADED) {
+            hudText.append("Loop threaded ").append(simLoop.getStepsPerSecond()).append(" steps/s, cap ");
+            if (fpsCap > 0) hudText.append(fpsCap); else hudText.append("off");
+        } else {
+            hudText.append("Loop vsync ").append(SIM_HZ).append("Hz sim, cap ");
+            if (fpsCap > 0) hudText.append(fpsCap); else hudText.append("off");
+        }
+        if (loopMode != LoopMode.THREADED) hudText.append(", steps ").append(frameStats.getSimStepsLastFrame());
+        drawHudLine(g, x, y); y += lineH;
+        hudText.setLength(0); hudText.append("Renderer ").append(renderer.getName());
+        if (renderer.getType() != requestedRenderer) hudText.append(" (fallback)");
+        hudText.append(" - tap to switch");
+        drawHudLine(g, x, y); y += lineH;
+        hudText.setLength(0); hudText.append("Pos "); appendFixed(hudText, renderPlayerX, 2);
+        hudText.append(','); appendFixed(hudText, renderPlayerY, 2); hudText.append(" tile");
+        // the step count is read racily, it only labels the HUD
+        if (core.isRecording()) hudText.append("  REC step ").append(core.getSessionStep());
+        else if (core.isReplaying()) hudText.append("  REPLAY step ").append(core.getSessionStep());
+        drawHudLine(g, x, y); y += lineH;
+        hudText.setLength(0); hudText.append("Map ").append(mapCols).append('x').append(mapRows).append(" tile");
+        if (chunkStreamer != null) {
+            hudText.append(", ").append(chunkStreamer.getResidentChunks()).append(" chunks resident, ");
+            hudText.append(chunkStreamer.getLoads()).append(" loads");
+        }
+        drawHudLine(g, x, y); y += lineH;
+        hudText.setLength(0); hudText.append("Chunks ").append(chunkCache.getBlitsLastFrame()).append(" blits, ");
+        appendFixed(hudText, chunkCache.getUsedBytes() / (1024f * 1024f), 1); hudText.append(" MB, ");
+        hudText.append(chunkCache.getCellRepaintsLastFrame()).append(" anim");
+        drawHudLine(g, x, y); y += lineH;
+        hudText.setLength(0); hudText.append("Redraw ");
+        appendFixed(hudText, damage.coverage() * 100f, 0); hudText.append("%, ");
+        hudText.append(framesSkipped).append(" frames skipped");
+        drawHudLine(g, x, y); y += lineH;
+        hudText.setLength(0); hudText.append("Alloc/frame ");
+        if (allocCounting) hudText.append(allocsLastFrame); else hudText.append('-');
+        hudText.append("  bitmaps 1/").append(currentTier().divisor).append(' ').append(filterQuality.name());
+        drawHudLine(g, x, y);
+        drawProfilePanel(g, pad, lineH);
+    }
+
+    // HUD panel: render interval graph against the step budget, percentiles, phase averages
+    private void drawProfilePanel(Canvas g, int pad, float lineH) {
+        renderProfile.summarize(renderSummary);
+        simProfile.summarize(simSummary);
+        FrameProfiler.Summary rs = renderSummary;
+        g.drawRect(profileBox, paintHudBg);
+        float x = profileBox.left + pad;
+        float y = profileBox.top + lineH;
+        hudText.setLength(0); hudText.append("Frame p50/95/99 ");
+        appendPercentiles(hudText, rs.intervalP50Ms, rs.intervalP95Ms, rs.intervalP99Ms);
+        drawHudLine(g, x, y); y += lineH;
+        hudText.setLength(0); hudText.append("Work p50/95/99 ");
+        appendPercentiles(hudText, rs.workP50Ms, rs.workP95Ms, rs.workP99Ms);
+        drawHudLine(g, x, y);
+
+        // one bar per frame interval; the budget line sits at half height
+        float graphTop = y + lineH * 0.4f;
+        float graphH = tileSize * 1.2f;
+        float graphBottom = graphTop + graphH;
+        float graphW = profileBox.right - pad - x;
+        float budgetMs = 1000f / SIM_HZ;
+        float barW = graphW / PROFILE_GRAPH_FRAMES;
+        int ok = 0, slow = 0;
+        for (int i = 0; i < rs.intervalCount; i++) {
+            float ms = rs.intervalsMs[i];
+            float top = graphBottom - Math.min(1f, ms / (2f * budgetMs)) * graphH;
+            float bx = x + (PROFILE_GRAPH_FRAMES - rs.intervalCount + i + 0.5f) * barW;
+            float[] bars = ms > budgetMs ? profileBarsSlow : profileBarsOk;
+            int o = (ms > budgetMs ? slow++ : ok++) * 4;
+            bars[o] = bx; bars[o + 1] = graphBottom; bars[o + 2] = bx; bars[o + 3] = top;
+        }
+        paintProfileOk.setStrokeWidth(Math.max(1f, barW));
+        paintProfileSlow.setStrokeWidth(Math.max(1f, barW));
+        if (ok > 0) g.drawLines(profileBarsOk, 0, ok * 4, paintProfileOk);
+        if (slow > 0) g.drawLines(profileBarsSlow, 0, slow * 4, paintProfileSlow);
+        float budgetY = graphBottom - graphH / 2f;
+        g.drawLine(x, budgetY, x + graphW, budgetY, paintProfileBudget);
+
+        y = graphBottom + lineH;
+        for (int p = 0; p < renderProfile.getPhaseCount(); p += 3) {
+            hudText.setLength(0);
+            appendPhaseAverages(hudText, renderProfile, rs, p, Math.min(renderProfile.getPhaseCount(), p + 3));
+            drawHudLine(g, x, y); y += lineH;
+        }
+        hudText.setLength(0); hudText.append("sim ");
+        appendPhaseAverages(hudText, simProfile, simSummary, 0, simProfile.getPhaseCount());
+        drawHudLine(g, x, y); y += lineH;
+        String status = profileDumpStatus;
+        hudText.setLength(0); hudText.append(status != null ? status : "Tap panel to save CSV");
+        drawHudLine(g, x, y);
+    }
+
+    private static void appendPercentiles(StringBuilder sb, float p50, float p95, float p99) {
+        appendFixed(sb, p50, 1); sb.append('/'); appendFixed(sb, p95, 1); sb.append('/'); appendFixed(sb, p99, 1);
+        sb.append(" ms");
+    }
+
+    private static void appendPhaseAverages(StringBuilder sb, FrameProfiler prof, FrameProfiler.Summary s, int from, int to) {
+        for (int p = from; p < to; p++) {
+            if (p > from) sb.append("  ");
+            sb.append(prof.getPhaseName(p)).append(' ');
+            appendFixed(sb, s.phaseAvgMs[p], 2);
+        }
+    }
+
+    /**
+     * Writes the recorded frame timings of the render and simulation threads as CSV files
+     * to files/profiles (on a background thread); the HUD panel shows where they went.
+     */
+    public void dumpFrameProfile() {
+        File dir = new File(getContext().getFilesDir(), "profiles");
+        String base = "frames-" + new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.ROOT).format(new Date())
+                + "-" + Build.MODEL.replaceAll("[^A-Za-z0-9]+", "_");
+        new Thread(() -> {
+            try {
+                if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+                writeProfileCsv(renderProfile, new File(dir, base + "-render.csv"));
+                writeProfileCsv(simProfile, new File(dir, base + "-sim.csv"));
+                profileDumpStatus = "Saved profiles/" + base;
+                android.util.Log.i("GameView", "Frame profile written to " + dir + "/" + base + "-*.csv");
+            } catch (IOException e) {
+                profileDumpStatus = "CSV failed: " + e.getMessage();
+                android.util.Log.w("GameView", "Frame profile export failed", e);
+            }
+        }, "ProfileDump").start();
+    }
+
+    private static void writeProfileCsv(FrameProfiler prof, File file) throws IOException {
+        try (Writer w = new BufferedWriter(new FileWriter(file))) {
+            prof.writeCsv(w);
+        }
+    }
+
+    private void drawHudLine(Canvas g, float x, float y) {
+        int n = hudText.length();
+        if (hudChars.length < n) hudChars = new char[n * 2];
+        hudText.getChars(0, n, hudChars, 0);
+        g.drawText(hudChars, 0, n, x, y, paintHudText);
+    }
+
+    // appends value with a fixed number of decimals without going through Float.toString
+    private static void appendFixed(StringBuilder sb, float value, int decimals) {
+        if (Float.isNaN(value) || Float.isInfinite(value)) { sb.append('-'); return; }
+        if (value < 0) { sb.append('-'); value = -value; }
+        int scale = 1;
+        for (int i = 0; i < decimals; i++) scale *= 10;
+        long scaled = Math.round((double) value * scale);
+        sb.append(scaled / scale);
+        if (decimals > 0) {
+            sb.append('.');
+            long frac = scaled % scale;
+            for (int div = scale / 10; div > 0; div /= 10) {
+                sb.append((char) ('0' + (frac / div) % 10));
+            }
+        }
+    }
+
+    // Per-frame allocation counter for the debug HUD (render thread only)
+    // Deprecated, but the only per-thread count: runtime stats are process-wide and include the sim thread
+    @SuppressWarnings("deprecation")
+    private void sampleAllocations() {
+        if (debugHud && !allocCounting) {
+            android.os.Debug.startAllocCounting();
+            android.os.Debug.resetThreadAllocCount();
+            allocCounting = true;
+            allocsLastFrame = 0;
+        } else if (!debugHud && allocCounting) {
+            android.os.Debug.stopAllocCounting();
+            allocCounting = false;
+        } else if (allocCounting) {
+            allocsLastFrame = android.os.Debug.getThreadAllocCount();
+            android.os.Debug.resetThreadAllocCount();
+        }
     }
 
     private void handleDebugTap() {
@@ -563,147 +1217,276 @@ public class GameView extends SurfaceView implements SurfaceHolder.Callback, Run
         }
     }
 
-    // crude fps estimation over last frame duration
-    private float fps() {
-        float dt = Math.max(1e-3f, (System.nanoTime() - lastFrameNanos) / 1_000_000_000f);
-        return 1f / dt;
-    }
-
     private void drawMap(Canvas g) {
         // Draw image layers first (if any)
         if (!imageLayers.isEmpty()) {
-            for (MapData.ImageLayer il : imageLayers) {
-                if (il == null || il.bitmap == null) continue;
-                int x = mapOffsetX + il.offsetX;
-                int y = mapOffsetY + il.offsetY;
-                g.drawBitmap(il.bitmap, x, y, null);
+            renderProfile.begin(PROF_IMAGES);
+            for (int i = 0; i < imageLayers.size(); i++) {
+                MapData.ImageLayer il = imageLayers.get(i);
+                Bitmap image = il != null ? BitmapHandle.bitmap(il.image) : null;
+                if (image == null) continue;
+                // parallax: the layer follows the camera by its factor (1 = moves with the tiles)
+                int x = il.offsetX + Math.round(mapOffsetX * il.parallaxX);
+                int y = il.offsetY + Math.round(mapOffsetY * il.parallaxY);
+                g.drawBitmap(image, x, y, null);
             }
+            renderProfile.end(PROF_IMAGES);
         }
+        renderProfile.begin(PROF_TILES);
         if (tileLayers != null && !tileLayers.isEmpty()) {
-            for (int[][] layer : tileLayers) drawLayer(g, layer);
+            boolean cached = useChunkCache && chunkCache.draw(g, tileLayers, layerCols, layerRows, tileSize,
+                    mapOffsetX + layerOriginCol * tileSize, mapOffsetY + layerOriginRow * tileSize,
+                    getWidth(), getHeight(), tilePainter);
+            if (!cached) {
+                beginTileBatch(g);
+                for (int i = 0; i < tileLayers.size(); i++) drawLayer(g, tileLayers.get(i));
+                spriteBatch.end();
+            }
         } else if (map != null) {
             drawLayer(g, map);
         }
+        renderProfile.end(PROF_TILES);
     }
 
-    private void drawLayer(Canvas g, int[][] layer) {
+    private void drawLayer(Canvas g, TileLayer layer) {
         if (layer == null) return;
         // compute visible tile range (camera culling)
         int viewW = getWidth();
         int viewH = getHeight();
-        int startC = Math.max(0, (int) Math.floor((-mapOffsetX) / (float) tileSize));
-        int endC = Math.min(cols - 1, (int) Math.floor(((-mapOffsetX) + viewW) / (float) tileSize));
-        int startR = Math.max(0, (int) Math.floor((-mapOffsetY) / (float) tileSize));
-        int endR = Math.min(rows - 1, (int) Math.floor(((-mapOffsetY) + viewH) / (float) tileSize));
-        int maxR = Math.min(rows, layer.length);
+        // layer tile (0, 0) sits at the layer origin (the streamed window on infinite maps)
+        int offX = mapOffsetX + layerOriginCol * tileSize;
+        int offY = mapOffsetY + layerOriginRow * tileSize;
+        int startC = Math.max(0, (int) Math.floor((-offX) / (float) tileSize));
+        int endC = Math.min(layerCols - 1, (int) Math.floor(((-offX) + viewW) / (float) tileSize));
+        int startR = Math.max(0, (int) Math.floor((-offY) / (float) tileSize));
+        int endR = Math.min(layerRows - 1, (int) Math.floor(((-offY) + viewH) / (float) tileSize));
+        int maxR = Math.min(layerRows, layer.rows);
+        int maxC = Math.min(layerCols, layer.cols);
         startR = Math.max(0, Math.min(startR, maxR - 1));
         endR = Math.max(0, Math.min(endR, maxR - 1));
+        startC = Math.max(0, Math.min(startC, maxC - 1));
+        endC = Math.max(0, Math.min(endC, maxC - 1));
         for (int r = startR; r <= endR; r++) {
-            int[] rowArr = layer[r];
-            if (rowArr == null) continue;
-            int maxC = Math.min(cols, rowArr.length);
-            int sC = Math.max(0, Math.min(startC, maxC - 1));
-            int eC = Math.max(0, Math.min(endC, maxC - 1));
-            for (int c = sC; c <= eC; c++) {
-                int left = mapOffsetX + c * tileSize;
-                int top = mapOffsetY + r * tileSize;
-                int right = left + tileSize;
-                int bottom = top + tileSize;
-                int idx = rowArr[c];
-                if (atlasBitmap != null && idx != 0) {
-                    int gid = idx;
-                    int local = gid - atlasFirstGid;
-                    int colsAtlas = atlasColumns > 0 ? atlasColumns : (atlasTileW > 0 ? (atlasBitmap.getWidth() / atlasTileW) : 0);
-                    if (colsAtlas <= 0 || atlasTileW <= 0 || atlasTileH <= 0) {
-                        // atlas invalid: draw fallback colors
-                        if (idx == 0) g.drawRect(left, top, right, bottom, paintTile); else g.drawRect(left, top, right, bottom, paintWall);
-                    } else if (local >= 0) {
-                        int sx = (local % colsAtlas) * atlasTileW;
-                        int sy = (local / colsAtlas) * atlasTileH;
-                        android.graphics.Rect src = new android.graphics.Rect(sx, sy, sx + atlasTileW, sy + atlasTileH);
-                        android.graphics.Rect dst = new android.graphics.Rect(left, top, right, bottom);
-                        g.drawBitmap(atlasBitmap, src, dst, null);
-                    }
-                } else if (tileBitmaps != null) {
-                    if (idx >= 0 && idx < tileBitmaps.length && tileBitmaps[idx] != null) {
-                        g.drawBitmap(tileBitmaps[idx], left, top, null);
-                    } else {
-                        if (idx == 0) g.drawRect(left, top, right, bottom, paintTile); else g.drawRect(left, top, right, bottom, paintWall);
-                    }
-                } else {
-                    if (idx == 0) {
-                        if (bmpFloor != null) g.drawBitmap(bmpFloor, left, top, null);
-                        else g.drawRect(left, top, right, bottom, paintTile);
-                    } else {
-                        if (bmpWall != null) g.drawBitmap(bmpWall, left, top, null);
-                        else g.drawRect(left, top, right, bottom, paintWall);
-                    }
-                }
+            int rowBase = r * layer.cols;
+            int top = offY + r * tileSize;
+            for (int c = startC; c <= endC; c++) {
+                int left = offX + c * tileSize;
+                drawTile(g, layer.get(rowBase + c), left, top, tileSize);
             }
         }
     }
 
-    private void drawPlayer(Canvas g) {
-        float px = mapOffsetX + playerX * tileSize;
-        float py = mapOffsetY + playerY * tileSize;
-        Bitmap current = null;
-        if (moving && playerWalkDir[playerDir][0] != null && playerWalkDir[playerDir][1] != null) {
-            int frame = ((int) (animTime * 8f)) % 2; // ~8 fps
-            current = playerWalkDir[playerDir][frame];
-        } else if (playerIdleDir[playerDir] != null) {
-            // subtle idle bob using animTime
-            int frame = ((int) (animTime * 2f)) % 2;
-            current = (frame == 0 ? playerIdleDir[playerDir]
-                    : (playerWalkDir[playerDir][0] != null ? playerWalkDir[playerDir][0] : playerIdleDir[playerDir]));
-        } else if (moving && bmpPlayerWalk[0] != null && bmpPlayerWalk[1] != null) {
-            int frame = ((int) (animTime * 8f)) % 2;
-            current = bmpPlayerWalk[frame];
+    private void drawTile(Canvas g, int idx, int left, int top, int size) {
+        int right = left + size;
+        int bottom = top + size;
+        if (tileTable != null) {
+            // id 0 is an empty cell (lower layers show through)
+            if (idx <= 0 || idx >= tileFrames.length) return;
+            idx = tileFrames[idx]; // animated tiles draw their current frame
+            Tileset ts = tileTable.tileset(idx);
+            Bitmap sheet = BitmapHandle.bitmap(ts.image);
+            if (sheet == null || ts.tileW <= 0 || ts.tileH <= 0) {
+                // tileset image missing: draw fallback color
+                g.drawRect(left, top, right, bottom, paintWall);
+                return;
+            }
+            // tiles of several tilesets interleave: the batch is reopened on the tile's sheet
+            if (spriteBatch.getBitmap() != sheet) beginBatch(g, sheet, true);
+            spriteBatch.add(tileTable.srcX(idx), tileTable.srcY(idx), ts.tileW, ts.tileH,
+                    tileTable.orientation(idx), left, top, right, bottom);
+        } else if (tileBitmaps != null) {
+            if (idx >= 0 && idx < tileBitmaps.length && tileBitmaps[idx] != null) {
+                drawPacked(g, tileBitmaps[idx], left, top, right, bottom);
+            } else {
+                if (idx == 0) g.drawRect(left, top, right, bottom, paintTile); else g.drawRect(left, top, right, bottom, paintWall);
+            }
         } else {
-            current = bmpPlayerIdle != null ? bmpPlayerIdle : null;
+            if (idx == 0) {
+                if (bmpFloor != null) drawPacked(g, bmpFloor, left, top, right, bottom);
+                else g.drawRect(left, top, right, bottom, paintTile);
+            } else {
+                if (bmpWall != null) drawPacked(g, bmpWall, left, top, right, bottom);
+                else g.drawRect(left, top, right, bottom, paintWall);
+            }
         }
-        if (current != null) {
-            int size = current.getWidth();
-            float left = px - size / 2f;
-            float top = py - size / 2f;
-            g.drawBitmap(current, left, top, null);
+    }
+
+    // Opens the tile batch on the map's first tileset sheet, or on the packed page holding generated tiles
+    private void beginTileBatch(Canvas g) {
+        if (tileTable != null) {
+            List<Tileset> sets = tileTable.getTilesets();
+            for (int i = 0; i < sets.size(); i++) {
+                Bitmap sheet = BitmapHandle.bitmap(sets.get(i).image);
+                if (sheet != null) { beginBatch(g, sheet, true); return; }
+            }
+        } else if (spriteAtlas != null && tileBitmaps != null) {
+            for (int i = 0; i < tileBitmaps.length; i++) {
+                TextureAtlas.Region r = spriteAtlas.region(tileBitmaps[i]);
+                if (r != null) { beginBatch(g, r.page, false); return; }
+            }
+        }
+    }
+
+    // Opens the batch on a tileset sheet or atlas page, sampled as the filter quality sets for its kind
+    private void beginBatch(Canvas g, Bitmap bitmap, boolean tilesetSheet) {
+        spriteBatch.end(); // a pending batch keeps the sampling it was filled with
+        FilterQuality q = appliedFilterQuality != null ? appliedFilterQuality : filterQuality;
+        spriteBatch.setFilterBitmap(tilesetSheet ? q.filtersSheets() : q.filtersPacked());
+        spriteBatch.begin(g, bitmap);
+    }
+
+    // Size a sprite bitmap is drawn at: its packed size times the region's tier scale
+    private float drawnWidth(Bitmap b) {
+        TextureAtlas.Region r = spriteAtlas != null ? spriteAtlas.region(b) : null;
+        return r != null ? r.drawnWidth() : b.getWidth();
+    }
+
+    // Draws a sprite bitmap at its drawn size (unpacked bitmaps at their own size)
+    private void drawPacked(Canvas g, Bitmap b, float left, float top) {
+        TextureAtlas.Region r = spriteAtlas != null ? spriteAtlas.region(b) : null;
+        if (r == null) g.drawBitmap(b, left, top, paintBitmap);
+        else drawPacked(g, b, left, top, left + r.drawnWidth(), top + r.drawnHeight());
+    }
+
+    // Draws a sprite/tile bitmap over (left, top, right, bottom): batched when its atlas page is open, else from the atlas page
+    private void drawPacked(Canvas g, Bitmap b, float left, float top, float right, float bottom) {
+        TextureAtlas.Region r = spriteAtlas != null ? spriteAtlas.region(b) : null;
+        if (r == null) {
+            packedDst.set(left, top, right, bottom);
+            g.drawBitmap(b, null, packedDst, paintBitmap);
+        } else if (spriteBatch.isActive() && spriteBatch.getBitmap() == r.page) {
+            spriteBatch.add(r.src.left, r.src.top, r.src.width(), r.src.height(), left, top, right, bottom);
         } else {
-            g.drawCircle(px, py, playerRadiusPx, paintPlayer);
+            spriteAtlas.draw(g, b, left, top, right, bottom, paintBitmap);
         }
     }
 
-    private void drawNpcs(Canvas g) {
-        for (Npc n : npcs) {
-            // face toward player
-            float dx = playerX - n.col;
-            float dy = playerY - n.row;
-            int dir;
-            if (Math.abs(dx) >= Math.abs(dy)) dir = dx >= 0 ? DIR_RIGHT : DIR_LEFT;
-            else dir = dy >= 0 ? DIR_DOWN : DIR_UP;
+    // Render thread: (re)creates the sprite and tile bitmaps at the requested tile size and tier
+    private void applyBitmapSize() {
+        tileSize = requestedTileSize;
+        bitmapTileSize = tileSize;
+        bitmapTier = requestedTier;
+        playerRadiusPx = tileSize * 0.35f;
+        createOrUpdateBitmaps();
+        recreateTileBitmapsIfNeeded();
+        fullRedraw.set(true);
+    }
 
-            Bitmap current = null;
-            int frame = ((int) (animTime * 2f)) % 2; // slow idle bounce
-            if (npcIdleDir[dir] != null || npcWalkDir[dir][0] != null) {
-                current = (frame == 0 ? npcIdleDir[dir]
-                        : (npcWalkDir[dir][0] != null ? npcWalkDir[dir][0] : npcIdleDir[dir]));
+    // Render thread: samples scaled bitmaps as the filter quality asks; cached chunks are repainted
+    private void applyFilterQuality() {
+        FilterQuality q = filterQuality;
+        appliedFilterQuality = q;
+        paintBitmap.setFilterBitmap(q.filtersPacked());
+        if (spriteAtlas != null) spriteAtlas.setHasMipMap(q.mipmaps());
+        TileTable t = tileTable;
+        if (t != null) {
+            List<Tileset> sets = t.getTilesets();
+            for (int i = 0; i < sets.size(); i++) {
+                Bitmap sheet = BitmapHandle.bitmap(sets.get(i).image);
+                if (sheet != null && !sheet.isRecycled()) sheet.setHasMipMap(q.mipmaps());
             }
+        }
+        chunkCache.invalidate();
+        fullRedraw.set(true);
+    }
 
-            if (current != null) {
-                int size = current.getWidth();
-                int left = mapOffsetX + Math.round((n.col) * tileSize - size / 2f);
-                int top = mapOffsetY + Math.round((n.row) * tileSize - size / 2f);
-                g.drawBitmap(current, left, top, null);
-            } else if (bmpNpc != null) {
-                int size = bmpNpc.getWidth();
-                int left = mapOffsetX + Math.round(n.col * tileSize - size / 2f);
-                int top = mapOffsetY + Math.round(n.row * tileSize - size / 2f);
-                g.drawBitmap(bmpNpc, left, top, null);
-            } else {
-                int size = (int) (tileSize * 0.8f);
-                int left = mapOffsetX + Math.round(n.col * tileSize - size / 2f);
-                int top = mapOffsetY + Math.round(n.row * tileSize - size / 2f);
-                g.drawRect(left, top, left + size, top + size, paintNpc);
-            }
+    /** Sampling of sprites, tiles and tileset sheets drawn at another size than their own. */
+    public void setFilterQuality(FilterQuality quality) {
+        if (quality != null) filterQuality = quality;
+    }
+
+    public FilterQuality getFilterQuality() { return filterQuality; }
+
+    /**
+     * Resolution of the bitmaps generated per tile size (drawable tiles and sprites, palette
+     * tiles); null picks it from the tile size. The render thread rebuilds them before its next frame.
+     */
+    public void setResolutionTier(ResolutionTier tier) {
+        requestedTier = tier;
+    }
+
+    public ResolutionTier getResolutionTier() {
+        ResolutionTier t = requestedTier;
+        return t != null ? t : ResolutionTier.forTileSize(requestedTileSize);
+    }
+
+    private void rebuildSpriteAtlas() {
+        spriteAtlasDirty = false;
+        TextureAtlas old = spriteAtlas;
+        // tier-scaled bitmaps keep their drawn size in the atlas; sheet frames are drawn 1:1
+        float tile = tileScale(), sprite = spriteScale();
+        float player = playerFromSheet ? 1f : sprite, npc = npcFromSheet ? 1f : sprite;
+        AtlasPacker packer = new AtlasPacker()
+                .addAll(tileBitmaps, tile)
+                .add(bmpFloor, tile).add(bmpWall, tile).add(bmpNpc, sprite).add(bmpPlayerIdle, player)
+                .addAll(bmpPlayerWalk, sprite).addAll(playerIdleDir, player).addAll(npcIdleDir, npc);
+        for (int d = 0; d < 4; d++) packer.addAll(playerWalkDir[d], player).addAll(npcWalkDir[d], npc);
+        spriteAtlas = packer.pack();
+        if (spriteAtlas != null) spriteAtlas.setHasMipMap(filterQuality.mipmaps());
+        if (old != null) old.release();
+        fullRedraw.set(true);
+    }
+
+    private float tileScale() {
+        int size = Math.max(8, tileSize);
+        return size / (float) currentTier().texels(size);
+    }
+
+    private float spriteScale() {
+        int size = spriteSize();
+        return size / (float) currentTier().texels(size);
+    }
+
+    private void drawActors(Canvas g) {
+        // visible tiles (+1 tile margin for sprites wider than their tile); NPCs first, player on top
+        float c0 = -mapOffsetX / (float) tileSize - 1f;
+        float r0 = -mapOffsetY / (float) tileSize - 1f;
+        float c1 = (-mapOffsetX + getWidth()) / (float) tileSize + 1f;
+        float r1 = (-mapOffsetY + getHeight()) / (float) tileSize + 1f;
+        World actors = shown.actors;
+        actorCanvas = g;
+        renderSystem.render(actors, renderAlpha, c0, r0, c1, r1, 0, World.PLAYER, actorDrawer);
+        renderSystem.render(actors, renderAlpha, c0, r0, c1, r1, World.PLAYER, 0, actorDrawer);
+        actorCanvas = null;
+    }
+
+    private void drawActor(Canvas g, World w, int e, float tileX, float tileY) {
+        float px = mapOffsetX + tileX * tileSize;
+        float py = mapOffsetY + tileY * tileSize;
+        Bitmap current = actorBitmap(w, e);
+        if (current != null) {
+            float size = drawnWidth(current);
+            drawPacked(g, current, px - size / 2f, py - size / 2f);
+        } else if (w.sprite[e] == SPRITE_PLAYER) {
+            g.drawCircle(px, py, playerRadiusPx, paintPlayer);
+        } else {
+            int size = (int) (tileSize * 0.8f);
+            int left = Math.round(px - size / 2f);
+            int top = Math.round(py - size / 2f);
+            g.drawRect(left, top, left + size, top + size, paintNpc);
+        }
+    }
+
+    // Frame for the entity's sprite, direction and animation state; null = draw a shape
+    private Bitmap actorBitmap(World w, int e) {
+        boolean isPlayer = w.sprite[e] == SPRITE_PLAYER;
+        Bitmap[][] walkDir = isPlayer ? playerWalkDir : npcWalkDir;
+        Bitmap[] idleDir = isPlayer ? playerIdleDir : npcIdleDir;
+        int dir = w.dir[e];
+        int frame = w.frame[e];
+        boolean moving = w.moving[e];
+        Bitmap current;
+        if (moving && walkDir[dir][0] != null && walkDir[dir][1] != null) {
+            current = walkDir[dir][frame];
+        } else if (idleDir[dir] != null) {
+            // idle bob alternates the idle frame with the first walk frame
+            current = frame == 0 || walkDir[dir][0] == null ? idleDir[dir] : walkDir[dir][0];
+        } else if (isPlayer) {
+            current = moving && bmpPlayerWalk[0] != null && bmpPlayerWalk[1] != null ? bmpPlayerWalk[frame] : bmpPlayerIdle;
+        } else {
+            current = bmpNpc;
         }
+        return current;
     }
 
     private void drawControls(Canvas g) {
@@ -723,16 +1506,13 @@ public class GameView extends SurfaceView implements SurfaceHolder.Callback, Run
             paintText.setColor(Color.BLACK);
         } else {
             // Joystick base
-            Paint base = new Paint(paintUi);
-            base.setColor(Color.argb(80, 0, 0, 0));
-            g.drawCircle(joyCenter.x, joyCenter.y, joyBaseRadius, base);
+            g.drawCircle(joyCenter.x, joyCenter.y, joyBaseRadius, paintJoyBase);
             g.drawCircle(joyCenter.x, joyCenter.y, joyBaseRadius, paintUiStroke);
 
             // Joystick knob
-            float knobX = joyCenter.x + joyVecX * (joyBaseRadius * 0.6f);
-            float knobY = joyCenter.y + joyVecY * (joyBaseRadius * 0.6f);
-            Paint knob = new Paint(); knob.setColor(Color.argb(150, 255, 255, 255));
-            g.drawCircle(knobX, knobY, joyKnobRadius, knob);
+            float knobX = joyCenter.x + shown.joyX * (joyBaseRadius * 0.6f);
+            float knobY = joyCenter.y + shown.joyY * (joyBaseRadius * 0.6f);
+            g.drawCircle(knobX, knobY, joyKnobRadius, paintJoyKnob);
             g.drawCircle(knobX, knobY, joyKnobRadius, paintUiStroke);
         }
 
@@ -745,51 +1525,58 @@ public class GameView extends SurfaceView implements SurfaceHolder.Callback, Run
         paintText.setColor(Color.BLACK);
     }
 
-    private void drawDialog(Canvas g) {
+    private void layoutDialogBox() {
         int w = getWidth();
         int h = getHeight();
         int margin = (int) (tileSize * 0.6f);
-        Rect box = new Rect(margin, h - (int) (tileSize * 4.2f), w - margin, h - margin);
-        g.drawRect(box, paintDialogBg);
+        dialogBox.set(margin, h - (int) (tileSize * 4.2f), w - margin, h - margin);
+    }
+
+    private void drawDialog(Canvas g) {
+        layoutDialogBox();
+        g.drawRect(dialogBox, paintDialogBg);
 
         float titleSize = Math.max(32f, tileSize * 0.55f);
         float bodySize = Math.max(28f, tileSize * 0.5f);
-        Paint titlePaint = new Paint(paintText);
-        titlePaint.setTextSize(titleSize);
-        titlePaint.setColor(Color.rgb(33,33,33));
-
-        Paint bodyPaint = new Paint(paintText);
-        bodyPaint.setTextSize(bodySize);
-        bodyPaint.setColor(Color.rgb(33,33,33));
+        float hintSize = Math.max(24f, tileSize * 0.45f);
+        paintDialogTitle.setTextSize(titleSize);
+        paintDialogBody.setTextSize(bodySize);
+        paintDialogHint.setTextSize(hintSize);
+        updateDialogTextCache(hintSize);
 
         int padding = (int) (tileSize * 0.5f);
-        g.drawText(dialogSpeaker, box.left + padding, box.top + padding + titleSize, titlePaint);
+        g.drawText(shown.dialogSpeaker, dialogBox.left + padding, dialogBox.top + padding + titleSize, paintDialogTitle);
 
         // current line only
-        String line = (dialogLines != null && dialogIndex >= 0 && dialogIndex < dialogLines.length)
-                ? dialogLines[dialogIndex] : "";
-        float y = box.top + padding + titleSize + padding + bodySize;
-        g.drawText(line, box.left + padding, y, bodyPaint);
+        float y = dialogBox.top + padding + titleSize + padding + bodySize;
+        g.drawText(dialogLineText, dialogBox.left + padding, y, paintDialogBody);
 
         // Footer: hint and page indicator
-        String hint = (dialogLines != null && dialogIndex < dialogLines.length - 1) ? "A: \uB2E4\uC74C" : "A: \uB2EB\uAE30";
-        Paint hintPaint = new Paint(paintText);
-        float hintSize = Math.max(24f, tileSize * 0.45f);
-        hintPaint.setTextSize(hintSize);
-        hintPaint.setColor(Color.DKGRAY);
-        float hintWidth = hintPaint.measureText(hint);
-        g.drawText(hint, box.right - padding - hintWidth, box.bottom - padding, hintPaint);
-
-        if (dialogLines != null) {
-            String page = (dialogIndex + 1) + "/" + dialogLines.length;
-            g.drawText(page, box.left + padding, box.bottom - padding, hintPaint);
+        g.drawText(dialogHintText, dialogBox.right - padding - dialogHintWidth, dialogBox.bottom - padding, paintDialogHint);
+        if (dialogPageText != null) {
+            g.drawText(dialogPageText, dialogBox.left + padding, dialogBox.bottom - padding, paintDialogHint);
         }
     }
 
+    // Rebuilds the dialog strings/measurements only when the page or text size changes
+    private void updateDialogTextCache(float hintSize) {
+        String[] dialogLines = shown.dialogLines;
+        int dialogIndex = shown.dialogIndex;
+        if (dialogCacheLines == dialogLines && dialogCacheIndex == dialogIndex && dialogCacheHintSize == hintSize) return;
+        dialogCacheLines = dialogLines;
+        dialogCacheIndex = dialogIndex;
+        dialogCacheHintSize = hintSize;
+        dialogLineText = (dialogLines != null && dialogIndex >= 0 && dialogIndex < dialogLines.length)
+                ? dialogLines[dialogIndex] : "";
+        dialogHintText = (dialogLines != null && dialogIndex < dialogLines.length - 1) ? HINT_NEXT : HINT_CLOSE;
+        dialogHintWidth = paintDialogHint.measureText(dialogHintText);
+        dialogPageText = dialogLines != null ? (dialogIndex + 1) + "/" + dialogLines.length : null;
+    }
+
     private void drawCenteredText(Canvas g, String s, Rect r, Paint p) {
-        Paint.FontMetrics fm = p.getFontMetrics();
+        p.getFontMetrics(fontMetrics);
         float tx = r.left + (r.width()) / 2f - p.measureText(s) / 2f;
-        float ty = r.top + (r.height()) / 2f - (fm.ascent + fm.descent) / 2f;
+        float ty = r.top + (r.height()) / 2f - (fontMetrics.ascent + fontMetrics.descent) / 2f;
         g.drawText(s, tx, ty, p);
     }
 
@@ -803,8 +1590,17 @@ public class GameView extends SurfaceView implements SurfaceHolder.Callback, Run
         // hidden debug toggle: triple-tap near top-left corner
         if (action == MotionEvent.ACTION_DOWN) {
             float x = event.getX(pointerIndex), y = event.getY(pointerIndex);
-            if (x < Math.max(60, tileSize * 1.2f) && y < Math.max(60, tileSize * 1.2f)) {
+            if (x < Math.max(60, requestedTileSize * 1.2f) && y < Math.max(60, requestedTileSize * 1.2f)) {
                 handleDebugTap();
+                return true; // not a tap-to-move toward the corner tile
+            } else if (debugHud && profileBox.contains((int) x, (int) y)) {
+                dumpFrameProfile();
+                return true;
+            } else if (debugHud && hudBox.contains((int) x, (int) y)) {
+                // A/B: tapping the HUD toggles software/hardware rendering
+                setRendererType(requestedRenderer == SurfaceRenderer.Type.HARDWARE
+                        ? SurfaceRenderer.Type.SOFTWARE : SurfaceRenderer.Type.HARDWARE);
+                return true;
             }
         }
         switch (action) {
@@ -834,6 +1630,7 @@ public class GameView extends SurfaceView implements SurfaceHolder.Callback, Run
                         if (btnLeft.contains(mx, my)) leftPressed = true;
                         if (btnRight.contains(mx, my)) rightPressed = true;
                     }
+                    offerDirs();
                 }
                 return true;
             }
@@ -846,7 +1643,8 @@ public class GameView extends SurfaceView implements SurfaceHolder.Callback, Run
                 // On last finger up, clear movement
                 if (event.getPointerCount() <= 1) {
                     upPressed = downPressed = leftPressed = rightPressed = false;
-                    if (useJoystick) { joyPointerId = -1; joyVecX = 0f; joyVecY = 0f; }
+                    offerDirs();
+                    if (useJoystick) { joyPointerId = -1; setJoystickVector(0f, 0f); }
                 }
                 return true;
             }
@@ -868,19 +1666,51 @@ public class GameView extends SurfaceView implements SurfaceHolder.Callback, Run
             if (btnDown.contains(x, y)) downPressed = true;
             if (btnLeft.contains(x, y)) leftPressed = true;
             if (btnRight.contains(x, y)) rightPressed = true;
+            offerDirs();
+        }
+        if (btnA.contains(x, y)) { core.offerInput(INPUT_ACTION, 0, 0, 0f, 0f); }
+        else if (!isOnControl(x, y)) tapToMove(x, y);
+    }
+
+    private boolean isOnControl(int x, int y) {
+        if (useJoystick) {
+            float dx = x - joyCenter.x;
+            float dy = y - joyCenter.y;
+            return dx * dx + dy * dy <= joyBaseRadius * joyBaseRadius;
         }
-        if (btnA.contains(x, y)) { tryStartOrAdvanceDialog(); }
+        return btnUp.contains(x, y) || btnDown.contains(x, y) || btnLeft.contains(x, y) || btnRight.contains(x, y);
+    }
+
+    // Walks the player to the tapped tile (as last drawn) along a path around walls
+    private void tapToMove(int x, int y) {
+        if (tileSize <= 0) return;
+        int col = Math.round((x - shownOffsetX) / (float) tileSize);
+        int row = Math.round((y - shownOffsetY) / (float) tileSize);
+        core.offerInput(INPUT_MOVE_TO, col, row, 0f, 0f);
+    }
+
+    // UI thread: forwards the held D-pad/key directions when they change
+    private void offerDirs() {
+        int bits = (upPressed ? DIR_BIT_UP : 0) | (downPressed ? DIR_BIT_DOWN : 0)
+                | (leftPressed ? DIR_BIT_LEFT : 0) | (rightPressed ? DIR_BIT_RIGHT : 0);
+        if (bits != offeredDirs && core.offerInput(INPUT_DIRS, bits, 0, 0f, 0f)) offeredDirs = bits;
+    }
+
+    // UI thread: x, y in -1..1 (down positive)
+    private void setJoystickVector(float x, float y) {
+        core.offerInput(INPUT_STICK, 0, 0, x, y);
     }
 
     private void handleRelease(MotionEvent event, int pointerIndex, int x, int y) {
         if (useJoystick) {
             int pid = event.getPointerId(pointerIndex);
-            if (pid == joyPointerId) { joyPointerId = -1; joyVecX = 0f; joyVecY = 0f; return; }
+            if (pid == joyPointerId) { joyPointerId = -1; setJoystickVector(0f, 0f); return; }
         } else {
             if (btnUp.contains(x, y)) upPressed = false;
             if (btnDown.contains(x, y)) downPressed = false;
             if (btnLeft.contains(x, y)) leftPressed = false;
             if (btnRight.contains(x, y)) rightPressed = false;
+            offerDirs();
         }
         // A button is tap-only; no continuous state
     }
@@ -889,10 +1719,9 @@ public class GameView extends SurfaceView implements SurfaceHolder.Callback, Run
         float dx = x - joyCenter.x;
         float dy = y - joyCenter.y;
         float len = (float) Math.sqrt(dx*dx + dy*dy);
-        if (len < joyBaseRadius * 0.1f) { joyVecX = 0f; joyVecY = 0f; return; }
+        if (len < joyBaseRadius * 0.1f) { setJoystickVector(0f, 0f); return; }
         if (len > 0f) { dx /= len; dy /= len; }
-        joyVecX = Math.max(-1f, Math.min(1f, dx));
-        joyVecY = Math.max(-1f, Math.min(1f, dy));
+        setJoystickVector(Math.max(-1f, Math.min(1f, dx)), Math.max(-1f, Math.min(1f, dy)));
     }
 
     // Keyboard / gamepad support
@@ -900,17 +1729,17 @@ public class GameView extends SurfaceView implements SurfaceHolder.Callback, Run
     public boolean onKeyDown(int keyCode, KeyEvent event) {
         switch (keyCode) {
             case KeyEvent.KEYCODE_DPAD_UP:
-            case KeyEvent.KEYCODE_W: upPressed = true; return true;
+            case KeyEvent.KEYCODE_W: upPressed = true; offerDirs(); return true;
             case KeyEvent.KEYCODE_DPAD_DOWN:
-            case KeyEvent.KEYCODE_S: downPressed = true; return true;
+            case KeyEvent.KEYCODE_S: downPressed = true; offerDirs(); return true;
             case KeyEvent.KEYCODE_DPAD_LEFT:
-            case KeyEvent.KEYCODE_A: leftPressed = true; return true;
+            case KeyEvent.KEYCODE_A: leftPressed = true; offerDirs(); return true;
             case KeyEvent.KEYCODE_DPAD_RIGHT:
-            case KeyEvent.KEYCODE_D: rightPressed = true; return true;
+            case KeyEvent.KEYCODE_D: rightPressed = true; offerDirs(); return true;
             case KeyEvent.KEYCODE_SPACE:
             case KeyEvent.KEYCODE_Z:
             case KeyEvent.KEYCODE_BUTTON_A:
-                tryStartOrAdvanceDialog(); return true;
+                core.offerInput(INPUT_ACTION, 0, 0, 0f, 0f); return true;
         }
         return super.onKeyDown(keyCode, event);
     }
@@ -919,174 +1748,193 @@ public class GameView extends SurfaceView implements SurfaceHolder.Callback, Run
     public boolean onKeyUp(int keyCode, KeyEvent event) {
         switch (keyCode) {
             case KeyEvent.KEYCODE_DPAD_UP:
-            case KeyEvent.KEYCODE_W: upPressed = false; return true;
+            case KeyEvent.KEYCODE_W: upPressed = false; offerDirs(); return true;
             case KeyEvent.KEYCODE_DPAD_DOWN:
-            case KeyEvent.KEYCODE_S: downPressed = false; return true;
+            case KeyEvent.KEYCODE_S: downPressed = false; offerDirs(); return true;
             case KeyEvent.KEYCODE_DPAD_LEFT:
-            case KeyEvent.KEYCODE_A: leftPressed = false; return true;
+            case KeyEvent.KEYCODE_A: leftPressed = false; offerDirs(); return true;
             case KeyEvent.KEYCODE_DPAD_RIGHT:
-            case KeyEvent.KEYCODE_D: rightPressed = false; return true;
+            case KeyEvent.KEYCODE_D: rightPressed = false; offerDirs(); return true;
         }
         return super.onKeyUp(keyCode, event);
     }
 
-    private void tryStartOrAdvanceDialog() {
-        if (dialogOpen) {
-            if (dialogLines != null && dialogIndex < dialogLines.length - 1) {
-                dialogIndex++;
-            } else {
-                dialogOpen = false;
-                dialogNpc = null;
-                dialogLines = null;
-                dialogIndex = 0;
-            }
-            return;
-        }
-        // If not open: check for adjacent NPC
-        Npc target = findAdjacentNpc();
-        if (target != null) {
-            dialogOpen = true;
-            dialogNpc = target;
-            dialogSpeaker = target.name;
-            // Defensive: ensure non-null lines to avoid NPE on some devices
-            if (target.lines == null || target.lines.length == 0) {
-                dialogLines = new String[]{"..."};
-            } else {
-                dialogLines = target.lines;
-            }
-            dialogIndex = 0;
-        }
-    }
-
-    private Npc findAdjacentNpc() {
-        int pc = Math.round(playerX);
-        int pr = Math.round(playerY);
-        for (Npc n : npcs) {
-            int manhattan = Math.abs(n.col - pc) + Math.abs(n.row - pr);
-            if (manhattan == 1) return n;
-        }
-        return null;
-    }
-
     
-    private boolean loadMapFromAssetsSafe(String assetPath) {
-        try {
-            MapData data = MapLoader.load(getContext(), assetPath);
-            if (applyMap(data)) {
-                currentMapAsset = assetPath;
-                if (getWidth() > 0 && getHeight() > 0) {
-                    createOrUpdateBitmaps();
-                    recreateTileBitmapsIfNeeded();
-                    centerCameraOnPlayer(getWidth(), getHeight(), cols * tileSize, rows * tileSize);
+    // Render thread: switches tiles, tileset and image layers to the snapshot's map
+    private void applyMapResources(RenderState s) {
+        appliedMapGeneration = s.mapGeneration;
+        MapData data = s.map;
+        mapCols = s.cols;
+        mapRows = s.rows;
+        tileLayers.clear();
+        imageLayers.clear();
+        map = null;
+        if (chunkStreamer != null) chunkStreamer.release();
+        chunkStreamer = null;
+        layerOriginCol = layerOriginRow = 0;
+        layerCols = mapCols;
+        layerRows = mapRows;
+        if (data != null) {
+            if (data.chunks != null) {
+                chunkStreamer = new ChunkStreamer(data.chunks, streamRadius);
+                // the first window is loaded right away so the map does not pop in
+                int col = s.actors.isAlive(s.player) ? Math.round(s.actors.x[s.player]) : 0;
+                int row = s.actors.isAlive(s.player) ? Math.round(s.actors.y[s.player]) : 0;
+                try {
+                    applyChunkWindow(chunkStreamer.loadNow(data.chunks.chunkCol(col), data.chunks.chunkRow(row)));
+                } catch (java.io.IOException e) {
+                    android.util.Log.e("GameView", "Failed to load map chunks", e);
                 }
-                return true;
+            } else if (data.tileLayers != null && !data.tileLayers.isEmpty()) {
+                tileLayers.addAll(data.tileLayers);
+                map = tileLayers.get(0);
             }
-        } catch (Exception e) {
-            android.util.Log.e("GameView", "Failed to load map " + assetPath, e);
+            if (data.imageLayers != null) imageLayers.addAll(data.imageLayers);
         }
-        return false;
+        tileDrawableNames = data != null ? data.tileDrawableNames : null;
+        tilePaletteColors = data != null ? data.tilePaletteColors : null;
+        tileTable = data != null ? data.tileTable : null;
+        appliedFilterQuality = null; // the new tileset sheets get the mipmap setting
+        tileFrames = new int[tileTable != null ? tileTable.size() : 0];
+        for (int i = 0; i < tileFrames.length; i++) tileFrames[i] = i;
+        advanceTileAnimations();
+        // sprites do not depend on the map; only tile bitmaps need rebuilding (once sized)
+        if (bitmapTileSize > 0) recreateTileBitmapsIfNeeded();
+        chunkCache.invalidate();
+        fullRedraw.set(true);
     }
 
-    private boolean applyMap(MapData data) {
-        if (data == null) return false;
-        cols = data.cols > 0 ? data.cols : cols;
-        rows = data.rows > 0 ? data.rows : rows;
+    // Render thread: keeps the streamed window centred on the chunk under the camera
+    private void streamChunks() {
+        ChunkedMap ch = chunkStreamer.getMap();
+        if (chunkStreamer.getRadius() != streamRadius) chunkStreamer.setRadius(streamRadius);
+        int col = (int) Math.floor((-mapOffsetX + getWidth() / 2f) / tileSize);
+        int row = (int) Math.floor((-mapOffsetY + getHeight() / 2f) / tileSize);
+        chunkStreamer.request(ch.chunkCol(col), ch.chunkRow(row));
+        ChunkStreamer.Window w = chunkStreamer.poll();
+        if (w != null) applyChunkWindow(w);
+    }
 
+    private void applyChunkWindow(ChunkStreamer.Window w) {
         tileLayers.clear();
-        if (data.tileLayers != null && !data.tileLayers.isEmpty()) {
-            tileLayers.addAll(data.tileLayers);
-            map = tileLayers.get(0);
-        } else {
-            map = null;
-        }
-
-        collisionMask = data.collision != null ? data.collision : new boolean[rows][cols];
-
-        tileDrawableNames = data.tileDrawableNames;
-        tilePaletteColors = data.tilePaletteColors;
-        atlasBitmap = data.atlasBitmap;
-        atlasColumns = data.atlasColumns;
-        atlasTileW = data.atlasTileW;
-        atlasTileH = data.atlasTileH;
-        atlasFirstGid = data.atlasFirstGid;
-
-        imageLayers.clear();
-        if (data.imageLayers != null && !data.imageLayers.isEmpty()) {
-            imageLayers.addAll(data.imageLayers);
-        }
-
-        npcs.clear();
-        if (data.npcs != null) {
-            for (MapData.Npc npcData : data.npcs) {
-                npcs.add(new Npc(npcData.col, npcData.row, npcData.name, npcData.lines));
-            }
-        }
-
-        warps.clear();
-        if (data.warps != null) {
-            for (MapData.Warp w : data.warps) {
-                Warp copy = new Warp();
-                copy.col = w.col;
-                copy.row = w.row;
-                copy.target = w.target;
-                copy.targetCol = w.targetCol;
-                copy.targetRow = w.targetRow;
-                warps.add(copy);
-            }
-        }
+        tileLayers.addAll(w.layers);
+        map = tileLayers.isEmpty() ? null : tileLayers.get(0);
+        layerOriginCol = w.originCol;
+        layerOriginRow = w.originRow;
+        // the last chunks may reach past the map's bounding box
+        layerCols = Math.min(w.cols, mapCols - w.originCol);
+        layerRows = Math.min(w.rows, mapRows - w.originRow);
+        chunkCache.invalidate();
+        fullRedraw.set(true);
+    }
 
-        if (data.playerCol >= 0 && data.playerRow >= 0) {
-            playerX = data.playerCol;
-            playerY = data.playerRow;
-        }
-        return true;
+    /** Chunks kept loaded around the camera (and simulated around the player) on infinite maps. */
+    public void setChunkStreamRadius(int chunks) {
+        streamRadius = Math.max(1, chunks);
+        core.setStreamRadius(streamRadius);
     }
 
-    private void buildTileBitmapsFromDrawables() {
+    private void buildTileBitmapsFromDrawables(List<String> held) {
         if (tileDrawableNames == null) { tileBitmaps = null; return; }
-        tileBitmaps = new Bitmap[tileDrawableNames.length];
+        Bitmap[] out = new Bitmap[tileDrawableNames.length];
         for (int i = 0; i < tileDrawableNames.length; i++) {
             String name = tileDrawableNames[i];
-            if (name == null || name.isEmpty()) { tileBitmaps[i] = null; continue; }
+            if (name == null || name.isEmpty()) continue;
             int resId = getResources().getIdentifier(name, "drawable", getContext().getPackageName());
-            if (resId != 0) tileBitmaps[i] = fromDrawable(resId, tileSize, tileSize);
+            if (resId != 0) out[i] = tileBitmap(held, resId, tileSize);
         }
+        tileBitmaps = out;
     }
 
-    private void buildTileBitmapsFromPalette() {
+    private void buildTileBitmapsFromPalette(List<String> held) {
         if (tilePaletteColors == null) { tileBitmaps = null; return; }
-        tileBitmaps = new Bitmap[tilePaletteColors.length];
+        Bitmap[] out = new Bitmap[tilePaletteColors.length];
+        final int size = currentTier().texels(tileSize);
         for (int i = 0; i < tilePaletteColors.length; i++) {
-            Bitmap b = Bitmap.createBitmap(tileSize, tileSize, Bitmap.Config.ARGB_8888);
-            Canvas c = new Canvas(b);
-            Paint p = new Paint();
-            p.setColor(tilePaletteColors[i]);
-            c.drawRect(0, 0, tileSize, tileSize, p);
-            tileBitmaps[i] = b;
+            final int color = tilePaletteColors[i];
+            // opaque colours need no alpha channel
+            final Bitmap.Config config = Color.alpha(color) == 0xFF ? Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888;
+            String key = BitmapCache.key("color:" + Integer.toHexString(color), size, size, config);
+            out[i] = bitmapCache.acquire(key, this, () -> {
+                Bitmap b = Bitmap.createBitmap(size, size, config);
+                b.eraseColor(color);
+                return b;
+            });
+            held.add(key);
         }
+        tileBitmaps = out;
     }
 
     private void recreateTileBitmapsIfNeeded() {
-        if (tileDrawableNames != null) buildTileBitmapsFromDrawables();
-        else if (tilePaletteColors != null) buildTileBitmapsFromPalette();
+        List<String> previous = tileBitmapKeys;
+        List<String> held = new ArrayList<>();
+        if (tileDrawableNames != null) buildTileBitmapsFromDrawables(held);
+        else if (tilePaletteColors != null) buildTileBitmapsFromPalette(held);
+        spriteAtlasDirty = true;
+        tileBitmapKeys = held;
+        releaseBitmaps(previous);
+        chunkCache.invalidate();
+    }
+
+    private boolean loadDirectionalSpriteSheet(List<String> held, String assetPath, Bitmap[] idleOut, Bitmap[][] walkOut) {
+        // frames are cached trimmed at natural size: the sheet is decoded once per process and its
+        // trim rects are scanned once per sheet version (SpriteTrimCache keeps them across launches)
+        final int[] frameColumns = {0, 1, 2}; // idle, walk A, walk B
+        String[] keys = new String[4 * frameColumns.length];
+        Bitmap[] frames = new Bitmap[keys.length];
+        boolean complete = true;
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = BitmapCache.key("asset:" + assetPath + "#" + (i / 3) + "," + frameColumns[i % 3], 0, 0, Bitmap.Config.ARGB_8888);
+            frames[i] = bitmapCache.acquire(keys[i], this);
+            if (frames[i] == null) complete = false;
+        }
+        if (!complete) {
+            for (int i = 0; i < keys.length; i++) {
+                if (frames[i] != null) bitmapCache.release(keys[i], this);
+            }
+            if (!decodeSpriteSheet(assetPath, frameColumns, keys, frames)) return false;
+        }
+        for (int dir = 0; dir < 4; dir++) {
+            idleOut[dir] = frames[dir * 3];
+            walkOut[dir][0] = frames[dir * 3 + 1];
+            walkOut[dir][1] = frames[dir * 3 + 2];
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (frames[i] != null) held.add(keys[i]);
+        }
+        return true;
     }
 
-    private boolean loadDirectionalSpriteSheet(String assetPath, Bitmap[] idleOut, Bitmap[][] walkOut) {
+    private boolean decodeSpriteSheet(String assetPath, int[] frameColumns, String[] keys, Bitmap[] framesOut) {
         try (java.io.InputStream is = getContext().getAssets().open(assetPath)) {
-            Bitmap sheet = BitmapFactory.decodeStream(is);
+            // the CRC of the asset bytes keys the persisted trim rects
+            CheckedInputStream in = new CheckedInputStream(new BufferedInputStream(is), new CRC32());
+            Bitmap sheet = BitmapFactory.decodeStream(in);
             if (sheet == null) return false;
+            byte[] skip = new byte[4096];
+            while (in.read(skip) >= 0) { /* hash the bytes the decoder left unread */ }
+            long hash = in.getChecksum().getValue();
             final int columns = 4;
             final int rows = Math.min(4, sheet.getHeight() / Math.max(1, sheet.getHeight() / 4));
             int cellW = sheet.getWidth() / columns;
             int cellH = sheet.getHeight() / rows;
-            int idleFrame = 0;
-            int walkFrameA = Math.min(1, columns - 1);
-            int walkFrameB = Math.min(2, columns - 1);
-            for (int dir = 0; dir < 4 && dir < rows; dir++) {
-                idleOut[dir] = trimSpriteFrame(Bitmap.createBitmap(sheet, idleFrame * cellW, dir * cellH, cellW, cellH));
-                walkOut[dir][0] = trimSpriteFrame(Bitmap.createBitmap(sheet, walkFrameA * cellW, dir * cellH, cellW, cellH));
-                walkOut[dir][1] = trimSpriteFrame(Bitmap.createBitmap(sheet, walkFrameB * cellW, dir * cellH, cellW, cellH));
+            Rect[] trims = spriteTrimCache.get(assetPath, hash, cellW, cellH, TRIM_ALPHA_THRESHOLD);
+            boolean scan = trims == null || trims.length != keys.length;
+            if (scan) trims = new Rect[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                int dir = i / 3;
+                framesOut[i] = null;
+                if (dir >= rows) continue;
+                int col = Math.min(frameColumns[i % 3], columns - 1);
+                int x = col * cellW, y = dir * cellH;
+                if (scan) trims[i] = findOpaqueBounds(sheet, x, y, cellW, cellH, TRIM_ALPHA_THRESHOLD);
+                Bitmap frame = trimSpriteFrame(sheet, x, y, cellW, cellH, trims[i]);
+                framesOut[i] = frame != null ? bitmapCache.put(keys[i], this, frame) : null;
             }
+            synchronized (OPAQUE_SCAN) {
+                OPAQUE_SCAN.clear(); // don't keep the sheet reachable
+            }
+            if (scan) spriteTrimCache.put(assetPath, hash, cellW, cellH, TRIM_ALPHA_THRESHOLD, trims);
             return true;
         } catch (Exception e) {
             android.util.Log.w("GameView", "Sprite sheet not found: " + assetPath);
@@ -1094,62 +1942,107 @@ public class GameView extends SurfaceView implements SurfaceHolder.Callback, Run
         }
     }
 
-    private Bitmap trimSpriteFrame(Bitmap frame) {
-        if (frame == null) return null;
-        Rect bounds = findOpaqueBounds(frame, 8);
-        return Bitmap.createBitmap(frame, bounds.left, bounds.top, Math.max(1, bounds.width()), Math.max(1, bounds.height()));
+    // Crops the (x, y, w, h) cell of a sheet to its opaque bounds, scanning when they are not known yet
+    static Bitmap trimSpriteFrame(Bitmap sheet, int x, int y, int w, int h, Rect bounds) {
+        if (sheet == null) return null;
+        if (bounds == null) bounds = findOpaqueBounds(sheet, x, y, w, h, TRIM_ALPHA_THRESHOLD);
+        return Bitmap.createBitmap(sheet, x + bounds.left, y + bounds.top, Math.max(1, bounds.width()), Math.max(1, bounds.height()));
     }
 
-    private Rect findOpaqueBounds(Bitmap bmp, int alphaThreshold) {
-        int w = bmp.getWidth();
-        int h = bmp.getHeight();
-        int minX = w, minY = h, maxX = -1, maxY = -1;
-        int[] pixels = new int[w * h];
-        bmp.getPixels(pixels, 0, w, 0, 0, w, h);
-        for (int y = 0; y < h; y++) {
-            for (int x = 0; x < w; x++) {
-                int a = (pixels[y * w + x] >>> 24) & 0xFF;
-                if (a > alphaThreshold) {
-                    if (x < minX) minX = x;
-                    if (y < minY) minY = y;
-                    if (x > maxX) maxX = x;
-                    if (y > maxY) maxY = y;
-                }
-            }
+    static Rect findOpaqueBounds(Bitmap bmp, int alphaThreshold) {
+        return findOpaqueBounds(bmp, 0, 0, bmp.getWidth(), bmp.getHeight(), alphaThreshold);
+    }
+
+    // Padded opaque bounds of a region, relative to it; the whole region when it is transparent
+    static Rect findOpaqueBounds(Bitmap bmp, int x, int y, int w, int h, int alphaThreshold) {
+        Rect tight;
+        synchronized (OPAQUE_SCAN) {
+            OPAQUE_SCAN.load(bmp); // no-op for the further cells of the same sheet
+            tight = OPAQUE_SCAN.find(x, y, w, h, alphaThreshold);
         }
-        if (maxX < minX || maxY < minY) return new Rect(0, 0, w, h);
+        if (tight == null) return new Rect(0, 0, w, h);
         int pad = Math.max(1, Math.round(Math.min(w, h) * 0.05f));
-        minX = Math.max(0, minX - pad);
-        minY = Math.max(0, minY - pad);
-        maxX = Math.min(w - 1, maxX + pad);
-        maxY = Math.min(h - 1, maxY + pad);
-        return new Rect(minX, minY, maxX + 1, maxY + 1);
-    }
-
-    private void checkAndApplyWarp() {
-        if (warps.isEmpty()) return;
-        int pc = Math.round(playerX);
-        int pr = Math.round(playerY);
-        for (Warp w : warps) {
-            if (w.col == pc && w.row == pr) {
-                boolean loaded = true;
-                if (w.target != null && !w.target.isEmpty()) {
-                    loaded = loadMapFromAssetsSafe(w.target);
-                }
-                // position after warp (either in current or new map)
-                playerX = w.targetCol; playerY = w.targetRow;
-                // refresh camera/bitmaps (view size unchanged)
-                int viewW = getWidth();
-                int viewH = getHeight();
-                int mapW = cols * tileSize;
-                int mapH = rows * tileSize;
-                centerCameraOnPlayer(viewW, viewH, mapW, mapH);
-                createOrUpdateBitmaps();
-                recreateTileBitmapsIfNeeded();
-                warpCooldown = 0.5f;
-                break;
-            }
+        tight.set(Math.max(0, tight.left - pad), Math.max(0, tight.top - pad),
+                Math.min(w, tight.right + pad), Math.min(h, tight.bottom + pad));
+        return tight;
+    }
+
+    // Maps for the core: assets through the map cache; warp targets are prefetched in the background
+    private final class AssetMaps implements MapSource {
+        @Override public MapData cached(String path) {
+            return mapCache.get(path);
+        }
+
+        @Override public MapData load(String path) throws Exception {
+            MapData data = MapLoader.load(getContext(), path);
+            mapCache.put(path, data);
+            return data;
+        }
+
+        @Override public Future<MapData> loadAsync(String path, Progress progress) {
+            // adopt the running prefetch, if any, with its progress forwarded to the overlay
+            Future<MapData> prefetched = mapPrefetcher.take(path, progress::onProgress);
+            return prefetched != null ? prefetched : MapLoader.loadAsync(getContext(), path, progress::onProgress);
+        }
+
+        @Override public void keep(String path, MapData data) {
+            mapCache.put(path, data);
+        }
+
+        @Override public void prefetch(List<String> paths) {
+            mapPrefetcher.prefetch(paths);
+        }
+
+        @Override public void onLoadFailed(String path, Exception error) {
+            android.util.Log.e("GameView", "Failed to load map " + path, error);
         }
     }
-}
 
+    /** Caps the memory used by cached and prefetched maps. */
+    public void setMapCacheBytes(int bytes) {
+        mapCache.setMaxBytes(bytes);
+    }
+
+    /** Releases cached maps under memory pressure (same levels as ComponentCallbacks2). */
+    public void onTrimMemory(int level) {
+        mapCache.onTrimMemory(level);
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE) mapPrefetcher.cancelAll();
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        getContext().getApplicationContext().registerComponentCallbacks(memoryCallbacks);
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        getContext().getApplicationContext().unregisterComponentCallbacks(memoryCallbacks);
+        mapPrefetcher.cancelAll();
+        if (chunkStreamer != null) chunkStreamer.release();
+        // the loops are stopped (surfaceDestroyed); the first frame re-acquires them if the view comes back
+        releaseBitmaps(spriteBitmapKeys);
+        releaseBitmaps(tileBitmapKeys);
+        bitmapTileSize = 0;
+        if (spriteAtlas != null) spriteAtlas.release();
+        spriteAtlas = null;
+        spriteAtlasDirty = true;
+        super.onDetachedFromWindow();
+    }
+
+    private void drawTransition(Canvas g) {
+        int w = getWidth();
+        int h = getHeight();
+        paintTransition.setAlpha((int) (255 * Math.min(1f, shown.transitionAlpha)));
+        g.drawRect(0, 0, w, h, paintTransition);
+        if (shown.mapLoading) {
+            // progress bar
+            float barW = w * 0.5f;
+            float barH = Math.max(6f, tileSize * 0.15f);
+            float left = (w - barW) / 2f;
+            float top = h / 2f - barH / 2f;
+            g.drawRect(left, top, left + barW, top + barH, paintUi);
+            g.drawRect(left, top, left + barW * shown.mapLoadProgress, top + barH, paintProgress);
+        }
+    }
+}
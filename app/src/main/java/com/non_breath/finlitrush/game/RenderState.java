@@ -0,0 +1,33 @@
+package com.non_breath.finlitrush.game;
+
+import com.non_breath.finlitrush.game.data.MapData;
+import com.non_breath.finlitrush.game.ecs.World;
+
+/**
+ * Everything a frame draws that the simulation owns, copied at the end of a sim step and
+ * handed to the render thread through a TripleBuffer. Read-only once published.
+ */
+final class RenderState {
+    /** Actors with entity ids of the simulation world (render columns only). */
+    final World actors = new World(64);
+    int player = World.NONE;
+    /** Time the state was published; the render thread interpolates from here. */
+    long publishNanos;
+
+    /** Map on screen; render resources are rebuilt when the generation changes. */
+    MapData map;
+    int mapGeneration = -1;
+    int cols, rows;
+
+    boolean dialogOpen;
+    String dialogSpeaker = "";
+    String[] dialogLines;
+    int dialogIndex;
+
+    float transitionAlpha;
+    boolean mapLoading;
+    float mapLoadProgress;
+
+    /** Joystick vector the simulation last applied (drawn as the knob). */
+    float joyX, joyY;
+}
@@ -0,0 +1,148 @@
+package com.non_breath.finlitrush.game.cache;
+
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.util.LruCache;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Process-wide cache of decoded/scaled bitmaps keyed by (source, target size, config).
+ * - acquire() hands out a reference counted per holder; every acquire must be paired with
+ *   a release() by the same holder, and extra releases cannot drop another holder's references
+ * - Bitmaps with live references are never evicted; released ones move to an LRU
+ *   (1/8 of the app's memory class). Evicted bitmaps are left to the GC, not recycled: a
+ *   holder may still be drawing one for a frame after its last release
+ * - Trims itself on onTrimMemory/onLowMemory
+ */
+public final class BitmapCache {
+
+    /** Creates the bitmap on a cache miss; may return null when the source is missing. */
+    public interface Loader {
+        Bitmap load();
+    }
+
+    private static BitmapCache instance;
+
+    public static synchronized BitmapCache get(Context ctx) {
+        if (instance == null) {
+            Context app = ctx.getApplicationContext();
+            ActivityManager am = (ActivityManager) app.getSystemService(Context.ACTIVITY_SERVICE);
+            int memoryClassMb = am != null ? am.getMemoryClass() : 64;
+            instance = new BitmapCache(memoryClassMb * 1024 * 1024 / 8);
+            app.registerComponentCallbacks(instance.callbacks);
+        }
+        return instance;
+    }
+
+    /** Cache key for {@code source} scaled to width x height (0 x 0 = natural size). */
+    public static String key(String source, int width, int height, Bitmap.Config config) {
+        return source + '@' + width + 'x' + height + '/' + config;
+    }
+
+    private static final class Entry {
+        final Bitmap bitmap;
+        final Map<Object, Integer> holders = new IdentityHashMap<>(4); // references per holder
+        Entry(Bitmap bitmap) { this.bitmap = bitmap; }
+
+        void addRef(Object holder) {
+            Integer n = holders.get(holder);
+            holders.put(holder, n == null ? 1 : n + 1);
+        }
+
+        // false when the holder has no reference to drop
+        boolean dropRef(Object holder) {
+            Integer n = holders.get(holder);
+            if (n == null) return false;
+            if (n > 1) holders.put(holder, n - 1);
+            else holders.remove(holder);
+            return true;
+        }
+    }
+
+    private final Map<String, Entry> inUse = new HashMap<>();
+    private final LruCache<String, Entry> released;
+    private final ComponentCallbacks2 callbacks = new ComponentCallbacks2() {
+        @Override public void onTrimMemory(int level) { BitmapCache.this.onTrimMemory(level); }
+        @Override public void onConfigurationChanged(Configuration newConfig) {}
+        @Override public void onLowMemory() { onTrimMemory(TRIM_MEMORY_COMPLETE); }
+    };
+
+    BitmapCache(int maxReleasedBytes) {
+        released = new LruCache<String, Entry>(Math.max(1, maxReleasedBytes)) {
+            @Override
+            protected int sizeOf(String key, Entry value) {
+                return value.bitmap.getAllocationByteCount();
+            }
+
+        };
+    }
+
+    /** Returns a bitmap for {@code key} referenced by {@code holder}, or null on a miss. */
+    public synchronized Bitmap acquire(String key, Object holder) {
+        Entry e = inUse.get(key);
+        if (e == null) {
+            e = released.remove(key);
+            if (e == null || e.bitmap.isRecycled()) return null;
+            inUse.put(key, e);
+        }
+        e.addRef(holder);
+        return e.bitmap;
+    }
+
+    /** Returns the cached bitmap for {@code key}, creating it with {@code loader} on a miss. */
+    public Bitmap acquire(String key, Object holder, Loader loader) {
+        Bitmap cached = acquire(key, holder);
+        if (cached != null) return cached;
+        // load outside the lock; a concurrent load of the same key is resolved in put()
+        Bitmap loaded = loader.load();
+        return loaded != null ? put(key, holder, loaded) : null;
+    }
+
+    /**
+     * Adds a bitmap the caller just created, with one reference held by {@code holder};
+     * returns the canonical instance (the given one is recycled if another was cached first).
+     */
+    public synchronized Bitmap put(String key, Object holder, Bitmap bitmap) {
+        Bitmap existing = acquire(key, holder);
+        if (existing != null) {
+            if (existing != bitmap) bitmap.recycle();
+            return existing;
+        }
+        Entry e = new Entry(bitmap);
+        e.addRef(holder);
+        inUse.put(key, e);
+        return bitmap;
+    }
+
+    /**
+     * Drops one of {@code holder}'s references (none held: no-op); the bitmap stays cached
+     * until the LRU evicts it.
+     */
+    public synchronized void release(String key, Object holder) {
+        Entry e = inUse.get(key);
+        if (e == null || !e.dropRef(holder) || !e.holders.isEmpty()) return;
+        inUse.remove(key);
+        released.put(key, e);
+    }
+
+    public synchronized void onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            released.evictAll();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            released.trimToSize(released.maxSize() / 2);
+        }
+    }
+
+    /** Bytes held by released (evictable) bitmaps. */
+    public synchronized int getReleasedBytes() { return released.size(); }
+
+    public synchronized int getInUseCount() { return inUse.size(); }
+}
@@ -0,0 +1,181 @@
+package com.non_breath.finlitrush.game.cache;
+
+import android.os.Process;
+
+import com.non_breath.finlitrush.game.data.ChunkedMap;
+import com.non_breath.finlitrush.game.data.TileLayer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Streams the chunks of an infinite map in and out around the camera.
+ * - request() names the chunk under the camera; a background-priority thread loads the
+ *   chunks within the radius and assembles them into one Window of plain tile layers,
+ *   which the render thread picks up with poll()
+ * - Loaded chunks stay in a small LRU sized to the window plus one ring, so walking back
+ *   and forth across a chunk edge does not reload anything; older chunks are dropped
+ * - Only the newest request matters: a window that is no longer wanted is skipped
+ * request()/poll() belong to the render thread; the LRU is guarded by this.
+ */
+public final class ChunkStreamer {
+    public static final int DEFAULT_RADIUS = 2;
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            r.run();
+        }, "ChunkStream");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static final TileLayer[] EMPTY = new TileLayer[0];
+
+    /** Tiles around one chunk: layers of cols x rows whose tile (0, 0) is map tile (originCol, originRow). */
+    public static final class Window {
+        public final int centerCx, centerCy;
+        public final int originCol, originRow, cols, rows;
+        public final List<TileLayer> layers;
+
+        Window(int centerCx, int centerCy, int originCol, int originRow, int cols, int rows, List<TileLayer> layers) {
+            this.centerCx = centerCx;
+            this.centerCy = centerCy;
+            this.originCol = originCol;
+            this.originRow = originRow;
+            this.cols = cols;
+            this.rows = rows;
+            this.layers = layers;
+        }
+    }
+
+    private final ChunkedMap map;
+    private final Map<Integer, TileLayer[]> resident = new LinkedHashMap<>(16, 0.75f, true); // guarded by this
+    private final AtomicReference<Window> ready = new AtomicReference<>();
+    private volatile int radius;
+    private volatile long wanted = Long.MIN_VALUE; // packed centre of the newest request
+    private Future<?> job;
+    private int loads = 0; // guarded by this
+
+    public ChunkStreamer(ChunkedMap map, int radius) {
+        this.map = map;
+        this.radius = Math.max(0, radius);
+    }
+
+    public ChunkedMap getMap() { return map; }
+
+    public int getRadius() { return radius; }
+
+    /** Chunks kept around the centre chunk; takes effect with the next window. */
+    public void setRadius(int radius) {
+        int r = Math.max(0, radius);
+        if (r == this.radius) return;
+        this.radius = r;
+        wanted = Long.MIN_VALUE; // the next request rebuilds the window
+    }
+
+    /** Builds the window around chunk (cx, cy) on the calling thread (the first frame of a map). */
+    public Window loadNow(int cx, int cy) throws IOException {
+        wanted = pack(cx, cy);
+        ready.set(null);
+        return assemble(cx, cy);
+    }
+
+    /** Asks for the window around chunk (cx, cy); does nothing when that is already the newest request. */
+    public void request(int cx, int cy) {
+        long key = pack(cx, cy);
+        if (key == wanted) return;
+        wanted = key;
+        if (job != null) job.cancel(false); // queued windows are stale now
+        job = EXECUTOR.submit(() -> {
+            if (wanted != key) return;
+            try {
+                Window w = assemble(cx, cy);
+                if (wanted == key) ready.set(w);
+            } catch (IOException e) {
+                android.util.Log.e("ChunkStreamer", "Failed to load chunks around " + cx + "," + cy, e);
+            }
+        });
+    }
+
+    /** The newest assembled window, once; null when nothing new arrived. */
+    public Window poll() {
+        return ready.getAndSet(null);
+    }
+
+    /** Stops pending work and drops every loaded chunk. */
+    public synchronized void release() {
+        wanted = Long.MIN_VALUE;
+        if (job != null) job.cancel(false);
+        job = null;
+        ready.set(null);
+        resident.clear();
+    }
+
+    public synchronized int getResidentChunks() { return resident.size(); }
+
+    /** Chunks read from the map's source so far (misses of the resident LRU). */
+    public synchronized int getLoads() { return loads; }
+
+    private Window assemble(int cx, int cy) throws IOException {
+        int r = radius;
+        int cx0 = Math.max(0, cx - r), cy0 = Math.max(0, cy - r);
+        int cx1 = Math.min(map.chunksX - 1, cx + r), cy1 = Math.min(map.chunksY - 1, cy + r);
+        int cw = map.chunkW, ch = map.chunkH;
+        int cols = (cx1 - cx0 + 1) * cw, rows = (cy1 - cy0 + 1) * ch;
+        int[][] tiles = new int[map.layerCount][cols * rows];
+        for (int y = cy0; y <= cy1; y++) {
+            for (int x = cx0; x <= cx1; x++) {
+                TileLayer[] chunk = obtain(x, y, (2 * r + 3) * (2 * r + 3));
+                int base = (y - cy0) * ch * cols + (x - cx0) * cw;
+                for (int l = 0; l < chunk.length && l < tiles.length; l++) {
+                    TileLayer layer = chunk[l];
+                    if (layer == null) continue;
+                    int[] out = tiles[l];
+                    for (int row = 0; row < ch; row++) {
+                        int dst = base + row * cols;
+                        for (int col = 0; col < cw; col++) out[dst + col] = layer.get(row * cw + col);
+                    }
+                }
+            }
+        }
+        List<TileLayer> layers = new ArrayList<>(tiles.length);
+        for (int[] t : tiles) layers.add(TileLayer.of(t, cols, rows));
+        return new Window(cx, cy, cx0 * cw, cy0 * ch, cols, rows, Collections.unmodifiableList(layers));
+    }
+
+    // Resident chunk (cx, cy), loading it on a miss; empty chunks are cached as EMPTY
+    private TileLayer[] obtain(int cx, int cy, int capacity) throws IOException {
+        Integer key = cy * map.chunksX + cx;
+        synchronized (this) {
+            TileLayer[] hit = resident.get(key);
+            if (hit != null) return hit;
+        }
+        TileLayer[] loaded = map.load(cx, cy);
+        if (loaded == null) loaded = EMPTY;
+        synchronized (this) {
+            loads++;
+            resident.put(key, loaded);
+            // evict least recently used chunks beyond the window plus one ring
+            Iterator<TileLayer[]> it = resident.values().iterator();
+            while (resident.size() > capacity && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        }
+        return loaded;
+    }
+
+    private static long pack(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,84 @@
+package com.non_breath.finlitrush.game.cache;
+
+import android.content.ComponentCallbacks2;
+import android.util.LruCache;
+
+import com.non_breath.finlitrush.game.data.ImageHandle;
+import com.non_breath.finlitrush.game.data.MapData;
+import com.non_breath.finlitrush.game.data.Tileset;
+
+import java.util.List;
+
+/**
+ * LRU cache of loaded maps keyed by asset path, capped by an estimate of their heap use
+ * (tile arrays, collision bitset and decoded bitmaps).
+ * - Thread-safe; prefetch workers put, the game thread gets
+ * - Evicted maps are only dropped, never recycled: the view may still be drawing them
+ */
+public final class MapCache {
+    public static final int DEFAULT_MAX_BYTES = 16 * 1024 * 1024;
+
+    private final LruCache<String, MapData> lru;
+
+    public MapCache(int maxBytes) {
+        lru = new LruCache<String, MapData>(Math.max(1, maxBytes)) {
+            @Override
+            protected int sizeOf(String key, MapData value) {
+                return (int) Math.min(Integer.MAX_VALUE, estimateBytes(value));
+            }
+        };
+    }
+
+    public MapData get(String assetPath) {
+        return assetPath != null ? lru.get(assetPath) : null;
+    }
+
+    public void put(String assetPath, MapData data) {
+        if (assetPath == null || data == null) return;
+        // a single map larger than the whole cache would just evict everything else
+        if (estimateBytes(data) > lru.maxSize()) return;
+        lru.put(assetPath, data);
+    }
+
+    public void remove(String assetPath) {
+        if (assetPath != null) lru.remove(assetPath);
+    }
+
+    public void setMaxBytes(int maxBytes) {
+        lru.resize(Math.max(1, maxBytes));
+    }
+
+    public int getMaxBytes() { return lru.maxSize(); }
+
+    public int getUsedBytes() { return lru.size(); }
+
+    public void clear() {
+        lru.evictAll();
+    }
+
+    /** Shrinks the cache for ComponentCallbacks2.onTrimMemory levels. */
+    public void onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            lru.evictAll();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            lru.trimToSize(lru.maxSize() / 2);
+        }
+    }
+
+    public static long estimateBytes(MapData md) {
+        long total = md.tileBytes();
+        if (md.tileTable != null) {
+            List<Tileset> sets = md.tileTable.getTilesets();
+            for (int i = 0; i < sets.size(); i++) total += imageBytes(sets.get(i).image);
+        }
+        for (int i = 0; i < md.imageLayers.size(); i++) total += imageBytes(md.imageLayers.get(i).image);
+        // NPCs, warps and strings are small; count a flat overhead so empty maps still cost something
+        return total + 1024;
+    }
+
+    private static long imageBytes(ImageHandle image) {
+        return image != null ? image.byteCount() : 0;
+    }
+}
@@ -0,0 +1,100 @@
+package com.non_breath.finlitrush.game.cache;
+
+import android.content.Context;
+import android.os.Process;
+
+import com.non_breath.finlitrush.game.data.MapData;
+import com.non_breath.finlitrush.game.io.MapLoader;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Loads warp target maps in the background so a warp can swap maps without waiting.
+ * - Jobs run one at a time on a background-priority thread, in the order requested
+ *   (closest warp first); finished maps land in the shared MapCache
+ * - A new request cancels queued jobs for maps that are no longer wanted
+ * - take() hands an in-flight job to the warp so the map is never loaded twice, and
+ *   forwards the job's progress (reached so far, then each update) to the warp's listener
+ */
+public final class MapPrefetcher {
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            r.run();
+        }, "MapPrefetch");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Context appContext;
+    private final MapCache cache;
+    private final Map<String, Job> jobs = new HashMap<>(); // guarded by this
+
+    public MapPrefetcher(Context ctx, MapCache cache) {
+        this.appContext = ctx.getApplicationContext();
+        this.cache = cache;
+    }
+
+    /** Replaces the prefetch queue with {@code assetPaths} (highest priority first). */
+    public synchronized void prefetch(List<String> assetPaths) {
+        for (Iterator<Map.Entry<String, Job>> it = jobs.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<String, Job> e = it.next();
+            if (e.getValue().future.isDone() || !assetPaths.contains(e.getKey())) {
+                // running jobs finish and still fill the cache; queued ones are dropped
+                e.getValue().future.cancel(false);
+                it.remove();
+            }
+        }
+        for (int i = 0; i < assetPaths.size(); i++) {
+            String path = assetPaths.get(i);
+            if (jobs.containsKey(path) || cache.get(path) != null) continue;
+            Job job = new Job();
+            job.future = EXECUTOR.submit(() -> {
+                MapData md = MapLoader.load(appContext, path, job);
+                cache.put(path, md);
+                return md;
+            });
+            jobs.put(path, job);
+        }
+    }
+
+    /**
+     * Removes and returns the job loading {@code assetPath}, or null when none was queued;
+     * {@code listener} gets the job's progress from then on.
+     */
+    public synchronized Future<MapData> take(String assetPath, MapLoader.ProgressListener listener) {
+        Job job = jobs.remove(assetPath);
+        if (job == null || job.future.isCancelled()) return null;
+        job.attach(listener);
+        return job.future;
+    }
+
+    public synchronized void cancelAll() {
+        for (Job job : jobs.values()) job.future.cancel(false);
+        jobs.clear();
+    }
+
+    // A prefetch and its progress, kept until take() attaches a listener that it replays to
+    private static final class Job implements MapLoader.ProgressListener {
+        Future<MapData> future;
+        private float progress = 0f;
+        private MapLoader.ProgressListener listener;
+
+        @Override public synchronized void onProgress(float fraction) {
+            progress = fraction;
+            if (listener != null) listener.onProgress(fraction);
+        }
+
+        synchronized void attach(MapLoader.ProgressListener l) {
+            listener = l;
+            l.onProgress(progress);
+        }
+    }
+}
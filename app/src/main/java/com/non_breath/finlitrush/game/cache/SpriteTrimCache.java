@@ -0,0 +1,139 @@
+package com.non_breath.finlitrush.game.cache;
+
+import android.content.Context;
+import android.graphics.Rect;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Trim rects of sprite sheet frames, persisted in a small sidecar file in the cache dir
+ * so later launches crop frames without scanning pixels.
+ * - One entry per asset path, valid only for the same content hash (CRC32 of the asset
+ *   bytes), cell size and alpha threshold; an edited sheet simply misses and is rescanned
+ * - The file is read once per process and rewritten (temp file + rename) on put()
+ * - A missing, truncated or older-version file reads as empty
+ * Thread-safe.
+ */
+public final class SpriteTrimCache {
+    private static final String FILE_NAME = "sprite_trims.bin";
+    private static final int MAGIC = 0x5452494D; // "TRIM"
+    private static final int VERSION = 1;
+
+    private static SpriteTrimCache instance;
+
+    public static synchronized SpriteTrimCache get(Context ctx) {
+        if (instance == null) instance = new SpriteTrimCache(new File(ctx.getApplicationContext().getCacheDir(), FILE_NAME));
+        return instance;
+    }
+
+    private static final class Entry {
+        final long hash;
+        final int cellW, cellH, alphaThreshold;
+        final int[] rects; // left, top, right, bottom per frame; all 0 = no frame
+
+        Entry(long hash, int cellW, int cellH, int alphaThreshold, int[] rects) {
+            this.hash = hash;
+            this.cellW = cellW;
+            this.cellH = cellH;
+            this.alphaThreshold = alphaThreshold;
+            this.rects = rects;
+        }
+    }
+
+    private final File file;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private boolean loaded;
+
+    SpriteTrimCache(File file) {
+        this.file = file;
+    }
+
+    /** Frame rects stored for this exact sheet and scan, or null on a miss (null elements = no frame). */
+    public synchronized Rect[] get(String assetPath, long contentHash, int cellW, int cellH, int alphaThreshold) {
+        ensureLoaded();
+        Entry e = entries.get(assetPath);
+        if (e == null || e.hash != contentHash || e.cellW != cellW || e.cellH != cellH
+                || e.alphaThreshold != alphaThreshold) {
+            return null;
+        }
+        Rect[] out = new Rect[e.rects.length / 4];
+        for (int i = 0; i < out.length; i++) {
+            int o = i * 4;
+            if (e.rects[o + 2] > e.rects[o] && e.rects[o + 3] > e.rects[o + 1]) {
+                out[i] = new Rect(e.rects[o], e.rects[o + 1], e.rects[o + 2], e.rects[o + 3]);
+            }
+        }
+        return out;
+    }
+
+    /** Records the frame rects of a sheet (replacing any older version of it) and saves the file. */
+    public synchronized void put(String assetPath, long contentHash, int cellW, int cellH, int alphaThreshold, Rect[] rects) {
+        ensureLoaded();
+        int[] packed = new int[rects.length * 4];
+        for (int i = 0; i < rects.length; i++) {
+            Rect r = rects[i];
+            if (r == null) continue;
+            packed[i * 4] = r.left;
+            packed[i * 4 + 1] = r.top;
+            packed[i * 4 + 2] = r.right;
+            packed[i * 4 + 3] = r.bottom;
+        }
+        entries.put(assetPath, new Entry(contentHash, cellW, cellH, alphaThreshold, packed));
+        save();
+    }
+
+    private void ensureLoaded() {
+        if (loaded) return;
+        loaded = true;
+        if (!file.isFile()) return;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return;
+            int count = in.readInt();
+            Map<String, Entry> read = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                String path = in.readUTF();
+                long hash = in.readLong();
+                int cellW = in.readInt(), cellH = in.readInt(), threshold = in.readInt();
+                int[] rects = new int[in.readUnsignedShort() * 4];
+                for (int j = 0; j < rects.length; j++) rects[j] = in.readInt();
+                read.put(path, new Entry(hash, cellW, cellH, threshold, rects));
+            }
+            entries.putAll(read);
+        } catch (IOException e) {
+            android.util.Log.w("SpriteTrimCache", "Ignoring unreadable " + file, e);
+        }
+    }
+
+    private void save() {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(entries.size());
+            for (Map.Entry<String, Entry> me : entries.entrySet()) {
+                Entry e = me.getValue();
+                out.writeUTF(me.getKey());
+                out.writeLong(e.hash);
+                out.writeInt(e.cellW);
+                out.writeInt(e.cellH);
+                out.writeInt(e.alphaThreshold);
+                out.writeShort(e.rects.length / 4);
+                for (int v : e.rects) out.writeInt(v);
+            }
+        } catch (IOException e) {
+            android.util.Log.w("SpriteTrimCache", "Failed to write " + tmp, e);
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(file)) tmp.delete();
+    }
+}
@@ -0,0 +1,278 @@
+package com.non_breath.finlitrush.game.io;
+
+import com.non_breath.finlitrush.game.data.ChunkedMap;
+import com.non_breath.finlitrush.game.data.CollisionMask;
+import com.non_breath.finlitrush.game.data.MapData;
+import com.non_breath.finlitrush.game.data.TileLayer;
+import com.non_breath.finlitrush.game.data.TileTable;
+import com.non_breath.finlitrush.game.data.Tileset;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads compiled binary maps (*.fmap, produced at build time by the compileMaps task).
+ *
+ * Layout (little-endian, version 4):
+ * <pre>
+ *  0 int   magic "FMAP"
+ *  4 int   version
+ *  8 int   cols
+ * 12 int   rows
+ * 16 int   layerCount
+ * 20 int   flags (bit0: tile layers stored as int16, bit1: chunked)
+ * 24 float playerCol (-1 = none)
+ * 28 float playerRow (-1 = none)
+ * 32 int   offset of tile layers (layerCount * rows * cols, row-major)
+ * 36 int   offset of collision bitset (ceil(rows * cols / 64) longs, bit set = blocked)
+ * 40 int   offset of metadata (tileset, image layers, NPCs, warps)
+ * 44 int   chunkW     (chunked maps only)
+ * 48 int   chunkH
+ * 52 int   originCol  (Tiled coordinates of tile 0,0)
+ * 56 int   originRow
+ * </pre>
+ * Chunked (infinite) maps replace the tile layers with a chunk index: one int per chunk of
+ * the chunk grid (row-major) holding the file offset of its tiles, 0 for an empty chunk.
+ * A chunk stores layerCount * chunkH * chunkW tiles; it is read from the mapped asset when
+ * ChunkStreamer asks for it, so tile data never sits on the heap as a whole.
+ * Metadata starts with the tileset kind. Atlas maps then list their tilesets (sorted by
+ * firstGid, each with its tile animations) and the resolved TileTable entries; tile
+ * layers hold TileTable ids.
+ * Strings are a short UTF-8 byte length (-1 = null) followed by the bytes.
+ * Tile layers and the collision bitset are bulk-copied from the mapped asset into
+ * MapData's flat arrays without per-tile conversion.
+ */
+final class BinaryMapReader {
+    private BinaryMapReader() {}
+
+    static final int MAGIC = 0x50414D46; // "FMAP" read little-endian
+    static final int VERSION = 4;
+    static final int FLAG_SHORT_TILES = 1;
+    static final int FLAG_CHUNKED = 2;
+    static final int HEADER_BYTES = 44;
+    static final int CHUNKED_HEADER_BYTES = 60; // + chunkW, chunkH, originCol, originRow
+
+    static final int TILESET_NONE = 0;
+    static final int TILESET_DRAWABLES = 1;
+    static final int TILESET_PALETTE = 2;
+    static final int TILESET_ATLAS = 3;
+
+    static final int IMAGE_NONE = 0;
+    static final int IMAGE_ASSET = 1;
+    static final int IMAGE_EMBEDDED = 2;
+
+    /**
+     * Builds MapData from a compiled map; images are not decoded here but appended to
+     * {@code images} for the loader's decode pool.
+     */
+    static MapData read(ByteBuffer buf, List<ImageRequest> images) throws IOException {
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+        if (buf.remaining() < HEADER_BYTES || buf.getInt(0) != MAGIC) throw new IOException("Not a compiled map");
+        int version = buf.getInt(4);
+        if (version != VERSION) throw new IOException("Unsupported compiled map version " + version);
+        MapData md = new MapData();
+        md.cols = buf.getInt(8);
+        md.rows = buf.getInt(12);
+        int layerCount = buf.getInt(16);
+        int flags = buf.getInt(20);
+        if ((flags & FLAG_CHUNKED) != 0 && buf.remaining() < CHUNKED_HEADER_BYTES) {
+            throw new IOException("Not a compiled map");
+        }
+        md.playerCol = buf.getFloat(24);
+        md.playerRow = buf.getFloat(28);
+        int layersOffset = buf.getInt(32);
+        int collisionOffset = buf.getInt(36);
+        int metaOffset = buf.getInt(40);
+        int cols = md.cols, rows = md.rows;
+
+        // tile layers
+        int n = cols * rows;
+        boolean shortTiles = (flags & FLAG_SHORT_TILES) != 0;
+        ByteBuffer layerBuf = slice(buf, layersOffset);
+        if ((flags & FLAG_CHUNKED) != 0) {
+            md.originCol = buf.getInt(52);
+            md.originRow = buf.getInt(56);
+            md.chunks = readChunkIndex(buf, layerBuf, buf.getInt(44), buf.getInt(48), cols, rows, layerCount, shortTiles);
+        } else if (shortTiles) {
+            ShortBuffer sb = layerBuf.asShortBuffer();
+            for (int l = 0; l < layerCount; l++) {
+                short[] tiles = new short[n];
+                sb.get(tiles);
+                md.tileLayers.add(TileLayer.ofShorts(tiles, cols, rows));
+            }
+        } else {
+            IntBuffer ib = layerBuf.asIntBuffer();
+            for (int l = 0; l < layerCount; l++) {
+                int[] tiles = new int[n];
+                ib.get(tiles);
+                md.tileLayers.add(TileLayer.ofInts(tiles, cols, rows));
+            }
+        }
+
+        // collision bitset (same bit layout as CollisionMask)
+        long[] bits = new long[CollisionMask.wordCount(cols, rows)];
+        slice(buf, collisionOffset).asLongBuffer().get(bits);
+        md.collision = new CollisionMask(cols, rows, bits);
+
+        // metadata
+        ByteBuffer meta = slice(buf, metaOffset);
+        int tilesetKind = meta.get();
+        switch (tilesetKind) {
+            case TILESET_DRAWABLES:
+                md.tileDrawableNames = readStrings(meta);
+                break;
+            case TILESET_PALETTE: {
+                String[] colors = readStrings(meta);
+                md.tilePaletteColors = new int[colors.length];
+                for (int i = 0; i < colors.length; i++) md.tilePaletteColors[i] = MapJson.parseColor(colors[i]);
+                break;
+            }
+            case TILESET_ATLAS:
+                md.tileTable = readTileTable(meta, images);
+                break;
+            default:
+                break;
+        }
+
+        int imageLayerCount = meta.getShort();
+        for (int i = 0; i < imageLayerCount; i++) {
+            String path = readString(meta);
+            MapData.ImageLayer il = new MapData.ImageLayer();
+            il.offsetX = meta.getInt();
+            il.offsetY = meta.getInt();
+            il.parallaxX = meta.getFloat();
+            il.parallaxY = meta.getFloat();
+            images.add(ImageRequest.asset(path, il));
+        }
+
+        int npcCount = meta.getShort();
+        for (int i = 0; i < npcCount; i++) {
+            MapData.Npc npc = new MapData.Npc();
+            npc.col = meta.getInt();
+            npc.row = meta.getInt();
+            npc.name = readString(meta);
+            npc.lines = readStrings(meta);
+            md.npcs.add(npc);
+        }
+
+        int warpCount = meta.getShort();
+        for (int i = 0; i < warpCount; i++) {
+            MapData.Warp w = new MapData.Warp();
+            w.col = meta.getInt();
+            w.row = meta.getInt();
+            w.target = readString(meta);
+            w.targetCol = meta.getInt();
+            w.targetRow = meta.getInt();
+            md.warps.add(w);
+        }
+        return md;
+    }
+
+    private static ChunkedMap readChunkIndex(ByteBuffer buf, ByteBuffer index, int chunkW, int chunkH,
+                                             int cols, int rows, int layerCount, boolean shortTiles) throws IOException {
+        if (chunkW <= 0 || chunkH <= 0) throw new IOException("Bad chunk size " + chunkW + "x" + chunkH);
+        int chunksX = (cols + chunkW - 1) / chunkW;
+        int chunksY = (rows + chunkH - 1) / chunkH;
+        int[] offsets = new int[chunksX * chunksY];
+        index.asIntBuffer().get(offsets);
+        long[] present = new long[ChunkedMap.wordCount(chunksX, chunksY)];
+        for (int i = 0; i < offsets.length; i++) {
+            if (offsets[i] != 0) present[i >>> 6] |= 1L << i;
+        }
+        int n = chunkW * chunkH;
+        // each load works on its own view of the mapped asset (the streaming thread reads
+        // while other maps may be parsed)
+        return new ChunkedMap(chunkW, chunkH, chunksX, chunksY, layerCount, present, (cx, cy) -> {
+            ByteBuffer chunk = slice(buf, offsets[cy * chunksX + cx]);
+            TileLayer[] layers = new TileLayer[layerCount];
+            if (shortTiles) {
+                ShortBuffer sb = chunk.asShortBuffer();
+                for (int l = 0; l < layerCount; l++) {
+                    short[] tiles = new short[n];
+                    sb.get(tiles);
+                    layers[l] = TileLayer.ofShorts(tiles, chunkW, chunkH);
+                }
+            } else {
+                IntBuffer ib = chunk.asIntBuffer();
+                for (int l = 0; l < layerCount; l++) {
+                    int[] tiles = new int[n];
+                    ib.get(tiles);
+                    layers[l] = TileLayer.ofInts(tiles, chunkW, chunkH);
+                }
+            }
+            return layers;
+        });
+    }
+
+    private static TileTable readTileTable(ByteBuffer meta, List<ImageRequest> images) throws IOException {
+        int count = meta.getShort();
+        List<Tileset> sets = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Tileset ts = new Tileset();
+            ts.firstGid = meta.getInt();
+            ts.columns = meta.getInt();
+            ts.tileW = meta.getInt();
+            ts.tileH = meta.getInt();
+            ts.margin = meta.getInt();
+            ts.spacing = meta.getInt();
+            ts.tileCount = meta.getInt();
+            int image = meta.get();
+            if (image == IMAGE_ASSET) {
+                images.add(ImageRequest.asset(readString(meta), ts));
+            } else if (image == IMAGE_EMBEDDED) {
+                byte[] bytes = new byte[meta.getInt()];
+                meta.get(bytes);
+                images.add(ImageRequest.embedded(bytes, ts));
+            }
+            int animations = meta.getShort();
+            for (int a = 0; a < animations; a++) {
+                int local = meta.getInt();
+                int frames = meta.getShort();
+                int[] tiles = new int[frames], durations = new int[frames];
+                for (int f = 0; f < frames; f++) {
+                    tiles[f] = meta.getInt();
+                    durations[f] = meta.getInt();
+                }
+                ts.animations.put(local, new Tileset.Animation(tiles, durations));
+            }
+            sets.add(ts);
+        }
+        TileTable table = new TileTable(sets);
+        int entries = meta.getInt();
+        for (int i = 0; i < entries; i++) {
+            int ts = meta.getShort();
+            int local = meta.getInt();
+            int orient = meta.get();
+            if (ts < 0 || ts >= count) throw new IOException("Tile " + (i + 1) + " refers to missing tileset " + ts);
+            table.add(ts, local, orient);
+        }
+        return table;
+    }
+
+    private static ByteBuffer slice(ByteBuffer buf, int offset) {
+        ByteBuffer dup = buf.duplicate();
+        dup.position(offset);
+        return dup.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static String readString(ByteBuffer b) {
+        int len = b.getShort();
+        if (len < 0) return null;
+        byte[] bytes = new byte[len];
+        b.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String[] readStrings(ByteBuffer b) {
+        int n = b.getShort();
+        String[] out = new String[n];
+        for (int i = 0; i < n; i++) out[i] = readString(b);
+        return out;
+    }
+}
@@ -1,189 +1,187 @@
 package com.non_breath.finlitrush.game.io;
 
 import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
+import android.util.JsonReader;
+import android.util.JsonToken;
 
 import com.non_breath.finlitrush.game.data.MapData;
+import com.non_breath.finlitrush.game.render.BitmapHandle;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
-
-import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Loads map JSON from assets. Supports a simple custom JSON and Tiled JSON.
+ * - The JSON rules live in MapJson (shared with the build-time map compiler)
+ * - JSON is streamed with android.util.JsonReader (no full document tree in memory)
+ * - Images (atlas, image layers) are decoded in parallel on a small decode pool
+ * - loadAsync() runs the whole pipeline off the calling thread and reports progress
+ * - A compiled binary map (*.fmap, see BinaryMapReader) is preferred over the JSON when present
  */
 public final class MapLoader {
     private MapLoader() {}
 
+    /** Receives load progress in [0,1]; called on loader threads. */
+    public interface ProgressListener {
+        void onProgress(float fraction);
+    }
+
+    static final String COMPILED_EXT = ".fmap";
+
+    // share of the progress bar spent on parsing (the rest is image decode)
+    private static final float PARSE_SHARE = 0.6f;
+
+    private static final ExecutorService LOAD_EXECUTOR =
+            Executors.newSingleThreadExecutor(namedThreads("MapLoader"));
+    private static final ExecutorService DECODE_EXECUTOR =
+            Executors.newFixedThreadPool(2, namedThreads("MapDecode"));
+
     public static MapData load(Context ctx, String assetPath) throws Exception {
+        return load(ctx, assetPath, null);
+    }
+
+    /** Loads a map on the background loader; poll or get() the returned future. */
+    public static Future<MapData> loadAsync(Context ctx, String assetPath, ProgressListener listener) {
+        Context app = ctx.getApplicationContext();
+        return LOAD_EXECUTOR.submit(() -> load(app, assetPath, listener));
+    }
+
+    public static MapData load(Context ctx, String assetPath, ProgressListener listener) throws Exception {
+        // prefer the build-time compiled binary next to the JSON (maps/x.json -> maps/x.fmap)
+        ByteBuffer compiled = openCompiled(ctx, compiledPathFor(assetPath));
+        if (compiled != null) {
+            List<ImageRequest> images = new ArrayList<>();
+            MapData md = BinaryMapReader.read(compiled, images);
+            if (listener != null) listener.onProgress(PARSE_SHARE);
+            decodeImages(ctx, images, md, listener);
+            if (listener != null) listener.onProgress(1f);
+            return md;
+        }
         try (InputStream is = ctx.getAssets().open(assetPath)) {
-            BufferedReader br = new BufferedReader(new InputStreamReader(is));
-            StringBuilder sb = new StringBuilder(); String line;
-            while ((line = br.readLine()) != null) sb.append(line);
-            String json = sb.toString();
-            JSONObject root = new JSONObject(json);
-            if (root.has("layers") && root.has("tilesets")) {
-                return fromTiled(ctx, root);
-            }
-            return fromCustom(ctx, root);
+            return parse(ctx, is, listener);
         }
     }
 
-    private static MapData fromCustom(Context ctx, JSONObject root) throws Exception {
-        MapData md = new MapData();
-        md.cols = root.getInt("cols");
-        md.rows = root.getInt("rows");
-        // tiles (single layer)
-        JSONArray tiles = root.getJSONArray("tiles");
-        int[][] layer0 = new int[md.rows][md.cols];
-        for (int r = 0; r < md.rows; r++) {
-            JSONArray rowArr = tiles.getJSONArray(r);
-            for (int c = 0; c < md.cols; c++) layer0[r][c] = rowArr.getInt(c);
-        }
-        md.tileLayers.add(layer0);
-        // default collision from non-zero tiles or explicit collision
-        md.collision = new boolean[md.rows][md.cols];
-        for (int r = 0; r < md.rows; r++) for (int c = 0; c < md.cols; c++) md.collision[r][c] = layer0[r][c] != 0;
-        if (root.has("collision")) {
-            JSONArray coll = root.getJSONArray("collision");
-            for (int r = 0; r < md.rows; r++) {
-                JSONArray rowArr = coll.getJSONArray(r);
-                for (int c = 0; c < md.cols; c++) md.collision[r][c] = rowArr.getInt(c) != 0;
-            }
+    /**
+     * Parses map JSON (custom or Tiled) from a stream; images it names still come from the
+     * assets. Used by load() and by tools/benchmarks that generate maps.
+     */
+    public static MapData parse(Context ctx, InputStream json, ProgressListener listener) throws Exception {
+        InputStream counted = new ProgressInputStream(json, json.available(), listener);
+        MapJson.Parsed parsed = MapJson.read(new StreamInput(
+                new JsonReader(new InputStreamReader(counted, StandardCharsets.UTF_8))));
+        decodeImages(ctx, parsed.images, parsed.map, listener);
+        if (listener != null) listener.onProgress(1f);
+        return parsed.map;
+    }
+
+    static String compiledPathFor(String assetPath) {
+        if (assetPath.endsWith(COMPILED_EXT)) return assetPath;
+        if (assetPath.endsWith(".json")) return assetPath.substring(0, assetPath.length() - 5) + COMPILED_EXT;
+        return null;
+    }
+
+    /**
+     * Memory-maps a compiled map straight from the APK (stored uncompressed, see noCompress
+     * in build.gradle.kts). Compressed entries fall back to a direct buffer read.
+     * @return null if there is no compiled map
+     */
+    private static ByteBuffer openCompiled(Context ctx, String path) throws IOException {
+        if (path == null) return null;
+        AssetManager assets = ctx.getAssets();
+        try (AssetFileDescriptor afd = assets.openFd(path);
+             FileInputStream fis = afd.createInputStream();
+             FileChannel channel = fis.getChannel()) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, afd.getStartOffset(), afd.getLength());
+        } catch (FileNotFoundException notMappable) {
+            // missing, or compressed in the APK
         }
-        // player
-        if (root.has("player")) {
-            JSONObject p = root.getJSONObject("player");
-            md.playerCol = (float) p.optDouble("col", -1);
-            md.playerRow = (float) p.optDouble("row", -1);
+        InputStream is;
+        try {
+            is = assets.open(path);
+        } catch (FileNotFoundException missing) {
+            return null;
         }
-        // npcs
-        if (root.has("npcs")) {
-            JSONArray arr = root.getJSONArray("npcs");
-            for (int i = 0; i < arr.length(); i++) {
-                JSONObject n = arr.getJSONObject(i);
-                MapData.Npc npc = new MapData.Npc();
-                npc.col = n.getInt("col"); npc.row = n.getInt("row");
-                npc.name = n.optString("name", "NPC");
-                JSONArray linesArr = n.optJSONArray("lines");
-                if (linesArr != null) {
-                    npc.lines = new String[linesArr.length()];
-                    for (int j = 0; j < linesArr.length(); j++) npc.lines[j] = linesArr.getString(j);
-                } else npc.lines = new String[]{"..."};
-                md.npcs.add(npc);
+        try (InputStream in = is) {
+            ByteBuffer buf = ByteBuffer.allocateDirect(Math.max(0, in.available()));
+            byte[] chunk = new byte[16 * 1024];
+            int n;
+            while ((n = in.read(chunk)) > 0) {
+                if (buf.remaining() < n) {
+                    ByteBuffer bigger = ByteBuffer.allocateDirect(Math.max(buf.capacity() * 2, buf.position() + n));
+                    buf.flip();
+                    bigger.put(buf);
+                    buf = bigger;
+                }
+                buf.put(chunk, 0, n);
             }
+            buf.flip();
+            return buf;
         }
-        // optional custom image layers (array of { image, offsetX, offsetY })
-        if (root.has("imageLayers")) {
-            JSONArray imgLayers = root.getJSONArray("imageLayers");
-            for (int i = 0; i < imgLayers.length(); i++) {
-                JSONObject obj = imgLayers.getJSONObject(i);
-                String imagePath = obj.getString("image");
-                MapData.ImageLayer il = new MapData.ImageLayer();
-                il.offsetX = obj.optInt("offsetX", 0);
-                il.offsetY = obj.optInt("offsetY", 0);
-                il.bitmap = decodeBitmap(ctx, imagePath, Bitmap.Config.ARGB_8888);
-                if (il.bitmap != null) md.imageLayers.add(il);
+    }
+
+    // ---- parallel image decode ----
+
+    private static void decodeImages(Context ctx, List<ImageRequest> requests, MapData md,
+                                     ProgressListener listener) throws Exception {
+        List<Future<Bitmap>> jobs = new ArrayList<>(requests.size());
+        for (ImageRequest req : requests) {
+            if (req.assetPath != null) {
+                jobs.add(submitAssetDecode(ctx, req.assetPath));
+            } else {
+                jobs.add(DECODE_EXECUTOR.submit(() -> {
+                    byte[] bytes = req.bytes != null ? req.bytes
+                            : android.util.Base64.decode(req.base64, android.util.Base64.DEFAULT);
+                    return BitmapFactory.decodeByteArray(bytes, 0, bytes.length);
+                }));
             }
         }
-
-        // tileset metadata
-        if (root.has("tileset")) {
-            JSONObject ts = root.getJSONObject("tileset");
-            String type = ts.optString("type", "");
-            if ("android-drawables".equals(type) && ts.has("drawables")) {
-                JSONArray arr = ts.getJSONArray("drawables");
-                md.tileDrawableNames = new String[arr.length()];
-                for (int i = 0; i < arr.length(); i++) md.tileDrawableNames[i] = arr.getString(i);
-            } else if (ts.has("palette")) {
-                JSONArray pal = ts.getJSONArray("palette");
-                md.tilePaletteColors = new int[pal.length()];
-                for (int i = 0; i < pal.length(); i++) md.tilePaletteColors[i] = android.graphics.Color.parseColor(pal.getString(i));
-            } else if (ts.has("atlas")) {
-                JSONObject a = ts.getJSONObject("atlas");
-                String imagePath = a.getString("image");
-                md.atlasTileW = a.getInt("tileW");
-                md.atlasTileH = a.getInt("tileH");
-                md.atlasColumns = a.getInt("columns");
-                md.atlasFirstGid = a.optInt("firstgid", 1);
-                md.atlasBitmap = decodeBitmap(ctx, imagePath, Bitmap.Config.ARGB_8888);
+        int total = jobs.size();
+        for (int i = 0; i < total; i++) {
+            Bitmap bmp = await(jobs.get(i));
+            ImageRequest req = requests.get(i);
+            if (req.layer != null) {
+                req.layer.image = BitmapHandle.of(bmp);
+                if (bmp != null) md.imageLayers.add(req.layer);
+            } else if (req.tileset != null) {
+                req.tileset.image = BitmapHandle.of(bmp);
             }
+            if (listener != null) listener.onProgress(PARSE_SHARE + (1f - PARSE_SHARE) * (i + 1) / total);
         }
-        parseWarps(root, md);
-        return md;
+        // tilesets without declared columns take them from their image
+        if (md.tileTable != null) md.tileTable.resolveSources();
     }
 
-    private static MapData fromTiled(Context ctx, JSONObject root) throws Exception {
-        MapData md = new MapData();
-        md.cols = root.getInt("width");
-        md.rows = root.getInt("height");
-        int tw = root.getInt("tilewidth");
-        int th = root.getInt("tileheight");
-        // layers
-        JSONArray layers = root.getJSONArray("layers");
-        boolean[][] coll = new boolean[md.rows][md.cols];
-        for (int i = 0; i < layers.length(); i++) {
-            JSONObject layer = layers.getJSONObject(i);
-            String type = layer.optString("type");
-            if ("tilelayer".equals(type)) {
-                JSONArray data = layer.getJSONArray("data");
-                int[][] grid = new int[md.rows][md.cols];
-                for (int r = 0; r < md.rows; r++) for (int c = 0; c < md.cols; c++) grid[r][c] = data.getInt(r * md.cols + c);
-                String name = layer.optString("name", "");
-                boolean isCollision = name.equalsIgnoreCase("collision") || name.equalsIgnoreCase("collide");
-                if (isCollision) {
-                    for (int r = 0; r < md.rows; r++) for (int c = 0; c < md.cols; c++) coll[r][c] = coll[r][c] || grid[r][c] != 0;
-                } else {
-                    md.tileLayers.add(grid);
-                }
-            } else if ("imagelayer".equals(type) && layer.has("image")) {
-                MapData.ImageLayer il = new MapData.ImageLayer();
-                il.bitmap = decodeBitmap(ctx, layer.getString("image"), Bitmap.Config.ARGB_8888);
-                il.offsetX = (int) Math.round(layer.optDouble("offsetx", 0));
-                il.offsetY = (int) Math.round(layer.optDouble("offsety", 0));
-                if (il.bitmap != null) md.imageLayers.add(il);
-            }
-        }
-        md.collision = coll;
-
-        // tileset
-        JSONArray tilesets = root.getJSONArray("tilesets");
-        JSONObject ts0 = tilesets.getJSONObject(0);
-        md.atlasFirstGid = ts0.getInt("firstgid");
-        md.atlasColumns = ts0.optInt("columns", 0);
-        md.atlasTileW = ts0.optInt("tilewidth", tw);
-        md.atlasTileH = ts0.optInt("tileheight", th);
-        md.tileDrawableNames = null; md.tilePaletteColors = null; md.atlasBitmap = null;
-        if (ts0.has("imageBase64")) {
-            String b64 = ts0.getString("imageBase64");
-            byte[] bytes = android.util.Base64.decode(b64, android.util.Base64.DEFAULT);
-            md.atlasBitmap = BitmapFactory.decodeByteArray(bytes, 0, bytes.length);
-        } else if (ts0.has("image")) {
-            md.atlasBitmap = decodeBitmap(ctx, ts0.getString("image"), Bitmap.Config.ARGB_8888);
-        } else if (ts0.has("colors")) {
-            JSONArray pal = ts0.getJSONArray("colors");
-            md.tilePaletteColors = new int[pal.length()];
-            for (int i = 0; i < pal.length(); i++) md.tilePaletteColors[i] = android.graphics.Color.parseColor(pal.getString(i));
-        }
-        parseWarps(root, md);
-        return md;
+    private static Future<Bitmap> submitAssetDecode(Context ctx, String assetPath) {
+        return DECODE_EXECUTOR.submit(() -> decodeBitmap(ctx, assetPath, Bitmap.Config.ARGB_8888));
     }
 
-    private static void parseWarps(JSONObject root, MapData md) throws Exception {
-        if (!root.has("warps")) return;
-        JSONArray arrW = root.getJSONArray("warps");
-        for (int i = 0; i < arrW.length(); i++) {
-            JSONObject w = arrW.getJSONObject(i);
-            MapData.Warp wp = new MapData.Warp();
-            wp.col = w.getInt("col"); wp.row = w.getInt("row");
-            wp.target = w.optString("target", null);
-            wp.targetCol = w.optInt("targetCol", wp.col);
-            wp.targetRow = w.optInt("targetRow", wp.row);
-            md.warps.add(wp);
+    private static Bitmap await(Future<Bitmap> job) throws Exception {
+        try {
+            return job.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) throw (Exception) cause;
+            throw e;
         }
     }
 
@@ -194,4 +192,74 @@ public final class MapLoader {
             return BitmapFactory.decodeStream(ais, null, opts);
         }
     }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger n = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + "-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    /** MapJson's reader over android.util.JsonReader. */
+    private static final class StreamInput implements JsonInput {
+        private final JsonReader r;
+
+        StreamInput(JsonReader r) { this.r = r; }
+
+        @Override public void beginObject() throws IOException { r.beginObject(); }
+        @Override public void endObject() throws IOException { r.endObject(); }
+        @Override public void beginArray() throws IOException { r.beginArray(); }
+        @Override public void endArray() throws IOException { r.endArray(); }
+        @Override public boolean hasNext() throws IOException { return r.hasNext(); }
+        @Override public String nextName() throws IOException { return r.nextName(); }
+        @Override public String nextString() throws IOException { return r.nextString(); }
+        @Override public int nextInt() throws IOException { return r.nextInt(); }
+        @Override public long nextLong() throws IOException { return r.nextLong(); }
+        @Override public double nextDouble() throws IOException { return r.nextDouble(); }
+        @Override public boolean nextBoolean() throws IOException { return r.nextBoolean(); }
+        @Override public void nextNull() throws IOException { r.nextNull(); }
+        @Override public void skipValue() throws IOException { r.skipValue(); }
+        @Override public boolean peekNull() throws IOException { return r.peek() == JsonToken.NULL; }
+        @Override public boolean peekArray() throws IOException { return r.peek() == JsonToken.BEGIN_ARRAY; }
+    }
+
+    /** Counts bytes read to report parse progress. */
+    private static final class ProgressInputStream extends FilterInputStream {
+        private final long total;
+        private final ProgressListener listener;
+        private long read = 0;
+        private int lastPercent = -1;
+
+        ProgressInputStream(InputStream in, long total, ProgressListener listener) {
+            super(in);
+            this.total = Math.max(1, total);
+            this.listener = listener;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) advance(1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) advance(n);
+            return n;
+        }
+
+        private void advance(int n) {
+            read += n;
+            if (listener == null) return;
+            int percent = (int) Math.min(100, read * 100 / total);
+            if (percent != lastPercent) {
+                lastPercent = percent;
+                listener.onProgress(PARSE_SHARE * percent / 100f);
+            }
+        }
+    }
 }
@@ -0,0 +1,118 @@
+package com.non_breath.finlitrush.game.loop;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.view.Choreographer;
+
+/**
+ * Game loop paced by display vsync.
+ * - Choreographer frame callbacks on a dedicated looper thread (no busy spinning)
+ * - Fixed simulation timestep driven by an accumulator, decoupled from rendering
+ * - Optional FPS cap (frames are skipped, the simulation still catches up)
+ * - Rendering receives the interpolation factor between the last two sim steps
+ * - With simHz 0 it only renders (the simulation runs on a SimulationLoop; alpha is 1)
+ */
+public final class ChoreographerLoop implements Choreographer.FrameCallback {
+
+    /** Callbacks into the game, invoked on the loop thread. */
+    public interface Host {
+        /** Advances the simulation by exactly one fixed step. */
+        void step(float dt);
+        /** Renders one frame; alpha in [0,1] is the progress towards the next sim step. */
+        void render(float alpha);
+    }
+
+    // never run more than this many sim steps per frame (avoids the spiral of death after stalls)
+    private static final int MAX_STEPS_PER_FRAME = 5;
+    // frames arriving slightly early still count towards the cap
+    private static final long CAP_SLACK_NANOS = 2_000_000L;
+
+    private final Host host;
+    private final FrameStats stats;
+    private final long stepNanos;
+    private volatile long minFrameNanos = 0;
+
+    private HandlerThread thread;
+    private Handler handler;
+    private Choreographer choreographer;
+    private volatile boolean running = false;
+    private long lastSimNanos = 0;
+    private long lastRenderNanos = 0;
+    private long accumulator = 0;
+
+    public ChoreographerLoop(Host host, FrameStats stats, int simHz) {
+        this.host = host;
+        this.stats = stats;
+        this.stepNanos = simHz > 0 ? 1_000_000_000L / simHz : 0;
+    }
+
+    /** @param fps maximum rendered frames per second, 0 for the display refresh rate */
+    public void setFpsCap(int fps) {
+        minFrameNanos = fps > 0 ? 1_000_000_000L / fps : 0;
+    }
+
+    public boolean isRunning() { return running; }
+
+    public void start() {
+        if (running) return;
+        running = true;
+        thread = new HandlerThread("GameLoop-vsync", Process.THREAD_PRIORITY_DISPLAY);
+        thread.start();
+        handler = new Handler(thread.getLooper());
+        handler.post(() -> {
+            choreographer = Choreographer.getInstance();
+            lastSimNanos = 0;
+            lastRenderNanos = 0;
+            accumulator = 0;
+            stats.reset();
+            choreographer.postFrameCallback(this);
+        });
+    }
+
+    public void stop() {
+        if (!running) return;
+        running = false;
+        HandlerThread t = thread;
+        handler.post(() -> {
+            if (choreographer != null) choreographer.removeFrameCallback(this);
+            t.quitSafely();
+        });
+        try { t.join(500); } catch (InterruptedException ignored) {}
+        thread = null;
+        handler = null;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!running) return;
+        choreographer.postFrameCallback(this);
+
+        long cap = minFrameNanos;
+        if (cap > 0 && lastRenderNanos != 0 && frameTimeNanos - lastRenderNanos < cap - CAP_SLACK_NANOS) {
+            return; // skip this vsync
+        }
+        if (stepNanos == 0) {
+            stats.markFrame(frameTimeNanos);
+            lastRenderNanos = frameTimeNanos;
+            host.render(1f);
+            return;
+        }
+        if (lastSimNanos == 0) lastSimNanos = frameTimeNanos;
+        accumulator += frameTimeNanos - lastSimNanos;
+        lastSimNanos = frameTimeNanos;
+
+        float dt = stepNanos / 1_000_000_000f;
+        int steps = 0;
+        while (accumulator >= stepNanos && steps < MAX_STEPS_PER_FRAME) {
+            host.step(dt);
+            accumulator -= stepNanos;
+            steps++;
+        }
+        if (steps == MAX_STEPS_PER_FRAME) accumulator %= stepNanos; // drop the backlog after a stall
+        stats.setSimSteps(steps);
+        stats.markFrame(frameTimeNanos);
+        lastRenderNanos = frameTimeNanos;
+        host.render(Math.min(1f, accumulator / (float) stepNanos));
+    }
+}
@@ -0,0 +1,199 @@
+package com.non_breath.finlitrush.game.loop;
+
+import android.os.Trace;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-phase timings of the frames of one thread, kept in a lock-free ring.
+ * - The owning thread brackets a frame with beginFrame()/endFrame() and its phases with
+ *   begin(phase)/end(phase); every phase also opens an android.os.Trace section
+ *   ("name:phase"), so captures in Perfetto/systrace show the same breakdown
+ * - endFrame() copies the frame into the ring and publishes it with one ordered write;
+ *   any thread reads the newest frames (summarize(), writeCsv()) without locking, and
+ *   frames overwritten during a read are dropped from it
+ * - A phase may run several times per frame (times add up); sections still open at
+ *   endFrame() (an exception skipped end()) are closed there
+ * Recording and summarize() are allocation-free.
+ */
+public final class FrameProfiler {
+    // record layout: frame start, frame duration, then one duration per phase (all ns)
+    private static final int START = 0, DURATION = 1, PHASES = 2;
+
+    private final String name;
+    private final String[] phases;
+    private final String[] sections;
+    private final int capacity, stride;
+    private final long[] ring;
+    private final AtomicLong published = new AtomicLong(); // frames written so far
+
+    // owning thread
+    private final long[] current;
+    private final long[] phaseStart;
+    private long frameStart;
+    private long sequence;
+    private int openSections;
+
+    public FrameProfiler(String name, int capacity, String... phases) {
+        this.name = name;
+        this.phases = phases.clone();
+        this.sections = new String[phases.length];
+        for (int i = 0; i < phases.length; i++) sections[i] = name + ":" + phases[i];
+        this.capacity = Math.max(2, capacity);
+        this.stride = PHASES + phases.length;
+        this.ring = new long[this.capacity * stride];
+        this.current = new long[phases.length];
+        this.phaseStart = new long[phases.length];
+    }
+
+    public String getName() { return name; }
+
+    public int getPhaseCount() { return phases.length; }
+
+    public String getPhaseName(int phase) { return phases[phase]; }
+
+    public int getCapacity() { return capacity; }
+
+    /** Frames recorded since creation (including those the ring no longer holds). */
+    public long getFrameCount() { return published.get(); }
+
+    public void beginFrame() {
+        Arrays.fill(current, 0L);
+        frameStart = System.nanoTime();
+    }
+
+    public void begin(int phase) {
+        Trace.beginSection(sections[phase]);
+        openSections++;
+        phaseStart[phase] = System.nanoTime();
+    }
+
+    public void end(int phase) {
+        current[phase] += System.nanoTime() - phaseStart[phase];
+        if (openSections > 0) {
+            openSections--;
+            Trace.endSection();
+        }
+    }
+
+    public void endFrame() {
+        long now = System.nanoTime();
+        for (; openSections > 0; openSections--) Trace.endSection();
+        int base = (int) (sequence % capacity) * stride;
+        ring[base + START] = frameStart;
+        ring[base + DURATION] = now - frameStart;
+        System.arraycopy(current, 0, ring, base + PHASES, current.length);
+        published.lazySet(++sequence);
+    }
+
+    /**
+     * Copies up to {@code maxFrames} of the newest complete frames, oldest first, into
+     * {@code out} (stride longs each) and returns how many were copied; firstOut[0], when
+     * given, receives the frame number of the first one.
+     */
+    private int copyFrames(long[] out, int maxFrames, long[] firstOut) {
+        long end = published.get();
+        int n = (int) Math.min(Math.min(maxFrames, capacity - 1), end);
+        long first = end - n;
+        for (long s = first; s < end; s++) {
+            System.arraycopy(ring, (int) (s % capacity) * stride, out, (int) (s - first) * stride, stride);
+        }
+        // the writer fills slot (published % capacity) next: frames at or before
+        // published - capacity may have been overwritten while they were copied
+        long valid = published.get() - capacity + 1;
+        if (valid > first) {
+            int drop = (int) Math.min(n, valid - first);
+            System.arraycopy(out, drop * stride, out, 0, (n - drop) * stride);
+            n -= drop;
+            first += drop;
+        }
+        if (firstOut != null) firstOut[0] = first;
+        return n;
+    }
+
+    /** Statistics over the newest frames; each reading thread keeps its own instance. */
+    public static final class Summary {
+        public int frames;
+        /** Start-to-start frame intervals (jank shows here) and in-frame work, in ms. */
+        public float intervalP50Ms, intervalP95Ms, intervalP99Ms, maxIntervalMs;
+        public float workP50Ms, workP95Ms, workP99Ms;
+        public final float[] phaseAvgMs;
+        /** Frame intervals in ms, oldest first; intervalCount of them are valid. */
+        public final float[] intervalsMs;
+        public int intervalCount;
+        private final long[] records;
+        private final long[] sorted;
+        private final int maxFrames;
+
+        public Summary(FrameProfiler profiler, int maxFrames) {
+            this.maxFrames = Math.max(2, Math.min(maxFrames, profiler.capacity - 1));
+            phaseAvgMs = new float[profiler.phases.length];
+            intervalsMs = new float[this.maxFrames];
+            records = new long[this.maxFrames * profiler.stride];
+            sorted = new long[this.maxFrames];
+        }
+    }
+
+    /** Fills {@code out} (created for this profiler) from the newest frames. */
+    public void summarize(Summary out) {
+        int n = copyFrames(out.records, out.maxFrames, null);
+        long[] rec = out.records;
+        out.frames = n;
+        for (int p = 0; p < phases.length; p++) {
+            long sum = 0;
+            for (int i = 0; i < n; i++) sum += rec[i * stride + PHASES + p];
+            out.phaseAvgMs[p] = n > 0 ? sum / (float) n / 1_000_000f : 0f;
+        }
+        for (int i = 0; i < n; i++) out.sorted[i] = rec[i * stride + DURATION];
+        Arrays.sort(out.sorted, 0, n);
+        out.workP50Ms = percentileMs(out.sorted, n, 0.50f);
+        out.workP95Ms = percentileMs(out.sorted, n, 0.95f);
+        out.workP99Ms = percentileMs(out.sorted, n, 0.99f);
+        int intervals = Math.max(0, n - 1);
+        for (int i = 0; i < intervals; i++) {
+            long d = rec[(i + 1) * stride + START] - rec[i * stride + START];
+            out.sorted[i] = d;
+            out.intervalsMs[i] = d / 1_000_000f;
+        }
+        out.intervalCount = intervals;
+        Arrays.sort(out.sorted, 0, intervals);
+        out.intervalP50Ms = percentileMs(out.sorted, intervals, 0.50f);
+        out.intervalP95Ms = percentileMs(out.sorted, intervals, 0.95f);
+        out.intervalP99Ms = percentileMs(out.sorted, intervals, 0.99f);
+        out.maxIntervalMs = intervals > 0 ? out.sorted[intervals - 1] / 1_000_000f : 0f;
+    }
+
+    // nearest-rank percentile of the first n sorted values
+    private static float percentileMs(long[] sorted, int n, float q) {
+        if (n == 0) return 0f;
+        int rank = (int) Math.ceil(q * n);
+        return sorted[Math.max(0, Math.min(n - 1, rank - 1))] / 1_000_000f;
+    }
+
+    /**
+     * Writes every frame the ring holds as CSV, oldest first:
+     * frame,start_ns,interval_ns,duration_ns,&lt;phase&gt;_ns...
+     */
+    public void writeCsv(Writer w) throws IOException {
+        long[] rec = new long[capacity * stride];
+        long[] first = new long[1];
+        int n = copyFrames(rec, capacity, first);
+        w.write("frame,start_ns,interval_ns,duration_ns");
+        for (String p : phases) w.write("," + p + "_ns");
+        w.write('\n');
+        StringBuilder line = new StringBuilder(16 * stride);
+        for (int i = 0; i < n; i++) {
+            int base = i * stride;
+            line.setLength(0);
+            line.append(first[0] + i).append(',').append(rec[base + START]).append(',');
+            if (i > 0) line.append(rec[base + START] - rec[base - stride + START]);
+            line.append(',').append(rec[base + DURATION]);
+            for (int p = 0; p < phases.length; p++) line.append(',').append(rec[base + PHASES + p]);
+            line.append('\n');
+            w.write(line.toString());
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.non_breath.finlitrush.game.loop;
+
+/**
+ * Rolling frame-time statistics over the last N frames (allocation-free).
+ * Written by the loop thread, read by the debug HUD on the same thread.
+ */
+public final class FrameStats {
+    private final long[] frameNanos;
+    private int count = 0;
+    private int head = 0;
+    private long lastMark = 0;
+    private int simStepsLastFrame = 0;
+
+    public FrameStats(int window) {
+        frameNanos = new long[Math.max(1, window)];
+    }
+
+    /** Marks the start of a rendered frame; the delta to the previous mark is recorded. */
+    public void markFrame(long nowNanos) {
+        if (lastMark != 0) {
+            frameNanos[head] = nowNanos - lastMark;
+            head = (head + 1) % frameNanos.length;
+            if (count < frameNanos.length) count++;
+        }
+        lastMark = nowNanos;
+    }
+
+    public void setSimSteps(int steps) { simStepsLastFrame = steps; }
+
+    public int getSimStepsLastFrame() { return simStepsLastFrame; }
+
+    public void reset() {
+        count = 0; head = 0; lastMark = 0; simStepsLastFrame = 0;
+    }
+
+    public float averageMs() {
+        if (count == 0) return 0f;
+        long sum = 0;
+        for (int i = 0; i < count; i++) sum += frameNanos[i];
+        return sum / (float) count / 1_000_000f;
+    }
+
+    public float maxMs() {
+        long max = 0;
+        for (int i = 0; i < count; i++) if (frameNanos[i] > max) max = frameNanos[i];
+        return max / 1_000_000f;
+    }
+
+    public float fps() {
+        float avg = averageMs();
+        return avg > 0f ? 1000f / avg : 0f;
+    }
+}
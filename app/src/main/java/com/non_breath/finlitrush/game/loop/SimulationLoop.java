@@ -0,0 +1,82 @@
+package com.non_breath.finlitrush.game.loop;
+
+import android.os.Process;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Fixed-timestep simulation on its own thread, decoupled from rendering.
+ * - Steps are scheduled on an absolute timeline and the thread parks between them
+ * - After a stall of more than MAX_CATCH_UP_STEPS the backlog is dropped instead of
+ *   replayed (avoids the spiral of death)
+ * Pair with a render-only ChoreographerLoop; state crosses over through a TripleBuffer.
+ */
+public final class SimulationLoop implements Runnable {
+
+    /** Callback into the game, invoked on the simulation thread. */
+    public interface Host {
+        /** Advances the simulation by exactly one fixed step. */
+        void step(float dt);
+    }
+
+    private static final int MAX_CATCH_UP_STEPS = 5;
+
+    private final Host host;
+    private final long stepNanos;
+    private volatile boolean running = false;
+    private volatile int stepsPerSecond = 0;
+    private Thread thread;
+
+    public SimulationLoop(Host host, int simHz) {
+        this.host = host;
+        this.stepNanos = 1_000_000_000L / Math.max(1, simHz);
+    }
+
+    public long getStepNanos() { return stepNanos; }
+
+    /** Steps completed during the last full second (for the debug HUD). */
+    public int getStepsPerSecond() { return stepsPerSecond; }
+
+    public boolean isRunning() { return running; }
+
+    public void start() {
+        if (running) return;
+        running = true;
+        thread = new Thread(this, "GameSim");
+        thread.start();
+    }
+
+    public void stop() {
+        if (!running) return;
+        running = false;
+        Thread t = thread;
+        LockSupport.unpark(t);
+        try { t.join(500); } catch (InterruptedException ignored) {}
+        thread = null;
+    }
+
+    @Override
+    public void run() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_DISPLAY);
+        float dt = stepNanos / 1_000_000_000f;
+        long next = System.nanoTime();
+        long secondStart = next;
+        int steps = 0;
+        while (running) {
+            long now = System.nanoTime();
+            if (now < next) {
+                LockSupport.parkNanos(next - now);
+                continue;
+            }
+            if (now - next > MAX_CATCH_UP_STEPS * stepNanos) next = now; // drop the backlog after a stall
+            host.step(dt);
+            next += stepNanos;
+            steps++;
+            if (now - secondStart >= 1_000_000_000L) {
+                stepsPerSecond = steps;
+                steps = 0;
+                secondStart = now;
+            }
+        }
+    }
+}
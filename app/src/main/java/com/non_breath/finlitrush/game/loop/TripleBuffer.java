@@ -0,0 +1,48 @@
+package com.non_breath.finlitrush.game.loop;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-free triple buffer handing the latest state from one producer thread to one
+ * consumer thread. Neither side ever waits for the other.
+ * - The producer fills back(), then publish() swaps it with the shared middle slot
+ * - The consumer calls acquire() to swap the middle slot into front() when it is newer
+ * - Slots are reused: the producer must rewrite every field of back() before publishing,
+ *   and the consumer must treat front() as read-only
+ */
+public final class TripleBuffer<T> {
+    private static final int INDEX_MASK = 3;
+    private static final int FRESH = 4; // middle slot holds a state the consumer has not taken yet
+
+    private final Object[] slots;
+    private final AtomicInteger middle = new AtomicInteger(1);
+    private int back = 0;  // producer thread only
+    private int front = 2; // consumer thread only
+
+    public TripleBuffer(T a, T b, T c) {
+        slots = new Object[]{a, b, c};
+    }
+
+    /** Slot the producer writes next. */
+    @SuppressWarnings("unchecked")
+    public T back() { return (T) slots[back]; }
+
+    /** Makes back() visible to the consumer and hands the producer a free slot. */
+    public void publish() {
+        back = middle.getAndSet(back | FRESH) & INDEX_MASK;
+    }
+
+    /**
+     * Takes the most recently published state if there is one the consumer has not seen.
+     * @return false when front() is unchanged
+     */
+    public boolean acquire() {
+        if ((middle.get() & FRESH) == 0) return false;
+        front = middle.getAndSet(front) & INDEX_MASK;
+        return true;
+    }
+
+    /** Latest state taken by acquire() (the initial slot before the first publish). */
+    @SuppressWarnings("unchecked")
+    public T front() { return (T) slots[front]; }
+}
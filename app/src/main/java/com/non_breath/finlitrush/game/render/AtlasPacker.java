@@ -0,0 +1,175 @@
+package com.non_breath.finlitrush.game.render;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Packs many small bitmaps (sprite frames, generated tiles) into a few large atlas pages
+ * with a shelf packer.
+ * - Sources are sorted by height and placed left to right on shelves; a page is closed
+ *   once the next shelf no longer fits under maxPageSize
+ * - Page width is the smallest power of two that fits the widest source and roughly a
+ *   square of the total area; page height is trimmed to the shelves actually used
+ * - Each source is padded by its own edge pixels, so neither a 1:1 blit nor a filtered,
+ *   scaled one samples its neighbours
+ * - RGB_565 sources (opaque tiles) go to RGB_565 pages, everything else to ARGB_8888
+ * - A source may be drawn at a scale of its size (tier-scaled bitmaps); the region keeps it
+ */
+public final class AtlasPacker {
+    public static final int DEFAULT_MAX_PAGE_SIZE = 2048;
+    private static final int PADDING = 1;
+
+    private final int maxPageSize;
+    private final List<Bitmap> sources = new ArrayList<>();
+    private final List<Float> scales = new ArrayList<>();
+
+    public AtlasPacker() {
+        this(DEFAULT_MAX_PAGE_SIZE);
+    }
+
+    public AtlasPacker(int maxPageSize) {
+        this.maxPageSize = Math.max(64, maxPageSize);
+    }
+
+    /** Queues a bitmap for packing; null, recycled, duplicate and oversized bitmaps are skipped. */
+    public AtlasPacker add(Bitmap source) {
+        return add(source, 1f);
+    }
+
+    /** Queues a bitmap that is drawn at {@code drawScale} times its size. */
+    public AtlasPacker add(Bitmap source, float drawScale) {
+        if (source == null || source.isRecycled()) return this;
+        if (source.getWidth() + 2 * PADDING > maxPageSize || source.getHeight() + 2 * PADDING > maxPageSize) return this;
+        for (int i = 0; i < sources.size(); i++) if (sources.get(i) == source) return this;
+        sources.add(source);
+        scales.add(drawScale);
+        return this;
+    }
+
+    public AtlasPacker addAll(Bitmap[] bitmaps) {
+        return addAll(bitmaps, 1f);
+    }
+
+    public AtlasPacker addAll(Bitmap[] bitmaps, float drawScale) {
+        if (bitmaps != null) for (Bitmap b : bitmaps) add(b, drawScale);
+        return this;
+    }
+
+    /** Packs and renders the pages; returns null when nothing was added or a page cannot be allocated. */
+    public TextureAtlas pack() {
+        if (sources.isEmpty()) return null;
+        IdentityHashMap<Bitmap, Float> scaleOf = new IdentityHashMap<>(sources.size() * 2);
+        List<Bitmap> opaque = new ArrayList<>(), translucent = new ArrayList<>();
+        for (int i = 0; i < sources.size(); i++) {
+            Bitmap b = sources.get(i);
+            scaleOf.put(b, scales.get(i));
+            (b.getConfig() == Bitmap.Config.RGB_565 ? opaque : translucent).add(b);
+        }
+        List<Bitmap> pages = new ArrayList<>();
+        IdentityHashMap<Bitmap, TextureAtlas.Region> regions = new IdentityHashMap<>(sources.size() * 2);
+        if (!packGroup(translucent, Bitmap.Config.ARGB_8888, scaleOf, pages, regions)
+                || !packGroup(opaque, Bitmap.Config.RGB_565, scaleOf, pages, regions)) {
+            for (Bitmap p : pages) p.recycle();
+            return null;
+        }
+        return new TextureAtlas(pages.toArray(new Bitmap[0]), regions);
+    }
+
+    // Packs one group into pages of the given config, appended to pages; false when out of memory
+    private boolean packGroup(List<Bitmap> group, Bitmap.Config config, IdentityHashMap<Bitmap, Float> scaleOf,
+                              List<Bitmap> pages, IdentityHashMap<Bitmap, TextureAtlas.Region> regions) {
+        if (group.isEmpty()) return true;
+        List<Bitmap> sorted = new ArrayList<>(group);
+        Collections.sort(sorted, (a, b) -> b.getHeight() != a.getHeight()
+                ? Integer.compare(b.getHeight(), a.getHeight())
+                : Integer.compare(b.getWidth(), a.getWidth()));
+
+        long area = 0;
+        int widest = 0;
+        for (Bitmap b : sorted) {
+            int w = b.getWidth() + 2 * PADDING, h = b.getHeight() + 2 * PADDING;
+            area += (long) w * h;
+            widest = Math.max(widest, w);
+        }
+        int pageW = nextPow2(Math.max(widest, (int) Math.ceil(Math.sqrt(area))));
+        pageW = Math.min(maxPageSize, pageW);
+
+        // place sources on shelves; a new page starts when the shelf does not fit vertically
+        List<int[]> placement = new ArrayList<>(sorted.size()); // {page, x, y}
+        List<Integer> pageHeights = new ArrayList<>();
+        int page = 0, x = 0, y = 0, shelfH = 0;
+        for (Bitmap b : sorted) {
+            int w = b.getWidth() + 2 * PADDING, h = b.getHeight() + 2 * PADDING;
+            if (x + w > pageW) {
+                y += shelfH;
+                x = 0;
+                shelfH = 0;
+            }
+            if (y + h > maxPageSize) {
+                pageHeights.add(y);
+                page++;
+                x = y = shelfH = 0;
+            }
+            placement.add(new int[]{page, x + PADDING, y + PADDING});
+            x += w;
+            shelfH = Math.max(shelfH, h);
+        }
+        pageHeights.add(y + shelfH);
+
+        int firstPage = pages.size();
+        try {
+            for (int p = 0; p < pageHeights.size(); p++) {
+                pages.add(Bitmap.createBitmap(pageW, Math.max(1, pageHeights.get(p)), config));
+            }
+        } catch (OutOfMemoryError oom) {
+            return false;
+        }
+        Canvas canvas = new Canvas();
+        Rect edge = new Rect(), pad = new Rect();
+        int current = -1;
+        for (int i = 0; i < sorted.size(); i++) {
+            Bitmap b = sorted.get(i);
+            int[] at = placement.get(i);
+            int pageIndex = firstPage + at[0];
+            if (pageIndex != current) {
+                current = pageIndex;
+                canvas.setBitmap(pages.get(current));
+            }
+            canvas.drawBitmap(b, at[1], at[2], null);
+            extrudeEdges(canvas, b, at[1], at[2], edge, pad);
+            Rect src = new Rect(at[1], at[2], at[1] + b.getWidth(), at[2] + b.getHeight());
+            regions.put(b, new TextureAtlas.Region(pages.get(pageIndex), pageIndex, src, scaleOf.get(b)));
+        }
+        canvas.setBitmap(null);
+        return true;
+    }
+
+    // Copies the outermost rows/columns (and corner pixels) of b, drawn at (x, y), into the padding
+    private static void extrudeEdges(Canvas canvas, Bitmap b, int x, int y, Rect edge, Rect pad) {
+        int w = b.getWidth(), h = b.getHeight();
+        int[][] strips = {
+                // src left, top, right, bottom; dst left, top (same size as src, PADDING = 1)
+                {0, 0, w, 1, x, y - 1}, {0, h - 1, w, h, x, y + h},
+                {0, 0, 1, h, x - 1, y}, {w - 1, 0, w, h, x + w, y},
+                {0, 0, 1, 1, x - 1, y - 1}, {w - 1, 0, w, 1, x + w, y - 1},
+                {0, h - 1, 1, h, x - 1, y + h}, {w - 1, h - 1, w, h, x + w, y + h},
+        };
+        for (int[] s : strips) {
+            edge.set(s[0], s[1], s[2], s[3]);
+            pad.set(s[4], s[5], s[4] + edge.width(), s[5] + edge.height());
+            canvas.drawBitmap(b, edge, pad, null);
+        }
+    }
+
+    private static int nextPow2(int v) {
+        int p = 64;
+        while (p < v) p <<= 1;
+        return p;
+    }
+}
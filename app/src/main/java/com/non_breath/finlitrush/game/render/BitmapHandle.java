@@ -0,0 +1,32 @@
+package com.non_breath.finlitrush.game.render;
+
+import android.graphics.Bitmap;
+
+import com.non_breath.finlitrush.game.data.ImageHandle;
+
+/** ImageHandle of a decoded Bitmap (what MapLoader puts into map data). */
+public final class BitmapHandle implements ImageHandle {
+    public final Bitmap bitmap;
+
+    private BitmapHandle(Bitmap bitmap) {
+        this.bitmap = bitmap;
+    }
+
+    /** Handle of {@code bitmap}, or null for null. */
+    public static BitmapHandle of(Bitmap bitmap) {
+        return bitmap != null ? new BitmapHandle(bitmap) : null;
+    }
+
+    /** The bitmap behind a handle from this layer, or null (no handle, or a foreign one). */
+    public static Bitmap bitmap(ImageHandle image) {
+        return image instanceof BitmapHandle ? ((BitmapHandle) image).bitmap : null;
+    }
+
+    @Override public int getWidth() { return bitmap.getWidth(); }
+
+    @Override public int getHeight() { return bitmap.getHeight(); }
+
+    @Override public long byteCount() {
+        return bitmap.isRecycled() ? 0 : bitmap.getAllocationByteCount();
+    }
+}
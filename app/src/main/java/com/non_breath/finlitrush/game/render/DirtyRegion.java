@@ -0,0 +1,62 @@
+package com.non_breath.finlitrush.game.render;
+
+import android.graphics.Rect;
+
+/**
+ * Screen area that changed since the last presented frame, kept as one bounding rect
+ * (a surface takes a single dirty rect per lock).
+ * - begin() starts a frame; add() grows the rect, clipped to the view
+ * - Once the rect covers most of the view a full redraw is cheaper than clipping
+ */
+public final class DirtyRegion {
+    // beyond this share of the view the frame is redrawn in full
+    private static final float FULL_FRACTION = 0.6f;
+
+    private final Rect bounds = new Rect();
+    private int viewW, viewH;
+    private boolean full;
+
+    public void begin(int viewW, int viewH) {
+        this.viewW = viewW;
+        this.viewH = viewH;
+        bounds.setEmpty();
+        full = false;
+    }
+
+    public void invalidateAll() {
+        full = true;
+    }
+
+    /** Adds a rect in view pixels, rounded outward (anti-aliased edges included). */
+    public void add(float left, float top, float right, float bottom) {
+        if (full || right <= left || bottom <= top) return;
+        int l = Math.max(0, (int) Math.floor(left) - 1);
+        int t = Math.max(0, (int) Math.floor(top) - 1);
+        int r = Math.min(viewW, (int) Math.ceil(right) + 1);
+        int b = Math.min(viewH, (int) Math.ceil(bottom) + 1);
+        if (r <= l || b <= t) return;
+        bounds.union(l, t, r, b);
+        if ((long) bounds.width() * bounds.height() > FULL_FRACTION * viewW * viewH) full = true;
+    }
+
+    public void add(Rect r) {
+        add(r.left, r.top, r.right, r.bottom);
+    }
+
+    public boolean isFull() { return full; }
+
+    public boolean isEmpty() { return !full && bounds.isEmpty(); }
+
+    /** Changed area; the whole view when full. */
+    public Rect getBounds() {
+        if (full) bounds.set(0, 0, viewW, viewH);
+        return bounds;
+    }
+
+    /** Share of the view being redrawn, 0..1. */
+    public float coverage() {
+        if (full) return 1f;
+        if (viewW <= 0 || viewH <= 0) return 0f;
+        return bounds.width() * (float) bounds.height() / ((float) viewW * viewH);
+    }
+}
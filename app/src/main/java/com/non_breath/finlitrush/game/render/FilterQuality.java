@@ -0,0 +1,26 @@
+package com.non_breath.finlitrush.game.render;
+
+/**
+ * Sampling of bitmaps drawn at another size than their own.
+ * - NONE: nearest neighbour everywhere; crisp, but blocky below FULL resolution
+ * - LOW: bilinear for atlas-packed sprites and tiles (tier-scaled; their packed edges are
+ *   extruded, so nothing bleeds); tileset sheets stay nearest, since their tiles sit
+ *   edge to edge and would pick up their neighbours
+ * - HIGH: bilinear for tileset sheets too, plus mipmaps on atlas pages and sheets, which
+ *   the hardware renderer uses when they are drawn smaller than their size
+ */
+public enum FilterQuality {
+    NONE, LOW, HIGH;
+
+    public boolean filtersPacked() {
+        return this != NONE;
+    }
+
+    public boolean filtersSheets() {
+        return this == HIGH;
+    }
+
+    public boolean mipmaps() {
+        return this == HIGH;
+    }
+}
@@ -0,0 +1,41 @@
+package com.non_breath.finlitrush.game.render;
+
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.os.Build;
+import android.view.SurfaceHolder;
+
+import androidx.annotation.RequiresApi;
+
+/**
+ * GPU rendered frames via SurfaceHolder.lockHardwareCanvas() (API 26+).
+ * Bitmaps are uploaded as textures once and reused while they stay unchanged.
+ * Hardware canvases always cover the whole surface (no dirty regions).
+ */
+@RequiresApi(Build.VERSION_CODES.O)
+public final class HardwareRenderer implements SurfaceRenderer {
+
+    @Override
+    public Type getType() { return Type.HARDWARE; }
+
+    @Override
+    public String getName() { return "hardware"; }
+
+    @Override
+    public Canvas lockCanvas(SurfaceHolder holder) {
+        return holder.lockHardwareCanvas();
+    }
+
+    @Override
+    public boolean supportsDirtyRegions() { return false; }
+
+    @Override
+    public Canvas lockCanvas(SurfaceHolder holder, Rect dirty) {
+        return holder.lockHardwareCanvas();
+    }
+
+    @Override
+    public void unlockCanvasAndPost(SurfaceHolder holder, Canvas canvas) {
+        holder.unlockCanvasAndPost(canvas);
+    }
+}
@@ -0,0 +1,92 @@
+package com.non_breath.finlitrush.game.render;
+
+import android.graphics.Bitmap;
+import android.graphics.Rect;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Finds the opaque bounds of bitmap regions (sprite trimming).
+ * - load() copies the pixels once into a reused direct buffer (copyPixelsToBuffer); any
+ *   number of regions of the same bitmap are then scanned without further copies
+ * - find() scans inward from the edges and stops at the first opaque row/column on each
+ *   side, so a well-filled frame touches only its transparent margins
+ * - Rows are read two pixels per long; pairs whose alpha bytes are both zero (the usual
+ *   margin) are skipped with one mask test
+ * Not thread-safe: callers share an instance under their own lock.
+ */
+public final class OpaqueBounds {
+    private static final long ALPHA_PAIR = 0xFF000000FF000000L;
+
+    private ByteBuffer pixels = ByteBuffer.allocateDirect(0);
+    private Bitmap loaded; // identity + generation of the copied pixels
+    private int loadedGeneration;
+    private int width, height, stride;
+
+    /** Copies {@code bmp}'s pixels unless they are already loaded (same bitmap, unchanged). */
+    public void load(Bitmap bmp) {
+        if (bmp == loaded && bmp.getGenerationId() == loadedGeneration) return;
+        Bitmap src = bmp.getConfig() == Bitmap.Config.ARGB_8888 ? bmp : bmp.copy(Bitmap.Config.ARGB_8888, false);
+        int bytes = src.getRowBytes() * src.getHeight();
+        if (pixels.capacity() < bytes) {
+            pixels = ByteBuffer.allocateDirect(Math.max(bytes, pixels.capacity() * 2)).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        pixels.clear();
+        src.copyPixelsToBuffer(pixels);
+        width = src.getWidth();
+        height = src.getHeight();
+        stride = src.getRowBytes();
+        if (src != bmp) src.recycle();
+        loaded = bmp;
+        loadedGeneration = bmp.getGenerationId();
+    }
+
+    /** Forgets the loaded bitmap (the buffer is kept for the next load). */
+    public void clear() {
+        loaded = null;
+    }
+
+    /**
+     * Tight bounds, relative to the region, of the pixels with alpha above the threshold
+     * in the region (x, y, w, h) of the loaded bitmap; null when the region is transparent.
+     */
+    public Rect find(int x, int y, int w, int h, int alphaThreshold) {
+        int x0 = Math.max(0, x), y0 = Math.max(0, y);
+        int x1 = Math.min(width, x + w), y1 = Math.min(height, y + h);
+        if (x1 <= x0 || y1 <= y0) return null;
+        int top = y0;
+        while (top < y1 && !rowOpaque(top, x0, x1, alphaThreshold)) top++;
+        if (top == y1) return null;
+        int bottom = y1 - 1;
+        while (bottom > top && !rowOpaque(bottom, x0, x1, alphaThreshold)) bottom--;
+        // columns only need the rows between the opaque top and bottom
+        int left = x0;
+        while (left < x1 - 1 && !columnOpaque(left, top, bottom, alphaThreshold)) left++;
+        int right = x1 - 1;
+        while (right > left && !columnOpaque(right, top, bottom, alphaThreshold)) right--;
+        return new Rect(left - x, top - y, right + 1 - x, bottom + 1 - y);
+    }
+
+    // pixels are RGBA bytes, i.e. little-endian ints with alpha in the top byte
+    private boolean rowOpaque(int row, int x0, int x1, int threshold) {
+        ByteBuffer p = pixels;
+        int base = row * stride;
+        int c = x0;
+        for (; c + 1 < x1; c += 2) {
+            long pair = p.getLong(base + c * 4);
+            if ((pair & ALPHA_PAIR) == 0) continue;
+            if ((((int) pair) >>> 24) > threshold || (pair >>> 56) > threshold) return true;
+        }
+        return c < x1 && (p.getInt(base + c * 4) >>> 24) > threshold;
+    }
+
+    private boolean columnOpaque(int col, int top, int bottom, int threshold) {
+        ByteBuffer p = pixels;
+        int offset = col * 4;
+        for (int row = top; row <= bottom; row++) {
+            if ((p.getInt(row * stride + offset) >>> 24) > threshold) return true;
+        }
+        return false;
+    }
+}
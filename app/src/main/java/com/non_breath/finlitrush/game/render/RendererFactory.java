@@ -0,0 +1,17 @@
+package com.non_breath.finlitrush.game.render;
+
+import android.os.Build;
+
+/**
+ * Creates the requested renderer, falling back to software below API 26.
+ */
+public final class RendererFactory {
+    private RendererFactory() {}
+
+    public static SurfaceRenderer create(SurfaceRenderer.Type type) {
+        if (type == SurfaceRenderer.Type.HARDWARE && Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            return new HardwareRenderer();
+        }
+        return new SoftwareRenderer();
+    }
+}
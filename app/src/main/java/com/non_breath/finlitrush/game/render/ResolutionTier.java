@@ -0,0 +1,33 @@
+package com.non_breath.finlitrush.game.render;
+
+/**
+ * Resolution at which the bitmaps made per tile size (drawable tiles and sprites, palette
+ * tiles) are rasterized: 1/divisor of the size they are drawn at, scaled up when drawn.
+ * - forTileSize() picks the lowest tier that still keeps MIN_AUTO_TEXELS texels per
+ *   tile, so phones stay at full resolution and large tablet tiles drop to 1/2 or 1/4
+ * - Each step down shrinks those bitmaps and their atlas pages 4x, and the blits with them
+ */
+public enum ResolutionTier {
+    FULL(1), HALF(2), QUARTER(4);
+
+    public static final int MIN_AUTO_TEXELS = 64;
+
+    public final int divisor;
+
+    ResolutionTier(int divisor) {
+        this.divisor = divisor;
+    }
+
+    /** Texels for something drawn {@code drawnPx} wide at this tier (at least 1). */
+    public int texels(int drawnPx) {
+        return Math.max(1, Math.round(drawnPx / (float) divisor));
+    }
+
+    public static ResolutionTier forTileSize(int tileSize) {
+        ResolutionTier pick = FULL;
+        for (ResolutionTier t : values()) {
+            if (tileSize / t.divisor >= MIN_AUTO_TEXELS) pick = t;
+        }
+        return pick;
+    }
+}
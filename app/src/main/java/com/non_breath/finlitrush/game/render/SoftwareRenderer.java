@@ -0,0 +1,36 @@
+package com.non_breath.finlitrush.game.render;
+
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.view.SurfaceHolder;
+
+/**
+ * CPU rasterized frames via SurfaceHolder.lockCanvas() (available on every API level).
+ * Partial redraws copy the previous frame back outside the dirty rect.
+ */
+public final class SoftwareRenderer implements SurfaceRenderer {
+
+    @Override
+    public Type getType() { return Type.SOFTWARE; }
+
+    @Override
+    public String getName() { return "software"; }
+
+    @Override
+    public Canvas lockCanvas(SurfaceHolder holder) {
+        return holder.lockCanvas();
+    }
+
+    @Override
+    public boolean supportsDirtyRegions() { return true; }
+
+    @Override
+    public Canvas lockCanvas(SurfaceHolder holder, Rect dirty) {
+        return holder.lockCanvas(dirty);
+    }
+
+    @Override
+    public void unlockCanvasAndPost(SurfaceHolder holder, Canvas canvas) {
+        holder.unlockCanvasAndPost(canvas);
+    }
+}
@@ -0,0 +1,177 @@
+package com.non_breath.finlitrush.game.render;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Shader;
+import android.os.Build;
+
+/**
+ * Batches sub-rect draws from a single bitmap (tile atlas) into one
+ * Canvas.drawVertices call with a BitmapShader.
+ * - Software canvases and hardware canvases on API 29+ draw the whole batch at once
+ * - Hardware canvases below API 29 do not support drawVertices; sprites are drawn
+ *   one by one with drawBitmap instead
+ * - Buffers are preallocated; begin/add/end do not allocate unless the bitmap changes
+ * - Flipped/rotated sprites (Tiled flip flags) permute the quad's texture corners from a
+ *   precomputed table, or draw through a precomputed unit-square matrix without vertices
+ */
+public final class SpriteBatch {
+    /** Orientation bits: flip horizontally, vertically, diagonally (applied D, then H, then V). */
+    public static final int FLIP_H = 4, FLIP_V = 2, FLIP_D = 1;
+
+    // per orientation and quad corner (TL, TR, BL, BR): 1 if the texture x / y is the far edge
+    private static final int[][] TEX_U = new int[8][4];
+    private static final int[][] TEX_V = new int[8][4];
+    // per orientation: maps the unit source square onto the unit destination square
+    private static final Matrix[] ORIENT = new Matrix[8];
+    private static final RectF UNIT = new RectF(0f, 0f, 1f, 1f);
+
+    static {
+        for (int o = 0; o < 8; o++) {
+            for (int k = 0; k < 4; k++) {
+                int x = k & 1, y = k >> 1;
+                if ((o & FLIP_H) != 0) x = 1 - x;
+                if ((o & FLIP_V) != 0) y = 1 - y;
+                TEX_U[o][k] = (o & FLIP_D) != 0 ? y : x;
+                TEX_V[o][k] = (o & FLIP_D) != 0 ? x : y;
+            }
+            Matrix m = new Matrix();
+            if ((o & FLIP_D) != 0) m.setValues(new float[]{0f, 1f, 0f, 1f, 0f, 0f, 0f, 0f, 1f});
+            if ((o & FLIP_H) != 0) { m.postScale(-1f, 1f); m.postTranslate(1f, 0f); }
+            if ((o & FLIP_V) != 0) { m.postScale(1f, -1f); m.postTranslate(0f, 1f); }
+            ORIENT[o] = m;
+        }
+    }
+
+    private final int capacity;
+    private final float[] verts;
+    private final float[] texs;
+    private final short[] indices;
+    private final Paint paint = new Paint();       // shader paint of the vertex path
+    private final Paint bitmapPaint = new Paint(); // drawBitmap fallback
+    private final Rect src = new Rect();
+    private final RectF dst = new RectF();
+
+    private Canvas canvas;
+    private Bitmap bitmap;
+    private Bitmap shaderBitmap;
+    private boolean useVertices;
+    private int count = 0;
+    private int flushes = 0;
+
+    public SpriteBatch(int capacity) {
+        // 16-bit indices: at most 16383 quads (4 vertices each) per flush
+        this.capacity = Math.max(1, Math.min(capacity, 16383));
+        verts = new float[this.capacity * 8];
+        texs = new float[this.capacity * 8];
+        indices = new short[this.capacity * 6];
+        for (int i = 0; i < this.capacity; i++) {
+            int v = i * 4;
+            int o = i * 6;
+            // TL, TR, BL / BL, TR, BR
+            indices[o] = (short) v;
+            indices[o + 1] = (short) (v + 1);
+            indices[o + 2] = (short) (v + 2);
+            indices[o + 3] = (short) (v + 2);
+            indices[o + 4] = (short) (v + 1);
+            indices[o + 5] = (short) (v + 3);
+        }
+        paint.setFilterBitmap(false);
+        bitmapPaint.setFilterBitmap(false);
+    }
+
+    /** Bilinear sampling for sprites drawn at another size than their source rect (off by default). */
+    public void setFilterBitmap(boolean filter) {
+        paint.setFilterBitmap(filter);
+        bitmapPaint.setFilterBitmap(filter);
+    }
+
+    public boolean isActive() { return canvas != null; }
+
+    /** Bitmap of the open batch, or null when no batch is open. */
+    public Bitmap getBitmap() { return bitmap; }
+
+    /** Number of draw calls issued since the last call (for the debug HUD). */
+    public int takeFlushCount() {
+        int f = flushes;
+        flushes = 0;
+        return f;
+    }
+
+    public void begin(Canvas c, Bitmap bmp) {
+        if (canvas != null) end();
+        canvas = c;
+        bitmap = bmp;
+        count = 0;
+        useVertices = !c.isHardwareAccelerated() || Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q;
+        if (useVertices && shaderBitmap != bmp) {
+            shaderBitmap = bmp;
+            paint.setShader(new BitmapShader(bmp, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP));
+        }
+    }
+
+    public void add(int sx, int sy, int sw, int sh, float left, float top, float right, float bottom) {
+        if (!useVertices) {
+            src.set(sx, sy, sx + sw, sy + sh);
+            dst.set(left, top, right, bottom);
+            canvas.drawBitmap(bitmap, src, dst, bitmapPaint);
+            flushes++;
+            return;
+        }
+        if (count == capacity) flush();
+        int o = count * 8;
+        float sr = sx + sw, sb = sy + sh;
+        verts[o] = left;      verts[o + 1] = top;      texs[o] = sx;      texs[o + 1] = sy;
+        verts[o + 2] = right; verts[o + 3] = top;      texs[o + 2] = sr;  texs[o + 3] = sy;
+        verts[o + 4] = left;  verts[o + 5] = bottom;   texs[o + 4] = sx;  texs[o + 5] = sb;
+        verts[o + 6] = right; verts[o + 7] = bottom;   texs[o + 6] = sr;  texs[o + 7] = sb;
+        count++;
+    }
+
+    /** Adds a sprite drawn with the given FLIP_* orientation bits. */
+    public void add(int sx, int sy, int sw, int sh, int orientation, float left, float top, float right, float bottom) {
+        if (orientation == 0) {
+            add(sx, sy, sw, sh, left, top, right, bottom);
+            return;
+        }
+        if (!useVertices) {
+            src.set(sx, sy, sx + sw, sy + sh);
+            canvas.save();
+            canvas.translate(left, top);
+            canvas.scale(right - left, bottom - top);
+            canvas.concat(ORIENT[orientation]);
+            canvas.drawBitmap(bitmap, src, UNIT, bitmapPaint);
+            canvas.restore();
+            flushes++;
+            return;
+        }
+        if (count == capacity) flush();
+        int o = count * 8;
+        int[] u = TEX_U[orientation], v = TEX_V[orientation];
+        verts[o] = left;      verts[o + 1] = top;      texs[o] = sx + u[0] * sw;      texs[o + 1] = sy + v[0] * sh;
+        verts[o + 2] = right; verts[o + 3] = top;      texs[o + 2] = sx + u[1] * sw;  texs[o + 3] = sy + v[1] * sh;
+        verts[o + 4] = left;  verts[o + 5] = bottom;   texs[o + 4] = sx + u[2] * sw;  texs[o + 5] = sy + v[2] * sh;
+        verts[o + 6] = right; verts[o + 7] = bottom;   texs[o + 6] = sx + u[3] * sw;  texs[o + 7] = sy + v[3] * sh;
+        count++;
+    }
+
+    public void end() {
+        if (canvas == null) return;
+        flush();
+        canvas = null;
+        bitmap = null;
+    }
+
+    private void flush() {
+        if (count == 0) return;
+        canvas.drawVertices(Canvas.VertexMode.TRIANGLES, count * 8, verts, 0, texs, 0,
+                null, 0, indices, 0, count * 6, paint);
+        flushes++;
+        count = 0;
+    }
+}
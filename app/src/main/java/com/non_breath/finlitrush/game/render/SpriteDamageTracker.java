@@ -0,0 +1,67 @@
+package com.non_breath.finlitrush.game.render;
+
+import java.util.Arrays;
+
+/**
+ * Remembers where each sprite (by id) was last drawn and with which image, and reports
+ * the old and new screen rect of every sprite that moved, changed frame, appeared or
+ * vanished. Render thread only.
+ */
+public final class SpriteDamageTracker {
+    private float[] left = new float[0], top = new float[0], right = new float[0], bottom = new float[0];
+    private Object[] image = new Object[0];
+    private boolean[] drawn = new boolean[0];
+    private int frame = 0;
+    private int[] seenFrame = new int[0];
+
+    /** Starts a frame: sprites not updated before the matching end() count as vanished. */
+    public void begin() {
+        frame++;
+    }
+
+    /**
+     * Records sprite {@code id} at its new rect (view pixels).
+     * @param img identity of what is drawn (bitmap, or any key for shapes); null = nothing
+     */
+    public void update(int id, Object img, float l, float t, float r, float b, DirtyRegion out) {
+        ensure(id + 1);
+        seenFrame[id] = frame;
+        if (drawn[id] && image[id] == img && left[id] == l && top[id] == t && right[id] == r && bottom[id] == b) return;
+        if (drawn[id]) out.add(left[id], top[id], right[id], bottom[id]);
+        out.add(l, t, r, b);
+        drawn[id] = true;
+        image[id] = img;
+        left[id] = l;
+        top[id] = t;
+        right[id] = r;
+        bottom[id] = b;
+    }
+
+    /** Ends a frame: sprites drawn last time but not updated this time are erased. */
+    public void end(DirtyRegion out) {
+        for (int id = 0; id < drawn.length; id++) {
+            if (!drawn[id] || seenFrame[id] == frame) continue;
+            out.add(left[id], top[id], right[id], bottom[id]);
+            drawn[id] = false;
+            image[id] = null;
+        }
+    }
+
+    /** Forgets everything (after a full redraw the old rects no longer matter). */
+    public void clear() {
+        Arrays.fill(drawn, false);
+        Arrays.fill(image, null);
+    }
+
+    private void ensure(int n) {
+        if (drawn.length >= n) return;
+        int cap = Math.max(n, drawn.length * 2);
+        left = Arrays.copyOf(left, cap);
+        top = Arrays.copyOf(top, cap);
+        right = Arrays.copyOf(right, cap);
+        bottom = Arrays.copyOf(bottom, cap);
+        image = Arrays.copyOf(image, cap);
+        drawn = Arrays.copyOf(drawn, cap);
+        seenFrame = Arrays.copyOf(seenFrame, cap);
+    }
+}
@@ -0,0 +1,33 @@
+package com.non_breath.finlitrush.game.render;
+
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.view.SurfaceHolder;
+
+/**
+ * Obtains the Canvas a frame is drawn into and posts it back to the surface.
+ */
+public interface SurfaceRenderer {
+
+    enum Type { SOFTWARE, HARDWARE }
+
+    Type getType();
+
+    /** Short label for the debug HUD. */
+    String getName();
+
+    /** @return the canvas to draw into, or null if the surface is not ready */
+    Canvas lockCanvas(SurfaceHolder holder);
+
+    /** True when lockCanvas(holder, dirty) keeps the pixels outside the dirty rect. */
+    boolean supportsDirtyRegions();
+
+    /**
+     * Locks for a partial redraw: the canvas is clipped to {@code dirty}, which the surface
+     * may enlarge (the caller must redraw everything inside the updated rect). Renderers
+     * without dirty-region support lock the whole surface.
+     */
+    Canvas lockCanvas(SurfaceHolder holder, Rect dirty);
+
+    void unlockCanvasAndPost(SurfaceHolder holder, Canvas canvas);
+}
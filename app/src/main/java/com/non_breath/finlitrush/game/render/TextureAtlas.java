@@ -0,0 +1,92 @@
+package com.non_breath.finlitrush.game.render;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+import java.util.IdentityHashMap;
+
+/**
+ * Atlas pages built by AtlasPacker plus a lookup from each packed source bitmap to its
+ * page and sub-rect. Lookups are by identity and do not allocate.
+ */
+public final class TextureAtlas {
+
+    public static final class Region {
+        public final Bitmap page;
+        public final int pageIndex;
+        public final Rect src;
+        /** Drawn size over packed size (tier-scaled sources are drawn larger than packed). */
+        public final float scale;
+
+        Region(Bitmap page, int pageIndex, Rect src, float scale) {
+            this.page = page;
+            this.pageIndex = pageIndex;
+            this.src = src;
+            this.scale = scale;
+        }
+
+        public float drawnWidth() { return src.width() * scale; }
+
+        public float drawnHeight() { return src.height() * scale; }
+    }
+
+    private final Bitmap[] pages;
+    private final IdentityHashMap<Bitmap, Region> regions;
+    private final RectF dst = new RectF();
+
+    TextureAtlas(Bitmap[] pages, IdentityHashMap<Bitmap, Region> regions) {
+        this.pages = pages;
+        this.regions = regions;
+    }
+
+    /** Region packed for {@code source}, or null when it is not in this atlas. */
+    public Region region(Bitmap source) {
+        return source != null ? regions.get(source) : null;
+    }
+
+    public int getPageCount() { return pages.length; }
+
+    public Bitmap getPage(int index) { return pages[index]; }
+
+    public long getByteCount() {
+        long total = 0;
+        for (Bitmap p : pages) total += p.getAllocationByteCount();
+        return total;
+    }
+
+    /**
+     * Draws {@code source} at (left, top) at its drawn size, from the atlas when packed.
+     * Must be called from the draw thread (shares a scratch rect).
+     */
+    public void draw(Canvas g, Bitmap source, float left, float top, Paint paint) {
+        Region r = region(source);
+        if (r == null) {
+            g.drawBitmap(source, left, top, paint);
+            return;
+        }
+        dst.set(left, top, left + r.drawnWidth(), top + r.drawnHeight());
+        g.drawBitmap(r.page, r.src, dst, paint);
+    }
+
+    /** Draws {@code source} stretched over (left, top, right, bottom), from the atlas when packed. */
+    public void draw(Canvas g, Bitmap source, float left, float top, float right, float bottom, Paint paint) {
+        Region r = region(source);
+        dst.set(left, top, right, bottom);
+        if (r == null) g.drawBitmap(source, null, dst, paint);
+        else g.drawBitmap(r.page, r.src, dst, paint);
+    }
+
+    /** Lets the hardware renderer build mipmaps of the pages (filtered minification). */
+    public void setHasMipMap(boolean mipmaps) {
+        for (Bitmap p : pages) p.setHasMipMap(mipmaps);
+    }
+
+    /** Recycles the page bitmaps; the sources are not owned by the atlas. */
+    public void release() {
+        for (Bitmap p : pages) p.recycle();
+        regions.clear();
+    }
+}
@@ -0,0 +1,326 @@
+package com.non_breath.finlitrush.game.render;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.PorterDuff;
+
+import com.non_breath.finlitrush.game.data.TileLayer;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Pre-renders the tile layers into fixed-size chunks (offscreen bitmaps) so the map
+ * can be drawn with a handful of blits per frame instead of one drawBitmap per tile.
+ * - All tile layers of a chunk are composited into the same bitmap (they are drawn
+ *   back to back, nothing is interleaved between them)
+ * - Chunks are rendered lazily when they first overlap the camera
+ * - Least recently used chunks are evicted once the memory budget is exceeded
+ * - invalidate() is safe to call from any thread; the cache is rebuilt on the draw thread
+ * - Animated tiles are remembered per chunk with the frame they were painted with; when
+ *   the painter reports another frame only those cells are cleared and repainted
+ */
+public final class TileChunkCache {
+
+    /** Paints tiles into a chunk. Implemented by the view that owns the tilesets. */
+    public interface TilePainter {
+        /** Called before the tiles of one chunk are painted (e.g. to open a sprite batch). */
+        void beginTiles(Canvas c);
+        void paintTile(Canvas c, int tileIndex, int left, int top, int size);
+        void endTiles(Canvas c);
+        /** True for tiles whose picture changes over time. */
+        default boolean isAnimated(int tileIndex) { return false; }
+        /** What an animated tile currently shows (any value that changes with the picture). */
+        default int frameOf(int tileIndex) { return tileIndex; }
+    }
+
+    public static final int DEFAULT_CHUNK_TILES = 16;
+    public static final long DEFAULT_BUDGET_BYTES = 24L * 1024 * 1024;
+    // keep single chunk bitmaps small on high-DPI screens (large tileSize)
+    private static final int MAX_CHUNK_PX = 512;
+
+    private static final class Chunk {
+        int index = -1;
+        Bitmap bitmap;
+        long lastUsedFrame;
+        Chunk prev, next; // LRU links (head = most recently used)
+        // animated tiles: cell (row * chunkTiles + col within the chunk), tile, frame painted
+        int[] animCell = new int[0], animTile = new int[0], animPainted = new int[0];
+        int animCount;
+
+        void addAnimated(int cell, int tile, int frame) {
+            if (animCount == animCell.length) {
+                int cap = Math.max(8, animCount * 2);
+                animCell = Arrays.copyOf(animCell, cap);
+                animTile = Arrays.copyOf(animTile, cap);
+                animPainted = Arrays.copyOf(animPainted, cap);
+            }
+            animCell[animCount] = cell;
+            animTile[animCount] = tile;
+            animPainted[animCount] = frame;
+            animCount++;
+        }
+    }
+
+    private final int preferredChunkTiles;
+    private volatile long budgetBytes;
+    private volatile int requestedGeneration = 0;
+    private int builtGeneration = -1;
+
+    // current layout (valid for builtGeneration)
+    private int tileSize, mapCols, mapRows;
+    private int chunkTiles, chunkCols, chunkRows;
+    private Chunk[] chunks = new Chunk[0];
+    private Chunk lruHead, lruTail;
+    private long usedBytes = 0;
+    private long frame = 0;
+    private int blitsLastFrame = 0;
+    private int cellRepaintsLastFrame = 0;
+    private int[] cellMarks = new int[0]; // per chunk cell, == cellStamp when due for a repaint
+    private int cellStamp = 0;
+
+    private final Canvas offscreen = new Canvas();
+
+    public TileChunkCache(int chunkTiles, long budgetBytes) {
+        this.preferredChunkTiles = Math.max(1, chunkTiles);
+        this.budgetBytes = Math.max(0, budgetBytes);
+    }
+
+    public void setBudgetBytes(long bytes) {
+        budgetBytes = Math.max(0, bytes);
+    }
+
+    public long getBudgetBytes() { return budgetBytes; }
+
+    public long getUsedBytes() { return usedBytes; }
+
+    public int getBlitsLastFrame() { return blitsLastFrame; }
+
+    /** Animated cells repainted into chunks by the last draw. */
+    public int getCellRepaintsLastFrame() { return cellRepaintsLastFrame; }
+
+    /** Drops every cached chunk on the next draw (tile size change, map warp, tileset rebuild). */
+    public void invalidate() {
+        requestedGeneration++;
+    }
+
+    /**
+     * Draws all tile layers through the cache.
+     * @return false when nothing could be drawn from the cache (caller should fall back
+     *         to per-tile drawing)
+     */
+    public boolean draw(Canvas g, List<TileLayer> layers, int cols, int rows, int tileSize,
+                        int offsetX, int offsetY, int viewW, int viewH, TilePainter painter) {
+        if (layers == null || layers.isEmpty() || cols <= 0 || rows <= 0 || tileSize <= 0) return false;
+        ensureLayout(cols, rows, tileSize);
+        frame++;
+        blitsLastFrame = 0;
+        cellRepaintsLastFrame = 0;
+
+        int chunkPx = chunkTiles * tileSize;
+        int startCx = Math.max(0, Math.floorDiv(-offsetX, chunkPx));
+        int endCx = Math.min(chunkCols - 1, Math.floorDiv(-offsetX + viewW - 1, chunkPx));
+        int startCy = Math.max(0, Math.floorDiv(-offsetY, chunkPx));
+        int endCy = Math.min(chunkRows - 1, Math.floorDiv(-offsetY + viewH - 1, chunkPx));
+        for (int cy = startCy; cy <= endCy; cy++) {
+            for (int cx = startCx; cx <= endCx; cx++) {
+                Chunk chunk = obtain(cy * chunkCols + cx, cx, cy, layers, painter);
+                if (chunk == null) return false;
+                refreshAnimated(chunk, cx, cy, layers, painter);
+                g.drawBitmap(chunk.bitmap, offsetX + cx * chunkPx, offsetY + cy * chunkPx, null);
+                blitsLastFrame++;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds the screen rect of every visible cached cell whose animated tile changed frame
+     * since it was painted; the next draw() repaints exactly those cells. Damages the whole
+     * view when the cache is about to be rebuilt.
+     */
+    public void collectAnimatedDamage(int offsetX, int offsetY, int viewW, int viewH,
+                                      TilePainter painter, DirtyRegion out) {
+        if (requestedGeneration != builtGeneration) {
+            out.invalidateAll();
+            return;
+        }
+        int chunkPx = chunkTiles * tileSize;
+        int startCx = Math.max(0, Math.floorDiv(-offsetX, chunkPx));
+        int endCx = Math.min(chunkCols - 1, Math.floorDiv(-offsetX + viewW - 1, chunkPx));
+        int startCy = Math.max(0, Math.floorDiv(-offsetY, chunkPx));
+        int endCy = Math.min(chunkRows - 1, Math.floorDiv(-offsetY + viewH - 1, chunkPx));
+        for (int cy = startCy; cy <= endCy; cy++) {
+            for (int cx = startCx; cx <= endCx; cx++) {
+                Chunk chunk = chunks[cy * chunkCols + cx];
+                if (chunk == null) continue;
+                int left = offsetX + cx * chunkPx, top = offsetY + cy * chunkPx;
+                for (int i = 0; i < chunk.animCount; i++) {
+                    if (painter.frameOf(chunk.animTile[i]) == chunk.animPainted[i]) continue;
+                    int cell = chunk.animCell[i];
+                    int x = left + (cell % chunkTiles) * tileSize;
+                    int y = top + (cell / chunkTiles) * tileSize;
+                    out.add(x, y, x + tileSize, y + tileSize);
+                }
+            }
+        }
+    }
+
+    /** Releases all chunk bitmaps immediately. Must be called from the draw thread. */
+    public void release() {
+        for (Chunk c = lruHead; c != null; c = c.next) {
+            if (c.bitmap != null) c.bitmap.recycle();
+            c.bitmap = null;
+        }
+        chunks = new Chunk[0];
+        lruHead = lruTail = null;
+        usedBytes = 0;
+        builtGeneration = -1;
+    }
+
+    private void ensureLayout(int cols, int rows, int tileSize) {
+        int gen = requestedGeneration;
+        if (gen == builtGeneration && cols == mapCols && rows == mapRows && tileSize == this.tileSize) return;
+        release();
+        this.tileSize = tileSize;
+        this.mapCols = cols;
+        this.mapRows = rows;
+        this.chunkTiles = Math.max(1, Math.min(preferredChunkTiles, MAX_CHUNK_PX / tileSize));
+        this.chunkCols = (cols + chunkTiles - 1) / chunkTiles;
+        this.chunkRows = (rows + chunkTiles - 1) / chunkTiles;
+        this.chunks = new Chunk[chunkCols * chunkRows];
+        if (cellMarks.length < chunkTiles * chunkTiles) cellMarks = new int[chunkTiles * chunkTiles];
+        this.builtGeneration = gen;
+    }
+
+    private Chunk obtain(int index, int cx, int cy, List<TileLayer> layers, TilePainter painter) {
+        Chunk chunk = chunks[index];
+        if (chunk != null) {
+            touch(chunk);
+            return chunk;
+        }
+        int c0 = cx * chunkTiles, r0 = cy * chunkTiles;
+        int w = Math.min(chunkTiles, mapCols - c0) * tileSize;
+        int h = Math.min(chunkTiles, mapRows - r0) * tileSize;
+        long need = (long) w * h * 4;
+
+        // evict LRU chunks not used in this frame; reuse a victim bitmap of the same size
+        Bitmap reuse = null;
+        while (lruTail != null && usedBytes + need > budgetBytes && lruTail.lastUsedFrame != frame) {
+            Chunk victim = lruTail;
+            unlink(victim);
+            chunks[victim.index] = null;
+            usedBytes -= victim.bitmap.getByteCount();
+            if (reuse == null && victim.bitmap.getWidth() == w && victim.bitmap.getHeight() == h) {
+                reuse = victim.bitmap;
+                chunk = victim;
+            } else {
+                victim.bitmap.recycle();
+            }
+            victim.bitmap = null;
+        }
+
+        Bitmap bmp = reuse;
+        if (bmp == null) {
+            try {
+                bmp = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
+            } catch (OutOfMemoryError oom) {
+                return null;
+            }
+        }
+        if (chunk == null) chunk = new Chunk();
+        chunk.index = index;
+        chunk.animCount = 0;
+        chunk.bitmap = bmp;
+        renderChunk(chunk, c0, r0, layers, painter);
+        chunks[index] = chunk;
+        usedBytes += bmp.getByteCount();
+        touch(chunk);
+        return chunk;
+    }
+
+    private void renderChunk(Chunk chunk, int c0, int r0, List<TileLayer> layers, TilePainter painter) {
+        offscreen.setBitmap(chunk.bitmap);
+        offscreen.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+        int c1 = Math.min(mapCols, c0 + chunkTiles);
+        int r1 = Math.min(mapRows, r0 + chunkTiles);
+        painter.beginTiles(offscreen);
+        for (int i = 0; i < layers.size(); i++) {
+            TileLayer layer = layers.get(i);
+            if (layer == null) continue;
+            int maxR = Math.min(r1, layer.rows);
+            int maxC = Math.min(c1, layer.cols);
+            for (int r = r0; r < maxR; r++) {
+                int rowBase = r * layer.cols;
+                int top = (r - r0) * tileSize;
+                for (int c = c0; c < maxC; c++) {
+                    int tile = layer.get(rowBase + c);
+                    painter.paintTile(offscreen, tile, (c - c0) * tileSize, top, tileSize);
+                    if (painter.isAnimated(tile)) {
+                        chunk.addAnimated((r - r0) * chunkTiles + (c - c0), tile, painter.frameOf(tile));
+                    }
+                }
+            }
+        }
+        painter.endTiles(offscreen);
+        offscreen.setBitmap(null);
+    }
+
+    // Clears and repaints (all layers of) the cells whose animated tiles show another frame
+    private void refreshAnimated(Chunk chunk, int cx, int cy, List<TileLayer> layers, TilePainter painter) {
+        if (chunk.animCount == 0) return;
+        int stamp = ++cellStamp;
+        boolean due = false;
+        for (int i = 0; i < chunk.animCount; i++) {
+            int f = painter.frameOf(chunk.animTile[i]);
+            if (f == chunk.animPainted[i]) continue;
+            chunk.animPainted[i] = f;
+            cellMarks[chunk.animCell[i]] = stamp;
+            due = true;
+        }
+        if (!due) return;
+        int c0 = cx * chunkTiles, r0 = cy * chunkTiles;
+        offscreen.setBitmap(chunk.bitmap);
+        painter.beginTiles(offscreen);
+        for (int i = 0; i < chunk.animCount; i++) {
+            int cell = chunk.animCell[i];
+            if (cellMarks[cell] != stamp) continue;
+            cellMarks[cell] = 0; // a cell with several animated layers is repainted once
+            int col = c0 + cell % chunkTiles, row = r0 + cell / chunkTiles;
+            int left = (cell % chunkTiles) * tileSize, top = (cell / chunkTiles) * tileSize;
+            // cells do not overlap, so clearing now while earlier cells wait in the batch is safe
+            offscreen.save();
+            offscreen.clipRect(left, top, left + tileSize, top + tileSize);
+            offscreen.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+            offscreen.restore();
+            for (int l = 0; l < layers.size(); l++) {
+                TileLayer layer = layers.get(l);
+                if (layer == null || row >= layer.rows || col >= layer.cols) continue;
+                painter.paintTile(offscreen, layer.get(row * layer.cols + col), left, top, tileSize);
+            }
+            cellRepaintsLastFrame++;
+        }
+        painter.endTiles(offscreen);
+        offscreen.setBitmap(null);
+    }
+
+    private void touch(Chunk c) {
+        c.lastUsedFrame = frame;
+        if (lruHead == c) return;
+        unlink(c);
+        c.next = lruHead;
+        c.prev = null;
+        if (lruHead != null) lruHead.prev = c;
+        lruHead = c;
+        if (lruTail == null) lruTail = c;
+    }
+
+    private void unlink(Chunk c) {
+        if (c.prev != null) c.prev.next = c.next;
+        if (c.next != null) c.next.prev = c.prev;
+        if (lruHead == c) lruHead = c.next;
+        if (lruTail == c) lruTail = c.prev;
+        c.prev = c.next = null;
+    }
+}
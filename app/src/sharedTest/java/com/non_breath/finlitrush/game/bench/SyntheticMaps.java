@@ -0,0 +1,139 @@
+package com.non_breath.finlitrush.game.bench;
+
+import com.non_breath.finlitrush.game.core.GameCore;
+import com.non_breath.finlitrush.game.data.CollisionMask;
+import com.non_breath.finlitrush.game.data.MapData;
+import com.non_breath.finlitrush.game.data.TileLayer;
+import com.non_breath.finlitrush.game.loop.InputLog;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Deterministic generated maps for the benchmarks (on-device and JVM).
+ * - A border wall, a pillar every 7 tiles and long walls every 16 rows/columns with
+ *   door gaps, so paths have to wind between rooms
+ * - The same layout is produced as custom JSON, Tiled JSON (palette tileset, no images)
+ *   and ready-made MapData, so loading and drawing compare like with like
+ * Tile 0 is floor, tile 1 is wall.
+ */
+public final class SyntheticMaps {
+    private SyntheticMaps() {}
+
+    /** Benchmark sizes as {cols, rows}: the demo map's 20x12 up to a 1024x1024 world. */
+    public static final int[][] SIZES = {{20, 12}, {64, 64}, {256, 256}, {1024, 1024}};
+
+    private static final int FLOOR_COLOR = 0xFFD2D2D2;
+    private static final int WALL_COLOR = 0xFF787878;
+
+    public static boolean isWall(int col, int row, int cols, int rows) {
+        if (col == 0 || row == 0 || col == cols - 1 || row == rows - 1) return true;
+        if (col % 7 == 3 && row % 7 == 3) return true;
+        // long walls with a door per 16-tile room side
+        if (row % 16 == 8 && col % 16 != 12) return true;
+        return col % 16 == 8 && row % 16 != 4;
+    }
+
+    public static int[] tiles(int cols, int rows) {
+        int[] out = new int[cols * rows];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) out[r * cols + c] = isWall(c, r, cols, rows) ? 1 : 0;
+        }
+        return out;
+    }
+
+    public static CollisionMask collision(int cols, int rows) {
+        CollisionMask mask = new CollisionMask(cols, rows);
+        mask.addNonZero(TileLayer.of(tiles(cols, rows), cols, rows));
+        return mask;
+    }
+
+    /** The map as MapData with palette tiles (no bitmaps to decode). */
+    public static MapData mapData(int cols, int rows) {
+        MapData md = new MapData();
+        md.cols = cols;
+        md.rows = rows;
+        TileLayer layer = TileLayer.of(tiles(cols, rows), cols, rows);
+        md.tileLayers.add(layer);
+        md.collision = new CollisionMask(cols, rows);
+        md.collision.addNonZero(layer);
+        md.tilePaletteColors = new int[]{FLOOR_COLOR, WALL_COLOR};
+        md.playerCol = 1;
+        md.playerRow = 1;
+        return md;
+    }
+
+    /** Custom format: row arrays plus a palette tileset. */
+    public static String customJson(int cols, int rows) {
+        StringBuilder sb = new StringBuilder(cols * rows * 2 + 256);
+        sb.append("{\"cols\":").append(cols).append(",\"rows\":").append(rows).append(",\"tiles\":[");
+        for (int r = 0; r < rows; r++) {
+            if (r > 0) sb.append(',');
+            sb.append('[');
+            for (int c = 0; c < cols; c++) {
+                if (c > 0) sb.append(',');
+                sb.append(isWall(c, r, cols, rows) ? '1' : '0');
+            }
+            sb.append(']');
+        }
+        sb.append("],\"player\":{\"col\":1,\"row\":1},\"tileset\":{\"palette\":[\"#D2D2D2\",\"#787878\"]}}");
+        return sb.toString();
+    }
+
+    /** Tiled format: a ground layer (gid 1 floor, 2 wall) plus a collision layer, palette tileset. */
+    public static String tiledJson(int cols, int rows) {
+        StringBuilder sb = new StringBuilder(cols * rows * 4 + 512);
+        sb.append("{\"width\":").append(cols).append(",\"height\":").append(rows)
+                .append(",\"tilewidth\":32,\"tileheight\":32,\"orientation\":\"orthogonal\",")
+                .append("\"tilesets\":[{\"firstgid\":1,\"colors\":[\"#00000000\",\"#D2D2D2\",\"#787878\"]}],\"layers\":[");
+        appendTiledLayer(sb, "ground", cols, rows, false);
+        sb.append(',');
+        appendTiledLayer(sb, "collision", cols, rows, true);
+        sb.append("]}");
+        return sb.toString();
+    }
+
+    private static void appendTiledLayer(StringBuilder sb, String name, int cols, int rows, boolean wallsOnly) {
+        sb.append("{\"type\":\"tilelayer\",\"name\":\"").append(name).append("\",\"width\":").append(cols)
+                .append(",\"height\":").append(rows).append(",\"data\":[");
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                if (r > 0 || c > 0) sb.append(',');
+                boolean wall = isWall(c, r, cols, rows);
+                sb.append(wallsOnly ? (wall ? '1' : '0') : (wall ? '2' : '1'));
+            }
+        }
+        sb.append("]}");
+    }
+
+    /**
+     * About 15 s of scripted play from the start tile (1, 1) at GameCore.DEFAULT_SIM_HZ:
+     * D-pad walking, the joystick, then a tap-to-move to the far corner.
+     */
+    public static InputLog walkthrough(int cols, int rows) {
+        int hz = GameCore.DEFAULT_SIM_HZ;
+        InputLog.Recorder r = new InputLog.Recorder(hz, null, 1f, 1f, 0);
+        int step = 0;
+        r.record(step, GameCore.INPUT_DIRS, GameCore.DIR_BIT_RIGHT, 0, 0f, 0f);
+        step += 2 * hz;
+        r.record(step, GameCore.INPUT_DIRS, GameCore.DIR_BIT_DOWN | GameCore.DIR_BIT_RIGHT, 0, 0f, 0f);
+        step += 2 * hz;
+        r.record(step, GameCore.INPUT_DIRS, 0, 0, 0f, 0f);
+        r.record(step, GameCore.INPUT_STICK, 0, 0, 0.6f, 0.8f);
+        step += 2 * hz;
+        r.record(step, GameCore.INPUT_STICK, 0, 0, 0f, 0f);
+        r.record(step, GameCore.INPUT_MOVE_TO, cols - 2, rows - 2, 0f, 0f);
+        return r.finish(step + 9 * hz);
+    }
+
+    public static String label(int cols, int rows) {
+        return cols + "x" + rows;
+    }
+
+    /** SIZES as {cols, rows} parameter rows for parameterized benchmarks. */
+    public static List<Object[]> sizeParameters() {
+        List<Object[]> out = new ArrayList<>(SIZES.length);
+        for (int[] size : SIZES) out.add(new Object[]{size[0], size[1]});
+        return out;
+    }
+}
@@ -0,0 +1,172 @@
+package com.non_breath.finlitrush.game.bench;
+
+import com.non_breath.finlitrush.game.core.GameCore;
+import com.non_breath.finlitrush.game.core.MapSet;
+import com.non_breath.finlitrush.game.data.CollisionMask;
+import com.non_breath.finlitrush.game.data.MapData;
+import com.non_breath.finlitrush.game.loop.InputLog;
+import com.non_breath.finlitrush.game.nav.Pathfinder;
+import com.non_breath.finlitrush.game.physics.CollisionWorld;
+import com.non_breath.finlitrush.game.world.SpatialGrid;
+
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.function.IntSupplier;
+
+/**
+ * JVM timings of the Android-free game logic (collision, navigation, spatial index, whole
+ * GameCore steps) on the generated maps, for quick local before/after comparisons without
+ * a device.
+ * - Skipped unless the build passes -Pbenchmark (./gradlew :app:testDebugUnitTest -Pbenchmark)
+ * - Each case is warmed up, then timed in RUNS batches; the median ns/op is printed and,
+ *   when finlitrush.benchmark.out names a file, appended to it as CSV (name,size,ns_per_op)
+ * On-device numbers come from the androidTest benchmarks (androidx.benchmark).
+ */
+public class JvmBenchmarks {
+    private static final long WARMUP_NANOS = 300_000_000L;
+    private static final long RUN_NANOS = 200_000_000L;
+    private static final long MIN_BATCH_NANOS = 10_000_000L;
+    private static final int RUNS = 5;
+
+    private static volatile int sink; // keeps results observable so the JIT cannot drop the work
+
+    @BeforeClass
+    public static void onlyWhenAsked() {
+        Assume.assumeTrue("benchmarks run with -Pbenchmark", Boolean.getBoolean("finlitrush.benchmark"));
+    }
+
+    @Test
+    public void isWalkableScan() throws IOException {
+        for (int[] size : SyntheticMaps.SIZES) {
+            int cols = size[0], rows = size[1];
+            Pathfinder pf = new Pathfinder(Pathfinder.DEFAULT_CACHE_PATHS);
+            pf.setGrid(SyntheticMaps.collision(cols, rows), cols, rows);
+            measure("isWalkableScan", cols, rows, () -> {
+                int n = 0;
+                for (int r = 0; r < rows; r++) {
+                    for (int c = 0; c < cols; c++) if (pf.isWalkable(c, r)) n++;
+                }
+                return n;
+            });
+        }
+    }
+
+    @Test
+    public void buildCollisionWorld() throws IOException {
+        for (int[] size : SyntheticMaps.SIZES) {
+            int cols = size[0], rows = size[1];
+            CollisionMask mask = SyntheticMaps.collision(cols, rows);
+            measure("buildCollisionWorld", cols, rows, () -> CollisionWorld.build(mask, cols, rows).getRectCount());
+        }
+    }
+
+    @Test
+    public void slide() throws IOException {
+        for (int[] size : SyntheticMaps.SIZES) {
+            int cols = size[0], rows = size[1];
+            CollisionWorld world = CollisionWorld.build(SyntheticMaps.collision(cols, rows), cols, rows);
+            float[] out = new float[2];
+            measure("slide", cols, rows, () -> {
+                world.slide(2f, 2f, 0.3f, 0.3f, 1.2f, 1.1f, out);
+                return Float.floatToIntBits(out[0]);
+            });
+        }
+    }
+
+    @Test
+    public void findPath() throws IOException {
+        for (int[] size : SyntheticMaps.SIZES) {
+            int cols = size[0], rows = size[1];
+            Pathfinder pf = new Pathfinder(Pathfinder.DEFAULT_CACHE_PATHS);
+            pf.setGrid(SyntheticMaps.collision(cols, rows), cols, rows);
+            for (boolean jps : new boolean[]{false, true}) {
+                pf.setJumpPoints(jps);
+                measure(jps ? "findPathJumpPoints" : "findPathAStar", cols, rows, () -> {
+                    pf.clearCache();
+                    int[] p = pf.findPath(1, 1, cols - 2, rows - 2);
+                    return p != null ? p.length : -1;
+                });
+            }
+        }
+    }
+
+    @Test
+    public void spatialGridQuery() throws IOException {
+        for (int[] size : SyntheticMaps.SIZES) {
+            int cols = size[0], rows = size[1];
+            SpatialGrid<Integer> grid = new SpatialGrid<>(cols, rows);
+            // one entity per 4x4 tiles, then look up every tile once
+            for (int r = 0; r < rows; r += 4) {
+                for (int c = 0; c < cols; c += 4) grid.insert(r * cols + c, c, r);
+            }
+            measure("spatialGridFirstAt", cols, rows, () -> {
+                int hits = 0;
+                for (int r = 0; r < rows; r++) {
+                    for (int c = 0; c < cols; c++) if (grid.firstAt(c, r) != null) hits++;
+                }
+                return hits;
+            });
+        }
+    }
+
+    @Test
+    public void gameCoreReplayStep() throws IOException {
+        for (int[] size : SyntheticMaps.SIZES) {
+            int cols = size[0], rows = size[1];
+            MapData map = SyntheticMaps.mapData(cols, rows);
+            InputLog log = SyntheticMaps.walkthrough(cols, rows);
+            GameCore core = new GameCore(new MapSet());
+            core.beginReplay(log, map);
+            float dt = 1f / log.getSimHz();
+            // one op = one simulation step of the scripted playthrough, restarted when it ends
+            measure("gameCoreReplayStep", cols, rows, () -> {
+                if (!core.isReplaying()) core.beginReplay(log, map);
+                core.step(dt);
+                return Float.floatToIntBits(core.getPlayerX());
+            });
+        }
+    }
+
+    // Batches op until a batch lasts MIN_BATCH_NANOS, warms up, then reports the median of RUNS timed runs
+    private static void measure(String name, int cols, int rows, IntSupplier op) throws IOException {
+        long batch = 1;
+        while (true) {
+            long t = System.nanoTime();
+            for (long i = 0; i < batch; i++) sink += op.getAsInt();
+            if (System.nanoTime() - t >= MIN_BATCH_NANOS || batch >= (1L << 30)) break;
+            batch *= 2;
+        }
+        long warmupEnd = System.nanoTime() + WARMUP_NANOS;
+        while (System.nanoTime() < warmupEnd) {
+            for (long i = 0; i < batch; i++) sink += op.getAsInt();
+        }
+        double[] nsPerOp = new double[RUNS];
+        for (int run = 0; run < RUNS; run++) {
+            long ops = 0;
+            long start = System.nanoTime(), elapsed;
+            do {
+                for (long i = 0; i < batch; i++) sink += op.getAsInt();
+                ops += batch;
+                elapsed = System.nanoTime() - start;
+            } while (elapsed < RUN_NANOS);
+            nsPerOp[run] = elapsed / (double) ops;
+        }
+        Arrays.sort(nsPerOp);
+        double median = nsPerOp[RUNS / 2];
+        String size = SyntheticMaps.label(cols, rows);
+        System.out.println(String.format(Locale.ROOT, "%-22s %10s %14.1f ns/op", name, size, median));
+        String out = System.getProperty("finlitrush.benchmark.out");
+        if (out != null && !out.isEmpty()) {
+            try (Writer w = new FileWriter(out, true)) {
+                w.write(String.format(Locale.ROOT, "%s,%s,%.1f%n", name, size, median));
+            }
+        }
+    }
+}
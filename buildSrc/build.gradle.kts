@@ -0,0 +1,19 @@
+plugins {
+    `java-library`
+}
+
+repositories {
+    mavenCentral()
+}
+
+dependencies {
+    implementation(gradleApi())
+}
+
+// The map compiler builds MapData with the runtime's own JSON rules (MapJson, TileTable):
+// :core is plain Java, so its sources are compiled into buildSrc as well
+sourceSets {
+    main {
+        java.srcDir("../core/src/main/java")
+    }
+}
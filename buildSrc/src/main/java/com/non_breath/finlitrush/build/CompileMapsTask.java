@@ -0,0 +1,54 @@
+package com.non_breath.finlitrush.build;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputDirectory;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Compiles every *.json map under sourceDir into a binary *.fmap with the same name,
+ * written to outputDir/assetPrefix so it lands next to the JSON in the APK assets.
+ */
+public abstract class CompileMapsTask extends DefaultTask {
+
+    @InputDirectory
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract DirectoryProperty getSourceDir();
+
+    @Input
+    public abstract Property<String> getAssetPrefix();
+
+    @OutputDirectory
+    public abstract DirectoryProperty getOutputDir();
+
+    @TaskAction
+    public void compile() throws IOException {
+        File src = getSourceDir().get().getAsFile();
+        File out = new File(getOutputDir().get().getAsFile(), getAssetPrefix().get());
+        if (!out.isDirectory() && !out.mkdirs()) throw new IOException("Cannot create " + out);
+        File[] maps = src.listFiles((dir, name) -> name.endsWith(".json"));
+        if (maps == null) return;
+        for (File map : maps) {
+            String json = new String(Files.readAllBytes(map.toPath()), StandardCharsets.UTF_8);
+            byte[] compiled;
+            try {
+                compiled = MapCompiler.compile(json);
+            } catch (IOException | RuntimeException e) {
+                throw new IOException("Failed to compile map " + map.getName() + ": " + e.getMessage(), e);
+            }
+            String name = map.getName().substring(0, map.getName().length() - ".json".length()) + ".fmap";
+            Files.write(new File(out, name).toPath(), compiled);
+            getLogger().info("Compiled {} ({} -> {} bytes)", map.getName(), map.length(), compiled.length);
+        }
+    }
+}
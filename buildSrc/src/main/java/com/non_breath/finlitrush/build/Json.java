@@ -0,0 +1,112 @@
+package com.non_breath.finlitrush.build;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal JSON parser for the map compiler (objects -> Map, arrays -> List,
+ * numbers -> Double, plus String/Boolean/null). Keeps buildSrc free of extra dependencies.
+ */
+final class Json {
+    private final String s;
+    private int i = 0;
+
+    private Json(String s) { this.s = s; }
+
+    /** Parses the first value; like the runtime loader, anything after it is ignored. */
+    static Object parse(String text) {
+        return new Json(text).value();
+    }
+
+    private Object value() {
+        ws();
+        if (i >= s.length()) throw error("Unexpected end");
+        char c = s.charAt(i);
+        switch (c) {
+            case '{': return object();
+            case '[': return array();
+            case '"': return string();
+            case 't': expect("true"); return Boolean.TRUE;
+            case 'f': expect("false"); return Boolean.FALSE;
+            case 'n': expect("null"); return null;
+            default: return number();
+        }
+    }
+
+    private Map<String, Object> object() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        i++;
+        ws();
+        if (peek() == '}') { i++; return out; }
+        while (true) {
+            ws();
+            String key = string();
+            ws();
+            if (s.charAt(i++) != ':') throw error("Expected ':'");
+            out.put(key, value());
+            ws();
+            char c = s.charAt(i++);
+            if (c == '}') return out;
+            if (c != ',') throw error("Expected ',' or '}'");
+        }
+    }
+
+    private List<Object> array() {
+        List<Object> out = new ArrayList<>();
+        i++;
+        ws();
+        if (peek() == ']') { i++; return out; }
+        while (true) {
+            out.add(value());
+            ws();
+            char c = s.charAt(i++);
+            if (c == ']') return out;
+            if (c != ',') throw error("Expected ',' or ']'");
+        }
+    }
+
+    private String string() {
+        if (s.charAt(i) != '"') throw error("Expected string");
+        i++;
+        StringBuilder sb = new StringBuilder();
+        while (true) {
+            char c = s.charAt(i++);
+            if (c == '"') return sb.toString();
+            if (c != '\\') { sb.append(c); continue; }
+            char e = s.charAt(i++);
+            switch (e) {
+                case 'b': sb.append('\b'); break;
+                case 'f': sb.append('\f'); break;
+                case 'n': sb.append('\n'); break;
+                case 'r': sb.append('\r'); break;
+                case 't': sb.append('\t'); break;
+                case 'u': sb.append((char) Integer.parseInt(s.substring(i, i + 4), 16)); i += 4; break;
+                default: sb.append(e);
+            }
+        }
+    }
+
+    private Double number() {
+        int start = i;
+        while (i < s.length() && "+-0123456789.eE".indexOf(s.charAt(i)) >= 0) i++;
+        if (start == i) throw error("Unexpected character '" + s.charAt(i) + "'");
+        return Double.valueOf(s.substring(start, i));
+    }
+
+    private void expect(String word) {
+        if (!s.startsWith(word, i)) throw error("Expected " + word);
+        i += word.length();
+    }
+
+    private char peek() { return i < s.length() ? s.charAt(i) : 0; }
+
+    private void ws() {
+        while (i < s.length() && Character.isWhitespace(s.charAt(i))) i++;
+    }
+
+    private IllegalArgumentException error(String msg) {
+        return new IllegalArgumentException(msg + " at offset " + i);
+    }
+}
@@ -0,0 +1,131 @@
+package com.non_breath.finlitrush.build;
+
+import com.non_breath.finlitrush.game.io.JsonInput;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Walks a Json parse tree as the pull reader the shared map rules (MapJson) expect.
+ * Numbers read as int must be integral, like android.util.JsonReader.nextInt().
+ */
+final class JsonTreeInput implements JsonInput {
+    private final ArrayDeque<Iterator<?>> open = new ArrayDeque<>(); // entries of open objects/arrays
+    private Object next;          // value to read next
+    private boolean hasValue;     // next holds an unread value (else it comes from an open array)
+
+    JsonTreeInput(Object root) {
+        next = root;
+        hasValue = true;
+    }
+
+    @Override public void beginObject() throws IOException {
+        Object v = take();
+        if (!(v instanceof Map)) throw new IOException("Expected an object, got " + describe(v));
+        open.push(((Map<?, ?>) v).entrySet().iterator());
+    }
+
+    @Override public void endObject() throws IOException { close(); }
+
+    @Override public void beginArray() throws IOException {
+        Object v = take();
+        if (!(v instanceof List)) throw new IOException("Expected an array, got " + describe(v));
+        open.push(((List<?>) v).iterator());
+    }
+
+    @Override public void endArray() throws IOException { close(); }
+
+    @Override public boolean hasNext() {
+        return !open.isEmpty() && open.peek().hasNext();
+    }
+
+    @Override public String nextName() throws IOException {
+        if (hasValue || open.isEmpty() || !open.peek().hasNext()) throw new IOException("Expected a name");
+        Object e = open.peek().next();
+        if (!(e instanceof Map.Entry)) throw new IOException("Expected a name inside an array");
+        next = ((Map.Entry<?, ?>) e).getValue();
+        hasValue = true;
+        return String.valueOf(((Map.Entry<?, ?>) e).getKey());
+    }
+
+    @Override public String nextString() throws IOException {
+        Object v = take();
+        if (v instanceof String) return (String) v;
+        if (v instanceof Number) return numberText((Number) v);
+        throw new IOException("Expected a string, got " + describe(v));
+    }
+
+    @Override public int nextInt() throws IOException {
+        Object v = take();
+        if (!(v instanceof Number)) throw new IOException("Expected a number, got " + describe(v));
+        double d = ((Number) v).doubleValue();
+        if (d != (int) d) throw new IOException("Expected an int, got " + d);
+        return (int) d;
+    }
+
+    @Override public long nextLong() throws IOException {
+        Object v = take();
+        if (!(v instanceof Number)) throw new IOException("Expected a number, got " + describe(v));
+        double d = ((Number) v).doubleValue();
+        if (d != (long) d) throw new IOException("Expected a long, got " + d);
+        return (long) d;
+    }
+
+    @Override public double nextDouble() throws IOException {
+        Object v = take();
+        if (!(v instanceof Number)) throw new IOException("Expected a number, got " + describe(v));
+        return ((Number) v).doubleValue();
+    }
+
+    @Override public boolean nextBoolean() throws IOException {
+        Object v = take();
+        if (!(v instanceof Boolean)) throw new IOException("Expected a boolean, got " + describe(v));
+        return (Boolean) v;
+    }
+
+    @Override public void nextNull() throws IOException {
+        Object v = take();
+        if (v != null) throw new IOException("Expected null, got " + describe(v));
+    }
+
+    @Override public void skipValue() throws IOException { take(); }
+
+    @Override public boolean peekNull() throws IOException { return peek() == null; }
+
+    @Override public boolean peekArray() throws IOException { return peek() instanceof List; }
+
+    private Object peek() throws IOException {
+        if (!hasValue) {
+            if (open.isEmpty() || !open.peek().hasNext()) throw new IOException("No more values");
+            Object e = open.peek().next();
+            if (e instanceof Map.Entry) throw new IOException("Expected a name");
+            next = e;
+            hasValue = true;
+        }
+        return next;
+    }
+
+    private Object take() throws IOException {
+        Object v = peek();
+        next = null;
+        hasValue = false;
+        return v;
+    }
+
+    private void close() throws IOException {
+        if (hasValue || open.isEmpty() || open.peek().hasNext()) throw new IOException("Unread values before end of object/array");
+        open.pop();
+    }
+
+    private static String numberText(Number n) {
+        double d = n.doubleValue();
+        return d == Math.rint(d) && Math.abs(d) < 1e15 ? Long.toString((long) d) : Double.toString(d);
+    }
+
+    private static String describe(Object v) {
+        return v == null ? "null" : v.getClass().getSimpleName();
+    }
+}
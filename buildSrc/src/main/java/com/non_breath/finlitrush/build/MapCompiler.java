@@ -0,0 +1,292 @@
+package com.non_breath.finlitrush.build;
+
+import com.non_breath.finlitrush.game.data.ChunkedMap;
+import com.non_breath.finlitrush.game.data.MapData;
+import com.non_breath.finlitrush.game.data.TileLayer;
+import com.non_breath.finlitrush.game.data.TileTable;
+import com.non_breath.finlitrush.game.data.Tileset;
+import com.non_breath.finlitrush.game.io.ImageRequest;
+import com.non_breath.finlitrush.game.io.MapJson;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compiles the custom and Tiled JSON map formats into the binary layout read by
+ * com.non_breath.finlitrush.game.io.BinaryMapReader. The JSON is turned into MapData by
+ * the same rules the runtime loader uses (MapJson, TileTable in :core, compiled into
+ * buildSrc); this class only serializes the result:
+ * - tile layers (TileTable ids for image tilesets) and the collision mask
+ * - infinite maps: the chunk grid as a chunk index plus per-chunk tiles
+ * - the tileset (drawable names, palette colors or the tile table with its tilesets),
+ *   image layers, NPCs and warps; images stay assets unless embedded as base64
+ */
+public final class MapCompiler {
+    private MapCompiler() {}
+
+    static final int MAGIC = 0x50414D46; // "FMAP" little-endian
+    static final int VERSION = 4;
+    static final int HEADER_SIZE = 64;
+    static final int FLAG_SHORT_TILES = 1;
+    static final int FLAG_CHUNKED = 2;
+
+    static final int TILESET_NONE = 0;
+    static final int TILESET_DRAWABLES = 1;
+    static final int TILESET_PALETTE = 2;
+    static final int TILESET_ATLAS = 3;
+
+    static final int IMAGE_NONE = 0;
+    static final int IMAGE_ASSET = 1;
+    static final int IMAGE_EMBEDDED = 2;
+
+    public static byte[] compile(String json) throws IOException {
+        MapJson.Parsed parsed = MapJson.read(new JsonTreeInput(Json.parse(json)));
+        return write(parsed.map, parsed.images);
+    }
+
+    // ---- binary writer ----
+
+    private static byte[] write(MapData md, List<ImageRequest> images) throws IOException {
+        int n = md.cols * md.rows;
+        ChunkedMap chunked = md.chunks;
+        TileLayer[][] chunks = chunked != null ? loadChunks(chunked) : null;
+        boolean shortTiles = true;
+        for (TileLayer layer : md.tileLayers) shortTiles &= fitsShort(layer);
+        if (chunks != null) {
+            for (TileLayer[] chunk : chunks) {
+                if (chunk == null) continue;
+                for (TileLayer layer : chunk) shortTiles &= fitsShort(layer);
+            }
+        }
+        int tileBytes = shortTiles ? 2 : 4;
+        int layerCount = chunked != null ? chunked.layerCount : md.tileLayers.size();
+
+        int layersOffset = HEADER_SIZE;
+        int layerBytes;
+        if (chunks != null) {
+            // chunk index, then the non-empty chunks back to back
+            int chunkBytes = layerCount * chunked.chunkW * chunked.chunkH * tileBytes;
+            int present = 0;
+            for (TileLayer[] chunk : chunks) if (chunk != null) present++;
+            layerBytes = chunks.length * 4 + present * chunkBytes;
+        } else {
+            layerBytes = layerCount * n * tileBytes;
+        }
+        int collisionOffset = align(layersOffset + layerBytes, 8);
+        int words = (n + 63) / 64;
+        int metaOffset = collisionOffset + words * 8;
+        byte[] meta = writeMeta(md, images);
+
+        ByteBuffer b = ByteBuffer.allocate(metaOffset + meta.length).order(ByteOrder.LITTLE_ENDIAN);
+        b.putInt(0, MAGIC);
+        b.putInt(4, VERSION);
+        b.putInt(8, md.cols);
+        b.putInt(12, md.rows);
+        b.putInt(16, layerCount);
+        b.putInt(20, (shortTiles ? FLAG_SHORT_TILES : 0) | (chunks != null ? FLAG_CHUNKED : 0));
+        b.putFloat(24, md.playerCol);
+        b.putFloat(28, md.playerRow);
+        b.putInt(32, layersOffset);
+        b.putInt(36, collisionOffset);
+        b.putInt(40, metaOffset);
+        if (chunks != null) {
+            b.putInt(44, chunked.chunkW);
+            b.putInt(48, chunked.chunkH);
+            b.putInt(52, md.originCol);
+            b.putInt(56, md.originRow);
+        }
+
+        b.position(layersOffset);
+        if (chunks != null) {
+            int chunkTiles = chunked.chunkW * chunked.chunkH;
+            b.position(layersOffset + chunks.length * 4);
+            for (int i = 0; i < chunks.length; i++) {
+                if (chunks[i] == null) continue;
+                b.putInt(layersOffset + i * 4, b.position());
+                for (int l = 0; l < layerCount; l++) {
+                    TileLayer layer = l < chunks[i].length ? chunks[i][l] : null;
+                    for (int t = 0; t < chunkTiles; t++) putTile(b, layer != null ? layer.get(t) : 0, shortTiles);
+                }
+            }
+        }
+        for (TileLayer layer : md.tileLayers) {
+            for (int t = 0; t < n; t++) putTile(b, layer.get(t), shortTiles);
+        }
+        for (int w = 0; w < words; w++) {
+            long bits = 0;
+            for (int i = 0; i < 64; i++) {
+                int idx = w * 64 + i;
+                if (idx < n && md.isBlocked(idx % md.cols, idx / md.cols)) bits |= 1L << i;
+            }
+            b.putLong(collisionOffset + w * 8, bits);
+        }
+        b.position(metaOffset);
+        b.put(meta);
+        return b.array();
+    }
+
+    // every chunk of the grid, index cy * chunksX + cx (null = empty)
+    private static TileLayer[][] loadChunks(ChunkedMap chunked) throws IOException {
+        TileLayer[][] out = new TileLayer[chunked.chunksX * chunked.chunksY][];
+        for (int cy = 0; cy < chunked.chunksY; cy++) {
+            for (int cx = 0; cx < chunked.chunksX; cx++) out[cy * chunked.chunksX + cx] = chunked.load(cx, cy);
+        }
+        return out;
+    }
+
+    private static boolean fitsShort(TileLayer layer) {
+        if (layer == null) return true;
+        for (int i = 0, n = layer.cols * layer.rows; i < n; i++) {
+            int v = layer.get(i);
+            if (v < 0 || v > 0xFFFF) return false;
+        }
+        return true;
+    }
+
+    private static void putTile(ByteBuffer b, int v, boolean shortTiles) {
+        if (shortTiles) b.putShort((short) v); else b.putInt(v);
+    }
+
+    private static byte[] writeMeta(MapData md, List<ImageRequest> images) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteBuffer scratch = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+        Map<Tileset, ImageRequest> sheets = new IdentityHashMap<>();
+        List<ImageRequest> layers = new ArrayList<>();
+        for (ImageRequest req : images) {
+            if (req.tileset != null) sheets.put(req.tileset, req);
+            else if (req.layer != null) layers.add(req);
+        }
+        if (md.tileTable != null) {
+            out.write(TILESET_ATLAS);
+            writeTileTable(out, scratch, md.tileTable, sheets);
+        } else if (md.tileDrawableNames != null) {
+            out.write(TILESET_DRAWABLES);
+            putStrings(out, scratch, md.tileDrawableNames);
+        } else if (md.tilePaletteColors != null) {
+            out.write(TILESET_PALETTE);
+            String[] colors = new String[md.tilePaletteColors.length];
+            for (int i = 0; i < colors.length; i++) {
+                int argb = md.tilePaletteColors[i];
+                colors[i] = (argb >>> 24) == 0xFF ? String.format("#%06X", argb & 0xFFFFFF) : String.format("#%08X", argb);
+            }
+            putStrings(out, scratch, colors);
+        } else {
+            out.write(TILESET_NONE);
+        }
+        putShort(out, scratch, layers.size());
+        for (ImageRequest req : layers) {
+            putString(out, scratch, req.assetPath);
+            putInt(out, scratch, req.layer.offsetX);
+            putInt(out, scratch, req.layer.offsetY);
+            putFloat(out, scratch, req.layer.parallaxX);
+            putFloat(out, scratch, req.layer.parallaxY);
+        }
+        putShort(out, scratch, md.npcs.size());
+        for (MapData.Npc npc : md.npcs) {
+            putInt(out, scratch, npc.col);
+            putInt(out, scratch, npc.row);
+            putString(out, scratch, npc.name);
+            putStrings(out, scratch, npc.lines);
+        }
+        putShort(out, scratch, md.warps.size());
+        for (MapData.Warp w : md.warps) {
+            putInt(out, scratch, w.col);
+            putInt(out, scratch, w.row);
+            putString(out, scratch, w.target);
+            putInt(out, scratch, w.targetCol);
+            putInt(out, scratch, w.targetRow);
+        }
+        return out.toByteArray();
+    }
+
+    // tilesets in firstGid order (with their images and animations), then the table entries
+    private static void writeTileTable(ByteArrayOutputStream out, ByteBuffer scratch, TileTable table,
+                                       Map<Tileset, ImageRequest> sheets) throws IOException {
+        List<Tileset> sets = table.getTilesets();
+        putShort(out, scratch, sets.size());
+        for (Tileset t : sets) {
+            putInt(out, scratch, t.firstGid);
+            putInt(out, scratch, t.columns);
+            putInt(out, scratch, t.tileW);
+            putInt(out, scratch, t.tileH);
+            putInt(out, scratch, t.margin);
+            putInt(out, scratch, t.spacing);
+            putInt(out, scratch, t.tileCount);
+            ImageRequest sheet = sheets.get(t);
+            if (sheet != null && (sheet.base64 != null || sheet.bytes != null)) {
+                byte[] bytes = sheet.bytes != null ? sheet.bytes : Base64.getMimeDecoder().decode(sheet.base64);
+                out.write(IMAGE_EMBEDDED);
+                putInt(out, scratch, bytes.length);
+                out.write(bytes);
+            } else if (sheet != null && sheet.assetPath != null) {
+                out.write(IMAGE_ASSET);
+                putString(out, scratch, sheet.assetPath);
+            } else {
+                out.write(IMAGE_NONE);
+            }
+            // sorted by local id so the output does not depend on hash order
+            Map<Integer, Tileset.Animation> animations = new TreeMap<>(t.animations);
+            putShort(out, scratch, animations.size());
+            for (Map.Entry<Integer, Tileset.Animation> e : animations.entrySet()) {
+                Tileset.Animation anim = e.getValue();
+                putInt(out, scratch, e.getKey());
+                putShort(out, scratch, anim.frames.length);
+                for (int i = 0; i < anim.frames.length; i++) {
+                    putInt(out, scratch, anim.frames[i]);
+                    putInt(out, scratch, anim.durations[i]);
+                }
+            }
+        }
+        // ids 1 .. size - 1; animation frames are appended again at load (resolveSources)
+        putInt(out, scratch, table.size() - 1);
+        for (int id = 1; id < table.size(); id++) {
+            putShort(out, scratch, table.tilesetIndex(id));
+            putInt(out, scratch, table.localId(id));
+            out.write(table.orientation(id));
+        }
+    }
+
+    private static void putInt(ByteArrayOutputStream out, ByteBuffer scratch, int v) {
+        scratch.clear();
+        scratch.putInt(v);
+        out.write(scratch.array(), 0, 4);
+    }
+
+    private static void putFloat(ByteArrayOutputStream out, ByteBuffer scratch, float v) {
+        scratch.clear();
+        scratch.putFloat(v);
+        out.write(scratch.array(), 0, 4);
+    }
+
+    private static void putShort(ByteArrayOutputStream out, ByteBuffer scratch, int v) throws IOException {
+        if (v < Short.MIN_VALUE || v > Short.MAX_VALUE) throw new IOException("Value out of range: " + v);
+        scratch.clear();
+        scratch.putShort((short) v);
+        out.write(scratch.array(), 0, 2);
+    }
+
+    private static void putString(ByteArrayOutputStream out, ByteBuffer scratch, String s) throws IOException {
+        if (s == null) { putShort(out, scratch, -1); return; }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        putShort(out, scratch, bytes.length);
+        out.write(bytes);
+    }
+
+    private static void putStrings(ByteArrayOutputStream out, ByteBuffer scratch, String[] values) throws IOException {
+        putShort(out, scratch, values.length);
+        for (String v : values) putString(out, scratch, v);
+    }
+
+    private static int align(int v, int a) {
+        return (v + a - 1) / a * a;
+    }
+}
@@ -0,0 +1,14 @@
+// Game simulation, map data and input logs in plain Java (no Android APIs), so the game
+// runs headless in JVM tests and benchmarks; the app draws it and feeds it input.
+plugins {
+    `java-library`
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+dependencies {
+    testImplementation(libs.junit)
+}
@@ -0,0 +1,709 @@
+package com.non_breath.finlitrush.game.core;
+
+import com.non_breath.finlitrush.game.data.ChunkedMap;
+import com.non_breath.finlitrush.game.data.CollisionMask;
+import com.non_breath.finlitrush.game.data.MapData;
+import com.non_breath.finlitrush.game.data.TileLayer;
+import com.non_breath.finlitrush.game.ecs.AnimationSystem;
+import com.non_breath.finlitrush.game.ecs.MovementSystem;
+import com.non_breath.finlitrush.game.ecs.NavigationSystem;
+import com.non_breath.finlitrush.game.ecs.World;
+import com.non_breath.finlitrush.game.loop.InputLog;
+import com.non_breath.finlitrush.game.loop.InputQueue;
+import com.non_breath.finlitrush.game.nav.Pathfinder;
+import com.non_breath.finlitrush.game.physics.CollisionWorld;
+import com.non_breath.finlitrush.game.world.SpatialGrid;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The game simulation without a view: the current map's collision and navigation, the
+ * player and NPCs (ECS world), warps, dialogs and input, advanced by fixed steps.
+ * - One simulation thread calls step() (or its parts) and everything else, except
+ *   offerInput() (one producer thread, e.g. the UI), the session requests and
+ *   setStreamRadius(), which any thread may call
+ * - Maps are loaded by path through a MapSource; images in the map data are opaque
+ *   handles the core never touches
+ * - Record/replay sessions restart the map and run fixed 1/simHz steps; a recording logs
+ *   every applied input event, a replay feeds a log's events instead of the queue
+ * A view draws the state through the getters after each step (GameView copies them into
+ * its render snapshot); headless runs just call step().
+ */
+public final class GameCore {
+    // input events: type codes of offerInput() and InputLog
+    public static final int INPUT_DIRS = 1;    // a = pressed direction bits (D-pad, keys)
+    public static final int INPUT_STICK = 2;   // x, y = joystick vector
+    public static final int INPUT_ACTION = 3;  // A button
+    public static final int INPUT_MOVE_TO = 4; // a, b = tapped tile
+    public static final int DIR_BIT_UP = 1, DIR_BIT_DOWN = 2, DIR_BIT_LEFT = 4, DIR_BIT_RIGHT = 8;
+
+    /** Sprite set ids in World.sprite (the view picks the bitmaps). */
+    public static final int SPRITE_PLAYER = 0, SPRITE_NPC = 1;
+
+    public static final int DEFAULT_SIM_HZ = 60;
+    private static final float ACTOR_HALF_EXTENT = 0.3f; // collision box half size in tiles
+    private static final float MOVE_TILES_PER_SEC = 5.0f;
+    private static final float NPC_WALK_TILES_PER_SEC = 2.0f;
+    private static final float WARP_COOLDOWN_SEC = 0.5f;
+    private static final float TRANSITION_FADE_PER_SEC = 4f;
+    private static final int PREFETCH_MAX_MAPS = 3;
+
+    private final MapSource maps;
+    private final int simHz;
+
+    // Map
+    private int cols = 20;
+    private int rows = 12;
+    private MapData currentMap = null;
+    private int mapGeneration = 0;
+    private String currentMapAsset = null;
+    private CollisionMask collisionMask = null; // bit set when blocked
+    private CollisionWorld collisionWorld = null; // merged collision rects (rebuilt with collisionMask)
+    // Infinite maps: collision and navigation only cover the chunks around the player
+    private ChunkedMap chunkedMap = null;
+    private int navChunkCol = -1, navChunkRow = -1, navRadius = -1;
+    private volatile int streamRadius = 2;
+    private final float[] slideOut = new float[2];
+
+    // Warps (door/portal)
+    private static class Warp { int col, row; String target; int targetCol, targetRow; }
+    private final List<Warp> warps = new ArrayList<>();
+    private SpatialGrid<Warp> warpGrid = new SpatialGrid<>(cols, rows);
+    private float warpCooldown = 0f;
+    // Background map load for the warp in progress (null when idle)
+    private volatile Future<MapData> pendingMapLoad = null;
+    private Warp pendingWarp = null;
+    private String pendingMapAsset = null;
+    private volatile float mapLoadProgress = 0f;
+    private float transitionAlpha = 0f; // 1 = fully covered, fades out after the load
+
+    // Actors: the player and NPCs are entities of the ECS world (tile coords)
+    private final World world = new World(64);
+    private final MovementSystem movementSystem = new MovementSystem();
+    private final AnimationSystem animationSystem = new AnimationSystem();
+    private final Pathfinder pathfinder = new Pathfinder(Pathfinder.DEFAULT_CACHE_PATHS);
+    private final NavigationSystem navigationSystem = new NavigationSystem(pathfinder);
+    private final MovementSystem.Collider mapCollider = this::moveAndCollide;
+    private final int player;
+
+    // Input
+    private final InputQueue inputQueue = new InputQueue(256);
+    private final InputQueue.Handler inputHandler = this::applyInput;
+    private int inputDirs = 0;                    // DIR_BIT_* held
+    private float inputJoyX = 0f, inputJoyY = 0f; // joystick vector
+
+    // Dialog state (line-by-line)
+    private boolean dialogOpen = false;
+    private String dialogSpeaker = "";
+    private int dialogNpc = World.NONE;
+    private String[] dialogLines = null;
+    private int dialogIndex = 0;
+
+    // Record/replay sessions
+    private static final int SESSION_NONE = 0, SESSION_RECORD = 1, SESSION_REPLAY = 2;
+    private static final class SessionRequest {
+        final int mode; final InputLog log; final MapData map;
+        SessionRequest(int mode, InputLog log, MapData map) { this.mode = mode; this.log = log; this.map = map; }
+    }
+    private final AtomicReference<SessionRequest> sessionRequest = new AtomicReference<>(); // any thread
+    private volatile int sessionMode = SESSION_NONE;
+    private volatile int sessionStep = 0;
+    private float sessionDt = 0f;
+    private InputLog.Recorder recorder = null;
+    private InputLog.Replay replay = null;
+    private volatile InputLog lastRecording = null;
+    private final InputQueue.Handler recordingHandler = (type, a, b, x, y) -> {
+        recorder.record(sessionStep, type, a, b, x, y);
+        applyInput(type, a, b, x, y);
+    };
+    private final InputQueue.Handler dropInput = (type, a, b, x, y) -> {};
+
+    public GameCore(MapSource maps) {
+        this(maps, DEFAULT_SIM_HZ);
+    }
+
+    /** @param simHz steps per second of the loop driving the core (recordings are stamped with it) */
+    public GameCore(MapSource maps, int simHz) {
+        this.maps = maps;
+        this.simHz = simHz;
+        player = spawnPlayer();
+    }
+
+    // ---- stepping ----
+
+    /** One simulation step: input, then update(dt), then teleport snapping. */
+    public void step(float dt) {
+        beginStep();
+        try {
+            drainInput();
+            update(dt);
+        } finally {
+            endStep();
+        }
+    }
+
+    /** Starts a step: the positions reached so far become the interpolation start. */
+    public void beginStep() {
+        world.beginStep();
+    }
+
+    /** Applies this step's input (logged while recording, from the log while replaying). */
+    public void drainInput() {
+        SessionRequest request = sessionRequest.getAndSet(null);
+        if (request != null) applySessionRequest(request);
+        switch (sessionMode) {
+            case SESSION_RECORD:
+                inputQueue.drain(recordingHandler);
+                break;
+            case SESSION_REPLAY:
+                inputQueue.drain(dropInput); // live input would make the run diverge
+                replay.drain(sessionStep, inputHandler);
+                break;
+            default:
+                inputQueue.drain(inputHandler);
+        }
+    }
+
+    /** Advances the world by dt seconds (by exactly 1/simHz during a session). */
+    public void update(float dt) {
+        boolean session = sessionMode != SESSION_NONE;
+        updateWorld(session ? sessionDt : dt);
+        if (session) {
+            sessionStep++;
+            if (sessionMode == SESSION_REPLAY && replay.isFinished(sessionStep)) endSession();
+        }
+    }
+
+    /** Ends a step; teleports (warps, map loads) must not be interpolated. */
+    public void endStep() {
+        world.snapTeleports(1f);
+    }
+
+    private void updateWorld(float dt) {
+        if (pendingMapLoad != null) {
+            // hold the player still while the next map streams in
+            pollPendingMapLoad(false);
+            world.vx[player] = world.vy[player] = 0f;
+            world.moving[player] = false;
+            return;
+        }
+        if (transitionAlpha > 0f) transitionAlpha = Math.max(0f, transitionAlpha - dt * TRANSITION_FADE_PER_SEC);
+        if (!world.has(player, World.PATH)) world.vx[player] = world.vy[player] = 0f;
+        if (!dialogOpen) {
+            float dx, dy;
+            if (Math.abs(inputJoyX) > 0.01f || Math.abs(inputJoyY) > 0.01f) {
+                dx = inputJoyX; dy = inputJoyY;
+            } else {
+                dx = ((inputDirs & DIR_BIT_RIGHT) != 0 ? 1 : 0) - ((inputDirs & DIR_BIT_LEFT) != 0 ? 1 : 0);
+                dy = ((inputDirs & DIR_BIT_DOWN) != 0 ? 1 : 0) - ((inputDirs & DIR_BIT_UP) != 0 ? 1 : 0);
+                float len = (float) Math.sqrt(dx * dx + dy * dy);
+                if (len > 0) { dx /= len; dy /= len; }
+            }
+            float len = (float) Math.sqrt(dx * dx + dy * dy);
+            if (len > 0.001f) {
+                // manual input overrides tap-to-move
+                if (world.has(player, World.PATH)) navigationSystem.stop(world, player);
+                world.vx[player] = dx * MOVE_TILES_PER_SEC;
+                world.vy[player] = dy * MOVE_TILES_PER_SEC;
+            }
+            navigationSystem.update(world, dt);
+        } else {
+            navigationSystem.hold(world);
+        }
+        updateNavWindow();
+        movementSystem.update(world, dt, mapCollider);
+        animationSystem.update(world, dt);
+        if (!dialogOpen) {
+            // warp check with small cooldown to avoid loops
+            if (warpCooldown > 0f) warpCooldown -= dt;
+            if (warpCooldown <= 0f) checkAndApplyWarp();
+        }
+    }
+
+    // ---- input ----
+
+    /** Producer thread only: queues an input event (INPUT_*) for the next step; false when full. */
+    public boolean offerInput(int type, int a, int b, float x, float y) {
+        return inputQueue.offer(type, a, b, x, y);
+    }
+
+    private void applyInput(int type, int a, int b, float x, float y) {
+        switch (type) {
+            case INPUT_DIRS:
+                inputDirs = a;
+                break;
+            case INPUT_STICK:
+                inputJoyX = x;
+                inputJoyY = y;
+                break;
+            case INPUT_ACTION:
+                tryStartOrAdvanceDialog();
+                break;
+            case INPUT_MOVE_TO:
+                if (!dialogOpen && pendingMapLoad == null) navigationSystem.moveTo(world, player, a, b);
+                break;
+        }
+    }
+
+    private void resetHeldInput() {
+        inputDirs = 0;
+        inputJoyX = inputJoyY = 0f;
+    }
+
+    // ---- maps ----
+
+    /** Loads the map at {@code path} from the MapSource and makes it current. */
+    public boolean loadMap(String path) {
+        MapData data = loadMapSync(path);
+        if (data == null || !applyMap(data)) return false;
+        currentMapAsset = path;
+        prefetchWarpTargets();
+        return true;
+    }
+
+    /** Makes the built-in demo map (border walls and two blocks) current. */
+    public void loadDemoMap() {
+        int[] tiles = new int[rows * cols];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                // border walls
+                if (r == 0 || c == 0 || r == rows - 1 || c == cols - 1) {
+                    tiles[r * cols + c] = 1;
+                }
+            }
+        }
+        // inner blocks
+        for (int c = 3; c < 8; c++) tiles[3 * cols + c] = 1;
+        for (int r = 5; r < 9; r++) tiles[r * cols + 12] = 1;
+        MapData demo = new MapData();
+        demo.cols = cols;
+        demo.rows = rows;
+        TileLayer layer = TileLayer.of(tiles, cols, rows);
+        demo.tileLayers.add(layer);
+        demo.collision = new CollisionMask(cols, rows);
+        demo.collision.addNonZero(layer);
+        applyMap(demo);
+        currentMapAsset = null; // recordings of the built-in map replay on the current map
+    }
+
+    /**
+     * Switches to {@code data}: collision, navigation, NPCs, warps and the player start.
+     * The view rebuilds tiles, tilesets and image layers when getMapGeneration() changes.
+     */
+    public boolean applyMap(MapData data) {
+        if (data == null) return false;
+        cols = data.cols > 0 ? data.cols : cols;
+        rows = data.rows > 0 ? data.rows : rows;
+
+        collisionMask = data.collision != null ? data.collision : new CollisionMask(cols, rows);
+        chunkedMap = data.chunks;
+        rebuildCollision(); // infinite maps re-centre on the player's start in the next update
+
+        resetEntityIndex();
+        if (data.npcs != null) {
+            for (MapData.Npc npcData : data.npcs) {
+                spawnNpc(npcData.col, npcData.row, npcData.name, npcData.lines);
+            }
+        }
+
+        if (data.warps != null) {
+            for (MapData.Warp w : data.warps) {
+                Warp copy = new Warp();
+                copy.col = w.col;
+                copy.row = w.row;
+                copy.target = w.target;
+                copy.targetCol = w.targetCol;
+                copy.targetRow = w.targetRow;
+                addWarp(copy);
+            }
+        }
+
+        if (data.playerCol >= 0 && data.playerRow >= 0) {
+            world.setPosition(player, data.playerCol, data.playerRow);
+        }
+        currentMap = data;
+        mapGeneration++;
+        return true;
+    }
+
+    private MapData loadMapSync(String path) {
+        MapData data = maps.cached(path);
+        if (data != null) return data;
+        try {
+            return maps.load(path);
+        } catch (Exception e) {
+            maps.onLoadFailed(path, e);
+            return null;
+        }
+    }
+
+    /** Chunks simulated around the player on infinite maps (the view streams as many). */
+    public void setStreamRadius(int chunks) {
+        streamRadius = Math.max(1, chunks);
+    }
+
+    // ---- entities ----
+
+    // Drops the previous map's NPCs and warps (the player entity survives map changes)
+    private void resetEntityIndex() {
+        world.destroyAllExcept(World.PLAYER);
+        world.resizeGrid(cols, rows);
+        warps.clear();
+        warpGrid = new SpatialGrid<>(cols, rows);
+    }
+
+    private int spawnPlayer() {
+        int e = world.create(World.VELOCITY | World.SPRITE | World.ANIMATION | World.COLLIDER | World.PLAYER | World.INDEXED);
+        world.sprite[e] = SPRITE_PLAYER;
+        world.speed[e] = MOVE_TILES_PER_SEC;
+        world.setPosition(e, 2, 2);
+        return e;
+    }
+
+    public int spawnNpc(int col, int row, String name, String[] lines) {
+        return spawnNpc(col, row, name, lines, null);
+    }
+
+    /** Adds an NPC to the current map; route: optional patrol waypoints as (col, row) pairs, walked in a loop. */
+    public int spawnNpc(int col, int row, String name, String[] lines, int[] route) {
+        int components = World.SPRITE | World.ANIMATION | World.DIALOG | World.FACE_TARGET | World.INDEXED;
+        if (route != null && route.length >= 2) components |= World.VELOCITY | World.COLLIDER | World.ROUTE;
+        int e = world.create(components);
+        world.sprite[e] = SPRITE_NPC;
+        world.name[e] = name;
+        world.lines[e] = lines;
+        world.faceTarget[e] = player;
+        world.speed[e] = NPC_WALK_TILES_PER_SEC;
+        world.route[e] = route;
+        world.routeWait[e] = NavigationSystem.ROUTE_PAUSE_SEC;
+        world.setPosition(e, col, row);
+        return e;
+    }
+
+    private void addWarp(Warp w) {
+        warps.add(w);
+        warpGrid.insert(w, w.col, w.row);
+    }
+
+    // ---- collision and navigation ----
+
+    private void moveAndCollide(World w, int e, float dtx, float dty) {
+        if (collisionWorld == null) rebuildCollision();
+        collisionWorld.slide(w.x[e], w.y[e], ACTOR_HALF_EXTENT, ACTOR_HALF_EXTENT, dtx, dty, slideOut);
+        // clamp inside the map's tiles in case an actor started in or beyond the outer walls
+        float lo = ACTOR_HALF_EXTENT - 0.5f;
+        w.x[e] = Math.max(lo, Math.min(cols - 0.5f - ACTOR_HALF_EXTENT, slideOut[0]));
+        w.y[e] = Math.max(lo, Math.min(rows - 0.5f - ACTOR_HALF_EXTENT, slideOut[1]));
+    }
+
+    // Re-merges the collision mask into rectangles and rebuilds the navigation grid
+    // (dropping cached paths); call whenever collisionMask changes
+    private void rebuildCollision() {
+        if (chunkedMap != null) {
+            // infinite maps: just the chunks within the stream radius of the player
+            ChunkedMap ch = chunkedMap;
+            int r = streamRadius;
+            navRadius = r;
+            navChunkCol = ch.chunkCol(Math.round(world.x[player]));
+            navChunkRow = ch.chunkRow(Math.round(world.y[player]));
+            int c0 = Math.max(0, (navChunkCol - r) * ch.chunkW), r0 = Math.max(0, (navChunkRow - r) * ch.chunkH);
+            int c1 = Math.min(cols, (navChunkCol + r + 1) * ch.chunkW), r1 = Math.min(rows, (navChunkRow + r + 1) * ch.chunkH);
+            collisionWorld = CollisionWorld.build(collisionMask, c0, r0, c1 - c0, r1 - r0);
+            pathfinder.setGrid(collisionMask, c0, r0, c1 - c0, r1 - r0, cols);
+        } else {
+            collisionWorld = CollisionWorld.build(collisionMask, cols, rows);
+            pathfinder.setGrid(collisionMask, cols, rows);
+        }
+        // jump point search pays off on mostly open maps
+        pathfinder.setJumpPoints(collisionMask == null || collisionMask.count() * 4L < (long) cols * rows);
+    }
+
+    // Moves the collision/navigation window along once the player enters another chunk.
+    // The window reaches at least one chunk past the player's, so its walls are never hit;
+    // paths already handed out stay valid (they index the whole map).
+    private void updateNavWindow() {
+        if (chunkedMap == null) return;
+        int c = chunkedMap.chunkCol(Math.round(world.x[player]));
+        int r = chunkedMap.chunkRow(Math.round(world.y[player]));
+        if (c != navChunkCol || r != navChunkRow || navRadius != streamRadius) rebuildCollision();
+    }
+
+    // ---- dialogs ----
+
+    private void tryStartOrAdvanceDialog() {
+        if (dialogOpen) {
+            if (dialogLines != null && dialogIndex < dialogLines.length - 1) {
+                dialogIndex++;
+            } else {
+                closeDialog();
+            }
+            return;
+        }
+        // If not open: check for adjacent NPC
+        int target = findAdjacentNpc();
+        if (target != World.NONE) {
+            dialogOpen = true;
+            dialogNpc = target;
+            dialogSpeaker = world.name[target];
+            // Defensive: ensure non-null lines to avoid NPE on some devices
+            String[] lines = world.lines[target];
+            if (lines == null || lines.length == 0) {
+                dialogLines = new String[]{"..."};
+            } else {
+                dialogLines = lines;
+            }
+            dialogIndex = 0;
+        }
+    }
+
+    private void closeDialog() {
+        dialogOpen = false;
+        dialogNpc = World.NONE;
+        dialogLines = null;
+        dialogIndex = 0;
+    }
+
+    private int findAdjacentNpc() {
+        int pc = Math.round(world.x[player]);
+        int pr = Math.round(world.y[player]);
+        int facing = world.dir[player];
+        // the tile the player faces wins, then the other three neighbours
+        int n = world.firstAt(pc + dirDx(facing), pr + dirDy(facing), World.DIALOG);
+        for (int d = 0; d < 4 && n == World.NONE; d++) {
+            if (d != facing) n = world.firstAt(pc + dirDx(d), pr + dirDy(d), World.DIALOG);
+        }
+        return n;
+    }
+
+    private static int dirDx(int dir) { return dir == World.DIR_LEFT ? -1 : dir == World.DIR_RIGHT ? 1 : 0; }
+
+    private static int dirDy(int dir) { return dir == World.DIR_UP ? -1 : dir == World.DIR_DOWN ? 1 : 0; }
+
+    // ---- warps ----
+
+    private void checkAndApplyWarp() {
+        if (warps.isEmpty() || pendingMapLoad != null) return;
+        Warp w = warpGrid.firstAt(Math.round(world.x[player]), Math.round(world.y[player]));
+        if (w == null) return;
+        if (w.target == null || w.target.isEmpty()) {
+            finishWarp(w);
+            return;
+        }
+        pendingWarp = w;
+        pendingMapAsset = w.target;
+        transitionAlpha = 1f;
+        MapData cached = maps.cached(w.target);
+        if (cached != null) {
+            // prefetched: swap right away, the overlay just fades out
+            mapLoadProgress = 1f;
+            completeWarp(cached, null);
+            return;
+        }
+        // load in the background (or adopt the running prefetch); the overlay covers the wait
+        mapLoadProgress = 0f;
+        pendingMapLoad = maps.loadAsync(w.target, f -> mapLoadProgress = f);
+        // sessions must warp in the same step whether or not the map was cached
+        if (sessionMode != SESSION_NONE) pollPendingMapLoad(true);
+    }
+
+    // Applies the background-loaded map once it is ready (or waits for it)
+    private void pollPendingMapLoad(boolean wait) {
+        Future<MapData> job = pendingMapLoad;
+        if (job == null || (!wait && !job.isDone())) return;
+        pendingMapLoad = null;
+        MapData data = null;
+        Exception error = null;
+        try {
+            data = job.get();
+            maps.keep(pendingMapAsset, data);
+        } catch (Exception e) {
+            error = e;
+        }
+        completeWarp(data, error);
+    }
+
+    private void completeWarp(MapData data, Exception error) {
+        if (error != null) {
+            maps.onLoadFailed(pendingMapAsset, error);
+        } else if (applyMap(data)) {
+            currentMapAsset = pendingMapAsset;
+        }
+        // position after warp (either in current or new map)
+        finishWarp(pendingWarp);
+        pendingWarp = null;
+        pendingMapAsset = null;
+        prefetchWarpTargets();
+    }
+
+    private void finishWarp(Warp w) {
+        navigationSystem.stop(world, player);
+        int col = w.targetCol, row = w.targetRow;
+        if (w.target != null && !w.target.isEmpty() && currentMap != null) {
+            // warps give Tiled coordinates; infinite target maps are shifted to their chunks' bounding box
+            col -= currentMap.originCol;
+            row -= currentMap.originRow;
+        }
+        world.setPosition(player, col, row);
+        warpCooldown = WARP_COOLDOWN_SEC;
+    }
+
+    // Queues the maps behind this map's warps, ordered by the player's distance to each warp tile
+    private void prefetchWarpTargets() {
+        List<Warp> byDistance = new ArrayList<>(warps);
+        final float px = world.x[player], py = world.y[player];
+        Collections.sort(byDistance, (a, b) -> Float.compare(
+                (a.col - px) * (a.col - px) + (a.row - py) * (a.row - py),
+                (b.col - px) * (b.col - px) + (b.row - py) * (b.row - py)));
+        List<String> targets = new ArrayList<>();
+        for (int i = 0; i < byDistance.size() && targets.size() < PREFETCH_MAX_MAPS; i++) {
+            String target = byDistance.get(i).target;
+            if (target == null || target.isEmpty() || target.equals(currentMapAsset) || targets.contains(target)) continue;
+            targets.add(target);
+        }
+        maps.prefetch(targets);
+    }
+
+    // ---- record/replay ----
+
+    /**
+     * Restarts the current map with the player where it stands and records every input
+     * applied from then on; stopSession() ends it and getLastRecording() returns the log.
+     */
+    public void startRecording() {
+        sessionRequest.set(new SessionRequest(SESSION_RECORD, null, null));
+    }
+
+    /**
+     * Restarts the log's start map and plays the log back step for step, ignoring live
+     * input until it ends (or stopSession()).
+     */
+    public void startReplay(InputLog log) {
+        sessionRequest.set(new SessionRequest(SESSION_REPLAY, log, null));
+    }
+
+    /** Ends the running recording or replay at the next step. */
+    public void stopSession() {
+        sessionRequest.set(new SessionRequest(SESSION_NONE, null, null));
+    }
+
+    /**
+     * Simulation thread: starts replaying {@code log} right away, on {@code start} instead
+     * of the log's map when given (headless runs and benchmarks).
+     */
+    public void beginReplay(InputLog log, MapData start) {
+        sessionRequest.set(null);
+        applySessionRequest(new SessionRequest(SESSION_REPLAY, log, start));
+    }
+
+    public boolean isRecording() { return sessionMode == SESSION_RECORD; }
+
+    public boolean isReplaying() { return sessionMode == SESSION_REPLAY; }
+
+    /** Steps run by the current session (read racily from other threads). */
+    public int getSessionStep() { return sessionStep; }
+
+    /** Log of the last finished recording, or null. */
+    public InputLog getLastRecording() { return lastRecording; }
+
+    // Ends any running session, then starts the requested one
+    private void applySessionRequest(SessionRequest r) {
+        endSession();
+        if (r.mode == SESSION_RECORD) {
+            float x = world.x[player], y = world.y[player];
+            int dir = world.dir[player];
+            if (!restartSession(currentMap, currentMapAsset, x, y, dir, simHz)) return;
+            recorder = new InputLog.Recorder(simHz, currentMapAsset, x, y, dir);
+        } else if (r.mode == SESSION_REPLAY) {
+            InputLog log = r.log;
+            MapData start = r.map;
+            if (start == null) start = log.getMapAsset() != null ? loadMapSync(log.getMapAsset()) : currentMap;
+            if (!restartSession(start, log.getMapAsset(), log.getStartX(), log.getStartY(), log.getStartDir(), log.getSimHz())) {
+                return;
+            }
+            replay = log.replay();
+        } else {
+            return;
+        }
+        sessionStep = 0;
+        sessionMode = r.mode;
+    }
+
+    // Puts the simulation into the session start state: a fresh copy of the map (NPCs back at
+    // their spawns), the player at the given spot, no input held, no dialog, warp or map load
+    private boolean restartSession(MapData map, String asset, float x, float y, int dir, int hz) {
+        if (map == null) return false;
+        pendingMapLoad = null;
+        pendingWarp = null;
+        pendingMapAsset = null;
+        transitionAlpha = 0f;
+        warpCooldown = 0f;
+        resetHeldInput();
+        closeDialog();
+        navigationSystem.stop(world, player);
+        applyMap(map);
+        if (asset != null) currentMapAsset = asset;
+        world.setPosition(player, x, y);
+        world.vx[player] = world.vy[player] = 0f;
+        world.moving[player] = false;
+        world.dir[player] = dir;
+        prefetchWarpTargets();
+        sessionDt = 1f / hz;
+        return true;
+    }
+
+    // Stops the running session; a recording becomes lastRecording
+    private void endSession() {
+        if (sessionMode == SESSION_RECORD) lastRecording = recorder.finish(sessionStep);
+        if (sessionMode == SESSION_REPLAY) resetHeldInput(); // replayed keys must not stay held
+        recorder = null;
+        replay = null;
+        sessionMode = SESSION_NONE;
+    }
+
+    // ---- state for views and tests (simulation thread) ----
+
+    public World getWorld() { return world; }
+
+    public int getPlayer() { return player; }
+
+    public float getPlayerX() { return world.x[player]; }
+
+    public float getPlayerY() { return world.y[player]; }
+
+    /** The current map; the view rebuilds its resources when getMapGeneration() changes. */
+    public MapData getMap() { return currentMap; }
+
+    public int getMapGeneration() { return mapGeneration; }
+
+    /** Path the current map was loaded from, or null for a map applied directly. */
+    public String getMapAsset() { return currentMapAsset; }
+
+    public int getCols() { return cols; }
+
+    public int getRows() { return rows; }
+
+    public boolean isDialogOpen() { return dialogOpen; }
+
+    public String getDialogSpeaker() { return dialogSpeaker; }
+
+    public String[] getDialogLines() { return dialogLines; }
+
+    public int getDialogIndex() { return dialogIndex; }
+
+    /** Cover of the map-switch fade: 1 = fully covered. */
+    public float getTransitionAlpha() { return transitionAlpha; }
+
+    /** True while a warp waits for its map to load (the player is held still). */
+    public boolean isMapLoading() { return pendingMapLoad != null; }
+
+    public float getMapLoadProgress() { return mapLoadProgress; }
+
+    /** Joystick vector last applied. */
+    public float getJoyX() { return inputJoyX; }
+
+    public float getJoyY() { return inputJoyY; }
+}
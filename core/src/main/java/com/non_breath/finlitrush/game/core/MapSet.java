@@ -0,0 +1,52 @@
+package com.non_breath.finlitrush.game.core;
+
+import com.non_breath.finlitrush.game.data.MapData;
+
+import java.io.FileNotFoundException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+
+/**
+ * A MapSource over maps already in memory, for headless runs: every map is "cached", so
+ * warps between them complete in the step they are entered.
+ */
+public final class MapSet implements MapSource {
+    private final Map<String, MapData> maps = new HashMap<>();
+
+    public MapSet put(String path, MapData data) {
+        maps.put(path, data);
+        return this;
+    }
+
+    @Override public MapData cached(String path) {
+        return maps.get(path);
+    }
+
+    @Override public MapData load(String path) throws Exception {
+        MapData data = maps.get(path);
+        if (data == null) throw new FileNotFoundException(path);
+        return data;
+    }
+
+    @Override public Future<MapData> loadAsync(String path, Progress progress) {
+        CompletableFuture<MapData> job = new CompletableFuture<>();
+        try {
+            job.complete(load(path));
+            if (progress != null) progress.onProgress(1f);
+        } catch (Exception e) {
+            job.completeExceptionally(e);
+        }
+        return job;
+    }
+
+    @Override public void keep(String path, MapData data) {
+        maps.put(path, data);
+    }
+
+    @Override public void prefetch(List<String> paths) {}
+
+    @Override public void onLoadFailed(String path, Exception error) {}
+}
@@ -0,0 +1,37 @@
+package com.non_breath.finlitrush.game.core;
+
+import com.non_breath.finlitrush.game.data.MapData;
+
+import java.util.List;
+import java.util.concurrent.Future;
+
+/**
+ * Where GameCore gets maps from by path (warp targets, replays): the app's assets with
+ * its map cache and prefetcher, or a fixed MapSet in headless runs.
+ * Called on the simulation thread, except Progress, which loaders call from any thread.
+ */
+public interface MapSource {
+
+    /** Receives the fraction (0..1) of a background load that is done. */
+    interface Progress {
+        void onProgress(float fraction);
+    }
+
+    /** The map if it is already in memory, else null (no loading). */
+    MapData cached(String path);
+
+    /** Loads the map on the calling thread (and keeps it like keep()). */
+    MapData load(String path) throws Exception;
+
+    /** Loads the map in the background, or adopts a load already running for it. */
+    Future<MapData> loadAsync(String path, Progress progress);
+
+    /** Keeps a map that finished loading through loadAsync() for later requests. */
+    void keep(String path, MapData data);
+
+    /** Paths the player may warp to next, most likely first; a hint to load them early. */
+    void prefetch(List<String> paths);
+
+    /** A map could not be loaded; the game stays on the current map. */
+    void onLoadFailed(String path, Exception error);
+}
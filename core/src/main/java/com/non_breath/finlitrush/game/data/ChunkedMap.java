@@ -0,0 +1,85 @@
+package com.non_breath.finlitrush.game.data;
+
+import java.io.IOException;
+
+/**
+ * Tile layers of an infinite (Tiled "infinite": true) map, split into fixed-size chunks.
+ * - The map's bounding box is cut into a uniform grid of chunkW x chunkH tiles; chunk
+ *   (cx, cy) covers columns cx * chunkW .. (cx + 1) * chunkW - 1 of the shifted map
+ * - Only chunks that hold tiles exist (presence bitset); the rest read as empty
+ * - Tiles come from a Source: kept in memory for JSON maps, read from the mapped asset
+ *   for compiled maps, so only the chunks ChunkStreamer keeps resident take heap
+ * Chunk layers are row-major TileLayers of chunkW x chunkH (TileTable ids or raw indices).
+ */
+public final class ChunkedMap {
+
+    /** Supplies the tiles of one chunk; called from the streaming thread. */
+    public interface Source {
+        /** One chunkW x chunkH layer per map tile layer (null = empty layer). */
+        TileLayer[] load(int cx, int cy) throws IOException;
+    }
+
+    public final int chunkW, chunkH;
+    public final int chunksX, chunksY;
+    public final int layerCount;
+    private final long[] present;
+    private final Source source;
+
+    public ChunkedMap(int chunkW, int chunkH, int chunksX, int chunksY, int layerCount, long[] present, Source source) {
+        if (chunkW <= 0 || chunkH <= 0 || chunksX < 0 || chunksY < 0) {
+            throw new IllegalArgumentException("Bad chunk grid " + chunksX + "x" + chunksY + " of " + chunkW + "x" + chunkH);
+        }
+        if (present.length < wordCount(chunksX, chunksY)) throw new IllegalArgumentException("Presence bitset too small");
+        this.chunkW = chunkW;
+        this.chunkH = chunkH;
+        this.chunksX = chunksX;
+        this.chunksY = chunksY;
+        this.layerCount = layerCount;
+        this.present = present;
+        this.source = source;
+    }
+
+    /** Chunked map whose chunks are all held in {@code chunks} (index cy * chunksX + cx, null = absent). */
+    public static ChunkedMap inMemory(int chunkW, int chunkH, int chunksX, int chunksY, int layerCount,
+                                      TileLayer[][] chunks) {
+        long[] present = new long[wordCount(chunksX, chunksY)];
+        for (int i = 0; i < chunksX * chunksY; i++) {
+            if (chunks[i] != null) present[i >>> 6] |= 1L << i;
+        }
+        return new ChunkedMap(chunkW, chunkH, chunksX, chunksY, layerCount, present,
+                (cx, cy) -> chunks[cy * chunksX + cx]);
+    }
+
+    public static int wordCount(int chunksX, int chunksY) {
+        return (chunksX * chunksY + 63) >>> 6;
+    }
+
+    /** True when chunk (cx, cy) is inside the grid and holds tiles. */
+    public boolean has(int cx, int cy) {
+        if (cx < 0 || cy < 0 || cx >= chunksX || cy >= chunksY) return false;
+        int i = cy * chunksX + cx;
+        return (present[i >>> 6] & (1L << i)) != 0;
+    }
+
+    /** Tiles of chunk (cx, cy), or null when the chunk is empty. */
+    public TileLayer[] load(int cx, int cy) throws IOException {
+        return has(cx, cy) ? source.load(cx, cy) : null;
+    }
+
+    /** Number of chunks holding tiles. */
+    public int count() {
+        int total = 0;
+        for (long w : present) total += Long.bitCount(w);
+        return total;
+    }
+
+    /** Chunk column of a map column (clamped to the grid). */
+    public int chunkCol(int col) {
+        return Math.max(0, Math.min(chunksX - 1, Math.floorDiv(col, chunkW)));
+    }
+
+    /** Chunk row of a map row (clamped to the grid). */
+    public int chunkRow(int row) {
+        return Math.max(0, Math.min(chunksY - 1, Math.floorDiv(row, chunkH)));
+    }
+}
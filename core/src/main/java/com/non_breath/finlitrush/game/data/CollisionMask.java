@@ -0,0 +1,56 @@
+package com.non_breath.finlitrush.game.data;
+
+/**
+ * Collision mask packed into a long[] bitset (bit index = row * cols + col, set = blocked).
+ * Cells outside the map count as blocked.
+ */
+public final class CollisionMask {
+    public final int cols;
+    public final int rows;
+    private final long[] bits;
+
+    public CollisionMask(int cols, int rows) {
+        this(cols, rows, new long[wordCount(cols, rows)]);
+    }
+
+    /** Wraps an existing bitset without copying (e.g. read from a compiled map). */
+    public CollisionMask(int cols, int rows, long[] bits) {
+        if (bits.length < wordCount(cols, rows)) {
+            throw new IllegalArgumentException("Bitset too small for " + cols + "x" + rows);
+        }
+        this.cols = cols;
+        this.rows = rows;
+        this.bits = bits;
+    }
+
+    public static int wordCount(int cols, int rows) {
+        return (cols * rows + 63) >>> 6;
+    }
+
+    public boolean isBlocked(int col, int row) {
+        if (col < 0 || row < 0 || col >= cols || row >= rows) return true;
+        int i = row * cols + col;
+        return (bits[i >>> 6] & (1L << i)) != 0;
+    }
+
+    public void set(int col, int row, boolean blocked) {
+        int i = row * cols + col;
+        if (blocked) bits[i >>> 6] |= 1L << i;
+        else bits[i >>> 6] &= ~(1L << i);
+    }
+
+    /** Marks every non-zero tile of the layer as blocked (existing blocked cells stay blocked). */
+    public void addNonZero(TileLayer layer) {
+        int n = cols * rows;
+        for (int i = 0; i < n; i++) {
+            if (layer.get(i) != 0) bits[i >>> 6] |= 1L << i;
+        }
+    }
+
+    /** Number of blocked cells. */
+    public int count() {
+        int total = 0;
+        for (long w : bits) total += Long.bitCount(w);
+        return total;
+    }
+}
@@ -0,0 +1,15 @@
+package com.non_breath.finlitrush.game.data;
+
+/**
+ * A decoded image referenced by map data (tileset sheets, image layers). The pixels
+ * belong to the platform layer that decoded them (an android.graphics.Bitmap in the app);
+ * map data and the simulation only see sizes, and drawing code unwraps its own handles.
+ */
+public interface ImageHandle {
+    int getWidth();
+
+    int getHeight();
+
+    /** Memory held by the pixels; 0 once they are released. */
+    long byteCount();
+}
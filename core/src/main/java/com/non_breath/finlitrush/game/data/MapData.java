@@ -0,0 +1,81 @@
+package com.non_breath.finlitrush.game.data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lightweight container for map data loaded from assets (custom JSON or Tiled JSON).
+ */
+public class MapData {
+    public int cols;
+    public int rows;
+
+    // Draw layers (tile indices, flat row-major)
+    public List<TileLayer> tileLayers = new ArrayList<>();
+
+    // Infinite maps: tile layers live in chunks streamed around the camera and tileLayers
+    // stays empty; cols/rows are the chunks' bounding box, which starts at Tiled's
+    // (originCol, originRow) (entity and warp positions are already shifted)
+    public ChunkedMap chunks = null;
+    public int originCol = 0;
+    public int originRow = 0;
+
+    // Collision mask (bit set = blocked)
+    public CollisionMask collision;
+
+    // Optional player start
+    public float playerCol = -1;
+    public float playerRow = -1;
+
+    // NPCs parsed from map (optional)
+    public static class Npc {
+        public int col, row;
+        public String name;
+        public String[] lines;
+    }
+    public final List<Npc> npcs = new ArrayList<>();
+
+    // Warps (doors/portals)
+    public static class Warp { public int col, row; public String target; public int targetCol, targetRow; }
+    public final List<Warp> warps = new ArrayList<>();
+
+    // Image layers (Tiled image layers or custom backgrounds)
+    public static class ImageLayer {
+        public ImageHandle image;
+        public int offsetX;
+        public int offsetY;
+        // camera follow factor: 1 scrolls with the map, below 1 lags behind (distant), 0 is fixed
+        public float parallaxX = 1f;
+        public float parallaxY = 1f;
+    }
+    public final List<ImageLayer> imageLayers = new ArrayList<>();
+
+    // Tileset metadata
+    public String[] tileDrawableNames = null; // android-drawables tileset (index -> name)
+    public int[] tilePaletteColors = null;    // palette tileset (index -> color)
+
+    // Image tilesets (Tiled or custom atlas); tile layers then hold TileTable ids
+    public TileTable tileTable = null;
+
+    public int tileAt(int layer, int col, int row) {
+        return tileLayers.get(layer).get(col, row);
+    }
+
+    public boolean isChunked() {
+        return chunks != null;
+    }
+
+    /** True when the cell is blocked or outside the map. */
+    public boolean isBlocked(int col, int row) {
+        if (collision == null) return col < 0 || row < 0 || col >= cols || row >= rows;
+        return collision.isBlocked(col, row);
+    }
+
+    /** Approximate heap used by tile layers and collision. */
+    public long tileBytes() {
+        long total = 0;
+        for (int i = 0; i < tileLayers.size(); i++) total += tileLayers.get(i).byteSize();
+        if (collision != null) total += 8L * CollisionMask.wordCount(cols, rows);
+        return total;
+    }
+}
@@ -0,0 +1,76 @@
+package com.non_breath.finlitrush.game.data;
+
+/**
+ * One tile layer stored flat in row-major order (index = row * cols + col).
+ * Layers whose tile ids all fit in 16 bits are packed into a short[] (read back unsigned),
+ * everything else keeps an int[].
+ */
+public final class TileLayer {
+    public final int cols;
+    public final int rows;
+    private final int[] ints;
+    private final short[] shorts;
+
+    private TileLayer(int cols, int rows, int[] ints, short[] shorts) {
+        this.cols = cols;
+        this.rows = rows;
+        this.ints = ints;
+        this.shorts = shorts;
+    }
+
+    /** Wraps row-major tile ids, packing them into shorts when every id fits. */
+    public static TileLayer of(int[] tiles, int cols, int rows) {
+        checkSize(tiles.length, cols, rows);
+        for (int v : tiles) {
+            if (v < 0 || v > 0xFFFF) return new TileLayer(cols, rows, tiles, null);
+        }
+        short[] packed = new short[tiles.length];
+        for (int i = 0; i < tiles.length; i++) packed[i] = (short) tiles[i];
+        return new TileLayer(cols, rows, null, packed);
+    }
+
+    /** Wraps row-major unsigned 16-bit tile ids without copying. */
+    public static TileLayer ofShorts(short[] tiles, int cols, int rows) {
+        checkSize(tiles.length, cols, rows);
+        return new TileLayer(cols, rows, null, tiles);
+    }
+
+    /** Wraps row-major tile ids without copying or packing. */
+    public static TileLayer ofInts(int[] tiles, int cols, int rows) {
+        checkSize(tiles.length, cols, rows);
+        return new TileLayer(cols, rows, tiles, null);
+    }
+
+    private static void checkSize(int length, int cols, int rows) {
+        if (cols < 0 || rows < 0 || length < cols * rows) {
+            throw new IllegalArgumentException("Layer needs " + cols + "x" + rows + " tiles, got " + length);
+        }
+    }
+
+    public int get(int col, int row) {
+        return get(row * cols + col);
+    }
+
+    public int get(int index) {
+        return shorts != null ? shorts[index] & 0xFFFF : ints[index];
+    }
+
+    public void set(int col, int row, int tile) {
+        int i = row * cols + col;
+        if (shorts != null) {
+            if (tile < 0 || tile > 0xFFFF) throw new IllegalArgumentException("Tile id " + tile + " does not fit this layer");
+            shorts[i] = (short) tile;
+        } else {
+            ints[i] = tile;
+        }
+    }
+
+    public boolean isPacked() {
+        return shorts != null;
+    }
+
+    /** Heap used by the tile array. */
+    public long byteSize() {
+        return shorts != null ? 2L * shorts.length : 4L * ints.length;
+    }
+}
@@ -0,0 +1,207 @@
+package com.non_breath.finlitrush.game.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resolves Tiled global tile ids (with flip flags in the high bits) against several
+ * tilesets into a dense table of drawable tiles.
+ * - Tilesets are sorted by firstGid; a gid's tileset is found by binary search once,
+ *   at load time
+ * - Every distinct (gid, flags) pair of a map gets a small tile id (0 = empty) holding
+ *   its tileset, source rect origin and orientation; layers store these ids, so they
+ *   usually pack into shorts and drawing is a plain table lookup
+ * - Source rects need the tileset columns, which may come from the decoded image:
+ *   call resolveSources() once the images are in
+ * - Animated tiles (Tiled per-tile frame lists) get their frames appended as extra ids
+ *   by resolveSources(); frameAt() maps an animated id and a clock time to the id of the
+ *   frame to show. The table itself holds no clock state
+ */
+public final class TileTable {
+    public static final int FLIPPED_HORIZONTALLY = 0x80000000;
+    public static final int FLIPPED_VERTICALLY = 0x40000000;
+    public static final int FLIPPED_DIAGONALLY = 0x20000000;
+    public static final int ROTATED_HEXAGONAL_120 = 0x10000000; // hex maps only, ignored
+    public static final int GID_MASK = 0x0FFFFFFF;
+
+    /** Orientation bits (flip horizontally, vertically, diagonally), as in the gid flags. */
+    public static final int ORIENT_H = 4, ORIENT_V = 2, ORIENT_D = 1;
+
+    private final Tileset[] tilesets;
+    private final int[] firstGids;
+
+    // per tile id; id 0 is the empty tile
+    private int size = 1;
+    private int[] tilesetOf = new int[16];
+    private int[] localId = new int[16];
+    private byte[] orientation = new byte[16];
+    private int[] srcX = new int[16];
+    private int[] srcY = new int[16];
+    // animation per tile id: frames animStart .. animStart + animCount - 1 of the flat arrays
+    private int[] animStart = new int[16];
+    private int[] animCount = new int[16];
+    private int[] animTotal = new int[16]; // ms per loop
+    private int[] animFrame = new int[0];
+    private int[] animDuration = new int[0];
+    private int animLength = 0;
+    private int[] animatedIds = new int[0];
+    private boolean animationsResolved = false;
+
+    // load time only: raw gid (with flags) -> tile id
+    private Map<Integer, Integer> idsByGid = new HashMap<>();
+
+    public TileTable(List<Tileset> sets) {
+        List<Tileset> sorted = new ArrayList<>(sets);
+        sorted.sort((a, b) -> Integer.compare(a.firstGid, b.firstGid));
+        tilesets = sorted.toArray(new Tileset[0]);
+        firstGids = new int[tilesets.length];
+        for (int i = 0; i < tilesets.length; i++) firstGids[i] = tilesets[i].firstGid;
+    }
+
+    /** Tilesets in firstGid order (tile ids refer to them by this index). */
+    public List<Tileset> getTilesets() {
+        return Arrays.asList(tilesets);
+    }
+
+    /** Index of the tileset holding {@code gid} (flags already masked), or -1. */
+    public int tilesetIndexForGid(int gid) {
+        int i = Arrays.binarySearch(firstGids, gid);
+        if (i < 0) i = -i - 2; // last tileset starting below gid
+        return i;
+    }
+
+    /**
+     * Maps raw Tiled gids to tile ids, adding table entries for new (gid, flags) pairs.
+     * Gids outside every tileset resolve to the empty tile.
+     */
+    public int[] resolve(int[] gids) {
+        int[] out = new int[gids.length];
+        for (int i = 0; i < gids.length; i++) {
+            int raw = gids[i];
+            if ((raw & GID_MASK) == 0) continue;
+            Integer id = idsByGid.get(raw);
+            if (id == null) {
+                id = entryFor(raw);
+                idsByGid.put(raw, id);
+            }
+            out[i] = id;
+        }
+        return out;
+    }
+
+    private int entryFor(int raw) {
+        int gid = raw & GID_MASK;
+        int ts = tilesetIndexForGid(gid);
+        if (ts < 0) return 0;
+        int local = gid - firstGids[ts];
+        int count = tilesets[ts].tileCount;
+        if (count > 0 && local >= count) return 0;
+        return add(ts, local, raw >>> 29);
+    }
+
+    /** Appends a tile (compiled maps store the table directly). @return its tile id */
+    public int add(int tilesetIndex, int local, int orient) {
+        if (size == tilesetOf.length) {
+            int cap = size * 2;
+            tilesetOf = Arrays.copyOf(tilesetOf, cap);
+            localId = Arrays.copyOf(localId, cap);
+            orientation = Arrays.copyOf(orientation, cap);
+            srcX = Arrays.copyOf(srcX, cap);
+            srcY = Arrays.copyOf(srcY, cap);
+            animStart = Arrays.copyOf(animStart, cap);
+            animCount = Arrays.copyOf(animCount, cap);
+            animTotal = Arrays.copyOf(animTotal, cap);
+        }
+        tilesetOf[size] = tilesetIndex;
+        localId[size] = local;
+        orientation[size] = (byte) (orient & 7);
+        return size++;
+    }
+
+    /**
+     * Appends the frames of animated tiles and computes every tile's source rect origin;
+     * call after the tileset images are decoded.
+     */
+    public void resolveSources() {
+        idsByGid = new HashMap<>();
+        if (!animationsResolved) resolveAnimations();
+        for (int id = 1; id < size; id++) {
+            Tileset ts = tilesets[tilesetOf[id]];
+            int cols = ts.resolvedColumns();
+            int local = localId[id];
+            srcX[id] = cols > 0 ? ts.margin + (local % cols) * (ts.tileW + ts.spacing) : 0;
+            srcY[id] = cols > 0 ? ts.margin + (local / cols) * (ts.tileH + ts.spacing) : 0;
+        }
+    }
+
+    private void resolveAnimations() {
+        animationsResolved = true;
+        int base = size;
+        int[] animated = new int[8];
+        int animatedCount = 0;
+        for (int id = 1; id < base; id++) {
+            Tileset ts = tilesets[tilesetOf[id]];
+            Tileset.Animation anim = ts.animations.isEmpty() ? null : ts.animations.get(localId[id]);
+            if (anim == null || anim.frames.length == 0) continue;
+            int n = anim.frames.length;
+            if (animLength + n > animFrame.length) {
+                int cap = Math.max(animLength + n, animFrame.length * 2);
+                animFrame = Arrays.copyOf(animFrame, cap);
+                animDuration = Arrays.copyOf(animDuration, cap);
+            }
+            int start = animLength;
+            int total = 0;
+            for (int i = 0; i < n; i++) {
+                // frames keep the flip flags of the tile they animate
+                animFrame[start + i] = add(tilesetOf[id], anim.frames[i], orientation[id]);
+                animDuration[start + i] = Math.max(0, anim.durations[i]);
+                total += animDuration[start + i];
+            }
+            animLength += n;
+            animStart[id] = start;
+            animCount[id] = n;
+            animTotal[id] = total;
+            if (animatedCount == animated.length) animated = Arrays.copyOf(animated, animatedCount * 2);
+            animated[animatedCount++] = id;
+        }
+        animatedIds = Arrays.copyOf(animated, animatedCount);
+    }
+
+    public boolean isAnimated(int id) { return animCount[id] != 0; }
+
+    /** Ids of the animated tiles (valid after resolveSources()). */
+    public int[] getAnimatedIds() { return animatedIds; }
+
+    /** Id of the frame an animated tile shows {@code timeMs} into its loop; other ids map to themselves. */
+    public int frameAt(int id, long timeMs) {
+        int n = animCount[id];
+        if (n == 0) return id;
+        int start = animStart[id];
+        if (animTotal[id] <= 0) return animFrame[start];
+        long t = timeMs % animTotal[id];
+        for (int i = 0; i < n; i++) {
+            t -= animDuration[start + i];
+            if (t < 0) return animFrame[start + i];
+        }
+        return animFrame[start + n - 1];
+    }
+
+    /** Number of tile ids, including the empty id 0. */
+    public int size() { return size; }
+
+    public Tileset tileset(int id) { return tilesets[tilesetOf[id]]; }
+
+    public int tilesetIndex(int id) { return tilesetOf[id]; }
+
+    public int localId(int id) { return localId[id]; }
+
+    public int srcX(int id) { return srcX[id]; }
+
+    public int srcY(int id) { return srcY[id]; }
+
+    /** ORIENT_* bits of the tile. */
+    public int orientation(int id) { return orientation[id]; }
+}
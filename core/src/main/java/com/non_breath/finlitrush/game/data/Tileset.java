@@ -0,0 +1,39 @@
+package com.non_breath.finlitrush.game.data;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * One image tileset of a map: tiles firstGid .. firstGid + tileCount - 1 are cut from
+ * {@code image} left to right, top to bottom (Tiled margin/spacing rules).
+ */
+public class Tileset {
+    public int firstGid = 1;
+    public int columns = 0;       // 0 = derive from the image width
+    public int tileW, tileH;
+    public int margin = 0, spacing = 0;
+    public int tileCount = 0;     // 0 = unknown (no upper bound check)
+    public ImageHandle image = null; // decoded image (optional)
+
+    /** Tiled tile animation: frame i shows local tile frames[i] for durations[i] ms. */
+    public static final class Animation {
+        public final int[] frames;
+        public final int[] durations;
+
+        public Animation(int[] frames, int[] durations) {
+            if (frames.length != durations.length) throw new IllegalArgumentException("Frames and durations differ in length");
+            this.frames = frames;
+            this.durations = durations;
+        }
+    }
+
+    // animated tiles by local id
+    public final Map<Integer, Animation> animations = new HashMap<>();
+
+    /** Columns in the image; derived from the decoded image when not declared. */
+    public int resolvedColumns() {
+        if (columns > 0) return columns;
+        if (image == null || tileW <= 0) return 0;
+        return Math.max(1, (image.getWidth() - 2 * margin + spacing) / (tileW + spacing));
+    }
+}
@@ -0,0 +1,39 @@
+package com.non_breath.finlitrush.game.ecs;
+
+/**
+ * Advances the two-frame walk/idle animation of ANIMATION entities and turns idle
+ * FACE_TARGET entities toward their target.
+ * - Walking cycles at WALK_FPS, idling bobs at IDLE_FPS; the clock restarts on each switch
+ */
+public final class AnimationSystem {
+    public static final float WALK_FPS = 8f;
+    public static final float IDLE_FPS = 2f;
+
+    public void update(World w, float dt) {
+        int n = w.upperBound();
+        int[] mask = w.mask;
+        float[] animTime = w.animTime;
+        for (int e = 0; e < n; e++) {
+            int m = mask[e];
+            if ((m & World.ANIMATION) == 0) continue;
+            boolean moving = w.moving[e];
+            if ((m & World.FACE_TARGET) != 0 && !moving) faceTarget(w, e);
+            if (moving != w.animMoving[e]) {
+                w.animMoving[e] = moving;
+                animTime[e] = 0f;
+            } else {
+                animTime[e] += dt;
+            }
+            w.frame[e] = ((int) (animTime[e] * (moving ? WALK_FPS : IDLE_FPS))) & 1;
+        }
+    }
+
+    private static void faceTarget(World w, int e) {
+        int t = w.faceTarget[e];
+        if (!w.isAlive(t)) return;
+        float dx = w.x[t] - w.x[e];
+        float dy = w.y[t] - w.y[e];
+        if (Math.abs(dx) >= Math.abs(dy)) w.dir[e] = dx >= 0 ? World.DIR_RIGHT : World.DIR_LEFT;
+        else w.dir[e] = dy >= 0 ? World.DIR_DOWN : World.DIR_UP;
+    }
+}
@@ -0,0 +1,42 @@
+package com.non_breath.finlitrush.game.ecs;
+
+/**
+ * Integrates velocity into position for every POSITION|VELOCITY entity and derives the
+ * facing direction and moving flag. COLLIDER entities move through the map collider.
+ */
+public final class MovementSystem {
+
+    /** Resolves a move against the map; writes the final position into world.x/y. */
+    public interface Collider {
+        void move(World world, int e, float dx, float dy);
+    }
+
+    private static final int REQUIRED = World.POSITION | World.VELOCITY;
+
+    public void update(World w, float dt, Collider collider) {
+        int n = w.upperBound();
+        int[] mask = w.mask;
+        float[] x = w.x, y = w.y, vx = w.vx, vy = w.vy;
+        for (int e = 0; e < n; e++) {
+            int m = mask[e];
+            if ((m & REQUIRED) != REQUIRED) continue;
+            float dx = vx[e] * dt;
+            float dy = vy[e] * dt;
+            boolean moving = dx != 0f || dy != 0f;
+            w.moving[e] = moving;
+            if (!moving) continue;
+            if (Math.abs(vx[e]) >= Math.abs(vy[e])) {
+                w.dir[e] = vx[e] >= 0 ? World.DIR_RIGHT : World.DIR_LEFT;
+            } else {
+                w.dir[e] = vy[e] >= 0 ? World.DIR_DOWN : World.DIR_UP;
+            }
+            if ((m & World.COLLIDER) != 0 && collider != null) {
+                collider.move(w, e, dx, dy);
+            } else {
+                x[e] += dx;
+                y[e] += dy;
+            }
+            w.updateCell(e);
+        }
+    }
+}
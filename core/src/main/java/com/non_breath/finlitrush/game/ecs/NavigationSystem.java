@@ -0,0 +1,113 @@
+package com.non_breath.finlitrush.game.ecs;
+
+import com.non_breath.finlitrush.game.nav.Pathfinder;
+
+/**
+ * Walks PATH entities along grid paths and sends ROUTE entities from waypoint to waypoint.
+ * - A PATH entity steers toward the centre of its next path cell at speed[e]; it lands
+ *   exactly on the last cell and PATH is cleared on arrival
+ * - A ROUTE entity without a path waits ROUTE_PAUSE_SEC, then asks the pathfinder for
+ *   the way to the next waypoint of its looped route (unreachable waypoints are skipped)
+ * Runs before MovementSystem, which integrates the velocities written here.
+ */
+public final class NavigationSystem {
+    public static final float ROUTE_PAUSE_SEC = 1.5f;
+    private static final float ARRIVE_EPSILON = 0.01f;
+
+    private final Pathfinder pathfinder;
+
+    public NavigationSystem(Pathfinder pathfinder) {
+        this.pathfinder = pathfinder;
+    }
+
+    /**
+     * Sends the entity to a cell from the cell it stands on.
+     * @return false (and the entity stops) when the cell cannot be reached
+     */
+    public boolean moveTo(World w, int e, int col, int row) {
+        int[] p = pathfinder.findPath(Math.round(w.x[e]), Math.round(w.y[e]), col, row);
+        if (p == null) {
+            stop(w, e);
+            return false;
+        }
+        w.path[e] = p;
+        // cell 0 is the one we stand on; head straight for the next one unless it is the goal
+        w.pathStep[e] = p.length > 1 ? 1 : 0;
+        w.mask[e] |= World.PATH;
+        return true;
+    }
+
+    /** Drops the entity's path; a ROUTE entity resumes its patrol after the usual pause. */
+    public void stop(World w, int e) {
+        if (!w.isAlive(e)) return;
+        w.mask[e] &= ~World.PATH;
+        w.path[e] = null;
+        w.vx[e] = w.vy[e] = 0f;
+        w.routeWait[e] = ROUTE_PAUSE_SEC;
+    }
+
+    /** Holds every navigating entity in place for this step (e.g. while a dialog is open). */
+    public void hold(World w) {
+        int n = w.upperBound();
+        int[] mask = w.mask;
+        for (int e = 0; e < n; e++) {
+            if ((mask[e] & (World.PATH | World.ROUTE)) != 0) w.vx[e] = w.vy[e] = 0f;
+        }
+    }
+
+    public void update(World w, float dt) {
+        if (dt <= 0f) return;
+        int n = w.upperBound();
+        int[] mask = w.mask;
+        for (int e = 0; e < n; e++) {
+            int m = mask[e];
+            if ((m & World.PATH) != 0) {
+                follow(w, e, dt);
+            } else if ((m & World.ROUTE) != 0 && w.route[e] != null) {
+                w.vx[e] = w.vy[e] = 0f;
+                w.routeWait[e] -= dt;
+                if (w.routeWait[e] <= 0f) nextWaypoint(w, e);
+            }
+        }
+    }
+
+    private void follow(World w, int e, float dt) {
+        int[] p = w.path[e];
+        int cols = pathfinder.getPathCols();
+        float reach = w.speed[e] * dt;
+        while (true) {
+            int step = w.pathStep[e];
+            float dx = p[step] % cols - w.x[e];
+            float dy = p[step] / cols - w.y[e];
+            float dist = (float) Math.sqrt(dx * dx + dy * dy);
+            boolean last = step == p.length - 1;
+            if (dist <= ARRIVE_EPSILON && last) {
+                stop(w, e);
+                return;
+            }
+            // pass through intermediate cells without braking
+            if (dist <= reach && !last) {
+                w.pathStep[e] = step + 1;
+                continue;
+            }
+            float scale = dist <= reach ? 1f / dt : w.speed[e] / dist;
+            w.vx[e] = dx * scale;
+            w.vy[e] = dy * scale;
+            return;
+        }
+    }
+
+    private void nextWaypoint(World w, int e) {
+        int[] r = w.route[e];
+        int count = r.length / 2;
+        // try each waypoint once; an unreachable one is skipped until the next lap
+        for (int tries = 0; tries < count; tries++) {
+            int i = w.routeStep[e];
+            w.routeStep[e] = (i + 1) % count;
+            int col = r[i * 2], row = r[i * 2 + 1];
+            if (col == Math.round(w.x[e]) && row == Math.round(w.y[e]) && count > 1) continue;
+            if (moveTo(w, e, col, row)) return;
+        }
+        w.routeWait[e] = ROUTE_PAUSE_SEC;
+    }
+}
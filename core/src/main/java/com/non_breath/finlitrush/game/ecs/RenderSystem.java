@@ -0,0 +1,51 @@
+package com.non_breath.finlitrush.game.ecs;
+
+import java.util.Arrays;
+
+/**
+ * Finds the POSITION|SPRITE|INDEXED entities around the view with a rect query on the
+ * World's spatial grid, interpolates their position and hands the visible ones to a
+ * SpriteDrawer in id order. Keeps the ECS free of Android drawing types.
+ * Entities without INDEXED are never drawn. Not thread-safe: one instance per drawing thread.
+ */
+public final class RenderSystem {
+
+    /** Draws one entity centred on (tileX, tileY), in tile units. */
+    public interface SpriteDrawer {
+        void drawSprite(World world, int e, float tileX, float tileY);
+    }
+
+    private static final int REQUIRED = World.POSITION | World.SPRITE | World.INDEXED;
+    // the grid holds the rounded current tile; the interpolated position lags it by up to a
+    // step (World.snapTeleports caps that at one tile) plus the rounding
+    private static final float CELL_SLACK = 1.5f;
+
+    private int[] visible = new int[64];
+
+    /**
+     * Draws entities having all of {@code require} and none of {@code exclude} whose interpolated
+     * tile lies inside the inclusive rect (c0, r0)-(c1, r1).
+     */
+    public void render(World w, float alpha, float c0, float r0, float c1, float r1,
+                       int require, int exclude, SpriteDrawer drawer) {
+        int qc0 = (int) Math.floor(c0 - CELL_SLACK), qr0 = (int) Math.floor(r0 - CELL_SLACK);
+        int qc1 = (int) Math.ceil(c1 + CELL_SLACK), qr1 = (int) Math.ceil(r1 + CELL_SLACK);
+        int n;
+        while ((n = w.grid().query(qc0, qr0, qc1, qr1, visible)) > visible.length) {
+            visible = new int[Math.max(n, visible.length * 2)];
+        }
+        // bucket order -> id order, so overlapping sprites stack the same way every frame
+        Arrays.sort(visible, 0, n);
+        int[] mask = w.mask;
+        int need = REQUIRED | require;
+        for (int i = 0; i < n; i++) {
+            int e = visible[i];
+            int m = mask[e];
+            if ((m & need) != need || (m & exclude) != 0) continue;
+            float tx = w.lerpX(e, alpha);
+            float ty = w.lerpY(e, alpha);
+            if (tx < c0 || tx > c1 || ty < r0 || ty > r1) continue;
+            drawer.drawSprite(w, e, tx, ty);
+        }
+    }
+}
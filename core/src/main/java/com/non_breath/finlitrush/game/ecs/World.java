@@ -0,0 +1,261 @@
+package com.non_breath.finlitrush.game.ecs;
+
+import com.non_breath.finlitrush.game.world.IntSpatialGrid;
+
+import java.util.Arrays;
+
+/**
+ * Entity storage for game actors (player, NPCs) as parallel primitive arrays.
+ * - An entity is an int index; mask[e] holds its component bits (0 = free slot)
+ * - Systems iterate 0..upperBound() and test the mask, touching only the arrays they need
+ * - Arrays grow by doubling; never cache them across a create() call
+ * - INDEXED entities are kept in an IntSpatialGrid (keyed by entity id) by their rounded
+ *   tile position; RenderSystem culls to the view with it
+ * Not thread-safe: owned by the simulation thread.
+ */
+public final class World {
+    // component bits
+    public static final int POSITION = 1;
+    public static final int VELOCITY = 1 << 1;
+    public static final int SPRITE = 1 << 2;
+    public static final int ANIMATION = 1 << 3;
+    public static final int DIALOG = 1 << 4;
+    public static final int FACE_TARGET = 1 << 5; // idle entities turn toward faceTarget[e]
+    public static final int COLLIDER = 1 << 6;    // movement goes through the map collider
+    public static final int INDEXED = 1 << 7;     // kept in the spatial grid
+    public static final int PLAYER = 1 << 8;
+    public static final int PATH = 1 << 9;        // following path[e] (NavigationSystem)
+    public static final int ROUTE = 1 << 10;      // patrols route[e] (NavigationSystem)
+
+    public static final int DIR_DOWN = 0, DIR_LEFT = 1, DIR_RIGHT = 2, DIR_UP = 3;
+    public static final int NONE = -1;
+
+    public int[] mask;
+    // position (tile units; prev = position before the current simulation step)
+    public float[] x, y, prevX, prevY;
+    // velocity (tiles per second)
+    public float[] vx, vy;
+    // facing and motion state (written by MovementSystem)
+    public int[] dir;
+    public boolean[] moving;
+    // sprite set id (resolved to bitmaps by the renderer)
+    public int[] sprite;
+    // animation clock and current frame
+    public float[] animTime;
+    public int[] frame;
+    public boolean[] animMoving;
+    // dialog
+    public String[] name;
+    public String[][] lines;
+    // entity to face when idle (FACE_TARGET)
+    public int[] faceTarget;
+    // navigation: walk speed (tiles per second), path cells and the cell being walked to,
+    // patrol waypoints (col, row pairs), next waypoint and the pause left before it
+    public float[] speed;
+    public int[][] path;
+    public int[] pathStep;
+    public int[][] route;
+    public int[] routeStep;
+    public float[] routeWait;
+
+    private int[] cellCol, cellRow, nextFree;
+    private int freeHead = NONE;
+    private int upperBound = 0;
+    private int alive = 0;
+    private IntSpatialGrid grid = new IntSpatialGrid(1, 1);
+    private int[] tileScratch = new int[4];
+
+    public World(int initialCapacity) {
+        allocate(Math.max(4, initialCapacity));
+    }
+
+    /** Exclusive upper bound of entity ids in use; systems loop {@code e < upperBound()}. */
+    public int upperBound() { return upperBound; }
+
+    public int size() { return alive; }
+
+    /** Spatial index of the INDEXED entities by rounded tile position. */
+    public IntSpatialGrid grid() { return grid; }
+
+    public int create(int components) {
+        int e;
+        if (freeHead != NONE) {
+            e = freeHead;
+            freeHead = nextFree[e];
+        } else {
+            if (upperBound == mask.length) allocate(mask.length * 2);
+            e = upperBound++;
+        }
+        mask[e] = components | POSITION;
+        x[e] = y[e] = prevX[e] = prevY[e] = 0f;
+        vx[e] = vy[e] = 0f;
+        dir[e] = DIR_DOWN;
+        moving[e] = animMoving[e] = false;
+        sprite[e] = 0;
+        animTime[e] = 0f;
+        frame[e] = 0;
+        name[e] = null;
+        lines[e] = null;
+        faceTarget[e] = NONE;
+        speed[e] = 0f;
+        path[e] = null;
+        pathStep[e] = 0;
+        route[e] = null;
+        routeStep[e] = 0;
+        routeWait[e] = 0f;
+        cellCol[e] = cellRow[e] = 0;
+        if ((components & INDEXED) != 0) grid.put(e, 0, 0);
+        alive++;
+        return e;
+    }
+
+    public void destroy(int e) {
+        if (!isAlive(e)) return;
+        grid.remove(e);
+        mask[e] = 0;
+        name[e] = null;
+        lines[e] = null;
+        path[e] = null;
+        route[e] = null;
+        nextFree[e] = freeHead;
+        freeHead = e;
+        alive--;
+    }
+
+    /** Destroys every entity that has none of {@code keepMask}'s bits (e.g. all but the player). */
+    public void destroyAllExcept(int keepMask) {
+        for (int e = 0; e < upperBound; e++) {
+            if (mask[e] != 0 && (mask[e] & keepMask) == 0) destroy(e);
+        }
+    }
+
+    public boolean isAlive(int e) {
+        return e >= 0 && e < upperBound && mask[e] != 0;
+    }
+
+    public boolean has(int e, int components) {
+        return isAlive(e) && (mask[e] & components) == components;
+    }
+
+    /** Teleports the entity (no interpolation from the old position). */
+    public void setPosition(int e, float px, float py) {
+        x[e] = prevX[e] = px;
+        y[e] = prevY[e] = py;
+        updateCell(e);
+    }
+
+    /** Re-buckets the entity if its rounded tile changed; call after writing x/y. */
+    public void updateCell(int e) {
+        int c = Math.round(x[e]);
+        int r = Math.round(y[e]);
+        if (c == cellCol[e] && r == cellRow[e]) return;
+        cellCol[e] = c;
+        cellRow[e] = r;
+        if (grid.contains(e)) grid.put(e, c, r);
+    }
+
+    /** Starts a simulation step: remembers every position for render interpolation. */
+    public void beginStep() {
+        System.arraycopy(x, 0, prevX, 0, upperBound);
+        System.arraycopy(y, 0, prevY, 0, upperBound);
+    }
+
+    /** Ends a simulation step: jumps longer than {@code maxDelta} tiles are not interpolated. */
+    public void snapTeleports(float maxDelta) {
+        for (int e = 0; e < upperBound; e++) {
+            if (Math.abs(x[e] - prevX[e]) > maxDelta || Math.abs(y[e] - prevY[e]) > maxDelta) {
+                prevX[e] = x[e];
+                prevY[e] = y[e];
+            }
+        }
+    }
+
+    public float lerpX(int e, float alpha) { return prevX[e] + (x[e] - prevX[e]) * alpha; }
+
+    public float lerpY(int e, float alpha) { return prevY[e] + (y[e] - prevY[e]) * alpha; }
+
+    /**
+     * Copies what RenderSystem and sprite drawing read (mask, positions, facing, motion,
+     * sprite, frame and the spatial index) into {@code dst}, keeping entity ids. dst's
+     * dialog and navigation data are left stale; use it for drawing only.
+     */
+    public void copyRenderStateTo(World dst) {
+        int n = upperBound;
+        if (dst.mask.length < n) dst.allocate(mask.length);
+        // sync dst's index: only entities that changed tile (or appeared/vanished) are relinked
+        if (dst.grid.getCols() != grid.getCols() || dst.grid.getRows() != grid.getRows()) {
+            dst.grid = new IntSpatialGrid(grid.getCols(), grid.getRows());
+        }
+        for (int e = 0; e < n; e++) {
+            if ((mask[e] & INDEXED) != 0) dst.grid.put(e, cellCol[e], cellRow[e]);
+            else dst.grid.remove(e);
+        }
+        for (int e = n; e < dst.upperBound; e++) dst.grid.remove(e);
+        System.arraycopy(mask, 0, dst.mask, 0, n);
+        System.arraycopy(x, 0, dst.x, 0, n);
+        System.arraycopy(y, 0, dst.y, 0, n);
+        System.arraycopy(prevX, 0, dst.prevX, 0, n);
+        System.arraycopy(prevY, 0, dst.prevY, 0, n);
+        System.arraycopy(dir, 0, dst.dir, 0, n);
+        System.arraycopy(moving, 0, dst.moving, 0, n);
+        System.arraycopy(sprite, 0, dst.sprite, 0, n);
+        System.arraycopy(frame, 0, dst.frame, 0, n);
+        dst.upperBound = n;
+    }
+
+    /** Rebuilds the spatial index for a map of the given size. */
+    public void resizeGrid(int cols, int rows) {
+        grid = new IntSpatialGrid(cols, rows);
+        for (int e = 0; e < upperBound; e++) {
+            if (mask[e] == 0 || (mask[e] & INDEXED) == 0) continue;
+            cellCol[e] = Math.round(x[e]);
+            cellRow[e] = Math.round(y[e]);
+            grid.put(e, cellCol[e], cellRow[e]);
+        }
+    }
+
+    /** Entity with all of {@code components} standing on the tile, or NONE. */
+    public int firstAt(int col, int row, int components) {
+        int found;
+        while ((found = grid.query(col, row, col, row, tileScratch)) > tileScratch.length) tileScratch = new int[found];
+        for (int i = 0; i < found; i++) {
+            int e = tileScratch[i];
+            if ((mask[e] & components) == components) return e;
+        }
+        return NONE;
+    }
+
+    private void allocate(int capacity) {
+        mask = grow(mask, capacity);
+        x = grow(x, capacity);
+        y = grow(y, capacity);
+        prevX = grow(prevX, capacity);
+        prevY = grow(prevY, capacity);
+        vx = grow(vx, capacity);
+        vy = grow(vy, capacity);
+        dir = grow(dir, capacity);
+        moving = grow(moving, capacity);
+        sprite = grow(sprite, capacity);
+        animTime = grow(animTime, capacity);
+        frame = grow(frame, capacity);
+        animMoving = grow(animMoving, capacity);
+        name = name == null ? new String[capacity] : Arrays.copyOf(name, capacity);
+        lines = lines == null ? new String[capacity][] : Arrays.copyOf(lines, capacity);
+        faceTarget = grow(faceTarget, capacity);
+        speed = grow(speed, capacity);
+        path = path == null ? new int[capacity][] : Arrays.copyOf(path, capacity);
+        pathStep = grow(pathStep, capacity);
+        route = route == null ? new int[capacity][] : Arrays.copyOf(route, capacity);
+        routeStep = grow(routeStep, capacity);
+        routeWait = grow(routeWait, capacity);
+        cellCol = grow(cellCol, capacity);
+        cellRow = grow(cellRow, capacity);
+        nextFree = grow(nextFree, capacity);
+    }
+
+    private static int[] grow(int[] a, int n) { return a == null ? new int[n] : Arrays.copyOf(a, n); }
+
+    private static float[] grow(float[] a, int n) { return a == null ? new float[n] : Arrays.copyOf(a, n); }
+
+    private static boolean[] grow(boolean[] a, int n) { return a == null ? new boolean[n] : Arrays.copyOf(a, n); }
+}
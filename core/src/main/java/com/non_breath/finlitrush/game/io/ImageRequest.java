@@ -0,0 +1,36 @@
+package com.non_breath.finlitrush.game.io;
+
+import com.non_breath.finlitrush.game.data.MapData;
+import com.non_breath.finlitrush.game.data.Tileset;
+
+/**
+ * One image a map names for an image layer or a tileset: an asset path, base64 text or
+ * embedded bytes. Map readers list them; the loader decodes them into the layer/tileset.
+ */
+public final class ImageRequest {
+    public final String assetPath;
+    public final String base64;
+    public final byte[] bytes;
+    public final MapData.ImageLayer layer;
+    public final Tileset tileset;
+
+    private ImageRequest(String assetPath, String base64, byte[] bytes, MapData.ImageLayer layer, Tileset tileset) {
+        this.assetPath = assetPath; this.base64 = base64; this.bytes = bytes; this.layer = layer; this.tileset = tileset;
+    }
+
+    public static ImageRequest asset(String assetPath, MapData.ImageLayer layer) {
+        return new ImageRequest(assetPath, null, null, layer, null);
+    }
+
+    public static ImageRequest asset(String assetPath, Tileset tileset) {
+        return new ImageRequest(assetPath, null, null, null, tileset);
+    }
+
+    public static ImageRequest base64(String base64, Tileset tileset) {
+        return new ImageRequest(null, base64, null, null, tileset);
+    }
+
+    public static ImageRequest embedded(byte[] bytes, Tileset tileset) {
+        return new ImageRequest(null, null, bytes, null, tileset);
+    }
+}
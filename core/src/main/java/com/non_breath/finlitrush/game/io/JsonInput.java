@@ -0,0 +1,43 @@
+package com.non_breath.finlitrush.game.io;
+
+import java.io.IOException;
+
+/**
+ * Pull-style JSON reader the map rules (MapJson) are written against: the subset of
+ * android.util.JsonReader they use. The app streams through JsonReader; the build-time
+ * map compiler walks its own parse tree.
+ */
+public interface JsonInput {
+    void beginObject() throws IOException;
+
+    void endObject() throws IOException;
+
+    void beginArray() throws IOException;
+
+    void endArray() throws IOException;
+
+    /** True while the current object or array has more elements. */
+    boolean hasNext() throws IOException;
+
+    String nextName() throws IOException;
+
+    String nextString() throws IOException;
+
+    int nextInt() throws IOException;
+
+    long nextLong() throws IOException;
+
+    double nextDouble() throws IOException;
+
+    boolean nextBoolean() throws IOException;
+
+    void nextNull() throws IOException;
+
+    void skipValue() throws IOException;
+
+    /** True when the next value is null. */
+    boolean peekNull() throws IOException;
+
+    /** True when the next value is an array. */
+    boolean peekArray() throws IOException;
+}
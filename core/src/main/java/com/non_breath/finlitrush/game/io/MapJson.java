@@ -0,0 +1,687 @@
+package com.non_breath.finlitrush.game.io;
+
+import com.non_breath.finlitrush.game.data.ChunkedMap;
+import com.non_breath.finlitrush.game.data.CollisionMask;
+import com.non_breath.finlitrush.game.data.MapData;
+import com.non_breath.finlitrush.game.data.TileLayer;
+import com.non_breath.finlitrush.game.data.TileTable;
+import com.non_breath.finlitrush.game.data.Tileset;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The map JSON rules (custom format and Tiled), shared by the runtime loader (MapLoader)
+ * and the build-time map compiler, so both build the same MapData.
+ * - custom: one tile layer, collision from "collision" or non-zero tiles; a drawable,
+ *   palette or atlas tileset
+ * - Tiled: layers named collision/collide are merged into the collision mask; image
+ *   tilesets are resolved into a TileTable and the layers store its ids (palette colors
+ *   of the first tileset otherwise)
+ * - Tiled infinite maps are re-cut into a uniform chunk grid (MapData.chunks) over the
+ *   bounding box of their chunks, shifted so it starts at (0, 0)
+ * Images are not decoded here: read() lists them as ImageRequests for the caller.
+ */
+public final class MapJson {
+    private MapJson() {}
+
+    /** A map built from JSON and the images it still needs. */
+    public static final class Parsed {
+        public final MapData map;
+        public final List<ImageRequest> images;
+
+        Parsed(MapData map, List<ImageRequest> images) {
+            this.map = map;
+            this.images = images;
+        }
+    }
+
+    /** Reads one map document (custom or Tiled) from {@code in}. */
+    public static Parsed read(JsonInput in) throws IOException {
+        RawMap raw = parseRoot(in);
+        MapData md = raw.isTiled() ? fromTiled(raw) : fromCustom(raw);
+        return new Parsed(md, imageRequests(raw, md));
+    }
+
+    // ---- streaming parse into an intermediate model (JSON key order is not guaranteed) ----
+
+    private static final class RawLayer {
+        String type = "", name = "", image;
+        int[] data;
+        List<RawChunk> chunks; // infinite maps
+        double offsetX, offsetY;
+        float parallaxX = 1f, parallaxY = 1f;
+    }
+
+    private static final class RawChunk {
+        int x, y, width, height;
+        int[] data;
+    }
+
+    private static final class RawTileset {
+        int firstGid = 1, columns = 0, tileW = -1, tileH = -1, margin = 0, spacing = 0, tileCount = 0;
+        String image, imageBase64;
+        String[] colors;
+        final Map<Integer, Tileset.Animation> animations = new HashMap<>();
+        Tileset built; // set by fromTiled for image tilesets
+
+        boolean hasImage() { return image != null || imageBase64 != null; }
+    }
+
+    private static final class RawImage {
+        String image;
+        int offsetX, offsetY;
+        float parallaxX = 1f, parallaxY = 1f;
+    }
+
+    private static final class RawMap {
+        // custom format
+        Integer cols, rows;
+        List<int[]> tiles, collision;
+        float playerCol = -1, playerRow = -1;
+        final List<MapData.Npc> npcs = new ArrayList<>();
+        final List<RawImage> imageLayers = new ArrayList<>();
+        String tilesetType = "";
+        String[] tilesetDrawables, tilesetPalette;
+        RawImage atlas; int atlasTileW = -1, atlasTileH = -1, atlasColumns = -1, atlasFirstGid = 1;
+        Tileset atlasTileset; // set by fromCustom
+        // Tiled format
+        Integer width, height, tileWidth, tileHeight;
+        boolean infinite;
+        List<RawLayer> layers;
+        List<RawTileset> tilesets;
+        // shared
+        final List<MapData.Warp> warps = new ArrayList<>();
+
+        boolean isTiled() { return layers != null && tilesets != null; }
+    }
+
+    private static RawMap parseRoot(JsonInput r) throws IOException {
+        RawMap m = new RawMap();
+        r.beginObject();
+        while (r.hasNext()) {
+            switch (r.nextName()) {
+                case "cols": m.cols = r.nextInt(); break;
+                case "rows": m.rows = r.nextInt(); break;
+                case "tiles": m.tiles = readIntRows(r); break;
+                case "collision": m.collision = readIntRows(r); break;
+                case "player": readPlayer(r, m); break;
+                case "npcs": readNpcs(r, m.npcs); break;
+                case "imageLayers": readCustomImageLayers(r, m.imageLayers); break;
+                case "tileset": readCustomTileset(r, m); break;
+                case "width": m.width = r.nextInt(); break;
+                case "height": m.height = r.nextInt(); break;
+                case "tilewidth": m.tileWidth = r.nextInt(); break;
+                case "tileheight": m.tileHeight = r.nextInt(); break;
+                case "infinite": m.infinite = r.nextBoolean(); break;
+                case "layers": m.layers = readTiledLayers(r); break;
+                case "tilesets": m.tilesets = readTiledTilesets(r); break;
+                case "warps": readWarps(r, m.warps); break;
+                default: r.skipValue();
+            }
+        }
+        r.endObject();
+        return m;
+    }
+
+    private static List<int[]> readIntRows(JsonInput r) throws IOException {
+        List<int[]> rows = new ArrayList<>();
+        r.beginArray();
+        while (r.hasNext()) rows.add(readIntArray(r));
+        r.endArray();
+        return rows;
+    }
+
+    // tile ids; Tiled writes gids with flip flags as unsigned 32-bit numbers, kept as their int bits
+    private static int[] readIntArray(JsonInput r) throws IOException {
+        int[] buf = new int[64];
+        int n = 0;
+        r.beginArray();
+        while (r.hasNext()) {
+            if (n == buf.length) buf = Arrays.copyOf(buf, n * 2);
+            buf[n++] = (int) r.nextLong();
+        }
+        r.endArray();
+        return n == buf.length ? buf : Arrays.copyOf(buf, n);
+    }
+
+    private static String[] readStringArray(JsonInput r) throws IOException {
+        List<String> out = new ArrayList<>();
+        r.beginArray();
+        while (r.hasNext()) out.add(r.nextString());
+        r.endArray();
+        return out.toArray(new String[0]);
+    }
+
+    private static String nextStringOrNull(JsonInput r) throws IOException {
+        if (r.peekNull()) { r.nextNull(); return null; }
+        return r.nextString();
+    }
+
+    private static void readPlayer(JsonInput r, RawMap m) throws IOException {
+        r.beginObject();
+        while (r.hasNext()) {
+            switch (r.nextName()) {
+                case "col": m.playerCol = (float) r.nextDouble(); break;
+                case "row": m.playerRow = (float) r.nextDouble(); break;
+                default: r.skipValue();
+            }
+        }
+        r.endObject();
+    }
+
+    private static void readNpcs(JsonInput r, List<MapData.Npc> out) throws IOException {
+        r.beginArray();
+        while (r.hasNext()) {
+            MapData.Npc npc = new MapData.Npc();
+            npc.name = "NPC";
+            boolean hasCol = false, hasRow = false;
+            r.beginObject();
+            while (r.hasNext()) {
+                switch (r.nextName()) {
+                    case "col": npc.col = r.nextInt(); hasCol = true; break;
+                    case "row": npc.row = r.nextInt(); hasRow = true; break;
+                    case "name": npc.name = r.nextString(); break;
+                    case "lines": npc.lines = readStringArray(r); break;
+                    default: r.skipValue();
+                }
+            }
+            r.endObject();
+            if (!hasCol || !hasRow) throw new IOException("NPC is missing col/row");
+            if (npc.lines == null) npc.lines = new String[]{"..."};
+            out.add(npc);
+        }
+        r.endArray();
+    }
+
+    private static void readCustomImageLayers(JsonInput r, List<RawImage> out) throws IOException {
+        r.beginArray();
+        while (r.hasNext()) {
+            RawImage img = new RawImage();
+            r.beginObject();
+            while (r.hasNext()) {
+                switch (r.nextName()) {
+                    case "image": img.image = r.nextString(); break;
+                    case "offsetX": img.offsetX = r.nextInt(); break;
+                    case "offsetY": img.offsetY = r.nextInt(); break;
+                    case "parallaxX": img.parallaxX = (float) r.nextDouble(); break;
+                    case "parallaxY": img.parallaxY = (float) r.nextDouble(); break;
+                    default: r.skipValue();
+                }
+            }
+            r.endObject();
+            if (img.image == null) throw new IOException("Image layer is missing image");
+            out.add(img);
+        }
+        r.endArray();
+    }
+
+    private static void readCustomTileset(JsonInput r, RawMap m) throws IOException {
+        r.beginObject();
+        while (r.hasNext()) {
+            switch (r.nextName()) {
+                case "type": m.tilesetType = r.nextString(); break;
+                case "drawables": m.tilesetDrawables = readStringArray(r); break;
+                case "palette": m.tilesetPalette = readStringArray(r); break;
+                case "atlas": {
+                    m.atlas = new RawImage();
+                    r.beginObject();
+                    while (r.hasNext()) {
+                        switch (r.nextName()) {
+                            case "image": m.atlas.image = r.nextString(); break;
+                            case "tileW": m.atlasTileW = r.nextInt(); break;
+                            case "tileH": m.atlasTileH = r.nextInt(); break;
+                            case "columns": m.atlasColumns = r.nextInt(); break;
+                            case "firstgid": m.atlasFirstGid = r.nextInt(); break;
+                            default: r.skipValue();
+                        }
+                    }
+                    r.endObject();
+                    break;
+                }
+                default: r.skipValue();
+            }
+        }
+        r.endObject();
+    }
+
+    private static List<RawLayer> readTiledLayers(JsonInput r) throws IOException {
+        List<RawLayer> out = new ArrayList<>();
+        r.beginArray();
+        while (r.hasNext()) {
+            RawLayer layer = new RawLayer();
+            r.beginObject();
+            while (r.hasNext()) {
+                switch (r.nextName()) {
+                    case "type": layer.type = r.nextString(); break;
+                    case "name": layer.name = r.nextString(); break;
+                    case "image": layer.image = r.nextString(); break;
+                    case "offsetx": layer.offsetX = r.nextDouble(); break;
+                    case "offsety": layer.offsetY = r.nextDouble(); break;
+                    case "parallaxx": layer.parallaxX = (float) r.nextDouble(); break;
+                    case "parallaxy": layer.parallaxY = (float) r.nextDouble(); break;
+                    case "data":
+                        if (!r.peekArray()) throw new IOException("Unsupported tile layer encoding");
+                        layer.data = readIntArray(r);
+                        break;
+                    case "chunks": layer.chunks = readTiledChunks(r); break;
+                    default: r.skipValue();
+                }
+            }
+            r.endObject();
+            out.add(layer);
+        }
+        r.endArray();
+        return out;
+    }
+
+    private static List<RawChunk> readTiledChunks(JsonInput r) throws IOException {
+        List<RawChunk> out = new ArrayList<>();
+        r.beginArray();
+        while (r.hasNext()) {
+            RawChunk chunk = new RawChunk();
+            r.beginObject();
+            while (r.hasNext()) {
+                switch (r.nextName()) {
+                    case "x": chunk.x = r.nextInt(); break;
+                    case "y": chunk.y = r.nextInt(); break;
+                    case "width": chunk.width = r.nextInt(); break;
+                    case "height": chunk.height = r.nextInt(); break;
+                    case "data":
+                        if (!r.peekArray()) throw new IOException("Unsupported chunk encoding");
+                        chunk.data = readIntArray(r);
+                        break;
+                    default: r.skipValue();
+                }
+            }
+            r.endObject();
+            if (chunk.width <= 0 || chunk.height <= 0 || chunk.data == null || chunk.data.length < chunk.width * chunk.height) {
+                throw new IOException("Chunk at " + chunk.x + "," + chunk.y + " has too little data");
+            }
+            out.add(chunk);
+        }
+        r.endArray();
+        return out;
+    }
+
+    private static List<RawTileset> readTiledTilesets(JsonInput r) throws IOException {
+        List<RawTileset> out = new ArrayList<>();
+        r.beginArray();
+        while (r.hasNext()) {
+            RawTileset ts = new RawTileset();
+            r.beginObject();
+            while (r.hasNext()) {
+                switch (r.nextName()) {
+                    case "firstgid": ts.firstGid = r.nextInt(); break;
+                    case "columns": ts.columns = r.nextInt(); break;
+                    case "tilewidth": ts.tileW = r.nextInt(); break;
+                    case "tileheight": ts.tileH = r.nextInt(); break;
+                    case "margin": ts.margin = r.nextInt(); break;
+                    case "spacing": ts.spacing = r.nextInt(); break;
+                    case "tilecount": ts.tileCount = r.nextInt(); break;
+                    case "image": ts.image = r.nextString(); break;
+                    case "imageBase64": ts.imageBase64 = r.nextString(); break;
+                    case "colors": ts.colors = readStringArray(r); break;
+                    case "tiles": readTiledTileAnimations(r, ts.animations); break;
+                    default: r.skipValue();
+                }
+            }
+            r.endObject();
+            out.add(ts);
+        }
+        r.endArray();
+        return out;
+    }
+
+    // per-tile entries of a tileset; only animations are used
+    private static void readTiledTileAnimations(JsonInput r, Map<Integer, Tileset.Animation> out) throws IOException {
+        r.beginArray();
+        while (r.hasNext()) {
+            int id = -1;
+            Tileset.Animation anim = null;
+            r.beginObject();
+            while (r.hasNext()) {
+                switch (r.nextName()) {
+                    case "id": id = r.nextInt(); break;
+                    case "animation": anim = readTiledAnimation(r); break;
+                    default: r.skipValue();
+                }
+            }
+            r.endObject();
+            if (id >= 0 && anim != null && anim.frames.length > 0) out.put(id, anim);
+        }
+        r.endArray();
+    }
+
+    private static Tileset.Animation readTiledAnimation(JsonInput r) throws IOException {
+        int[] frames = new int[8], durations = new int[8];
+        int n = 0;
+        r.beginArray();
+        while (r.hasNext()) {
+            int tile = -1, duration = 0;
+            r.beginObject();
+            while (r.hasNext()) {
+                switch (r.nextName()) {
+                    case "tileid": tile = r.nextInt(); break;
+                    case "duration": duration = r.nextInt(); break;
+                    default: r.skipValue();
+                }
+            }
+            r.endObject();
+            if (tile < 0) throw new IOException("Animation frame is missing tileid");
+            if (n == frames.length) {
+                frames = Arrays.copyOf(frames, n * 2);
+                durations = Arrays.copyOf(durations, n * 2);
+            }
+            frames[n] = tile;
+            durations[n] = duration;
+            n++;
+        }
+        r.endArray();
+        return new Tileset.Animation(Arrays.copyOf(frames, n), Arrays.copyOf(durations, n));
+    }
+
+    private static void readWarps(JsonInput r, List<MapData.Warp> out) throws IOException {
+        r.beginArray();
+        while (r.hasNext()) {
+            MapData.Warp wp = new MapData.Warp();
+            Integer targetCol = null, targetRow = null;
+            boolean hasCol = false, hasRow = false;
+            r.beginObject();
+            while (r.hasNext()) {
+                switch (r.nextName()) {
+                    case "col": wp.col = r.nextInt(); hasCol = true; break;
+                    case "row": wp.row = r.nextInt(); hasRow = true; break;
+                    case "target": wp.target = nextStringOrNull(r); break;
+                    case "targetCol": targetCol = r.nextInt(); break;
+                    case "targetRow": targetRow = r.nextInt(); break;
+                    default: r.skipValue();
+                }
+            }
+            r.endObject();
+            if (!hasCol || !hasRow) throw new IOException("Warp is missing col/row");
+            wp.targetCol = targetCol != null ? targetCol : wp.col;
+            wp.targetRow = targetRow != null ? targetRow : wp.row;
+            out.add(wp);
+        }
+        r.endArray();
+    }
+
+    // ---- model building ----
+
+    private static MapData fromCustom(RawMap raw) throws IOException {
+        if (raw.cols == null || raw.rows == null || raw.tiles == null) {
+            throw new IOException("Custom map requires cols, rows and tiles");
+        }
+        MapData md = new MapData();
+        md.cols = raw.cols;
+        md.rows = raw.rows;
+        // tiles (single layer)
+        int[] tiles = toFlat(raw.tiles, md.rows, md.cols);
+        // default collision from non-zero tiles or explicit collision
+        md.collision = new CollisionMask(md.cols, md.rows);
+        md.collision.addNonZero(TileLayer.ofInts(raw.collision != null
+                ? toFlat(raw.collision, md.rows, md.cols) : tiles, md.cols, md.rows));
+        md.playerCol = raw.playerCol;
+        md.playerRow = raw.playerRow;
+        md.npcs.addAll(raw.npcs);
+
+        // tileset metadata
+        if ("android-drawables".equals(raw.tilesetType) && raw.tilesetDrawables != null) {
+            md.tileDrawableNames = raw.tilesetDrawables;
+        } else if (raw.tilesetPalette != null) {
+            md.tilePaletteColors = parseColors(raw.tilesetPalette);
+        } else if (raw.atlas != null) {
+            if (raw.atlas.image == null || raw.atlasTileW < 0 || raw.atlasTileH < 0 || raw.atlasColumns < 0) {
+                throw new IOException("Atlas tileset requires image, tileW, tileH and columns");
+            }
+            Tileset ts = new Tileset();
+            ts.firstGid = raw.atlasFirstGid;
+            ts.columns = raw.atlasColumns;
+            ts.tileW = raw.atlasTileW;
+            ts.tileH = raw.atlasTileH;
+            raw.atlasTileset = ts;
+            md.tileTable = new TileTable(Collections.singletonList(ts));
+            tiles = md.tileTable.resolve(tiles);
+        }
+        md.tileLayers.add(TileLayer.of(tiles, md.cols, md.rows));
+        md.warps.addAll(raw.warps);
+        return md;
+    }
+
+    private static MapData fromTiled(RawMap raw) throws IOException {
+        if (raw.width == null || raw.height == null || raw.tileWidth == null || raw.tileHeight == null) {
+            throw new IOException("Tiled map requires width, height, tilewidth and tileheight");
+        }
+        MapData md = new MapData();
+        md.cols = raw.width;
+        md.rows = raw.height;
+        int tw = raw.tileWidth;
+        int th = raw.tileHeight;
+
+        // tilesets: image tilesets go into the tile table; a map without any keeps the
+        // first tileset's palette colors and raw tile indices
+        if (raw.tilesets.isEmpty()) throw new IOException("Tiled map has no tilesets");
+        List<Tileset> sets = new ArrayList<>();
+        for (RawTileset rts : raw.tilesets) {
+            if (!rts.hasImage()) continue;
+            Tileset ts = new Tileset();
+            ts.firstGid = rts.firstGid;
+            ts.columns = rts.columns;
+            ts.tileW = rts.tileW >= 0 ? rts.tileW : tw;
+            ts.tileH = rts.tileH >= 0 ? rts.tileH : th;
+            ts.margin = rts.margin;
+            ts.spacing = rts.spacing;
+            ts.tileCount = rts.tileCount;
+            ts.animations.putAll(rts.animations);
+            rts.built = ts;
+            sets.add(ts);
+        }
+        RawTileset ts0 = raw.tilesets.get(0);
+        if (!sets.isEmpty()) {
+            md.tileTable = new TileTable(sets);
+        } else if (ts0.colors != null) {
+            md.tilePaletteColors = parseColors(ts0.colors);
+        }
+
+        if (raw.infinite) {
+            fromTiledChunks(raw, md);
+            return md;
+        }
+
+        // layers
+        int n = md.rows * md.cols;
+        CollisionMask coll = new CollisionMask(md.cols, md.rows);
+        for (RawLayer layer : raw.layers) {
+            if ("tilelayer".equals(layer.type)) {
+                if (layer.data == null || layer.data.length < n) {
+                    throw new IOException("Tile layer " + layer.name + " has too little data");
+                }
+                // Tiled data is already flat row-major; only trim any excess
+                int[] data = layer.data.length == n ? layer.data : Arrays.copyOf(layer.data, n);
+                boolean isCollision = isCollisionLayer(layer);
+                if (isCollision) {
+                    coll.addNonZero(TileLayer.ofInts(data, md.cols, md.rows));
+                } else {
+                    if (md.tileTable != null) data = md.tileTable.resolve(data);
+                    md.tileLayers.add(TileLayer.of(data, md.cols, md.rows));
+                }
+            }
+        }
+        md.collision = coll;
+        md.warps.addAll(raw.warps);
+        return md;
+    }
+
+    // Infinite maps: Tiled chunks sit anywhere (negative coordinates included) and may differ
+    // per layer, so they are copied into a uniform grid over their bounding box, sized like
+    // the first chunk. Collision layers go into one mask over the whole box.
+    private static void fromTiledChunks(RawMap raw, MapData md) throws IOException {
+        int minC = Integer.MAX_VALUE, minR = Integer.MAX_VALUE, maxC = Integer.MIN_VALUE, maxR = Integer.MIN_VALUE;
+        int chunkW = 0, chunkH = 0, layerCount = 0;
+        for (RawLayer layer : raw.layers) {
+            if (!"tilelayer".equals(layer.type) || layer.chunks == null) continue;
+            if (!isCollisionLayer(layer)) layerCount++;
+            for (RawChunk ch : layer.chunks) {
+                minC = Math.min(minC, ch.x);
+                minR = Math.min(minR, ch.y);
+                maxC = Math.max(maxC, ch.x + ch.width);
+                maxR = Math.max(maxR, ch.y + ch.height);
+                if (chunkW == 0) { chunkW = ch.width; chunkH = ch.height; }
+            }
+        }
+        if (chunkW == 0) throw new IOException("Infinite map has no chunks");
+        md.originCol = minC;
+        md.originRow = minR;
+        md.cols = maxC - minC;
+        md.rows = maxR - minR;
+        int chunksX = (md.cols + chunkW - 1) / chunkW;
+        int chunksY = (md.rows + chunkH - 1) / chunkH;
+
+        CollisionMask coll = new CollisionMask(md.cols, md.rows);
+        int[][][] grid = new int[chunksX * chunksY][][]; // [chunk][layer] -> chunkW * chunkH ids
+        int l = 0;
+        for (RawLayer layer : raw.layers) {
+            if (!"tilelayer".equals(layer.type) || layer.chunks == null) continue;
+            boolean isCollision = isCollisionLayer(layer);
+            for (RawChunk ch : layer.chunks) {
+                int[] ids = isCollision || md.tileTable == null ? ch.data : md.tileTable.resolve(ch.data);
+                for (int y = 0; y < ch.height; y++) {
+                    int row = ch.y - minR + y;
+                    for (int x = 0; x < ch.width; x++) {
+                        int id = ids[y * ch.width + x];
+                        if (id == 0) continue;
+                        int col = ch.x - minC + x;
+                        if (isCollision) {
+                            coll.set(col, row, true);
+                            continue;
+                        }
+                        int index = (row / chunkH) * chunksX + col / chunkW;
+                        if (grid[index] == null) grid[index] = new int[layerCount][];
+                        int[] tiles = grid[index][l];
+                        if (tiles == null) tiles = grid[index][l] = new int[chunkW * chunkH];
+                        tiles[(row % chunkH) * chunkW + col % chunkW] = id;
+                    }
+                }
+            }
+            if (!isCollision) l++;
+        }
+        TileLayer[][] chunks = new TileLayer[grid.length][];
+        for (int i = 0; i < grid.length; i++) {
+            if (grid[i] == null) continue;
+            chunks[i] = new TileLayer[layerCount];
+            for (int k = 0; k < layerCount; k++) {
+                if (grid[i][k] != null) chunks[i][k] = TileLayer.of(grid[i][k], chunkW, chunkH);
+            }
+        }
+        md.chunks = ChunkedMap.inMemory(chunkW, chunkH, chunksX, chunksY, layerCount, chunks);
+        md.collision = coll;
+        for (MapData.Warp w : raw.warps) md.warps.add(shiftWarp(w, md));
+    }
+
+    private static boolean isCollisionLayer(RawLayer layer) {
+        return layer.name.equalsIgnoreCase("collision") || layer.name.equalsIgnoreCase("collide");
+    }
+
+    // Moves a warp into the shifted map; a warp within the map moves its destination too
+    private static MapData.Warp shiftWarp(MapData.Warp w, MapData md) {
+        w.col -= md.originCol;
+        w.row -= md.originRow;
+        if (w.target == null || w.target.isEmpty()) {
+            w.targetCol -= md.originCol;
+            w.targetRow -= md.originRow;
+        }
+        return w;
+    }
+
+    private static int[] toFlat(List<int[]> rowsIn, int rows, int cols) throws IOException {
+        if (rowsIn.size() < rows) throw new IOException("Expected " + rows + " rows, got " + rowsIn.size());
+        int[] flat = new int[rows * cols];
+        for (int r = 0; r < rows; r++) {
+            int[] src = rowsIn.get(r);
+            if (src.length < cols) throw new IOException("Row " + r + " has " + src.length + " of " + cols + " columns");
+            System.arraycopy(src, 0, flat, r * cols, cols);
+        }
+        return flat;
+    }
+
+    private static int[] parseColors(String[] colors) throws IOException {
+        int[] out = new int[colors.length];
+        for (int i = 0; i < colors.length; i++) out[i] = parseColor(colors[i]);
+        return out;
+    }
+
+    /**
+     * Parses a palette color as android.graphics.Color.parseColor does: #RRGGBB, #AARRGGBB
+     * or one of its color names.
+     */
+    public static int parseColor(String color) throws IOException {
+        if (color.startsWith("#")) {
+            String hex = color.substring(1);
+            if (hex.length() == 6 || hex.length() == 8) {
+                try {
+                    long v = Long.parseLong(hex, 16);
+                    return (int) (hex.length() == 6 ? v | 0xFF000000L : v);
+                } catch (NumberFormatException ignored) {
+                    // reported below
+                }
+            }
+        } else {
+            Integer named = COLOR_NAMES.get(color.toLowerCase(Locale.ROOT));
+            if (named != null) return named;
+        }
+        throw new IOException("Unknown color " + color);
+    }
+
+    private static final Map<String, Integer> COLOR_NAMES = new HashMap<>();
+    static {
+        String[] names = {"black", "darkgray", "gray", "lightgray", "white", "red", "green", "blue",
+                "yellow", "cyan", "magenta", "aqua", "fuchsia", "darkgrey", "grey", "lightgrey",
+                "lime", "maroon", "navy", "olive", "purple", "silver", "teal"};
+        int[] values = {0xFF000000, 0xFF444444, 0xFF888888, 0xFFCCCCCC, 0xFFFFFFFF, 0xFFFF0000, 0xFF00FF00, 0xFF0000FF,
+                0xFFFFFF00, 0xFF00FFFF, 0xFFFF00FF, 0xFF00FFFF, 0xFFFF00FF, 0xFF444444, 0xFF888888, 0xFFCCCCCC,
+                0xFF00FF00, 0xFF800000, 0xFF000080, 0xFF808000, 0xFF800080, 0xFFC0C0C0, 0xFF008080};
+        for (int i = 0; i < names.length; i++) COLOR_NAMES.put(names[i], values[i]);
+    }
+
+    // ---- images ----
+
+    private static List<ImageRequest> imageRequests(RawMap raw, MapData md) {
+        List<ImageRequest> out = new ArrayList<>();
+        // image layers keep their declaration order
+        if (raw.isTiled()) {
+            for (RawLayer layer : raw.layers) {
+                if (!"imagelayer".equals(layer.type) || layer.image == null) continue;
+                MapData.ImageLayer il = new MapData.ImageLayer();
+                // infinite maps: image offsets follow the tiles' shift
+                il.offsetX = (int) Math.round(layer.offsetX) - md.originCol * raw.tileWidth;
+                il.offsetY = (int) Math.round(layer.offsetY) - md.originRow * raw.tileHeight;
+                il.parallaxX = layer.parallaxX;
+                il.parallaxY = layer.parallaxY;
+                out.add(ImageRequest.asset(layer.image, il));
+            }
+            for (RawTileset ts : raw.tilesets) {
+                if (ts.built == null) continue;
+                if (ts.imageBase64 != null) out.add(ImageRequest.base64(ts.imageBase64, ts.built));
+                else out.add(ImageRequest.asset(ts.image, ts.built));
+            }
+        } else {
+            for (RawImage img : raw.imageLayers) {
+                MapData.ImageLayer il = new MapData.ImageLayer();
+                il.offsetX = img.offsetX;
+                il.offsetY = img.offsetY;
+                il.parallaxX = img.parallaxX;
+                il.parallaxY = img.parallaxY;
+                out.add(ImageRequest.asset(img.image, il));
+            }
+            if (raw.atlasTileset != null) out.add(ImageRequest.asset(raw.atlas.image, raw.atlasTileset));
+        }
+        return out;
+    }
+}
@@ -0,0 +1,224 @@
+package com.non_breath.finlitrush.game.loop;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * A recorded game session: the input events applied by the simulation, keyed by the
+ * fixed step they were applied in, plus where the session started.
+ * - Replaying the events against the same start (map, player position and facing) at the
+ *   same step rate reproduces the session step for step
+ * - Events are stored compactly: a varint step delta, the type, a byte of flags marking
+ *   the non-zero arguments, then only those (zigzag varint ints, raw float bits)
+ * - The file is a small header followed by the encoded events (writeTo()/read())
+ * Logs are immutable; a Recorder builds one and any number of Replays read it.
+ */
+public final class InputLog {
+    private static final int MAGIC = 0x494E504C; // "INPL"
+    private static final int VERSION = 1;
+    private static final int HAS_A = 1, HAS_B = 2, HAS_X = 4, HAS_Y = 8;
+
+    private final int simHz;
+    private final String mapAsset;
+    private final float startX, startY;
+    private final int startDir;
+    private final int steps;
+    private final int eventCount;
+    private final byte[] events;
+
+    private InputLog(int simHz, String mapAsset, float startX, float startY, int startDir,
+                     int steps, int eventCount, byte[] events) {
+        this.simHz = simHz;
+        this.mapAsset = mapAsset;
+        this.startX = startX;
+        this.startY = startY;
+        this.startDir = startDir;
+        this.steps = steps;
+        this.eventCount = eventCount;
+        this.events = events;
+    }
+
+    /** Simulation steps per second the session ran at (each step advances 1/simHz s). */
+    public int getSimHz() { return simHz; }
+
+    /** Asset path of the start map, or null when the session started on a map built in code. */
+    public String getMapAsset() { return mapAsset; }
+
+    public float getStartX() { return startX; }
+
+    public float getStartY() { return startY; }
+
+    public int getStartDir() { return startDir; }
+
+    /** Length of the session in simulation steps. */
+    public int getSteps() { return steps; }
+
+    public int getEventCount() { return eventCount; }
+
+    /** Size of the encoded events in bytes. */
+    public int getEventBytes() { return events.length; }
+
+    public Replay replay() {
+        return new Replay();
+    }
+
+    /** Builds a log on the simulation thread; events must be recorded in step order. */
+    public static final class Recorder {
+        private final int simHz;
+        private final String mapAsset;
+        private final float startX, startY;
+        private final int startDir;
+        private byte[] buf = new byte[1024];
+        private int size;
+        private int count;
+        private int lastStep;
+
+        public Recorder(int simHz, String mapAsset, float startX, float startY, int startDir) {
+            this.simHz = simHz;
+            this.mapAsset = mapAsset;
+            this.startX = startX;
+            this.startY = startY;
+            this.startDir = startDir;
+        }
+
+        /** Records an event applied in {@code step} (counted from 0 at the session start). */
+        public void record(int step, int type, int a, int b, float x, float y) {
+            if (step < lastStep) throw new IllegalArgumentException("step " + step + " before " + lastStep);
+            ensure(5 + 1 + 1 + 5 + 5 + 4 + 4); // step delta, type, flags, a, b, x, y at their largest
+            putVarint(step - lastStep);
+            lastStep = step;
+            buf[size++] = (byte) type;
+            int flags = (a != 0 ? HAS_A : 0) | (b != 0 ? HAS_B : 0)
+                    | (Float.floatToRawIntBits(x) != 0 ? HAS_X : 0) | (Float.floatToRawIntBits(y) != 0 ? HAS_Y : 0);
+            buf[size++] = (byte) flags;
+            if ((flags & HAS_A) != 0) putVarint((a << 1) ^ (a >> 31));
+            if ((flags & HAS_B) != 0) putVarint((b << 1) ^ (b >> 31));
+            if ((flags & HAS_X) != 0) putInt(Float.floatToRawIntBits(x));
+            if ((flags & HAS_Y) != 0) putInt(Float.floatToRawIntBits(y));
+            count++;
+        }
+
+        public int getEventCount() { return count; }
+
+        /** The log of a session that ran {@code steps} steps. */
+        public InputLog finish(int steps) {
+            return new InputLog(simHz, mapAsset, startX, startY, startDir,
+                    Math.max(steps, lastStep + (count > 0 ? 1 : 0)), count, Arrays.copyOf(buf, size));
+        }
+
+        private void ensure(int bytes) {
+            if (size + bytes > buf.length) buf = Arrays.copyOf(buf, Math.max(size + bytes, buf.length * 2));
+        }
+
+        private void putVarint(int v) {
+            while ((v & ~0x7F) != 0) {
+                buf[size++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buf[size++] = (byte) v;
+        }
+
+        private void putInt(int v) {
+            buf[size++] = (byte) v;
+            buf[size++] = (byte) (v >>> 8);
+            buf[size++] = (byte) (v >>> 16);
+            buf[size++] = (byte) (v >>> 24);
+        }
+    }
+
+    /** Feeds a log's events back step by step; each replay keeps its own read position. */
+    public final class Replay {
+        private int pos;
+        private int eventStep;    // step of the next event once its delta is read
+        private boolean deltaRead;
+
+        /** Hands the events of {@code step} (and any skipped earlier ones) to {@code handler}; returns the count. */
+        public int drain(int step, InputQueue.Handler handler) {
+            int n = 0;
+            while (pos < events.length) {
+                if (!deltaRead) {
+                    eventStep += readVarint();
+                    deltaRead = true;
+                }
+                if (eventStep > step) break;
+                deltaRead = false;
+                int type = events[pos++];
+                int flags = events[pos++];
+                int a = (flags & HAS_A) != 0 ? zigzag(readVarint()) : 0;
+                int b = (flags & HAS_B) != 0 ? zigzag(readVarint()) : 0;
+                float x = (flags & HAS_X) != 0 ? Float.intBitsToFloat(readInt()) : 0f;
+                float y = (flags & HAS_Y) != 0 ? Float.intBitsToFloat(readInt()) : 0f;
+                handler.onInput(type, a, b, x, y);
+                n++;
+            }
+            return n;
+        }
+
+        /** True once {@code step} is past the end of the session. */
+        public boolean isFinished(int step) {
+            return step >= steps;
+        }
+
+        public InputLog getLog() { return InputLog.this; }
+
+        private int readVarint() {
+            int v = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte c = events[pos++];
+                v |= (c & 0x7F) << shift;
+                if (c >= 0) return v;
+            }
+        }
+
+        private int readInt() {
+            int v = (events[pos] & 0xFF) | (events[pos + 1] & 0xFF) << 8
+                    | (events[pos + 2] & 0xFF) << 16 | (events[pos + 3] & 0xFF) << 24;
+            pos += 4;
+            return v;
+        }
+    }
+
+    private static int zigzag(int v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    public void writeTo(OutputStream os) throws IOException {
+        DataOutputStream out = new DataOutputStream(os);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(simHz);
+        out.writeBoolean(mapAsset != null);
+        if (mapAsset != null) out.writeUTF(mapAsset);
+        out.writeFloat(startX);
+        out.writeFloat(startY);
+        out.writeByte(startDir);
+        out.writeInt(steps);
+        out.writeInt(eventCount);
+        out.writeInt(events.length);
+        out.write(events);
+        out.flush();
+    }
+
+    /** Reads a log written by writeTo(); throws IOException on a foreign or truncated stream. */
+    public static InputLog read(InputStream is) throws IOException {
+        DataInputStream in = new DataInputStream(is);
+        if (in.readInt() != MAGIC) throw new IOException("Not an input log");
+        int version = in.readInt();
+        if (version != VERSION) throw new IOException("Unsupported input log version " + version);
+        int simHz = in.readInt();
+        String mapAsset = in.readBoolean() ? in.readUTF() : null;
+        float x = in.readFloat(), y = in.readFloat();
+        int dir = in.readByte();
+        int steps = in.readInt();
+        int count = in.readInt();
+        int length = in.readInt();
+        if (simHz <= 0 || steps < 0 || count < 0 || length < 0) throw new IOException("Corrupt input log header");
+        byte[] events = new byte[length];
+        in.readFully(events);
+        return new InputLog(simHz, mapAsset, x, y, dir, steps, count, events);
+    }
+}
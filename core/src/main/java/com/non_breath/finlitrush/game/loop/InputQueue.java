@@ -0,0 +1,62 @@
+package com.non_breath.finlitrush.game.loop;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free single-producer/single-consumer queue of input events in preallocated
+ * primitive arrays (no allocation per event).
+ * - The UI thread offers events; the simulation thread drains them at the start of a step
+ * - An event is a type code with two int and two float arguments, interpreted by the game
+ * - When full, offer() drops the event and returns false
+ */
+public final class InputQueue {
+
+    /** Receives drained events in the order they were offered. */
+    public interface Handler {
+        void onInput(int type, int a, int b, float x, float y);
+    }
+
+    private final int mask;
+    private final int[] type, a, b;
+    private final float[] x, y;
+    // head: next slot to read (consumer), tail: next slot to write (producer)
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    /** @param capacity rounded up to a power of two */
+    public InputQueue(int capacity) {
+        int n = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        mask = n - 1;
+        type = new int[n];
+        a = new int[n];
+        b = new int[n];
+        x = new float[n];
+        y = new float[n];
+    }
+
+    /** Producer thread only. */
+    public boolean offer(int eventType, int argA, int argB, float argX, float argY) {
+        long t = tail.get();
+        if (t - head.get() > mask) return false;
+        int i = (int) t & mask;
+        type[i] = eventType;
+        a[i] = argA;
+        b[i] = argB;
+        x[i] = argX;
+        y[i] = argY;
+        tail.lazySet(t + 1); // publishes the slot writes above
+        return true;
+    }
+
+    /** Consumer thread only. Hands every queued event to {@code handler}; returns the count. */
+    public int drain(Handler handler) {
+        long h = head.get();
+        long t = tail.get();
+        for (long s = h; s < t; s++) {
+            int i = (int) s & mask;
+            handler.onInput(type[i], a[i], b[i], x[i], y[i]);
+        }
+        if (t != h) head.lazySet(t); // frees the slots for the producer
+        return (int) (t - h);
+    }
+}
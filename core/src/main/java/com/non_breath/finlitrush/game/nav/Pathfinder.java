@@ -0,0 +1,393 @@
+package com.non_breath.finlitrush.game.nav;
+
+import com.non_breath.finlitrush.game.data.CollisionMask;
+
+import java.util.Arrays;
+
+/**
+ * Grid pathfinding over a map's CollisionMask (8-way, diagonals never cut a blocked corner).
+ * - setGrid() caches the mask as a padded walkable grid; neighbours are index offsets
+ * - A* with a binary heap over primitive arrays; the node pool is sized to the map once
+ *   and reset lazily with a search stamp, so a search allocates nothing but its result
+ * - Optional jump point search: same path cost, far fewer heap operations on open maps
+ * - Results are cached per (start, goal) in a small LRU and dropped by setGrid()
+ * - The grid may be a window of a larger (chunked) map; coordinates stay map coordinates
+ *   and cells outside the window count as blocked
+ * Paths are arrays of map cell indices (row * getPathCols() + col) from start to goal, both included.
+ * Returned arrays are shared with the cache and must not be modified.
+ * Not thread-safe: owned by the simulation thread.
+ */
+public final class Pathfinder {
+    public static final int DEFAULT_CACHE_PATHS = 64;
+    private static final float DIAGONAL_COST = 1.4142135f;
+    private static final int[] NO_PATH = new int[0];
+
+    private int cols, rows;
+    private int originCol, originRow, pathCols;
+    private boolean jumpPoints = false;
+
+    // navigation grid: walkable flags with a one-cell blocked border, so neighbours are
+    // plain index offsets (node = (row + 1) * stride + col + 1) and never bounds-checked
+    private int stride;
+    private boolean[] walkable = new boolean[0];
+    private int[] nodeX = new int[0], nodeY = new int[0]; // node -> map col/row
+
+    // node pool (indexed by node)
+    private float[] g = new float[0];
+    private int[] parent = new int[0];
+    private int[] seen = new int[0];    // == searchId when g/f/parent are valid
+    private int[] closed = new int[0];  // == searchId when expanded
+    private int[] heapPos = new int[0]; // position in heap, -1 when not queued
+    private int searchId = 0;
+    private int expanded = 0;
+    private int goalX, goalY;
+
+    // open list: binary min-heap of nodes ordered by f = g + h (ties: larger g first)
+    private int[] heap = new int[0];
+    private float[] heapF = new float[0], heapG = new float[0];
+    private int heapSize = 0;
+
+    // pruned successor directions for one node (dx, dy pairs)
+    private final int[] dirs = new int[16];
+
+    // path cache: tiny LRU scanned linearly (no boxing on lookup)
+    private final long[] cacheKey;
+    private final int[][] cachePath;
+    private final long[] cacheUsed;
+    private long cacheClock = 0;
+
+    public Pathfinder(int cachePaths) {
+        int n = Math.max(1, cachePaths);
+        cacheKey = new long[n];
+        cachePath = new int[n][];
+        cacheUsed = new long[n];
+    }
+
+    /** Rebuilds the navigation grid for a new map (null mask = nothing blocked) and drops every cached path. */
+    public void setGrid(CollisionMask mask, int cols, int rows) {
+        setGrid(mask, 0, 0, cols, rows, cols);
+    }
+
+    /**
+     * Rebuilds the navigation grid for the cols x rows window at (originCol, originRow) of a
+     * map that is mapCols wide; paths keep indexing cells of the whole map.
+     */
+    public void setGrid(CollisionMask mask, int originCol, int originRow, int cols, int rows, int mapCols) {
+        this.originCol = originCol;
+        this.originRow = originRow;
+        this.pathCols = Math.max(1, mapCols);
+        this.cols = Math.max(0, cols);
+        this.rows = Math.max(0, rows);
+        stride = this.cols + 2;
+        int n = stride * (this.rows + 2);
+        if (walkable.length < n) {
+            walkable = new boolean[n];
+            nodeX = new int[n];
+            nodeY = new int[n];
+            g = new float[n];
+            parent = new int[n];
+            seen = new int[n];
+            closed = new int[n];
+            heapPos = new int[n];
+            heap = new int[n];
+            heapF = new float[n];
+            heapG = new float[n];
+            searchId = 0;
+        } else {
+            Arrays.fill(walkable, false);
+        }
+        for (int r = 0; r < this.rows; r++) {
+            int base = (r + 1) * stride + 1;
+            for (int c = 0; c < this.cols; c++) {
+                walkable[base + c] = mask == null || !mask.isBlocked(originCol + c, originRow + r);
+                nodeX[base + c] = originCol + c;
+                nodeY[base + c] = originRow + r;
+            }
+        }
+        clearCache();
+    }
+
+    /** Enables jump point search (pays off on open maps; same path costs as plain A*). */
+    public void setJumpPoints(boolean enabled) {
+        if (jumpPoints == enabled) return;
+        jumpPoints = enabled;
+        clearCache(); // equal-cost paths may differ between the two searches
+    }
+
+    public boolean isJumpPoints() { return jumpPoints; }
+
+    public int getCols() { return cols; }
+
+    public int getRows() { return rows; }
+
+    /** Row stride of the cell indices in returned paths (the whole map's width). */
+    public int getPathCols() { return pathCols; }
+
+    /** Nodes expanded by the last search that was not answered from the cache. */
+    public int getExpandedLastSearch() { return expanded; }
+
+    public boolean isWalkable(int col, int row) {
+        col -= originCol;
+        row -= originRow;
+        if (col < 0 || row < 0 || col >= cols || row >= rows) return false;
+        return walkable[(row + 1) * stride + col + 1];
+    }
+
+    /** Shortest path between two cells, or null when either end is blocked or unreachable. */
+    public int[] findPath(int startCol, int startRow, int goalCol, int goalRow) {
+        if (!isWalkable(startCol, startRow) || !isWalkable(goalCol, goalRow)) return null;
+        long key = ((long) (startRow * pathCols + startCol) << 32) | (goalRow * pathCols + goalCol);
+        int[] cached = cacheGet(key);
+        if (cached == null) {
+            int start = (startRow - originRow + 1) * stride + startCol - originCol + 1;
+            int goal = (goalRow - originRow + 1) * stride + goalCol - originCol + 1;
+            cached = search(start, goal) ? buildPath(start, goal) : NO_PATH;
+            cachePut(key, cached);
+        }
+        return cached == NO_PATH ? null : cached;
+    }
+
+    public void clearCache() {
+        Arrays.fill(cachePath, null);
+        cacheClock = 0;
+    }
+
+    // ---- search ----
+
+    private boolean search(int start, int goal) {
+        if (++searchId == Integer.MAX_VALUE) {
+            Arrays.fill(seen, 0);
+            Arrays.fill(closed, 0);
+            searchId = 1;
+        }
+        expanded = 0;
+        heapSize = 0;
+        goalX = nodeX[goal];
+        goalY = nodeY[goal];
+        open(start, -1, 0f);
+        while (heapSize > 0) {
+            int node = pop();
+            if (node == goal) return true;
+            closed[node] = searchId;
+            expanded++;
+            int n = jumpPoints ? prunedDirections(node) : allDirections(node);
+            for (int i = 0; i < n; i += 2) {
+                int dx = dirs[i], dy = dirs[i + 1];
+                int next;
+                float step;
+                if (jumpPoints) {
+                    next = jump(node + dx + dy * stride, dx, dy, goal);
+                    if (next < 0) continue;
+                    step = octile(Math.abs(nodeX[next] - nodeX[node]), Math.abs(nodeY[next] - nodeY[node]));
+                } else {
+                    next = node + dx + dy * stride;
+                    step = dx != 0 && dy != 0 ? DIAGONAL_COST : 1f;
+                }
+                if (closed[next] == searchId) continue;
+                float cost = g[node] + step;
+                if (seen[next] == searchId && cost >= g[next]) continue;
+                open(next, node, cost);
+            }
+        }
+        return false;
+    }
+
+    private void open(int node, int from, float cost) {
+        boolean queued = seen[node] == searchId && heapPos[node] >= 0;
+        seen[node] = searchId;
+        parent[node] = from;
+        g[node] = cost;
+        int i = queued ? heapPos[node] : heapSize++;
+        heap[i] = node;
+        heapF[i] = cost + octile(Math.abs(nodeX[node] - goalX), Math.abs(nodeY[node] - goalY));
+        heapG[i] = cost;
+        siftUp(i);
+    }
+
+    // every walkable neighbour; a diagonal needs both adjacent orthogonal cells open
+    private int allDirections(int node) {
+        boolean[] w = walkable;
+        int s = stride;
+        int n = 0;
+        boolean left = w[node - 1], right = w[node + 1];
+        boolean up = w[node - s], down = w[node + s];
+        if (left) { dirs[n++] = -1; dirs[n++] = 0; }
+        if (right) { dirs[n++] = 1; dirs[n++] = 0; }
+        if (up) { dirs[n++] = 0; dirs[n++] = -1; }
+        if (down) { dirs[n++] = 0; dirs[n++] = 1; }
+        if (left && up && w[node - s - 1]) { dirs[n++] = -1; dirs[n++] = -1; }
+        if (right && up && w[node - s + 1]) { dirs[n++] = 1; dirs[n++] = -1; }
+        if (left && down && w[node + s - 1]) { dirs[n++] = -1; dirs[n++] = 1; }
+        if (right && down && w[node + s + 1]) { dirs[n++] = 1; dirs[n++] = 1; }
+        return n;
+    }
+
+    // JPS: only the natural and forced neighbours for the direction we arrived from
+    private int prunedDirections(int node) {
+        int p = parent[node];
+        if (p < 0) return allDirections(node);
+        boolean[] w = walkable;
+        int s = stride;
+        int dx = Integer.signum(nodeX[node] - nodeX[p]), dy = Integer.signum(nodeY[node] - nodeY[p]);
+        int n = 0;
+        if (dx != 0 && dy != 0) {
+            boolean nextY = w[node + dy * s], nextX = w[node + dx];
+            if (nextY) { dirs[n++] = 0; dirs[n++] = dy; }
+            if (nextX) { dirs[n++] = dx; dirs[n++] = 0; }
+            if (nextX && nextY && w[node + dx + dy * s]) { dirs[n++] = dx; dirs[n++] = dy; }
+        } else if (dx != 0) {
+            boolean next = w[node + dx];
+            boolean below = w[node + s], above = w[node - s];
+            if (next) {
+                dirs[n++] = dx; dirs[n++] = 0;
+                if (below && w[node + dx + s]) { dirs[n++] = dx; dirs[n++] = 1; }
+                if (above && w[node + dx - s]) { dirs[n++] = dx; dirs[n++] = -1; }
+            }
+            if (below) { dirs[n++] = 0; dirs[n++] = 1; }
+            if (above) { dirs[n++] = 0; dirs[n++] = -1; }
+        } else {
+            boolean next = w[node + dy * s];
+            boolean right = w[node + 1], left = w[node - 1];
+            if (next) {
+                dirs[n++] = 0; dirs[n++] = dy;
+                if (right && w[node + 1 + dy * s]) { dirs[n++] = 1; dirs[n++] = dy; }
+                if (left && w[node - 1 + dy * s]) { dirs[n++] = -1; dirs[n++] = dy; }
+            }
+            if (right) { dirs[n++] = 1; dirs[n++] = 0; }
+            if (left) { dirs[n++] = -1; dirs[n++] = 0; }
+        }
+        return n;
+    }
+
+    // Walks from node in (dx, dy) until the goal, a jump point or a wall (-1)
+    private int jump(int node, int dx, int dy, int goal) {
+        boolean[] w = walkable;
+        int s = stride;
+        int step = dx + dy * s;
+        while (true) {
+            if (!w[node]) return -1;
+            if (node == goal) return node;
+            if (dx != 0 && dy != 0) {
+                if (jump(node + dx, dx, 0, goal) >= 0 || jump(node + dy * s, 0, dy, goal) >= 0) return node;
+                if (!w[node + dx] || !w[node + dy * s]) return -1;
+            } else if (dx != 0) {
+                if ((w[node - s] && !w[node - s - dx]) || (w[node + s] && !w[node + s - dx])) return node;
+            } else {
+                if ((w[node - 1] && !w[node - 1 - dy * s]) || (w[node + 1] && !w[node + 1 - dy * s])) return node;
+            }
+            node += step;
+        }
+    }
+
+    // Follows parents back from the goal; jump point segments are straight or diagonal runs
+    private int[] buildPath(int start, int goal) {
+        int length = 1;
+        for (int n = goal; n != start; n = parent[n]) {
+            int p = parent[n];
+            length += Math.max(Math.abs(nodeX[n] - nodeX[p]), Math.abs(nodeY[n] - nodeY[p]));
+        }
+        int[] path = new int[length];
+        int i = length - 1;
+        for (int n = goal; n != start; n = parent[n]) {
+            int p = parent[n];
+            int x = nodeX[n], y = nodeY[n], px = nodeX[p], py = nodeY[p];
+            int sx = Integer.signum(px - x), sy = Integer.signum(py - y);
+            while (x != px || y != py) {
+                path[i--] = y * pathCols + x;
+                x += sx;
+                y += sy;
+            }
+        }
+        path[0] = nodeY[start] * pathCols + nodeX[start];
+        return path;
+    }
+
+    private static float octile(int dx, int dy) {
+        return dx > dy ? dx - dy + dy * DIAGONAL_COST : dy - dx + dx * DIAGONAL_COST;
+    }
+
+    // ---- heap ----
+
+    // heap keys are kept beside the heap entries so sifting does not chase node indices
+    private static boolean before(float fa, float ga, float fb, float gb) {
+        return fa < fb || (fa == fb && ga > gb);
+    }
+
+    private int pop() {
+        int top = heap[0];
+        heapPos[top] = -1;
+        int last = --heapSize;
+        if (last > 0) {
+            heap[0] = heap[last];
+            heapF[0] = heapF[last];
+            heapG[0] = heapG[last];
+            heapPos[heap[0]] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    private void siftUp(int i) {
+        int node = heap[i];
+        float nf = heapF[i], ng = heapG[i];
+        while (i > 0) {
+            int up = (i - 1) >> 1;
+            if (!before(nf, ng, heapF[up], heapG[up])) break;
+            move(up, i);
+            i = up;
+        }
+        place(node, nf, ng, i);
+    }
+
+    private void siftDown(int i) {
+        int node = heap[i];
+        float nf = heapF[i], ng = heapG[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) break;
+            if (child + 1 < heapSize && before(heapF[child + 1], heapG[child + 1], heapF[child], heapG[child])) child++;
+            if (!before(heapF[child], heapG[child], nf, ng)) break;
+            move(child, i);
+            i = child;
+        }
+        place(node, nf, ng, i);
+    }
+
+    private void move(int from, int to) {
+        int node = heap[from];
+        heap[to] = node;
+        heapF[to] = heapF[from];
+        heapG[to] = heapG[from];
+        heapPos[node] = to;
+    }
+
+    private void place(int node, float nf, float ng, int i) {
+        heap[i] = node;
+        heapF[i] = nf;
+        heapG[i] = ng;
+        heapPos[node] = i;
+    }
+
+    // ---- cache ----
+
+    private int[] cacheGet(long key) {
+        for (int i = 0; i < cachePath.length; i++) {
+            if (cachePath[i] != null && cacheKey[i] == key) {
+                cacheUsed[i] = ++cacheClock;
+                return cachePath[i];
+            }
+        }
+        return null;
+    }
+
+    private void cachePut(long key, int[] path) {
+        int victim = 0;
+        for (int i = 0; i < cachePath.length; i++) {
+            if (cachePath[i] == null) { victim = i; break; }
+            if (cacheUsed[i] < cacheUsed[victim]) victim = i;
+        }
+        cacheKey[victim] = key;
+        cachePath[victim] = path;
+        cacheUsed[victim] = ++cacheClock;
+    }
+}
@@ -0,0 +1,244 @@
+package com.non_breath.finlitrush.game.physics;
+
+import com.non_breath.finlitrush.game.data.CollisionMask;
+
+import java.util.Arrays;
+
+/**
+ * Static map collision as merged rectangles with swept-AABB movement.
+ * - build() greedy-meshes the blocked tiles of a CollisionMask into few rectangles
+ *   (widest run first, then grown downward) and adds four walls around the map
+ * - Rectangles are bucketed in a coarse grid (CSR arrays) so a move only tests the
+ *   rectangles its swept box touches
+ * - slide() moves a box by (dx, dy) with exact contact times: it stops at the first
+ *   contact, drops the blocked velocity component and slides on with the remainder
+ * - A world may cover just a window of a large (chunked) map; it is then walled off
+ *   around the window and rebuilt as the player moves on
+ * Coordinates are tile units with tile (c, r) centred on (c, r), i.e. covering
+ * [c - 0.5, c + 0.5] x [r - 0.5, r + 0.5]. slide() reuses scratch state and is not thread-safe.
+ */
+public final class CollisionWorld {
+    private static final int BUCKET_TILES = 8;
+    private static final int MAX_ITERATIONS = 3;
+    private static final float SKIN = 1e-4f; // gap kept to a contact surface
+
+    // rectangles in world units (min/max edges)
+    private final float[] minX, minY, maxX, maxY;
+    private final int rectCount;
+    // coarse buckets: bucketStart[b]..bucketStart[b + 1] index into bucketRects
+    private final int originCol, originRow;
+    private final int bucketCols, bucketRows;
+    private final int[] bucketStart, bucketRects;
+
+    // scratch for candidate gathering (draw/sim thread only)
+    private final int[] visitStamp;
+    private int stamp = 0;
+    private int[] candidates = new int[32];
+
+    private CollisionWorld(int originCol, int originRow, int cols, int rows, int[] rects, int count) {
+        this.originCol = originCol;
+        this.originRow = originRow;
+        this.rectCount = count;
+        minX = new float[count];
+        minY = new float[count];
+        maxX = new float[count];
+        maxY = new float[count];
+        for (int i = 0; i < count; i++) {
+            int c = rects[i * 4], r = rects[i * 4 + 1], w = rects[i * 4 + 2], h = rects[i * 4 + 3];
+            minX[i] = c - 0.5f;
+            minY[i] = r - 0.5f;
+            maxX[i] = c + w - 0.5f;
+            maxY[i] = r + h - 0.5f;
+        }
+        visitStamp = new int[count];
+
+        // bucket index over the map plus a one-bucket margin for the outer walls
+        bucketCols = (cols + BUCKET_TILES - 1) / BUCKET_TILES + 2;
+        bucketRows = (rows + BUCKET_TILES - 1) / BUCKET_TILES + 2;
+        bucketStart = new int[bucketCols * bucketRows + 1];
+        // two passes: count rectangles per bucket, then fill the flattened lists
+        for (int i = 0; i < count; i++) {
+            for (int by = bucketY(minY[i]); by <= bucketY(maxY[i]); by++) {
+                for (int bx = bucketX(minX[i]); bx <= bucketX(maxX[i]); bx++) bucketStart[by * bucketCols + bx + 1]++;
+            }
+        }
+        for (int b = 0; b < bucketCols * bucketRows; b++) bucketStart[b + 1] += bucketStart[b];
+        bucketRects = new int[bucketStart[bucketStart.length - 1]];
+        int[] fill = Arrays.copyOf(bucketStart, bucketStart.length - 1);
+        for (int i = 0; i < count; i++) {
+            for (int by = bucketY(minY[i]); by <= bucketY(maxY[i]); by++) {
+                for (int bx = bucketX(minX[i]); bx <= bucketX(maxX[i]); bx++) bucketRects[fill[by * bucketCols + bx]++] = i;
+            }
+        }
+    }
+
+    /** Greedy-meshes the blocked tiles of {@code mask} (null = nothing blocked) and walls off the map. */
+    public static CollisionWorld build(CollisionMask mask, int cols, int rows) {
+        return build(mask, 0, 0, cols, rows);
+    }
+
+    /**
+     * Same as {@link #build(CollisionMask, int, int)} for the cols x rows window of the mask
+     * starting at (originCol, originRow); rectangles stay in map coordinates.
+     */
+    public static CollisionWorld build(CollisionMask mask, int originCol, int originRow, int cols, int rows) {
+        int[] rects = new int[64];
+        int count = 0;
+        if (mask != null) {
+            boolean[] used = new boolean[cols * rows];
+            for (int r = 0; r < rows; r++) {
+                for (int c = 0; c < cols; c++) {
+                    if (used[r * cols + c] || !mask.isBlocked(originCol + c, originRow + r)) continue;
+                    // widest run on this row
+                    int w = 1;
+                    while (c + w < cols && !used[r * cols + c + w] && mask.isBlocked(originCol + c + w, originRow + r)) w++;
+                    // grow downward while the whole run stays blocked
+                    int h = 1;
+                    grow:
+                    while (r + h < rows) {
+                        int base = (r + h) * cols;
+                        for (int k = 0; k < w; k++) {
+                            if (used[base + c + k] || !mask.isBlocked(originCol + c + k, originRow + r + h)) break grow;
+                        }
+                        h++;
+                    }
+                    for (int y = r; y < r + h; y++) Arrays.fill(used, y * cols + c, y * cols + c + w, true);
+                    if ((count + 1) * 4 > rects.length) rects = Arrays.copyOf(rects, rects.length * 2);
+                    rects[count * 4] = originCol + c;
+                    rects[count * 4 + 1] = originRow + r;
+                    rects[count * 4 + 2] = w;
+                    rects[count * 4 + 3] = h;
+                    count++;
+                }
+            }
+        }
+        // outer walls, one tile thick
+        int x0 = originCol, y0 = originRow;
+        int[][] walls = {{x0 - 1, y0 - 1, cols + 2, 1}, {x0 - 1, y0 + rows, cols + 2, 1},
+                {x0 - 1, y0, 1, rows}, {x0 + cols, y0, 1, rows}};
+        if ((count + walls.length) * 4 > rects.length) rects = Arrays.copyOf(rects, (count + walls.length) * 4);
+        for (int[] wall : walls) {
+            System.arraycopy(wall, 0, rects, count * 4, 4);
+            count++;
+        }
+        return new CollisionWorld(originCol, originRow, cols, rows, rects, count);
+    }
+
+    /** Number of merged rectangles, including the four outer walls. */
+    public int getRectCount() { return rectCount; }
+
+    /** True when a box centred on (x, y) with the given half extents overlaps any rectangle. */
+    public boolean overlaps(float x, float y, float halfW, float halfH) {
+        int n = gather(x - halfW, y - halfH, x + halfW, y + halfH);
+        for (int k = 0; k < n; k++) {
+            int i = candidates[k];
+            if (x + halfW > minX[i] && x - halfW < maxX[i] && y + halfH > minY[i] && y - halfH < maxY[i]) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Moves a box centred on (x, y) by (dx, dy), stopping at and sliding along rectangles.
+     * A box that already overlaps a rectangle can only leave it through the nearest face:
+     * moves that push it deeper are blocked, so an actor inside a wall cannot cross it.
+     * @param out receives the final centre: out[0] = x, out[1] = y
+     */
+    public void slide(float x, float y, float halfW, float halfH, float dx, float dy, float[] out) {
+        for (int iter = 0; iter < MAX_ITERATIONS && (dx != 0f || dy != 0f); iter++) {
+            float bx0 = Math.min(x, x + dx) - halfW, bx1 = Math.max(x, x + dx) + halfW;
+            float by0 = Math.min(y, y + dy) - halfH, by1 = Math.max(y, y + dy) + halfH;
+            int n = gather(bx0, by0, bx1, by1);
+            float first = 1f;
+            boolean hitX = false, inside = false;
+            for (int k = 0; k < n; k++) {
+                int i = candidates[k];
+                // Minkowski-expanded rectangle against the centre's ray
+                float eMinX = minX[i] - halfW, eMaxX = maxX[i] + halfW;
+                float eMinY = minY[i] - halfH, eMaxY = maxY[i] + halfH;
+                float txEntry, txExit, tyEntry, tyExit;
+                if (dx > 0f) { txEntry = (eMinX - x) / dx; txExit = (eMaxX - x) / dx; }
+                else if (dx < 0f) { txEntry = (eMaxX - x) / dx; txExit = (eMinX - x) / dx; }
+                else if (x > eMinX && x < eMaxX) { txEntry = Float.NEGATIVE_INFINITY; txExit = Float.POSITIVE_INFINITY; }
+                else continue;
+                if (dy > 0f) { tyEntry = (eMinY - y) / dy; tyExit = (eMaxY - y) / dy; }
+                else if (dy < 0f) { tyEntry = (eMaxY - y) / dy; tyExit = (eMinY - y) / dy; }
+                else if (y > eMinY && y < eMaxY) { tyEntry = Float.NEGATIVE_INFINITY; tyExit = Float.POSITIVE_INFINITY; }
+                else continue;
+                float entry = Math.max(txEntry, tyEntry);
+                float exit = Math.min(txExit, tyExit);
+                if (entry >= exit || exit <= 0f) continue;
+                boolean entryX = txEntry > tyEntry;
+                boolean entryInside = false;
+                if (entry < 0f) {
+                    // resting on the surface (within the skin) and pushing into it blocks at once;
+                    // an actor deeper inside may only move out through the nearest face
+                    float depth = -entry * Math.abs(entryX ? dx : dy);
+                    if (depth > 2f * SKIN) {
+                        float left = x - eMinX, right = eMaxX - x, top = y - eMinY, bottom = eMaxY - y;
+                        boolean nearX = Math.min(left, right) <= Math.min(top, bottom);
+                        float outward = nearX ? (left < right ? -dx : dx) : (top < bottom ? -dy : dy);
+                        if (outward > 0f) continue;
+                        // blocked along the separating axis, or along the move when it runs parallel to it
+                        entryX = outward < 0f ? nearX : dx != 0f;
+                        entryInside = true;
+                    }
+                    entry = 0f;
+                }
+                if (entry >= first) continue;
+                first = entry;
+                hitX = entryX;
+                inside = entryInside;
+            }
+            if (first >= 1f) {
+                x += dx;
+                y += dy;
+                break;
+            }
+            // advance to the contact, keep a small gap (not when already inside), then slide with the rest of the move
+            float stepX = dx * first, stepY = dy * first;
+            if (!inside) {
+                if (hitX) stepX -= Math.signum(dx) * SKIN; else stepY -= Math.signum(dy) * SKIN;
+            }
+            x += stepX;
+            y += stepY;
+            float rest = 1f - first;
+            if (hitX) { dx = 0f; dy *= rest; } else { dy = 0f; dx *= rest; }
+        }
+        out[0] = x;
+        out[1] = y;
+    }
+
+    // collects each rectangle touching the box once into candidates[]; returns the count
+    private int gather(float x0, float y0, float x1, float y1) {
+        if (++stamp == Integer.MAX_VALUE) {
+            Arrays.fill(visitStamp, 0);
+            stamp = 1;
+        }
+        int n = 0;
+        int bx0 = bucketX(x0), bx1 = bucketX(x1), by0 = bucketY(y0), by1 = bucketY(y1);
+        for (int by = by0; by <= by1; by++) {
+            for (int bx = bx0; bx <= bx1; bx++) {
+                int b = by * bucketCols + bx;
+                for (int j = bucketStart[b]; j < bucketStart[b + 1]; j++) {
+                    int i = bucketRects[j];
+                    if (visitStamp[i] == stamp) continue;
+                    visitStamp[i] = stamp;
+                    if (n == candidates.length) candidates = Arrays.copyOf(candidates, n * 2);
+                    candidates[n++] = i;
+                }
+            }
+        }
+        return n;
+    }
+
+    // bucket 0 and the last bucket hold everything outside the map (outer walls)
+    private int bucketX(float wx) {
+        int b = (int) Math.floor((wx - originCol + 0.5f) / BUCKET_TILES) + 1;
+        return Math.max(0, Math.min(bucketCols - 1, b));
+    }
+
+    private int bucketY(float wy) {
+        int b = (int) Math.floor((wy - originRow + 0.5f) / BUCKET_TILES) + 1;
+        return Math.max(0, Math.min(bucketRows - 1, b));
+    }
+}
@@ -0,0 +1,142 @@
+package com.non_breath.finlitrush.game.world;
+
+import java.util.Arrays;
+
+/**
+ * Uniform-grid spatial index of int ids (entity ids, handles) by tile position.
+ * - The map is split into square buckets of cellTiles x cellTiles tiles; each bucket keeps an
+ *   intrusive doubly linked list of ids stored in arrays indexed by the id itself, so
+ *   put/remove are O(1) and nothing is boxed
+ * - Tile lookups scan a single bucket; rect queries only visit overlapping buckets
+ * - Ids should be small and dense (the arrays grow to the largest id put)
+ * Not thread-safe: use from the thread that owns the world state.
+ */
+public final class IntSpatialGrid {
+    public static final int DEFAULT_CELL_TILES = 4;
+    public static final int NONE = -1;
+
+    private final int cols, rows, cellTiles, bucketCols, bucketRows;
+    private final int[] heads;
+
+    // per id; bucket[id] == NONE when the id is not in the grid
+    private int[] col = new int[0], row = new int[0], bucket = new int[0], next = new int[0], prev = new int[0];
+    private int size = 0;
+
+    public IntSpatialGrid(int cols, int rows) {
+        this(cols, rows, DEFAULT_CELL_TILES);
+    }
+
+    public IntSpatialGrid(int cols, int rows, int cellTiles) {
+        this.cols = Math.max(1, cols);
+        this.rows = Math.max(1, rows);
+        this.cellTiles = Math.max(1, cellTiles);
+        this.bucketCols = (this.cols + this.cellTiles - 1) / this.cellTiles;
+        this.bucketRows = (this.rows + this.cellTiles - 1) / this.cellTiles;
+        this.heads = new int[bucketCols * bucketRows];
+        Arrays.fill(heads, NONE);
+        allocate(16);
+    }
+
+    public int getCols() { return cols; }
+
+    public int getRows() { return rows; }
+
+    public int size() { return size; }
+
+    public boolean contains(int id) {
+        return id >= 0 && id < bucket.length && bucket[id] != NONE;
+    }
+
+    /** Adds {@code id} at the tile, or moves it there; relinks only when it crosses a bucket border. */
+    public void put(int id, int c, int r) {
+        if (id >= bucket.length) allocate(Math.max(id + 1, bucket.length * 2));
+        col[id] = c;
+        row[id] = r;
+        int b = bucketOf(c, r);
+        if (bucket[id] == b) return;
+        if (bucket[id] != NONE) unlink(id);
+        else size++;
+        link(id, b);
+    }
+
+    public void remove(int id) {
+        if (!contains(id)) return;
+        unlink(id);
+        bucket[id] = NONE;
+        size--;
+    }
+
+    public void clear() {
+        Arrays.fill(heads, NONE);
+        Arrays.fill(bucket, NONE);
+        size = 0;
+    }
+
+    /** Any id standing exactly on the tile, or NONE. */
+    public int firstAt(int c, int r) {
+        if (c < 0 || r < 0 || c >= cols || r >= rows) return NONE;
+        for (int id = heads[bucketOf(c, r)]; id != NONE; id = next[id]) {
+            if (col[id] == c && row[id] == r) return id;
+        }
+        return NONE;
+    }
+
+    /**
+     * Writes the ids inside the inclusive tile rect to {@code out}, in no particular order.
+     * @return number of ids in the rect; when larger than out.length only the first
+     *     out.length were written and the caller should retry with a bigger array
+     */
+    public int query(int c0, int r0, int c1, int r1, int[] out) {
+        c0 = Math.max(0, c0);
+        r0 = Math.max(0, r0);
+        c1 = Math.min(cols - 1, c1);
+        r1 = Math.min(rows - 1, r1);
+        if (c0 > c1 || r0 > r1) return 0;
+        int found = 0;
+        int bc1 = c1 / cellTiles, br1 = r1 / cellTiles;
+        for (int by = r0 / cellTiles; by <= br1; by++) {
+            for (int bx = c0 / cellTiles; bx <= bc1; bx++) {
+                for (int id = heads[by * bucketCols + bx]; id != NONE; id = next[id]) {
+                    int c = col[id], r = row[id];
+                    if (c < c0 || c > c1 || r < r0 || r > r1) continue;
+                    if (found < out.length) out[found] = id;
+                    found++;
+                }
+            }
+        }
+        return found;
+    }
+
+    // positions outside the map are clamped into the border buckets
+    private int bucketOf(int c, int r) {
+        int bx = Math.max(0, Math.min(bucketCols - 1, c / cellTiles));
+        int by = Math.max(0, Math.min(bucketRows - 1, r / cellTiles));
+        return by * bucketCols + bx;
+    }
+
+    private void link(int id, int b) {
+        bucket[id] = b;
+        prev[id] = NONE;
+        next[id] = heads[b];
+        if (heads[b] != NONE) prev[heads[b]] = id;
+        heads[b] = id;
+    }
+
+    private void unlink(int id) {
+        int b = bucket[id];
+        if (prev[id] != NONE) next[prev[id]] = next[id];
+        else heads[b] = next[id];
+        if (next[id] != NONE) prev[next[id]] = prev[id];
+        prev[id] = next[id] = NONE;
+    }
+
+    private void allocate(int capacity) {
+        int old = bucket.length;
+        col = Arrays.copyOf(col, capacity);
+        row = Arrays.copyOf(row, capacity);
+        bucket = Arrays.copyOf(bucket, capacity);
+        next = Arrays.copyOf(next, capacity);
+        prev = Arrays.copyOf(prev, capacity);
+        Arrays.fill(bucket, old, capacity, NONE);
+    }
+}
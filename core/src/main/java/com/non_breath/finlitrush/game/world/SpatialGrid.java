@@ -0,0 +1,96 @@
+package com.non_breath.finlitrush.game.world;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Spatial index of map objects by tile position, on top of an IntSpatialGrid of handles.
+ * - Each object gets a small int handle recycled through a free list; the handle grid does
+ *   the bucketing, so insert/move/remove are O(1) and rect queries only visit overlapping buckets
+ * - Lookups do not allocate; query() only grows its handle scratch for a larger result
+ * Entities with int ids (the ECS World) use IntSpatialGrid directly and skip the boxing.
+ * Not thread-safe: use from the thread that owns the world state.
+ */
+public final class SpatialGrid<T> {
+    public static final int DEFAULT_CELL_TILES = IntSpatialGrid.DEFAULT_CELL_TILES;
+    private static final int NONE = IntSpatialGrid.NONE;
+
+    private final IntSpatialGrid handles;
+    private Object[] items = new Object[16];
+    private int[] nextFree = new int[16];
+    private int freeHead = NONE;
+    private int used = 0; // handles ever handed out (high-water mark)
+    private int[] scratch = new int[16];
+
+    public SpatialGrid(int cols, int rows) {
+        this(cols, rows, DEFAULT_CELL_TILES);
+    }
+
+    public SpatialGrid(int cols, int rows, int cellTiles) {
+        handles = new IntSpatialGrid(cols, rows, cellTiles);
+    }
+
+    public int size() { return handles.size(); }
+
+    /** Adds {@code item} at the tile; returns its handle for move/remove. */
+    public int insert(T item, int c, int r) {
+        int h;
+        if (freeHead != NONE) {
+            h = freeHead;
+            freeHead = nextFree[h];
+        } else {
+            if (used == items.length) {
+                items = Arrays.copyOf(items, used * 2);
+                nextFree = Arrays.copyOf(nextFree, used * 2);
+            }
+            h = used++;
+        }
+        items[h] = item;
+        handles.put(h, c, r);
+        return h;
+    }
+
+    /** Moves an entity to another tile; relinks only when it crosses a bucket border. */
+    public void move(int handle, int c, int r) {
+        handles.put(handle, c, r);
+    }
+
+    public void remove(int handle) {
+        if (items[handle] == null) return;
+        handles.remove(handle);
+        items[handle] = null;
+        nextFree[handle] = freeHead;
+        freeHead = handle;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(int handle) {
+        return (T) items[handle];
+    }
+
+    public void clear() {
+        handles.clear();
+        Arrays.fill(items, 0, used, null);
+        freeHead = NONE;
+        used = 0;
+    }
+
+    /** Any entity standing exactly on the tile, or null. */
+    @SuppressWarnings("unchecked")
+    public T firstAt(int c, int r) {
+        int h = handles.firstAt(c, r);
+        return h != NONE ? (T) items[h] : null;
+    }
+
+    /**
+     * Appends every entity inside the inclusive tile rect to {@code out}.
+     * @return number of entities appended
+     */
+    @SuppressWarnings("unchecked")
+    public int query(int c0, int r0, int c1, int r1, List<? super T> out) {
+        int found;
+        while ((found = handles.query(c0, r0, c1, r1, scratch)) > scratch.length) scratch = new int[found];
+        for (int i = 0; i < found; i++) out.add((T) items[scratch[i]]);
+        return found;
+    }
+}
@@ -0,0 +1,105 @@
+package com.non_breath.finlitrush.game.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import com.non_breath.finlitrush.game.data.CollisionMask;
+import com.non_breath.finlitrush.game.data.MapData;
+import com.non_breath.finlitrush.game.data.TileLayer;
+import com.non_breath.finlitrush.game.loop.InputLog;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+public class GameCoreReplayTest {
+    private static final int COLS = 24, ROWS = 16;
+    private static final int HZ = GameCore.DEFAULT_SIM_HZ;
+
+    // a walled room split by a wall at column 12 with a door at row 4, plus a pillar
+    private static MapData room() {
+        int[] tiles = new int[COLS * ROWS];
+        for (int r = 0; r < ROWS; r++) {
+            for (int c = 0; c < COLS; c++) {
+                boolean wall = c == 0 || r == 0 || c == COLS - 1 || r == ROWS - 1
+                        || (c == 12 && r != 4) || (c == 6 && r == 9);
+                tiles[r * COLS + c] = wall ? 1 : 0;
+            }
+        }
+        MapData md = new MapData();
+        md.cols = COLS;
+        md.rows = ROWS;
+        TileLayer layer = TileLayer.of(tiles, COLS, ROWS);
+        md.tileLayers.add(layer);
+        md.collision = new CollisionMask(COLS, ROWS);
+        md.collision.addNonZero(layer);
+        md.tilePaletteColors = new int[]{0xFFD2D2D2, 0xFF787878};
+        md.playerCol = 2;
+        md.playerRow = 2;
+        return md;
+    }
+
+    // input offered before the given session step: {step, type, a, b} with stick x/y below
+    private static final int[][] SCRIPT = {
+            {0, GameCore.INPUT_DIRS, GameCore.DIR_BIT_RIGHT, 0},
+            {50, GameCore.INPUT_DIRS, GameCore.DIR_BIT_DOWN | GameCore.DIR_BIT_RIGHT, 0},
+            {140, GameCore.INPUT_DIRS, 0, 0},
+            {140, GameCore.INPUT_STICK, 0, 0},
+            {200, GameCore.INPUT_STICK, 0, 0},
+            {200, GameCore.INPUT_MOVE_TO, COLS - 3, 2},
+            {420, GameCore.INPUT_DIRS, GameCore.DIR_BIT_LEFT | GameCore.DIR_BIT_UP, 0},
+            {470, GameCore.INPUT_DIRS, 0, 0}};
+    private static final float[][] STICK = {{0f, 0f}, {0f, 0f}, {0f, 0f}, {0.6f, -0.8f}, {0f, 0f}, {0f, 0f}, {0f, 0f}, {0f, 0f}};
+    private static final int SESSION_STEPS = 540;
+
+    @Test
+    public void replayReproducesRecordedRunStepForStep() throws IOException {
+        MapData map = room();
+        GameCore live = new GameCore(new MapSet(), HZ);
+        assertTrue(live.applyMap(map));
+        float dt = 1f / HZ;
+        live.step(dt);
+        live.startRecording();
+        float[] xs = new float[SESSION_STEPS], ys = new float[SESSION_STEPS];
+        int next = 0;
+        for (int step = 0; step < SESSION_STEPS; step++) {
+            while (next < SCRIPT.length && SCRIPT[next][0] == step) {
+                int[] e = SCRIPT[next];
+                assertTrue(live.offerInput(e[1], e[2], e[3], STICK[next][0], STICK[next][1]));
+                next++;
+            }
+            live.step(dt);
+            assertTrue(live.isRecording());
+            xs[step] = live.getPlayerX();
+            ys[step] = live.getPlayerY();
+        }
+        live.stopSession();
+        live.step(dt);
+        InputLog log = live.getLastRecording();
+        assertNotNull(log);
+        assertEquals(SESSION_STEPS, log.getSteps());
+        assertEquals(SCRIPT.length, log.getEventCount());
+        // the run must have gone through the door into the right half
+        assertTrue(xs[SESSION_STEPS - 1] > 12f);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        log.writeTo(bytes);
+        InputLog read = InputLog.read(new ByteArrayInputStream(bytes.toByteArray()));
+
+        GameCore replay = new GameCore(new MapSet(), HZ);
+        replay.beginReplay(read, map);
+        for (int step = 0; step < SESSION_STEPS; step++) {
+            assertTrue(replay.isReplaying());
+            // live input is dropped while replaying
+            replay.offerInput(GameCore.INPUT_DIRS, GameCore.DIR_BIT_UP, 0, 0f, 0f);
+            replay.step(dt);
+            assertEquals("x at step " + step, xs[step], replay.getPlayerX(), 0f);
+            assertEquals("y at step " + step, ys[step], replay.getPlayerY(), 0f);
+        }
+        assertFalse(replay.isReplaying());
+    }
+}
@@ -0,0 +1,88 @@
+package com.non_breath.finlitrush.game.ecs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class RenderSystemTest {
+    private static final int COLS = 300, ROWS = 200;
+
+    // every drawable entity of w inside the rect, found by scanning all ids
+    private static List<Integer> scan(World w, float alpha, float c0, float r0, float c1, float r1) {
+        List<Integer> out = new ArrayList<>();
+        int need = World.POSITION | World.SPRITE | World.INDEXED;
+        for (int e = 0; e < w.upperBound(); e++) {
+            if ((w.mask[e] & need) != need) continue;
+            float tx = w.lerpX(e, alpha), ty = w.lerpY(e, alpha);
+            if (tx >= c0 && tx <= c1 && ty >= r0 && ty <= r1) out.add(e);
+        }
+        return out;
+    }
+
+    @Test
+    public void gridCullingMatchesFullScanOnRenderCopy() {
+        Random rnd = new Random(3);
+        World sim = new World(16);
+        sim.resizeGrid(COLS, ROWS);
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            int e = sim.create(World.SPRITE | World.INDEXED);
+            sim.setPosition(e, rnd.nextInt(COLS), rnd.nextInt(ROWS));
+            ids.add(e);
+        }
+        World copy = new World(4);
+        RenderSystem render = new RenderSystem();
+        for (int step = 0; step < 30; step++) {
+            sim.beginStep();
+            for (int k = 0; k < 40; k++) {
+                int e = ids.get(rnd.nextInt(ids.size()));
+                if (!sim.isAlive(e)) continue;
+                // mostly walking steps, sometimes a teleport or a despawn/respawn
+                if (rnd.nextInt(10) == 0) {
+                    sim.destroy(e);
+                    int n = sim.create(World.SPRITE | World.INDEXED);
+                    sim.setPosition(n, rnd.nextInt(COLS), rnd.nextInt(ROWS));
+                    ids.add(n);
+                } else {
+                    sim.x[e] += (rnd.nextFloat() - 0.5f) * (rnd.nextInt(8) == 0 ? 40f : 1.8f);
+                    sim.y[e] += (rnd.nextFloat() - 0.5f) * 1.8f;
+                    sim.updateCell(e);
+                }
+            }
+            sim.snapTeleports(1f);
+            sim.copyRenderStateTo(copy);
+            float alpha = rnd.nextFloat();
+            float c0 = rnd.nextFloat() * COLS - 20f, r0 = rnd.nextFloat() * ROWS - 20f;
+            float c1 = c0 + 10f + rnd.nextFloat() * 60f, r1 = r0 + 10f + rnd.nextFloat() * 40f;
+            List<Integer> drawn = new ArrayList<>();
+            render.render(copy, alpha, c0, r0, c1, r1, 0, 0, (w, e, tx, ty) -> drawn.add(e));
+            List<Integer> expected = scan(sim, alpha, c0, r0, c1, r1);
+            assertEquals("step " + step, expected, drawn);
+        }
+    }
+
+    @Test
+    public void requireAndExcludeFilter() {
+        World w = new World(4);
+        w.resizeGrid(10, 10);
+        int player = w.create(World.SPRITE | World.PLAYER | World.INDEXED);
+        int npc = w.create(World.SPRITE | World.INDEXED);
+        int hidden = w.create(World.SPRITE); // not indexed: never drawn
+        w.setPosition(player, 2, 2);
+        w.setPosition(npc, 3, 2);
+        w.setPosition(hidden, 4, 2);
+        List<Integer> drawn = new ArrayList<>();
+        RenderSystem render = new RenderSystem();
+        render.render(w, 1f, 0f, 0f, 9f, 9f, 0, World.PLAYER, (world, e, tx, ty) -> drawn.add(e));
+        render.render(w, 1f, 0f, 0f, 9f, 9f, World.PLAYER, 0, (world, e, tx, ty) -> drawn.add(e));
+        assertEquals(2, drawn.size());
+        assertEquals(npc, (int) drawn.get(0));
+        assertEquals(player, (int) drawn.get(1));
+        assertTrue(w.firstAt(3, 2, World.SPRITE) == npc);
+    }
+}
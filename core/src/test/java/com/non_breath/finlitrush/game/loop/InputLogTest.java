@@ -0,0 +1,142 @@
+package com.non_breath.finlitrush.game.loop;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class InputLogTest {
+    private static final int[][] EVENTS = {
+            // step, type, a, b
+            {0, 1, 8, 0}, {0, 2, 0, 0}, {3, 1, 0, 0}, {3, 4, -7, 250}, {400, 3, 0, 0}, {70000, 1, 5, 0}};
+    private static final float[][] XY = {{0f, 0f}, {0.6f, -0.8f}, {0f, 0f}, {0f, 0f}, {0f, 0f}, {1e-3f, 12.5f}};
+
+    private static InputLog sample(String mapAsset) {
+        InputLog.Recorder r = new InputLog.Recorder(60, mapAsset, 3.5f, 7.25f, 2);
+        for (int i = 0; i < EVENTS.length; i++) {
+            int[] e = EVENTS[i];
+            r.record(e[0], e[1], e[2], e[3], XY[i][0], XY[i][1]);
+        }
+        return r.finish(70001);
+    }
+
+    // every drained event as {step, type, a, b, xBits, yBits}
+    private static List<int[]> drainAll(InputLog log) {
+        List<int[]> out = new ArrayList<>();
+        InputLog.Replay replay = log.replay();
+        for (int step = 0; !replay.isFinished(step); step++) {
+            final int s = step;
+            replay.drain(step, (type, a, b, x, y) ->
+                    out.add(new int[]{s, type, a, b, Float.floatToIntBits(x), Float.floatToIntBits(y)}));
+        }
+        return out;
+    }
+
+    private static InputLog roundTrip(InputLog log) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        log.writeTo(bytes);
+        return InputLog.read(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+
+    @Test
+    public void replayYieldsRecordedEventsAtTheirSteps() {
+        List<int[]> events = drainAll(sample(null));
+        assertEquals(EVENTS.length, events.size());
+        for (int i = 0; i < EVENTS.length; i++) {
+            int[] e = events.get(i);
+            for (int k = 0; k < 4; k++) assertEquals(EVENTS[i][k], e[k]);
+            assertEquals(Float.floatToIntBits(XY[i][0]), e[4]);
+            assertEquals(Float.floatToIntBits(XY[i][1]), e[5]);
+        }
+    }
+
+    @Test
+    public void writeToAndReadRoundTrip() throws IOException {
+        InputLog log = sample("maps/town.json");
+        InputLog copy = roundTrip(log);
+        assertEquals(log.getSimHz(), copy.getSimHz());
+        assertEquals(log.getMapAsset(), copy.getMapAsset());
+        assertEquals(log.getStartX(), copy.getStartX(), 0f);
+        assertEquals(log.getStartY(), copy.getStartY(), 0f);
+        assertEquals(log.getStartDir(), copy.getStartDir());
+        assertEquals(log.getSteps(), copy.getSteps());
+        assertEquals(log.getEventCount(), copy.getEventCount());
+        assertEquals(log.getEventBytes(), copy.getEventBytes());
+        List<int[]> expected = drainAll(log), actual = drainAll(copy);
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            for (int k = 0; k < 6; k++) assertEquals(expected.get(i)[k], actual.get(i)[k]);
+        }
+    }
+
+    @Test
+    public void roundTripKeepsMissingMapAsset() throws IOException {
+        assertNull(roundTrip(sample(null)).getMapAsset());
+    }
+
+    @Test
+    public void replaysAreIndependent() {
+        InputLog log = sample(null);
+        InputLog.Replay first = log.replay();
+        assertEquals(2, first.drain(0, (type, a, b, x, y) -> {}));
+        assertEquals(2, log.replay().drain(0, (type, a, b, x, y) -> {}));
+        assertFalse(first.isFinished(70000));
+        assertTrue(first.isFinished(70001));
+    }
+
+    @Test
+    public void largestEventsFitAtAnyBufferOffset() throws IOException {
+        // three-byte events (delta, type, flags) move the extreme one across the recorder's first buffer end
+        for (int prefix = 320; prefix < 350; prefix++) {
+            InputLog.Recorder r = new InputLog.Recorder(60, null, 0f, 0f, 0);
+            for (int i = 0; i < prefix; i++) r.record(0, 1, 0, 0, 0f, 0f);
+            r.record(1 << 28, 4, Integer.MIN_VALUE, Integer.MAX_VALUE, -1f, Float.MAX_VALUE);
+            r.record(Integer.MAX_VALUE, 4, Integer.MAX_VALUE, Integer.MIN_VALUE, Float.MIN_VALUE, 1f);
+            InputLog log = roundTrip(r.finish(0));
+            assertEquals(prefix + 2, log.getEventCount());
+            List<int[]> tail = new ArrayList<>();
+            log.replay().drain(Integer.MAX_VALUE, (type, a, b, x, y) -> {
+                if (type == 4) tail.add(new int[]{a, b, Float.floatToIntBits(x), Float.floatToIntBits(y)});
+            });
+            assertEquals(2, tail.size());
+            assertEquals(Integer.MIN_VALUE, tail.get(0)[0]);
+            assertEquals(Integer.MAX_VALUE, tail.get(0)[1]);
+            assertEquals(Float.floatToIntBits(-1f), tail.get(0)[2]);
+            assertEquals(Float.floatToIntBits(Float.MAX_VALUE), tail.get(0)[3]);
+            assertEquals(Integer.MAX_VALUE, tail.get(1)[0]);
+            assertEquals(Integer.MIN_VALUE, tail.get(1)[1]);
+            assertEquals(Float.floatToIntBits(Float.MIN_VALUE), tail.get(1)[2]);
+            assertEquals(Float.floatToIntBits(1f), tail.get(1)[3]);
+        }
+    }
+
+    @Test
+    public void readRejectsForeignAndTruncatedStreams() throws IOException {
+        try {
+            InputLog.read(new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5, 6, 7, 8}));
+            fail("read a foreign stream");
+        } catch (IOException expected) {
+            // not an input log
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        sample(null).writeTo(bytes);
+        byte[] full = bytes.toByteArray();
+        byte[] cut = new byte[full.length - 3];
+        System.arraycopy(full, 0, cut, 0, cut.length);
+        try {
+            InputLog.read(new ByteArrayInputStream(cut));
+            fail("read a truncated stream");
+        } catch (IOException expected) {
+            // EOF inside the events
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.non_breath.finlitrush.game.nav;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.non_breath.finlitrush.game.data.CollisionMask;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+public class PathfinderTest {
+    private static CollisionMask randomMask(Random rnd, int cols, int rows, float density) {
+        CollisionMask mask = new CollisionMask(cols, rows);
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) mask.set(c, r, rnd.nextFloat() < density);
+        }
+        return mask;
+    }
+
+    // sum of step costs; also checks each step is a legal move between walkable cells
+    private static float cost(Pathfinder pf, int[] path) {
+        int pc = pf.getPathCols();
+        float total = 0f;
+        for (int i = 1; i < path.length; i++) {
+            int c0 = path[i - 1] % pc, r0 = path[i - 1] / pc, c1 = path[i] % pc, r1 = path[i] / pc;
+            int dc = c1 - c0, dr = r1 - r0;
+            assertTrue(Math.abs(dc) <= 1 && Math.abs(dr) <= 1 && (dc != 0 || dr != 0));
+            assertTrue(pf.isWalkable(c1, r1));
+            if (dc != 0 && dr != 0) {
+                assertTrue("cut corner", pf.isWalkable(c0 + dc, r0) && pf.isWalkable(c0, r0 + dr));
+                total += (float) Math.sqrt(2);
+            } else {
+                total += 1f;
+            }
+        }
+        return total;
+    }
+
+    @Test
+    public void straightLineOnOpenGrid() {
+        Pathfinder pf = new Pathfinder(Pathfinder.DEFAULT_CACHE_PATHS);
+        pf.setGrid(new CollisionMask(10, 10), 10, 10);
+        int[] path = pf.findPath(1, 2, 6, 2);
+        assertArrayEquals(new int[]{21, 22, 23, 24, 25, 26}, path);
+    }
+
+    @Test
+    public void blockedOrUnreachableGoalHasNoPath() {
+        CollisionMask mask = new CollisionMask(10, 10);
+        for (int r = 0; r < 10; r++) mask.set(5, r, true);
+        Pathfinder pf = new Pathfinder(Pathfinder.DEFAULT_CACHE_PATHS);
+        pf.setGrid(mask, 10, 10);
+        assertNull(pf.findPath(1, 1, 5, 3));
+        assertNull(pf.findPath(1, 1, 8, 8));
+        pf.setJumpPoints(true);
+        pf.clearCache();
+        assertNull(pf.findPath(1, 1, 8, 8));
+    }
+
+    @Test
+    public void jumpPointSearchMatchesAStarCost() {
+        Random rnd = new Random(42);
+        Pathfinder astar = new Pathfinder(1);
+        Pathfinder jps = new Pathfinder(1);
+        jps.setJumpPoints(true);
+        int found = 0;
+        for (int map = 0; map < 40; map++) {
+            int cols = 8 + rnd.nextInt(40), rows = 8 + rnd.nextInt(40);
+            CollisionMask mask = randomMask(rnd, cols, rows, 0.1f + 0.25f * rnd.nextFloat());
+            astar.setGrid(mask, cols, rows);
+            jps.setGrid(mask, cols, rows);
+            for (int q = 0; q < 25; q++) {
+                int sc = rnd.nextInt(cols), sr = rnd.nextInt(rows), gc = rnd.nextInt(cols), gr = rnd.nextInt(rows);
+                int[] a = astar.findPath(sc, sr, gc, gr);
+                int[] j = jps.findPath(sc, sr, gc, gr);
+                if (a == null) {
+                    assertNull(j);
+                    continue;
+                }
+                assertNotNull(j);
+                assertEquals(a[0], j[0]);
+                assertEquals(a[a.length - 1], j[j.length - 1]);
+                assertEquals(cost(astar, a), cost(jps, j), 1e-3f);
+                found++;
+            }
+        }
+        assertTrue(found > 100);
+    }
+}
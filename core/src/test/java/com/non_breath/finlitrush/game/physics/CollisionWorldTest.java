@@ -0,0 +1,101 @@
+package com.non_breath.finlitrush.game.physics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.non_breath.finlitrush.game.data.CollisionMask;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+public class CollisionWorldTest {
+    private static final float HALF = 0.3f;
+    private static final float EPS = 1e-3f;
+
+    // 16x16 open map with a vertical wall at column 8 (rows 2..13)
+    private static CollisionWorld wallAtColumn8() {
+        CollisionMask mask = new CollisionMask(16, 16);
+        for (int r = 2; r <= 13; r++) mask.set(8, r, true);
+        return CollisionWorld.build(mask, 16, 16);
+    }
+
+    @Test
+    public void stopsBeforeWall() {
+        CollisionWorld world = wallAtColumn8();
+        float[] out = new float[2];
+        world.slide(5f, 6f, HALF, HALF, 4f, 0f, out);
+        // the wall's left face is at x = 7.5
+        assertEquals(7.5f - HALF, out[0], EPS);
+        assertTrue(out[0] <= 7.5f - HALF);
+        assertEquals(6f, out[1], 0f);
+        assertFalse(world.overlaps(out[0], out[1], HALF, HALF));
+    }
+
+    @Test
+    public void slidesAlongWall() {
+        CollisionWorld world = wallAtColumn8();
+        float[] out = new float[2];
+        world.slide(7f, 6f, HALF, HALF, 1f, 1f, out);
+        assertEquals(7.5f - HALF, out[0], EPS);
+        assertEquals(7f, out[1], EPS);
+    }
+
+    @Test
+    public void neverTunnelsAtHighSpeed() {
+        CollisionWorld world = wallAtColumn8();
+        float[] out = new float[2];
+        world.slide(2f, 6f, HALF, HALF, 100f, 0f, out);
+        assertTrue(out[0] < 8f);
+        world.slide(12f, 6f, HALF, HALF, -100f, 0.5f, out);
+        assertTrue(out[0] > 8f);
+        // outer walls hold too
+        world.slide(2f, 6f, HALF, HALF, 0f, -100f, out);
+        assertEquals(-0.5f + HALF, out[1], EPS);
+    }
+
+    @Test
+    public void actorInsideBlockedRunCannotCrossIt() {
+        // columns 6..10 merge into one rectangle covering x = 5.5..10.5
+        CollisionMask mask = new CollisionMask(16, 16);
+        for (int r = 2; r <= 13; r++) {
+            for (int c = 6; c <= 10; c++) mask.set(c, r, true);
+        }
+        CollisionWorld world = CollisionWorld.build(mask, 16, 16);
+        float[] out = new float[2];
+        float x = 7f, y = 6f; // nearest face is the left one
+        for (int i = 0; i < 100; i++) {
+            world.slide(x, y, HALF, HALF, 0.2f, 0f, out);
+            x = out[0];
+            y = out[1];
+        }
+        assertEquals(7f, x, 0f);
+        // deeper along a parallel move stays put as well
+        world.slide(x, y, HALF, HALF, 0f, 3f, out);
+        assertEquals(6f, out[1], 0f);
+        // out through the nearest face is free, and the wall holds from outside again
+        world.slide(x, y, HALF, HALF, -3f, 0f, out);
+        assertEquals(4f, out[0], EPS);
+        world.slide(out[0], out[1], HALF, HALF, 5f, 0f, out);
+        assertEquals(5.5f - HALF, out[0], EPS);
+    }
+
+    @Test
+    public void randomMovesNeverEndInsideOrAcrossWalls() {
+        CollisionWorld world = wallAtColumn8();
+        Random rnd = new Random(7);
+        float[] out = new float[2];
+        float x = 3f, y = 7f;
+        for (int i = 0; i < 20000; i++) {
+            float dx = (rnd.nextFloat() - 0.5f) * 6f, dy = (rnd.nextFloat() - 0.5f) * 6f;
+            world.slide(x, y, HALF, HALF, dx, dy, out);
+            assertFalse("move " + i + " ended inside a wall", world.overlaps(out[0], out[1], HALF - EPS, HALF - EPS));
+            // the wall spans rows 2..13, so only a move that passes above or below it may cross
+            boolean crossed = (x < 8f) != (out[0] < 8f);
+            if (crossed) assertTrue("move " + i + " tunnelled", Math.min(y, out[1]) < 1.5f + HALF || Math.max(y, out[1]) > 13.5f - HALF);
+            x = out[0];
+            y = out[1];
+        }
+    }
+}